@@ -0,0 +1,368 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Compares the two-stage MIDI message dissection formerly used in {@link MidiService_FromRaw}
+ * with the one-pass {@link MidiUtils#decodeMidiMessage} used now.
+ * 
+ * <p>
+ * Each invocation takes one message from a fixed, pre-built array of {@link #MESSAGES} messages,
+ * and runs it through the receive path of {@link MidiService_FromRaw} up to (but excluding) the listener notification:
+ * {@link #twoStage} holds a copy of the former dissection and per-type extraction of channel and data bytes,
+ * {@link #onePass} holds a copy of the current decoding and dispatch.
+ * Listener notifications are replaced by a {@link Blackhole}; logging of invalid messages is left out from both.
+ * 
+ * <p>
+ * Run with {@code mvn -P benchmarks package && java -jar target/benchmarks.jar MidiDecodeBenchmark}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+@State (Scope.Thread)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class MidiDecodeBenchmark
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PARAMETERS / STATE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The number of pre-built messages (a power of two).
+   * 
+   */
+  public final static int MESSAGES = 1 << 16;
+  
+  /** The message mix; one of {@code NOTE_ON_OFF}, {@code CONTROL_CHANGE} or {@code MIXED}.
+   * 
+   * <p>
+   * The {@code MIXED} mix holds all Channel message types, System Exclusive (up to 32 bytes) and Timing Clock.
+   * 
+   */
+  @Param ({"NOTE_ON_OFF", "CONTROL_CHANGE", "MIXED"})
+  public String mix;
+  
+  private byte[][] messages;
+  
+  private int index;
+  
+  @Setup
+  public void setup ()
+  {
+    final Random random = new Random (0L);
+    this.messages = new byte[MESSAGES][];
+    for (int i = 0; i < MESSAGES; i++)
+    {
+      final int midiChannel = 1 + random.nextInt (16);
+      final int data1 = random.nextInt (128);
+      final int data2 = random.nextInt (128);
+      switch (this.mix)
+      {
+        case "NOTE_ON_OFF":
+          this.messages[i] = random.nextBoolean ()
+            ? MidiUtils.createMidiNoteOnMessage (midiChannel, data1, data2)
+            : MidiUtils.createMidiNoteOffMessage (midiChannel, data1, data2);
+          break;
+        case "CONTROL_CHANGE":
+          this.messages[i] = MidiUtils.createMidiControlChangeMessage (midiChannel, data1, data2);
+          break;
+        case "MIXED":
+          switch (random.nextInt (10))
+          {
+            case 0:  this.messages[i] = MidiUtils.createMidiNoteOnMessage (midiChannel, data1, data2); break;
+            case 1:  this.messages[i] = MidiUtils.createMidiNoteOffMessage (midiChannel, data1, data2); break;
+            case 2:  this.messages[i] = MidiUtils.createMidiPolyphonicKeyPressureMessage (midiChannel, data1, data2); break;
+            case 3:  this.messages[i] = MidiUtils.createMidiControlChangeMessage (midiChannel, data1, data2); break;
+            case 4:  this.messages[i] = MidiUtils.createMidiProgramChangeMessage (midiChannel, data1); break;
+            case 5:  this.messages[i] = MidiUtils.createMidiChannelPressureMessage (midiChannel, data1); break;
+            case 6:  this.messages[i] = MidiUtils.createMidiPitchBendChangeMessage (midiChannel, ((data1 << 7) | data2) - 8192); break;
+            case 7:
+            {
+              final byte[] sysEx = new byte[3 + random.nextInt (30)];
+              sysEx[0] = (byte) 0xF0;
+              for (int j = 1; j < sysEx.length - 1; j++)
+                sysEx[j] = (byte) random.nextInt (128);
+              sysEx[sysEx.length - 1] = (byte) 0xF7;
+              this.messages[i] = sysEx;
+              break;
+            }
+            default: this.messages[i] = MidiUtils.createMidiSystemRealTimeMessage
+                       (MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK); break;
+          }
+          break;
+        default:
+          throw new IllegalArgumentException ();
+      }
+    }
+  }
+  
+  private byte[] nextMessage ()
+  {
+    final byte[] message = this.messages[this.index];
+    this.index = (this.index + 1) & (MESSAGES - 1);
+    return message;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TWO-STAGE (FORMER) DISSECTION
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A copy of the former {@link MidiUtils#dissectMidiMessage}.
+   * 
+   * <p>
+   * It does not recognize System Common (other than System Exclusive) and System Real-Time messages;
+   * these are reported as {@link MidiMessageType#INVALID}.
+   * 
+   */
+  private static MidiMessageType formerDissectMidiMessage (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage == null || rawMidiMessage.length == 0)
+      throw new IllegalArgumentException ();
+    final byte statusByte = rawMidiMessage[0];
+    if (statusByte >= 0)
+      return MidiMessageType.INVALID;
+    final int statusMsbNibble = statusByte & 0xF0;
+    switch (statusMsbNibble)
+    {
+      case 0x80:
+        if (rawMidiMessage.length == 3 && rawMidiMessage[1] >= 0 && rawMidiMessage[2] >= 0)
+          return MidiMessageType.NOTE_OFF;
+        else
+          return MidiMessageType.INVALID;
+      case 0x90:
+        if (rawMidiMessage.length == 3 && rawMidiMessage[1] >= 0 && rawMidiMessage[2] >= 0)
+          return MidiMessageType.NOTE_ON;
+        else
+          return MidiMessageType.INVALID;
+      case 0xA0:
+        if (rawMidiMessage.length == 3 && rawMidiMessage[1] >= 0 && rawMidiMessage[2] >= 0)
+          return MidiMessageType.POLYPHONIC_KEY_PRESSURE_AFTERTOUCH;
+        else
+          return MidiMessageType.INVALID;
+      case 0xB0:
+        if (rawMidiMessage.length == 3 && rawMidiMessage[1] >= 0 && rawMidiMessage[2] >= 0)
+          return MidiMessageType.CONTROL_CHANGE;
+        else
+          return MidiMessageType.INVALID;
+      case 0xC0:
+        if (rawMidiMessage.length == 2 && rawMidiMessage[1] >= 0)
+          return MidiMessageType.PROGRAM_CHANGE;
+        else
+          return MidiMessageType.INVALID;
+      case 0xD0:
+        if (rawMidiMessage.length == 2 && rawMidiMessage[1] >= 0)
+          return MidiMessageType.CHANNEL_PRESSURE_AFTERTOUCH;
+        else
+          return MidiMessageType.INVALID;
+      case 0xE0:
+        if (rawMidiMessage.length == 3 && rawMidiMessage[1] >= 0 && rawMidiMessage[2] >= 0)
+          return MidiMessageType.PITCH_BEND_CHANGE;
+        else
+          return MidiMessageType.INVALID;
+      case 0xF0:
+        if (rawMidiMessage.length >= 3 && (rawMidiMessage[rawMidiMessage.length - 1] & 0xFF) == 0xF7)
+        {
+          for (int i = 1; i < rawMidiMessage.length - 1; i++)
+            if (rawMidiMessage[i] < 0)
+              return MidiMessageType.INVALID;
+          return MidiMessageType.SYSTEM_COMMON_SYSEX;
+        }
+        else
+          return MidiMessageType.INVALID;
+      default:
+        throw new RuntimeException ();
+    }
+  }
+  
+  /** Dissects the message type, and then extracts channel and data bytes from the raw message per type.
+   * 
+   * <p>
+   * A copy of the former {@code MidiService_FromRaw} receive path.
+   * 
+   * @param blackhole The blackhole.
+   * 
+   */
+  @Benchmark
+  public void twoStage (final Blackhole blackhole)
+  {
+    final byte[] rawMidiMessage = nextMessage ();
+    final MidiMessageType midiMessageType = formerDissectMidiMessage (rawMidiMessage);
+    final int statusByte = rawMidiMessage[0] & 0xFF;
+    switch (midiMessageType)
+    {
+      case INVALID:
+      {
+        blackhole.consume (rawMidiMessage);
+        break;
+      }
+      case NOTE_OFF:
+      case NOTE_ON:
+      case POLYPHONIC_KEY_PRESSURE_AFTERTOUCH:
+      case CONTROL_CHANGE:
+      {
+        final int midiChannel = (statusByte & 0x0F) + 1;
+        final int data1 = rawMidiMessage[1];
+        final int data2 = rawMidiMessage[2];
+        blackhole.consume (midiMessageType);
+        blackhole.consume (midiChannel);
+        blackhole.consume (data1);
+        blackhole.consume (data2);
+        break;
+      }
+      case PROGRAM_CHANGE:
+      case CHANNEL_PRESSURE_AFTERTOUCH:
+      {
+        final int midiChannel = (statusByte & 0x0F) + 1;
+        final int data1 = rawMidiMessage[1];
+        blackhole.consume (midiMessageType);
+        blackhole.consume (midiChannel);
+        blackhole.consume (data1);
+        break;
+      }
+      case PITCH_BEND_CHANGE:
+      {
+        final int midiChannel = (statusByte & 0x0F) + 1;
+        final int pitchBend_l = rawMidiMessage[1];
+        final int pitchBend_h = rawMidiMessage[2];
+        final int pitchBend = (pitchBend_h << 7) + pitchBend_l;
+        blackhole.consume (midiChannel);
+        blackhole.consume (pitchBend);
+        break;
+      }
+      case SYSTEM_COMMON_SYSEX:
+      {
+        final byte vendorId = rawMidiMessage[1];
+        blackhole.consume (vendorId);
+        blackhole.consume (rawMidiMessage);
+        break;
+      }
+      default:
+        throw new RuntimeException ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ONE-PASS DECODING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Decodes type, channel and data bytes in a single pass, and dispatches on the type.
+   * 
+   * <p>
+   * A copy of the current {@code MidiService_FromRaw} receive path.
+   * 
+   * @param blackhole The blackhole.
+   * 
+   */
+  @Benchmark
+  public void onePass (final Blackhole blackhole)
+  {
+    final byte[] rawMidiMessage = nextMessage ();
+    final int decodedMidiMessage = MidiUtils.decodeMidiMessage (rawMidiMessage);
+    final int midiChannel = MidiUtils.getDecodedMidiChannel (decodedMidiMessage);
+    final int data1 = MidiUtils.getDecodedData1 (decodedMidiMessage);
+    final int data2 = MidiUtils.getDecodedData2 (decodedMidiMessage);
+    final MidiMessageType midiMessageType = MidiUtils.getDecodedMidiMessageType (decodedMidiMessage);
+    switch (midiMessageType)
+    {
+      case INVALID:
+      {
+        blackhole.consume (rawMidiMessage);
+        break;
+      }
+      case NOTE_OFF:
+      case NOTE_ON:
+      case POLYPHONIC_KEY_PRESSURE_AFTERTOUCH:
+      case CONTROL_CHANGE:
+      {
+        blackhole.consume (midiMessageType);
+        blackhole.consume (midiChannel);
+        blackhole.consume (data1);
+        blackhole.consume (data2);
+        break;
+      }
+      case PROGRAM_CHANGE:
+      case CHANNEL_PRESSURE_AFTERTOUCH:
+      {
+        blackhole.consume (midiMessageType);
+        blackhole.consume (midiChannel);
+        blackhole.consume (data1);
+        break;
+      }
+      case PITCH_BEND_CHANGE:
+      {
+        final int pitchBend = (data2 << 7) + data1;
+        blackhole.consume (midiChannel);
+        blackhole.consume (pitchBend);
+        break;
+      }
+      case SYSTEM_COMMON_SYSEX:
+      {
+        final byte vendorId = (byte) data1;
+        blackhole.consume (vendorId);
+        blackhole.consume (rawMidiMessage);
+        break;
+      }
+      case SYSTEM_COMMON_MTC_QUARTER_FRAME:
+      case SYSTEM_COMMON_SONG_POSITION_POINTER:
+      case SYSTEM_COMMON_SONG_SELECT:
+      case SYSTEM_COMMON_TUNE_REQUEST:
+      {
+        blackhole.consume (midiMessageType);
+        blackhole.consume (data1);
+        blackhole.consume (data2);
+        break;
+      }
+      case SYSTEM_REAL_TIME_TIMING_CLOCK:
+      case SYSTEM_REAL_TIME_START:
+      case SYSTEM_REAL_TIME_CONTINUE:
+      case SYSTEM_REAL_TIME_STOP:
+      case SYSTEM_REAL_TIME_ACTIVE_SENSING:
+      case SYSTEM_REAL_TIME_SYSTEM_RESET:
+      {
+        blackhole.consume (midiMessageType);
+        break;
+      }
+      default:
+        throw new RuntimeException ();
+    }
+  }
+  
+}
@@ -0,0 +1,254 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+import org.javajdj.jservice.Service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the transmit path of {@link UdpMulticastService}.
+ * 
+ * <p>
+ * {@link #transmit} hands a three-byte MIDI Note-On message to {@link UdpMulticastService#transmit}
+ * for both {@link UdpMulticastService.Engine}s.
+ * The transmission-overflow policy is {@link UdpMulticastService.OverflowPolicy#BLOCK},
+ * so a full transmit queue throttles the benchmark thread (without logging),
+ * and the score reflects the sustained rate at which datagrams leave the service.
+ * 
+ * <p>
+ * The {@code send*} benchmarks isolate the sending of a single datagram as done by the transmit threads of both engines,
+ * before and after resolving the destination once per start (instead of once per datagram):
+ * {@link #sendResolvePerSend} and {@link #sendWrapped} are copies of the former code,
+ * {@link #sendResolvedOnce} and {@link #sendDirect} of the current code.
+ * 
+ * <p>
+ * Run with {@code mvn -P benchmarks package && java -jar target/benchmarks.jar UdpTransmitBenchmark -prof gc};
+ * the {@code gc} profiler reports the allocation rate per message ({@code gc.alloc.rate.norm}).
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.SECONDS)
+@Warmup (iterations = 5, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class UdpTransmitBenchmark
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTANTS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The multicast group.
+   * 
+   */
+  public final static String GROUP = "225.0.0.37";
+  
+  /** The port.
+   * 
+   */
+  public final static int PORT = 21999;
+  
+  private static final byte[] PAYLOAD = new byte[]{(byte) 0x90, 60, 100};
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A started {@link UdpMulticastService}.
+   * 
+   */
+  @State (Scope.Benchmark)
+  public static class ServiceState
+  {
+    
+    /** The engine; one of {@code SOCKET} or {@code CHANNEL}.
+     * 
+     */
+    @Param ({"SOCKET", "CHANNEL"})
+    public String engine;
+    
+    private UdpMulticastService service;
+    
+    @Setup
+    public void setup ()
+    {
+      this.service = new UdpMulticastService (GROUP, PORT, UdpMulticastService.Engine.valueOf (this.engine));
+      this.service.setTxOverflowPolicy (UdpMulticastService.OverflowPolicy.BLOCK);
+      this.service.setOverflowTimeout (10000);
+      this.service.startService ();
+    }
+    
+    @TearDown
+    public void tearDown ()
+    {
+      this.service.stopService ();
+      this.service = null;
+    }
+    
+  }
+  
+  /** Transmits a single message, blocking while the transmit queue is full.
+   * 
+   * @param state The service state.
+   * 
+   * @return Whether the message was (eventually) accepted; false only if the service is no longer active.
+   * 
+   */
+  @Benchmark
+  public boolean transmit (final ServiceState state)
+  {
+    while (! state.service.transmit (PAYLOAD))
+      if (state.service.getStatus () != Service.Status.ACTIVE)
+        return false;
+    return true;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SEND
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** An open multicast socket and datagram channel, with the state kept by the transmit threads of both engines.
+   * 
+   */
+  @State (Scope.Thread)
+  public static class SendState
+  {
+    
+    private final String group = GROUP;
+    
+    private final int port = PORT;
+    
+    private MulticastSocket socket;
+    
+    private DatagramChannel channel;
+    
+    private InetSocketAddress udpTxAddress;
+    
+    private DatagramPacket udpTxPacket;
+    
+    private final ByteBuffer txBuffer = ByteBuffer.allocateDirect (UdpMulticastService.MAX_PACKING_MTU);
+    
+    @Setup
+    public void setup () throws IOException
+    {
+      this.socket = new MulticastSocket ();
+      this.channel = DatagramChannel.open ();
+      this.udpTxAddress = new InetSocketAddress (InetAddress.getByName (this.group), this.port);
+      this.udpTxPacket = new DatagramPacket (new byte[0], 0, this.udpTxAddress);
+    }
+    
+    @TearDown
+    public void tearDown () throws IOException
+    {
+      this.socket.close ();
+      this.channel.close ();
+    }
+    
+  }
+  
+  /** Sends a datagram on the socket, resolving the destination and creating the packet for each datagram (former code).
+   * 
+   * @param state The send state.
+   * 
+   * @throws IOException If sending fails.
+   * 
+   */
+  @Benchmark
+  public void sendResolvePerSend (final SendState state) throws IOException
+  {
+    final byte[] payload = PAYLOAD;
+    final DatagramPacket p = new DatagramPacket (payload, payload.length, InetAddress.getByName (state.group), state.port);
+    state.socket.send (p);
+  }
+  
+  /** Sends a datagram on the socket, reusing the packet holding the destination resolved once (current code).
+   * 
+   * @param state The send state.
+   * 
+   * @throws IOException If sending fails.
+   * 
+   */
+  @Benchmark
+  public void sendResolvedOnce (final SendState state) throws IOException
+  {
+    final byte[] payload = PAYLOAD;
+    final DatagramPacket p = state.udpTxPacket;
+    p.setData (payload);
+    state.socket.send (p);
+  }
+  
+  /** Sends a datagram on the channel, wrapping the payload array (former code).
+   * 
+   * @param state The send state.
+   * 
+   * @return The number of bytes sent.
+   * 
+   * @throws IOException If sending fails.
+   * 
+   */
+  @Benchmark
+  public int sendWrapped (final SendState state) throws IOException
+  {
+    return state.channel.send (ByteBuffer.wrap (PAYLOAD), state.udpTxAddress);
+  }
+  
+  /** Sends a datagram on the channel, copying the payload into a reusable direct buffer (current code).
+   * 
+   * @param state The send state.
+   * 
+   * @return The number of bytes sent.
+   * 
+   * @throws IOException If sending fails.
+   * 
+   */
+  @Benchmark
+  public int sendDirect (final SendState state) throws IOException
+  {
+    final ByteBuffer txData = state.txBuffer;
+    txData.clear ();
+    txData.put (PAYLOAD);
+    txData.flip ();
+    return state.channel.send (txData, state.udpTxAddress);
+  }
+  
+}
@@ -86,6 +86,12 @@ public abstract class AbstractMidiService
     this.midiServiceListenerSupport.addMidiServiceListener (l);
   }
 
+  @Override
+  public final void addMidiServiceListener (final MidiServiceListener l, final long midiMessageTypeMask, final int midiChannelMask)
+  {
+    this.midiServiceListenerSupport.addMidiServiceListener (l, midiMessageTypeMask, midiChannelMask);
+  }
+
   @Override
   public final void removeMidiServiceListener (final MidiServiceListener l)
   {
@@ -178,6 +184,57 @@ public abstract class AbstractMidiService
     this.midiServiceListenerSupport.fireMidiTxSysEx (vendorId, rawMidiMessage);
   }
 
+  @Override
+  public final void sendMidiMtcQuarterFrame (final int piece, final int value)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiMtcQuarterFrameMessage (piece, value);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxMtcQuarterFrame (piece, value);
+  }
+  
+  @Override
+  public final void sendMidiSongPositionPointer (final int position)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiSongPositionPointerMessage (position);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSongPositionPointer (position);
+  }
+  
+  @Override
+  public final void sendMidiSongSelect (final int song)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiSongSelectMessage (song);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSongSelect (song);
+  }
+  
+  @Override
+  public final void sendMidiTuneRequest ()
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiTuneRequestMessage ();
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxTuneRequest ();
+  }
+  
+  @Override
+  public final void sendMidiSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    // A fresh (one-byte) array: the message is handed to the raw MIDI service and its listeners, which may retain it.
+    final byte[] midiMessage = MidiUtils.createMidiSystemRealTimeMessage (midiMessageType);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSystemRealTime (midiMessageType);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
@@ -307,6 +307,164 @@ public class DefaultMidiServiceListener
   {
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - MTC QUARTER FRAME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  @Override
+  public void midiTxMtcQuarterFrame (final int piece, final int value)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  @Override
+  public void midiRxMtcQuarterFrame (final int piece, final int value)
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - SONG POSITION POINTER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  @Override
+  public void midiTxSongPositionPointer (final int position)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  @Override
+  public void midiRxSongPositionPointer (final int position)
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - SONG SELECT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Song Select message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  @Override
+  public void midiTxSongSelect (final int song)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Select message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  @Override
+  public void midiRxSongSelect (final int song)
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - TUNE REQUEST
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Tune Request message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   */
+  @Override
+  public void midiTxTuneRequest ()
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Tune Request message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   */
+  @Override
+  public void midiRxTuneRequest ()
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM REAL-TIME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  @Override
+  public void midiTxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * This implementation does nothing.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  @Override
+  public void midiRxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
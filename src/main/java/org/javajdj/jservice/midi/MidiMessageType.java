@@ -58,5 +58,81 @@ public enum MidiMessageType
   /** System Common - System Exclusive Midi Message (0xF0 vendorId data_1 {@literal ...} data_n 0xF7).
    * 
    */
-  SYSTEM_COMMON_SYSEX;
+  SYSTEM_COMMON_SYSEX,
+  /** System Common - MIDI Time Code Quarter Frame Midi Message (0xF1 0nnndddd).
+   * 
+   */
+  SYSTEM_COMMON_MTC_QUARTER_FRAME,
+  /** System Common - Song Position Pointer Midi Message (0xF2 lsb msb).
+   * 
+   */
+  SYSTEM_COMMON_SONG_POSITION_POINTER,
+  /** System Common - Song Select Midi Message (0xF3 song).
+   * 
+   */
+  SYSTEM_COMMON_SONG_SELECT,
+  /** System Common - Tune Request Midi Message (0xF6).
+   * 
+   */
+  SYSTEM_COMMON_TUNE_REQUEST,
+  /** System Real-Time - Timing Clock Midi Message (0xF8).
+   * 
+   */
+  SYSTEM_REAL_TIME_TIMING_CLOCK,
+  /** System Real-Time - Start Midi Message (0xFA).
+   * 
+   */
+  SYSTEM_REAL_TIME_START,
+  /** System Real-Time - Continue Midi Message (0xFB).
+   * 
+   */
+  SYSTEM_REAL_TIME_CONTINUE,
+  /** System Real-Time - Stop Midi Message (0xFC).
+   * 
+   */
+  SYSTEM_REAL_TIME_STOP,
+  /** System Real-Time - Active Sensing Midi Message (0xFE).
+   * 
+   */
+  SYSTEM_REAL_TIME_ACTIVE_SENSING,
+  /** System Real-Time - System Reset Midi Message (0xFF).
+   * 
+   */
+  SYSTEM_REAL_TIME_SYSTEM_RESET;
+  
+  /** Returns whether this is a System Real-Time message type.
+   * 
+   * @return Whether this is a System Real-Time message type.
+   * 
+   */
+  public final boolean isSystemRealTime ()
+  {
+    return ordinal () >= SYSTEM_REAL_TIME_TIMING_CLOCK.ordinal ();
+  }
+  
+  /** Returns whether this is a Channel message type.
+   * 
+   * @return Whether this is a Channel (Voice or Mode) message type.
+   * 
+   */
+  public final boolean isChannelMessage ()
+  {
+    return ordinal () >= NOTE_OFF.ordinal () && ordinal () <= PITCH_BEND_CHANGE.ordinal ();
+  }
+  
+  /** Returns the bit mask of this message type, for use in message-type masks.
+   * 
+   * <p>
+   * The mask has the single bit set at the position given by the {@link #ordinal} of this message type.
+   * 
+   * @return The bit mask of this message type.
+   * 
+   * @see MidiService#addMidiServiceListener(MidiServiceListener, long, int)
+   * 
+   */
+  public final long getMask ()
+  {
+    return 1L << ordinal ();
+  }
+  
 }
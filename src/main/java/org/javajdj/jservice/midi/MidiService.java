@@ -47,6 +47,44 @@ public interface MidiService
    */
   public void addMidiServiceListener (MidiServiceListener l);
   
+  /** Registers a listener for this service, subscribing only to messages of given types on given MIDI channels.
+   * 
+   * <p>
+   * The listener is notified of the transmission and reception of messages whose type is selected by the message-type mask,
+   * see {@link MidiMessageType#getMask}.
+   * Channel messages must in addition be on a MIDI channel selected by the channel mask,
+   * in which MIDI channel {@code n} is represented by bit {@code n - 1};
+   * the channel mask does not apply to other messages.
+   * Implementations should dispatch notifications such that their cost scales with the number of interested listeners,
+   * rather than with the number of registered listeners.
+   * 
+   * <p>
+   * If the listener is already registered, its filter is replaced.
+   * A listener registered through {@link #addMidiServiceListener(MidiServiceListener)} subscribes to all messages.
+   * 
+   * <p>
+   * The default implementation checks the channel mask,
+   * and registers the listener through {@link #addMidiServiceListener(MidiServiceListener)}, ignoring the filter.
+   * 
+   * @param l                   The listener, ignored if {@code null}.
+   * @param midiMessageTypeMask The message-type mask, see {@link MidiUtils#getMidiMessageTypeMask}.
+   * @param midiChannelMask     The channel mask, see {@link MidiUtils#getMidiChannelMask},
+   *                            between zero and {@link MidiUtils#MIDI_CHANNEL_MASK_ALL} inclusive.
+   * 
+   * @throws IllegalArgumentException If the channel mask is out of range.
+   * 
+   * @see MidiServiceListener
+   * 
+   */
+  public default void addMidiServiceListener (final MidiServiceListener l,
+                                              final long midiMessageTypeMask,
+                                              final int midiChannelMask)
+  {
+    if (midiChannelMask < 0 || midiChannelMask > MidiUtils.MIDI_CHANNEL_MASK_ALL)
+      throw new IllegalArgumentException ();
+    addMidiServiceListener (l);
+  }
+  
   /** Removes a listener for this service.
    * 
    * @param l The listener, ignored if {@code null} or not registered.
@@ -163,6 +201,88 @@ public interface MidiService
    */
   void sendMidiSysEx (byte vendorId, byte[] rawMidiMessage);
   
+  /** Transmits (schedules) a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * The default implementation creates the message through {@link MidiUtils}, and transmits it through {@link #sendRawMidiMessage}.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   * @throws IllegalArgumentException If any of the arguments is out of range.
+   * 
+   * @see #sendRawMidiMessage
+   * 
+   */
+  default void sendMidiMtcQuarterFrame (final int piece, final int value)
+  {
+    sendRawMidiMessage (MidiUtils.createMidiMtcQuarterFrameMessage (piece, value));
+  }
+  
+  /** Transmits (schedules) a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * The default implementation creates the message through {@link MidiUtils}, and transmits it through {@link #sendRawMidiMessage}.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   * @throws IllegalArgumentException If any of the arguments is out of range.
+   * 
+   * @see #sendRawMidiMessage
+   * 
+   */
+  default void sendMidiSongPositionPointer (final int position)
+  {
+    sendRawMidiMessage (MidiUtils.createMidiSongPositionPointerMessage (position));
+  }
+  
+  /** Transmits (schedules) a MIDI Song Select message.
+   * 
+   * <p>
+   * The default implementation creates the message through {@link MidiUtils}, and transmits it through {@link #sendRawMidiMessage}.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   * @throws IllegalArgumentException If any of the arguments is out of range.
+   * 
+   * @see #sendRawMidiMessage
+   * 
+   */
+  default void sendMidiSongSelect (final int song)
+  {
+    sendRawMidiMessage (MidiUtils.createMidiSongSelectMessage (song));
+  }
+  
+  /** Transmits (schedules) a MIDI Tune Request message.
+   * 
+   * <p>
+   * The default implementation creates the message through {@link MidiUtils}, and transmits it through {@link #sendRawMidiMessage}.
+   * 
+   * @see #sendRawMidiMessage
+   * 
+   */
+  default void sendMidiTuneRequest ()
+  {
+    sendRawMidiMessage (MidiUtils.createMidiTuneRequestMessage ());
+  }
+  
+  /** Transmits (schedules) a MIDI System Real-Time message.
+   * 
+   * <p>
+   * The default implementation creates the message through {@link MidiUtils}, and transmits it through {@link #sendRawMidiMessage}.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If the message type is {@code null} or not a System Real-Time message type.
+   * 
+   * @see #sendRawMidiMessage
+   * 
+   */
+  default void sendMidiSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    sendRawMidiMessage (MidiUtils.createMidiSystemRealTimeMessage (midiMessageType));
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // ACTIVITY MONITORABLE
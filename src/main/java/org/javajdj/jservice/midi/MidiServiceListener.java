@@ -16,6 +16,8 @@
  */
 package org.javajdj.jservice.midi;
 
+import org.javajdj.jservice.midi.raw.RawMidiServiceListener;
+
 /** A listener to a {@link MidiService}.
  *
  * @see MidiService#addMidiServiceListener
@@ -51,6 +53,24 @@ public interface MidiServiceListener
    */
   void midiRxNoteOff (int midiChannel, int note, int velocity);
   
+  /** Notification of the reception of a MIDI Note Off message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxNoteOff(int, int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxNoteOff (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    midiRxNoteOff (midiChannel, note, velocity);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // NOTE ON
@@ -75,6 +95,24 @@ public interface MidiServiceListener
    */
   void midiRxNoteOn (int midiChannel, int note, int velocity);
   
+  /** Notification of the reception of a MIDI Note On message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxNoteOn(int, int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxNoteOn (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    midiRxNoteOn (midiChannel, note, velocity);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // POLYPHONIC KEY PRESSURE
@@ -99,6 +137,24 @@ public interface MidiServiceListener
    */
   void midiRxPolyphonicKeyPressure (int midiChannel, int note, int pressure);
   
+  /** Notification of the reception of a MIDI Polyphonic Key Pressure message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxPolyphonicKeyPressure(int, int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure, final long timestamp)
+  {
+    midiRxPolyphonicKeyPressure (midiChannel, note, pressure);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // CONTROL CHANGE
@@ -123,6 +179,24 @@ public interface MidiServiceListener
    */
   void midiRxControlChange (int midiChannel, int controller, int value);
   
+  /** Notification of the reception of a MIDI control change, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxControlChange(int, int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param controller  The MIDI controller number, between zero and 127 inclusive.
+   * @param value       The value for the controller, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxControlChange (final int midiChannel, final int controller, final int value, final long timestamp)
+  {
+    midiRxControlChange (midiChannel, controller, value);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // PROGRAM (PATCH) CHANGE
@@ -145,6 +219,23 @@ public interface MidiServiceListener
    */
   void midiRxProgramChange (int midiChannel, int patch);
   
+  /** Notification of the reception of a MIDI program (patch) change, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxProgramChange(int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param patch       The patch (program) number, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxProgramChange (final int midiChannel, final int patch, final long timestamp)
+  {
+    midiRxProgramChange (midiChannel, patch);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // CHANNEL PRESSURE
@@ -173,6 +264,23 @@ public interface MidiServiceListener
    */
   void midiRxChannelPressure (int midiChannel, int pressure);
   
+  /** Notification of the reception of a MIDI channel pressure, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxChannelPressure(int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxChannelPressure (final int midiChannel, final int pressure, final long timestamp)
+  {
+    midiRxChannelPressure (midiChannel, pressure);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // PITCH BEND CHANGE
@@ -201,6 +309,23 @@ public interface MidiServiceListener
    */
   public void midiRxPitchBendChange (int midiChannel, int pitchBend);
   
+  /** Notification of the reception of a MIDI pitch bend change, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxPitchBendChange(int, int)}.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxPitchBendChange (final int midiChannel, final int pitchBend, final long timestamp)
+  {
+    midiRxPitchBendChange (midiChannel, pitchBend);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // SYSTEM EXCLUSIVE
@@ -223,6 +348,251 @@ public interface MidiServiceListener
    */
   void midiRxSysEx (byte vendorId, byte[] rawMidiMessage);
   
+  /** Notification of the reception of a MIDI System Exclusive (SysEx) message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxSysEx(byte, byte[])}.
+   * 
+   * @param vendorId       The vendor ID.
+   * @param rawMidiMessage The complete raw MIDI message, non-{@code null}.
+   * @param timestamp      The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxSysEx (final byte vendorId, final byte[] rawMidiMessage, final long timestamp)
+  {
+    midiRxSysEx (vendorId, rawMidiMessage);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - MTC QUARTER FRAME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  default void midiTxMtcQuarterFrame (final int piece, final int value)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  default void midiRxMtcQuarterFrame (final int piece, final int value)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Time Code Quarter Frame message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxMtcQuarterFrame(int, int)}.
+   * 
+   * @param piece     The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value     The value (nibble) for the piece, between zero and 15 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxMtcQuarterFrame (final int piece, final int value, final long timestamp)
+  {
+    midiRxMtcQuarterFrame (piece, value);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - SONG POSITION POINTER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  default void midiTxSongPositionPointer (final int position)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  default void midiRxSongPositionPointer (final int position)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Position Pointer message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxSongPositionPointer(int)}.
+   * 
+   * @param position  The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxSongPositionPointer (final int position, final long timestamp)
+  {
+    midiRxSongPositionPointer (position);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - SONG SELECT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Song Select message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  default void midiTxSongSelect (final int song)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Select message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  default void midiRxSongSelect (final int song)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Song Select message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxSongSelect(int)}.
+   * 
+   * @param song      The song number, between zero and 127 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxSongSelect (final int song, final long timestamp)
+  {
+    midiRxSongSelect (song);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM COMMON - TUNE REQUEST
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI Tune Request message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   */
+  default void midiTxTuneRequest ()
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Tune Request message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   */
+  default void midiRxTuneRequest ()
+  {
+  }
+  
+  /** Notification of the reception of a MIDI Tune Request message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxTuneRequest()}.
+   * 
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxTuneRequest (final long timestamp)
+  {
+    midiRxTuneRequest ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM REAL-TIME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Notification of the transmission of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  default void midiTxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * The default implementation does nothing.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  default void midiRxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+  }
+  
+  /** Notification of the reception of a MIDI System Real-Time message, with its reception timestamp.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #midiRxSystemRealTime(MidiMessageType)}.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * @param timestamp       The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  default void midiRxSystemRealTime (final MidiMessageType midiMessageType, final long timestamp)
+  {
+    midiRxSystemRealTime (midiMessageType);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
@@ -16,10 +16,19 @@
  */
 package org.javajdj.jservice.midi;
 
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /** Support class for maintenance of {@link MidiServiceListener} in a {@link MidiService} implementation.
+ *
+ * <p>
+ * Listeners may be registered with a filter on message type and MIDI channel,
+ * see {@link MidiService#addMidiServiceListener(MidiServiceListener, long, int)};
+ * notifications are dispatched through an index on message type and MIDI channel.
  *
  * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
  * 
@@ -33,11 +42,116 @@ public class MidiServiceListenerSupport
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   
-  private final Set<MidiServiceListener> midiServiceListeners = new LinkedHashSet<> ();
+  /** The filter of a registered listener.
+   * 
+   */
+  private static final class Filter
+  {
+    
+    private final long midiMessageTypeMask;
+    
+    private final int midiChannelMask;
+    
+    private Filter (final long midiMessageTypeMask, final int midiChannelMask)
+    {
+      this.midiMessageTypeMask = midiMessageTypeMask;
+      this.midiChannelMask = midiChannelMask;
+    }
+    
+    private boolean accepts (final MidiMessageType midiMessageType, final int midiChannel)
+    {
+      return (this.midiMessageTypeMask & midiMessageType.getMask ()) != 0
+        && ((! midiMessageType.isChannelMessage ()) || (this.midiChannelMask & (1 << (midiChannel - 1))) != 0);
+    }
+    
+  }
+  
+  private static final Filter FILTER_ALL = new Filter (MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, MidiUtils.MIDI_CHANNEL_MASK_ALL);
+  
+  private final Map<MidiServiceListener, Filter> midiServiceListeners = new LinkedHashMap<> ();
   
   private final Object midiServiceListenersLock = new Object ();
   
-  /** See {@link MidiService#addMidiServiceListener}.
+  private static final MidiServiceListener[] NO_LISTENERS = new MidiServiceListener[0];
+  
+  private static final MidiMessageType[] MIDI_MESSAGE_TYPES = MidiMessageType.values ();
+  
+  /** Returns the position in the dispatch index of given message type and MIDI channel.
+   * 
+   * <p>
+   * Each message type takes 16 consecutive positions in the index, one for each MIDI channel.
+   * For message types other than Channel messages, only the first of these is used.
+   * 
+   */
+  private static int getIndexPosition (final MidiMessageType midiMessageType, final int midiChannel)
+  {
+    return (midiMessageType.ordinal () << 4) + midiChannel - 1;
+  }
+  
+  private static final int NOTE_OFF_POSITION = getIndexPosition (MidiMessageType.NOTE_OFF, 1);
+  private static final int NOTE_ON_POSITION = getIndexPosition (MidiMessageType.NOTE_ON, 1);
+  private static final int POLYPHONIC_KEY_PRESSURE_POSITION
+    = getIndexPosition (MidiMessageType.POLYPHONIC_KEY_PRESSURE_AFTERTOUCH, 1);
+  private static final int CONTROL_CHANGE_POSITION = getIndexPosition (MidiMessageType.CONTROL_CHANGE, 1);
+  private static final int PROGRAM_CHANGE_POSITION = getIndexPosition (MidiMessageType.PROGRAM_CHANGE, 1);
+  private static final int CHANNEL_PRESSURE_POSITION = getIndexPosition (MidiMessageType.CHANNEL_PRESSURE_AFTERTOUCH, 1);
+  private static final int PITCH_BEND_CHANGE_POSITION = getIndexPosition (MidiMessageType.PITCH_BEND_CHANGE, 1);
+  private static final int SYSEX_POSITION = getIndexPosition (MidiMessageType.SYSTEM_COMMON_SYSEX, 1);
+  private static final int MTC_QUARTER_FRAME_POSITION = getIndexPosition (MidiMessageType.SYSTEM_COMMON_MTC_QUARTER_FRAME, 1);
+  private static final int SONG_POSITION_POINTER_POSITION
+    = getIndexPosition (MidiMessageType.SYSTEM_COMMON_SONG_POSITION_POINTER, 1);
+  private static final int SONG_SELECT_POSITION = getIndexPosition (MidiMessageType.SYSTEM_COMMON_SONG_SELECT, 1);
+  private static final int TUNE_REQUEST_POSITION = getIndexPosition (MidiMessageType.SYSTEM_COMMON_TUNE_REQUEST, 1);
+  
+  /** Returns the listeners to notify of a Channel message of given type on given MIDI channel.
+   * 
+   * @param position    The index position of the message type for MIDI channel 1.
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * 
+   * @return The listeners, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   */
+  private MidiServiceListener[] getChannelListeners (final int position, final int midiChannel)
+  {
+    if (midiChannel < 1 || midiChannel > 16)
+      throw new IllegalArgumentException ();
+    return this.midiServiceListenersIndex[position + midiChannel - 1];
+  }
+  
+  /** The dispatch index: an immutable snapshot of the interested listeners for each message type and MIDI channel.
+   * 
+   * <p>
+   * The index is rebuilt and republished upon each (effective) registration change.
+   * Notifications look up and iterate over the listeners for the message at hand,
+   * without locking and without creating any objects,
+   * at a cost that scales with the number of interested listeners (rather than with all listeners).
+   * 
+   * @see #getIndexPosition
+   * 
+   */
+  private volatile MidiServiceListener[][] midiServiceListenersIndex = createIndex (Collections.emptyMap ());
+  
+  private static MidiServiceListener[][] createIndex (final Map<MidiServiceListener, Filter> midiServiceListeners)
+  {
+    final MidiServiceListener[][] index = new MidiServiceListener[MIDI_MESSAGE_TYPES.length << 4][];
+    Arrays.fill (index, NO_LISTENERS);
+    final List<MidiServiceListener> listeners = new ArrayList<> ();
+    for (final MidiMessageType midiMessageType : MIDI_MESSAGE_TYPES)
+      for (int midiChannel = 1; midiChannel <= (midiMessageType.isChannelMessage () ? 16 : 1); midiChannel++)
+      {
+        listeners.clear ();
+        for (final Map.Entry<MidiServiceListener, Filter> entry : midiServiceListeners.entrySet ())
+          if (entry.getValue ().accepts (midiMessageType, midiChannel))
+            listeners.add (entry.getKey ());
+        if (! listeners.isEmpty ())
+          index[getIndexPosition (midiMessageType, midiChannel)] = listeners.toArray (new MidiServiceListener[0]);
+      }
+    return index;
+  }
+  
+  /** See {@link MidiService#addMidiServiceListener(MidiServiceListener)}.
    * 
    * @param l The listener.
    * 
@@ -48,8 +162,39 @@ public class MidiServiceListenerSupport
       return;
     synchronized (this.midiServiceListenersLock)
     {
-      if (! this.midiServiceListeners.contains (l))
-        this.midiServiceListeners.add (l);
+      if (! this.midiServiceListeners.containsKey (l))
+      {
+        this.midiServiceListeners.put (l, MidiServiceListenerSupport.FILTER_ALL);
+        this.midiServiceListenersIndex = createIndex (this.midiServiceListeners);
+      }
+    }
+  }
+
+  /** See {@link MidiService#addMidiServiceListener(MidiServiceListener, long, int)}.
+   * 
+   * @param l                   The listener.
+   * @param midiMessageTypeMask The message-type mask.
+   * @param midiChannelMask     The channel mask.
+   * 
+   * @throws IllegalArgumentException If the channel mask is out of range.
+   * 
+   */
+  public final void addMidiServiceListener (final MidiServiceListener l, final long midiMessageTypeMask, final int midiChannelMask)
+  {
+    if ((midiChannelMask & ~MidiUtils.MIDI_CHANNEL_MASK_ALL) != 0)
+      throw new IllegalArgumentException ();
+    if (l == null)
+      return;
+    synchronized (this.midiServiceListenersLock)
+    {
+      final Filter oldFilter = this.midiServiceListeners.get (l);
+      if (oldFilter == null
+        || oldFilter.midiMessageTypeMask != midiMessageTypeMask
+        || oldFilter.midiChannelMask != midiChannelMask)
+      {
+        this.midiServiceListeners.put (l, new Filter (midiMessageTypeMask, midiChannelMask));
+        this.midiServiceListenersIndex = createIndex (this.midiServiceListeners);
+      }
     }
   }
 
@@ -64,7 +209,8 @@ public class MidiServiceListenerSupport
       return;
     synchronized (this.midiServiceListenersLock)
     {
-      this.midiServiceListeners.remove (l);
+      if (this.midiServiceListeners.remove (l) != null)
+        this.midiServiceListenersIndex = createIndex (this.midiServiceListeners);
     }
   }
 
@@ -80,34 +226,50 @@ public class MidiServiceListenerSupport
    * @param note        The note, between zero and 127 inclusive.
    * @param velocity    The velocity, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxNoteOff (final int midiChannel, final int note, final int velocity)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (NOTE_OFF_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxNoteOff (midiChannel, note, velocity);
   }
   
   /** Notifies listeners of the reception of a MIDI note off message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
    * @param velocity    The velocity, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxNoteOff (final int midiChannel, final int note, final int velocity)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxNoteOff (midiChannel, note, velocity, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI note off message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxNoteOff(int, int, int, long)
+   * 
+   */
+  public final void fireMidiRxNoteOff (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (NOTE_OFF_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxNoteOff (midiChannel, note, velocity);
+      l.midiRxNoteOff (midiChannel, note, velocity, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI note on message.
@@ -116,34 +278,50 @@ public class MidiServiceListenerSupport
    * @param note        The note, between zero and 127 inclusive.
    * @param velocity    The velocity, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxNoteOn (final int midiChannel, final int note, final int velocity)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (NOTE_ON_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxNoteOn (midiChannel, note, velocity);
   }
   
   /** Notifies listeners of the reception of a MIDI note on message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
    * @param velocity    The velocity, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxNoteOn (final int midiChannel, final int note, final int velocity)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxNoteOn (midiChannel, note, velocity, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI note on message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxNoteOn(int, int, int, long)
+   * 
+   */
+  public final void fireMidiRxNoteOn (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (NOTE_ON_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxNoteOn (midiChannel, note, velocity);
+      l.midiRxNoteOn (midiChannel, note, velocity, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI polyphonic key pressure message.
@@ -152,34 +330,50 @@ public class MidiServiceListenerSupport
    * @param note        The note, between zero and 127 inclusive.
    * @param pressure    The pressure, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (POLYPHONIC_KEY_PRESSURE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxPolyphonicKeyPressure (midiChannel, note, pressure);
   }
   
   /** Notifies listeners of the reception of a MIDI polyphonic key pressure message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
    * @param pressure    The pressure, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI polyphonic key pressure message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxPolyphonicKeyPressure(int, int, int, long)
+   * 
+   */
+  public final void fireMidiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (POLYPHONIC_KEY_PRESSURE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxPolyphonicKeyPressure (midiChannel, note, pressure);
+      l.midiRxPolyphonicKeyPressure (midiChannel, note, pressure, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI control change.
@@ -188,34 +382,50 @@ public class MidiServiceListenerSupport
    * @param controller  The MIDI controller number, between zero and 127 inclusive.
    * @param value       The value for the controller, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxControlChange (final int midiChannel, final int controller, final int value)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (CONTROL_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxControlChange (midiChannel, controller, value);    
   }
   
   /** Notifies listeners of the reception of a MIDI control change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param controller  The MIDI controller number, between zero and 127 inclusive.
    * @param value       The value for the controller, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxControlChange (final int midiChannel, final int controller, final int value)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxControlChange (midiChannel, controller, value, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI control change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param controller  The MIDI controller number, between zero and 127 inclusive.
+   * @param value       The value for the controller, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxControlChange(int, int, int, long)
+   * 
+   */
+  public final void fireMidiRxControlChange (final int midiChannel, final int controller, final int value, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (CONTROL_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxControlChange (midiChannel, controller, value);    
+      l.midiRxControlChange (midiChannel, controller, value, timestamp);    
   }
   
   /** Notifies listeners of the transmission of a MIDI program (patch) change.
@@ -223,33 +433,48 @@ public class MidiServiceListenerSupport
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param patch       The patch (program) number, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxProgramChange (final int midiChannel, final int patch)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (PROGRAM_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxProgramChange (midiChannel, patch);
   }
   
   /** Notifies listeners of the reception of a MIDI program (patch) change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param patch       The patch (program) number, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxProgramChange (final int midiChannel, final int patch)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxProgramChange (midiChannel, patch, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI program (patch) change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param patch       The patch (program) number, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxProgramChange(int, int, long)
+   * 
+   */
+  public final void fireMidiRxProgramChange (final int midiChannel, final int patch, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (PROGRAM_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxProgramChange (midiChannel, patch);
+      l.midiRxProgramChange (midiChannel, patch, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI channel pressure.
@@ -257,33 +482,48 @@ public class MidiServiceListenerSupport
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pressure    The pressure, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxChannelPressure (final int midiChannel, final int pressure)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (CHANNEL_PRESSURE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxChannelPressure (midiChannel, pressure);
   }
   
   /** Notifies listeners of the reception of a MIDI channel pressure.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pressure    The pressure, between zero and 127 inclusive.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxChannelPressure (final int midiChannel, final int pressure)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxChannelPressure (midiChannel, pressure, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI channel pressure with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxChannelPressure(int, int, long)
+   * 
+   */
+  public final void fireMidiRxChannelPressure (final int midiChannel, final int pressure, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (CHANNEL_PRESSURE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxChannelPressure (midiChannel, pressure);
+      l.midiRxChannelPressure (midiChannel, pressure, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI pitch bend change.
@@ -291,33 +531,48 @@ public class MidiServiceListenerSupport
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiTxPitchBendChange (final int midiChannel, final int pitchBend)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = getChannelListeners (PITCH_BEND_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
       l.midiTxPitchBendChange (midiChannel, pitchBend);
   }
   
   /** Notifies listeners of the reception of a MIDI pitch bend change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
    * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
    */
   public final void fireMidiRxPitchBendChange (final int midiChannel, final int pitchBend)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxPitchBendChange (midiChannel, pitchBend, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI pitch bend change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the MIDI channel is not between unity and 16 inclusive.
+   * 
+   * @see MidiServiceListener#midiRxPitchBendChange(int, int, long)
+   * 
+   */
+  public final void fireMidiRxPitchBendChange (final int midiChannel, final int pitchBend, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = getChannelListeners (PITCH_BEND_CHANGE_POSITION, midiChannel);
     for (final MidiServiceListener l : listeners)
-      l.midiRxPitchBendChange (midiChannel, pitchBend);
+      l.midiRxPitchBendChange (midiChannel, pitchBend, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI System Exclusive (SysEx) message.
@@ -328,16 +583,15 @@ public class MidiServiceListenerSupport
    */
   public final void fireMidiTxSysEx (final byte vendorId, final byte[] rawMidiMessage)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SYSEX_POSITION];
     for (final MidiServiceListener l : listeners)
       l.midiTxSysEx (vendorId, rawMidiMessage);
   }
   
   /** Notifies listeners of the reception of a MIDI System Exclusive (SysEx) message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param vendorId       The vendor ID.
    * @param rawMidiMessage The complete raw MIDI message, non-{@code null}.
@@ -345,13 +599,221 @@ public class MidiServiceListenerSupport
    */
   public final void fireMidiRxSysEx (final byte vendorId, final byte[] rawMidiMessage)
   {
-    final Set<MidiServiceListener> listeners;
-    synchronized (this.midiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.midiServiceListeners);
-    }
+    fireMidiRxSysEx (vendorId, rawMidiMessage, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI System Exclusive (SysEx) message with given reception timestamp.
+   * 
+   * @param vendorId       The vendor ID.
+   * @param rawMidiMessage The complete raw MIDI message, non-{@code null}.
+   * @param timestamp      The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSysEx(byte, byte[], long)
+   * 
+   */
+  public final void fireMidiRxSysEx (final byte vendorId, final byte[] rawMidiMessage, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SYSEX_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiRxSysEx (vendorId, rawMidiMessage, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Time Code Quarter Frame message.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  public final void fireMidiTxMtcQuarterFrame (final int piece, final int value)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[MTC_QUARTER_FRAME_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiTxMtcQuarterFrame (piece, value);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  public final void fireMidiRxMtcQuarterFrame (final int piece, final int value)
+  {
+    fireMidiRxMtcQuarterFrame (piece, value, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Time Code Quarter Frame message with given reception timestamp.
+   * 
+   * @param piece     The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value     The value (nibble) for the piece, between zero and 15 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxMtcQuarterFrame(int, int, long)
+   * 
+   */
+  public final void fireMidiRxMtcQuarterFrame (final int piece, final int value, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[MTC_QUARTER_FRAME_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiRxMtcQuarterFrame (piece, value, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Song Position Pointer message.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  public final void fireMidiTxSongPositionPointer (final int position)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SONG_POSITION_POINTER_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiTxSongPositionPointer (position);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  public final void fireMidiRxSongPositionPointer (final int position)
+  {
+    fireMidiRxSongPositionPointer (position, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Position Pointer message with given reception timestamp.
+   * 
+   * @param position  The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSongPositionPointer(int, long)
+   * 
+   */
+  public final void fireMidiRxSongPositionPointer (final int position, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SONG_POSITION_POINTER_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiRxSongPositionPointer (position, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Song Select message.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  public final void fireMidiTxSongSelect (final int song)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SONG_SELECT_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiTxSongSelect (song);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Select message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  public final void fireMidiRxSongSelect (final int song)
+  {
+    fireMidiRxSongSelect (song, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Select message with given reception timestamp.
+   * 
+   * @param song      The song number, between zero and 127 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSongSelect(int, long)
+   * 
+   */
+  public final void fireMidiRxSongSelect (final int song, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[SONG_SELECT_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiRxSongSelect (song, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Tune Request message.
+   * 
+   */
+  public final void fireMidiTxTuneRequest ()
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[TUNE_REQUEST_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiTxTuneRequest ();
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Tune Request message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   */
+  public final void fireMidiRxTuneRequest ()
+  {
+    fireMidiRxTuneRequest (System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Tune Request message with given reception timestamp.
+   * 
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxTuneRequest(long)
+   * 
+   */
+  public final void fireMidiRxTuneRequest (final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[TUNE_REQUEST_POSITION];
+    for (final MidiServiceListener l : listeners)
+      l.midiRxTuneRequest (timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI System Real-Time message.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  public final void fireMidiTxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[getIndexPosition (midiMessageType, 1)];
+    for (final MidiServiceListener l : listeners)
+      l.midiTxSystemRealTime (midiMessageType);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  public final void fireMidiRxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    fireMidiRxSystemRealTime (midiMessageType, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI System Real-Time message with given reception timestamp.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * @param timestamp       The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSystemRealTime(MidiMessageType, long)
+   * 
+   */
+  public final void fireMidiRxSystemRealTime (final MidiMessageType midiMessageType, final long timestamp)
+  {
+    final MidiServiceListener[] listeners = this.midiServiceListenersIndex[getIndexPosition (midiMessageType, 1)];
     for (final MidiServiceListener l : listeners)
-      l.midiRxSysEx (vendorId, rawMidiMessage);
+      l.midiRxSystemRealTime (midiMessageType, timestamp);
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
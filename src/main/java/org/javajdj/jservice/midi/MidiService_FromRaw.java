@@ -23,6 +23,9 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.javajdj.util.hex.HexUtils;
+import org.javajdj.util.stats.LatencyHistogram;
+import org.javajdj.jservice.midi.raw.RawMidiEvent;
+import org.javajdj.jservice.midi.raw.RawMidiEventListener;
 import org.javajdj.jservice.midi.raw.RawMidiService;
 import org.javajdj.jservice.midi.raw.RawMidiServiceListener;
 import org.javajdj.jservice.support.Service_FromMix;
@@ -117,6 +120,12 @@ public class MidiService_FromRaw
     this.midiServiceListenerSupport.addMidiServiceListener (l);
   }
 
+  @Override
+  public final void addMidiServiceListener (final MidiServiceListener l, final long midiMessageTypeMask, final int midiChannelMask)
+  {
+    this.midiServiceListenerSupport.addMidiServiceListener (l, midiMessageTypeMask, midiChannelMask);
+  }
+
   @Override
   public final void removeMidiServiceListener (final MidiServiceListener l)
   {
@@ -136,6 +145,9 @@ public class MidiService_FromRaw
   }
   
   /** Notifies listeners of the reception of a MIDI note off message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
@@ -144,7 +156,22 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxNoteOff (final int midiChannel, final int note, final int velocity)
   {
-    this.midiServiceListenerSupport.fireMidiRxNoteOff (midiChannel, note, velocity);
+    fireMidiRxNoteOff (midiChannel, note, velocity, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI note off message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxNoteOff(int, int, int, long)
+   * 
+   */
+  protected final void fireMidiRxNoteOff (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxNoteOff (midiChannel, note, velocity, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI note on message.
@@ -160,6 +187,9 @@ public class MidiService_FromRaw
   }
   
   /** Notifies listeners of the reception of a MIDI note on message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
@@ -168,7 +198,22 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxNoteOn (final int midiChannel, final int note, final int velocity)
   {
-    this.midiServiceListenerSupport.fireMidiRxNoteOn (midiChannel, note, velocity);
+    fireMidiRxNoteOn (midiChannel, note, velocity, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI note on message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param velocity    The velocity, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxNoteOn(int, int, int, long)
+   * 
+   */
+  protected final void fireMidiRxNoteOn (final int midiChannel, final int note, final int velocity, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxNoteOn (midiChannel, note, velocity, timestamp);
   }
   
   /** Notifies listeners of the transmission of a MIDI polyphonic key pressure message.
@@ -184,6 +229,9 @@ public class MidiService_FromRaw
   }
   
   /** Notifies listeners of the reception of a MIDI polyphonic key pressure message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param note        The note, between zero and 127 inclusive.
@@ -192,7 +240,22 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure)
   {
-    this.midiServiceListenerSupport.fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure);
+    fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI polyphonic key pressure message with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param note        The note, between zero and 127 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxPolyphonicKeyPressure(int, int, int, long)
+   * 
+   */
+  protected final void fireMidiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure, timestamp);
   }
   
   /** Notifies registered {@link MidiServiceListener}s of the transmission of a MIDI control change.
@@ -208,6 +271,9 @@ public class MidiService_FromRaw
   }
 
   /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI control change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param controller  The MIDI controller number, between zero and 127 inclusive.
@@ -216,7 +282,22 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxControlChange (final int midiChannel, final int controller, final int value)
   {
-    this.midiServiceListenerSupport.fireMidiRxControlChange (midiChannel, controller, value);
+    fireMidiRxControlChange (midiChannel, controller, value, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI control change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param controller  The MIDI controller number, between zero and 127 inclusive.
+   * @param value       The value for the controller, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxControlChange(int, int, int, long)
+   * 
+   */
+  protected final void fireMidiRxControlChange (final int midiChannel, final int controller, final int value, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxControlChange (midiChannel, controller, value, timestamp);
   }
 
   /** Notifies registered {@link MidiServiceListener}s of the transmission of a MIDI program (patch) change.
@@ -231,6 +312,9 @@ public class MidiService_FromRaw
   }
 
   /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI program (patch) change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param patch       The patch (program) number, between zero and 127 inclusive.
@@ -238,7 +322,21 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxProgramChange (final int midiChannel, final int patch)
   {
-    this.midiServiceListenerSupport.fireMidiRxProgramChange (midiChannel, patch);
+    fireMidiRxProgramChange (midiChannel, patch, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI program (patch) change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param patch       The patch (program) number, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxProgramChange(int, int, long)
+   * 
+   */
+  protected final void fireMidiRxProgramChange (final int midiChannel, final int patch, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxProgramChange (midiChannel, patch, timestamp);
   }
 
   /** Notifies registered {@link MidiServiceListener}s of the transmission of a MIDI channel pressure.
@@ -253,6 +351,9 @@ public class MidiService_FromRaw
   }
   
   /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI channel pressure.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pressure    The pressure, between zero and 127 inclusive.
@@ -260,7 +361,21 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxChannelPressure (final int midiChannel, final int pressure)
   {
-    this.midiServiceListenerSupport.fireMidiRxChannelPressure (midiChannel, pressure);
+    fireMidiRxChannelPressure (midiChannel, pressure, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI channel pressure with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pressure    The pressure, between zero and 127 inclusive.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxChannelPressure(int, int, long)
+   * 
+   */
+  protected final void fireMidiRxChannelPressure (final int midiChannel, final int pressure, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxChannelPressure (midiChannel, pressure, timestamp);
   }
   
   /** Notifies registered {@link MidiServiceListener}s of the transmission of a MIDI pitch bend change.
@@ -275,6 +390,9 @@ public class MidiService_FromRaw
   }
   
   /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI pitch bend change.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
    * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
@@ -282,7 +400,21 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxPitchBendChange (final int midiChannel, final int pitchBend)
   {
-    this.midiServiceListenerSupport.fireMidiRxPitchBendChange (midiChannel, pitchBend);
+    fireMidiRxPitchBendChange (midiChannel, pitchBend, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI pitch bend change with given reception timestamp.
+   * 
+   * @param midiChannel The MIDI channel number, between unity and 16 inclusive.
+   * @param pitchBend   The pitch bend, between -8192 and +8191 inclusive; zero meaning no pitch change.
+   * @param timestamp   The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxPitchBendChange(int, int, long)
+   * 
+   */
+  protected final void fireMidiRxPitchBendChange (final int midiChannel, final int pitchBend, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxPitchBendChange (midiChannel, pitchBend, timestamp);
   }
   
   /** Notifies registered {@link MidiServiceListener}s of the transmission of a MIDI System Exclusive (SysEx) message.
@@ -297,6 +429,9 @@ public class MidiService_FromRaw
   }
 
   /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI System Exclusive (SysEx) message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param vendorId       The vendor ID.
    * @param rawMidiMessage The complete raw MIDI message, non-{@code null}.
@@ -304,7 +439,199 @@ public class MidiService_FromRaw
    */
   protected final void fireMidiRxSysEx (final byte vendorId, final byte[] rawMidiMessage)
   {
-    this.midiServiceListenerSupport.fireMidiRxSysEx (vendorId, rawMidiMessage);
+    fireMidiRxSysEx (vendorId, rawMidiMessage, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link MidiServiceListener}s of the reception of a MIDI System Exclusive (SysEx) message with given reception timestamp.
+   * 
+   * @param vendorId       The vendor ID.
+   * @param rawMidiMessage The complete raw MIDI message, non-{@code null}.
+   * @param timestamp      The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSysEx(byte, byte[], long)
+   * 
+   */
+  protected final void fireMidiRxSysEx (final byte vendorId, final byte[] rawMidiMessage, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxSysEx (vendorId, rawMidiMessage, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Time Code Quarter Frame message.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  protected final void fireMidiTxMtcQuarterFrame (final int piece, final int value)
+  {
+    this.midiServiceListenerSupport.fireMidiTxMtcQuarterFrame (piece, value);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Time Code Quarter Frame message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   */
+  protected final void fireMidiRxMtcQuarterFrame (final int piece, final int value)
+  {
+    fireMidiRxMtcQuarterFrame (piece, value, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Time Code Quarter Frame message with given reception timestamp.
+   * 
+   * @param piece     The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value     The value (nibble) for the piece, between zero and 15 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxMtcQuarterFrame(int, int, long)
+   * 
+   */
+  protected final void fireMidiRxMtcQuarterFrame (final int piece, final int value, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxMtcQuarterFrame (piece, value, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Song Position Pointer message.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  protected final void fireMidiTxSongPositionPointer (final int position)
+  {
+    this.midiServiceListenerSupport.fireMidiTxSongPositionPointer (position);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Position Pointer message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * 
+   */
+  protected final void fireMidiRxSongPositionPointer (final int position)
+  {
+    fireMidiRxSongPositionPointer (position, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Position Pointer message with given reception timestamp.
+   * 
+   * @param position  The song position in MIDI beats (sixteenth notes), between zero and 16383 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSongPositionPointer(int, long)
+   * 
+   */
+  protected final void fireMidiRxSongPositionPointer (final int position, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxSongPositionPointer (position, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Song Select message.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  protected final void fireMidiTxSongSelect (final int song)
+  {
+    this.midiServiceListenerSupport.fireMidiTxSongSelect (song);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Select message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   */
+  protected final void fireMidiRxSongSelect (final int song)
+  {
+    fireMidiRxSongSelect (song, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Song Select message with given reception timestamp.
+   * 
+   * @param song      The song number, between zero and 127 inclusive.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSongSelect(int, long)
+   * 
+   */
+  protected final void fireMidiRxSongSelect (final int song, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxSongSelect (song, timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI Tune Request message.
+   * 
+   */
+  protected final void fireMidiTxTuneRequest ()
+  {
+    this.midiServiceListenerSupport.fireMidiTxTuneRequest ();
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Tune Request message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   */
+  protected final void fireMidiRxTuneRequest ()
+  {
+    fireMidiRxTuneRequest (System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI Tune Request message with given reception timestamp.
+   * 
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxTuneRequest(long)
+   * 
+   */
+  protected final void fireMidiRxTuneRequest (final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxTuneRequest (timestamp);
+  }
+  
+  /** Notifies listeners of the transmission of a MIDI System Real-Time message.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  protected final void fireMidiTxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    this.midiServiceListenerSupport.fireMidiTxSystemRealTime (midiMessageType);
+  }
+  
+  /** Notifies listeners of the reception of a MIDI System Real-Time message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * 
+   */
+  protected final void fireMidiRxSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    fireMidiRxSystemRealTime (midiMessageType, System.nanoTime ());
+  }
+  
+  /** Notifies listeners of the reception of a MIDI System Real-Time message with given reception timestamp.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type, non-{@code null}.
+   * @param timestamp       The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see MidiServiceListener#midiRxSystemRealTime(MidiMessageType, long)
+   * 
+   */
+  protected final void fireMidiRxSystemRealTime (final MidiMessageType midiMessageType, final long timestamp)
+  {
+    this.midiServiceListenerSupport.fireMidiRxSystemRealTime (midiMessageType, timestamp);
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -394,6 +721,57 @@ public class MidiService_FromRaw
     this.midiServiceListenerSupport.fireMidiTxSysEx (vendorId, rawMidiMessage);
   }
 
+  @Override
+  public final void sendMidiMtcQuarterFrame (final int piece, final int value)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiMtcQuarterFrameMessage (piece, value);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxMtcQuarterFrame (piece, value);
+  }
+  
+  @Override
+  public final void sendMidiSongPositionPointer (final int position)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiSongPositionPointerMessage (position);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSongPositionPointer (position);
+  }
+  
+  @Override
+  public final void sendMidiSongSelect (final int song)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiSongSelectMessage (song);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSongSelect (song);
+  }
+  
+  @Override
+  public final void sendMidiTuneRequest ()
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    final byte[] midiMessage = MidiUtils.createMidiTuneRequestMessage ();
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxTuneRequest ();
+  }
+  
+  @Override
+  public final void sendMidiSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    // A fresh (one-byte) array: the message is handed to the raw MIDI service and its listeners, which may retain it.
+    final byte[] midiMessage = MidiUtils.createMidiSystemRealTimeMessage (midiMessageType);
+    sendRawMidiMessage (midiMessage);
+    this.midiServiceListenerSupport.fireMidiTxSystemRealTime (midiMessageType);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // ACTIVITY MONITORABLE
@@ -445,6 +823,29 @@ public class MidiService_FromRaw
     return Instant.MIN;
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECEIVE LATENCY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final LatencyHistogram rxLatencyHistogram = new LatencyHistogram ();
+  
+  /** Returns the histogram of latencies between reception of raw MIDI messages and their delivery to the MIDI listeners.
+   * 
+   * <p>
+   * The latency is measured from the reception timestamp passed by the underlying {@link RawMidiService}
+   * (see {@link RawMidiServiceListener#rawMidiMessageRx(byte[], long)})
+   * up to the dissection of the message, right before notifying the {@link MidiServiceListener}s.
+   * 
+   * @return The (live) histogram, non-{@code null}.
+   * 
+   */
+  public final LatencyHistogram getRxLatencyHistogram ()
+  {
+    return this.rxLatencyHistogram;
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // RAW MIDI LISTENER
@@ -455,7 +856,7 @@ public class MidiService_FromRaw
   
   private final Object rxErrorsLock = new Object ();
   
-  private final RawMidiServiceListener rawMidiServiceListener = new RawMidiServiceListener ()
+  private final RawMidiEventListener rawMidiServiceListener = new RawMidiEventListener ()
   {
     
     /** Does nothing.
@@ -468,13 +869,31 @@ public class MidiService_FromRaw
     {
     }
 
-    /** Main received raw MIDI message dissection.
+    /** Dissects the received raw MIDI message, using the current time as reception timestamp.
      * 
      * @param rawMidiMessage The (raw) MIDI message.
      * 
      */
     @Override
     public void rawMidiMessageRx (final byte[] rawMidiMessage)
+    {
+      rawMidiMessageRx (rawMidiMessage, System.nanoTime ());
+    }
+    
+    /** Main received raw MIDI message dissection.
+     * 
+     * <p>
+     * Records the latency from reception to delivery in the receive latency histogram,
+     * and passes the reception timestamp on to the {@link MidiServiceListener}s.
+     * 
+     * @param rawMidiMessage The (raw) MIDI message.
+     * @param timestamp      The reception timestamp, see {@link System#nanoTime}.
+     * 
+     * @see #getRxLatencyHistogram
+     * 
+     */
+    @Override
+    public void rawMidiMessageRx (final byte[] rawMidiMessage, final long timestamp)
     {
       // LOG.log (Level.INFO, "Received MIDI: {0}.", HexUtils.bytesToHex (rawMidiMessage));
       // XXX We should do this; BUT APPARENTLY WE ARE NOT STARTED??
@@ -486,14 +905,52 @@ public class MidiService_FromRaw
           MidiService_FromRaw.this.rawMidiService);
         return;
       }
-      final MidiMessageType midiMessageType = MidiUtils.dissectMidiMessage (rawMidiMessage);
-      final int statusByte = rawMidiMessage[0] & 0xFF;
+      MidiService_FromRaw.this.rxLatencyHistogram.recordSince (timestamp);
+      dispatch (MidiUtils.decodeMidiMessage (rawMidiMessage), rawMidiMessage, RawMidiEvent.NO_EVENT, timestamp);
+    }
+    
+    /** Main received raw MIDI event dissection.
+     * 
+     * <p>
+     * As {@link #rawMidiMessageRx(byte[], long)}, but without creating any objects
+     * (unless the message is invalid, or listeners do so).
+     * 
+     * @param rawMidiEvent The raw MIDI event.
+     * @param timestamp    The reception timestamp, see {@link System#nanoTime}.
+     * 
+     * @see #getRxLatencyHistogram
+     * 
+     */
+    @Override
+    public void rawMidiEventRx (final int rawMidiEvent, final long timestamp)
+    {
+      MidiService_FromRaw.this.rxLatencyHistogram.recordSince (timestamp);
+      dispatch (MidiUtils.decodeRawMidiEvent (rawMidiEvent), null, rawMidiEvent, timestamp);
+    }
+    
+    /** Notifies the {@link MidiServiceListener}s of a received and decoded message.
+     * 
+     * @param decodedMidiMessage The decoded message, see {@link MidiUtils#decodeMidiMessage}.
+     * @param rawMidiMessage     The (raw) MIDI message, {@code null} if received as raw MIDI event (never for SysEx).
+     * @param rawMidiEvent       The raw MIDI event, {@link RawMidiEvent#NO_EVENT} if received as (raw) MIDI message.
+     * @param timestamp          The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    private void dispatch (final int decodedMidiMessage,
+                           final byte[] rawMidiMessage,
+                           final int rawMidiEvent,
+                           final long timestamp)
+    {
+      final int midiChannel = MidiUtils.getDecodedMidiChannel (decodedMidiMessage);
+      final int data1 = MidiUtils.getDecodedData1 (decodedMidiMessage);
+      final int data2 = MidiUtils.getDecodedData2 (decodedMidiMessage);
+      final MidiMessageType midiMessageType = MidiUtils.getDecodedMidiMessageType (decodedMidiMessage);
       switch (midiMessageType)
       {
         case INVALID:
         {
           LOG.log (Level.WARNING, "Received invalid (or unsupported) MIDI message (ignored): {0}.",
-            HexUtils.bytesToHex (rawMidiMessage));
+            HexUtils.bytesToHex (rawMidiMessage != null ? rawMidiMessage : RawMidiEvent.toRawMidiMessage (rawMidiEvent)));
           synchronized (MidiService_FromRaw.this.rxErrorsLock)
           {
             MidiService_FromRaw.this.rxErrors++;
@@ -503,80 +960,108 @@ public class MidiService_FromRaw
         }
         case NOTE_OFF:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int note = rawMidiMessage[1];
-          final int velocity = rawMidiMessage[2];
-          fireMidiRxNoteOff (midiChannel, note, velocity);
+          final int note = data1;
+          final int velocity = data2;
+          fireMidiRxNoteOff (midiChannel, note, velocity, timestamp);
           // LOG.log (Level.INFO, "Received note off, channel={0}, note={1}, velocity={2}.",
           //   new Object[]{midiChannel, note, velocity});
           break;
         }
         case NOTE_ON:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int note = rawMidiMessage[1];
-          final int velocity = rawMidiMessage[2];
-          fireMidiRxNoteOn (midiChannel, note, velocity);
+          final int note = data1;
+          final int velocity = data2;
+          fireMidiRxNoteOn (midiChannel, note, velocity, timestamp);
           // LOG.log (Level.INFO, "Received note on, channel={0}, note={1}, velocity={2}.",
           //   new Object[]{midiChannel, note, velocity});
           break;
         }
         case POLYPHONIC_KEY_PRESSURE_AFTERTOUCH:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int note = rawMidiMessage[1];
-          final int pressure = rawMidiMessage[2];
-          fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure);
+          final int note = data1;
+          final int pressure = data2;
+          fireMidiRxPolyphonicKeyPressure (midiChannel, note, pressure, timestamp);
           // LOG.log (Level.INFO, "Received polyphonic key pressure, channel={0}, note={1}, pressure={2}.",
           //   new Object[]{midiChannel, note, pressure});
           break;
         }
         case CONTROL_CHANGE:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int controller = rawMidiMessage[1];
-          final int value = rawMidiMessage[2];
-          fireMidiRxControlChange (midiChannel, controller, value);
+          final int controller = data1;
+          final int value = data2;
+          fireMidiRxControlChange (midiChannel, controller, value, timestamp);
           // LOG.log (Level.INFO, "Received control change, channel={0}, controller={1}, value={2}.",
           //   new Object[]{midiChannel, controller, value});
           break;
         }
         case PROGRAM_CHANGE:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int patch = rawMidiMessage[1];
-          fireMidiRxProgramChange (midiChannel, patch);
+          final int patch = data1;
+          fireMidiRxProgramChange (midiChannel, patch, timestamp);
           // LOG.log (Level.INFO, "Received program change, channel={0}, patch={1}.", new Object[]{midiChannel, patch});
           break;
         }
         case CHANNEL_PRESSURE_AFTERTOUCH:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int pressure = rawMidiMessage[1];
-          fireMidiRxChannelPressure (midiChannel, pressure);
+          final int pressure = data1;
+          fireMidiRxChannelPressure (midiChannel, pressure, timestamp);
           // LOG.log (Level.INFO, "Received channel pressure, channel={0}, pressure={1}.", new Object[]{midiChannel, pressure});
           break;
         }
         case PITCH_BEND_CHANGE:
         {
-          final int midiChannel = (statusByte & 0x0F) + 1;
-          final int pitchBend_l = rawMidiMessage[1];
-          final int pitchBend_h = rawMidiMessage[2];
+          final int pitchBend_l = data1;
+          final int pitchBend_h = data2;
           final int pitchBend = (pitchBend_h << 7) + pitchBend_l;
-          fireMidiRxPitchBendChange (midiChannel, pitchBend);
+          fireMidiRxPitchBendChange (midiChannel, pitchBend, timestamp);
           // LOG.log (Level.INFO, "Received pitch bend change, channel={0}, pitchBend={1}.", new Object[]{midiChannel, pitchBend});
           break;
         }
         case SYSTEM_COMMON_SYSEX:
         {
           // System Exclusive
-          final byte vendorId = rawMidiMessage[1];
+          final byte vendorId = (byte) data1;
           MidiService_FromRaw.this.updateActivity (MidiService.ACTIVITY_SYSEX_NAME);
-          fireMidiRxSysEx (vendorId, rawMidiMessage);
+          fireMidiRxSysEx (vendorId, rawMidiMessage, timestamp);
           // LOG.log (Level.INFO, "Received system exclusive, vendorId={0}, rawMidiMessage={1}.",
           //   new Object[]{HexUtils.bytesToHex (new byte[]{vendorId}), HexUtils.bytesToHex (rawMidiMessage)});
           break;
         }
+        case SYSTEM_COMMON_MTC_QUARTER_FRAME:
+        {
+          final int piece = data1 >>> 4;
+          final int value = data1 & 0x0F;
+          fireMidiRxMtcQuarterFrame (piece, value, timestamp);
+          break;
+        }
+        case SYSTEM_COMMON_SONG_POSITION_POINTER:
+        {
+          final int position = (data2 << 7) + data1;
+          fireMidiRxSongPositionPointer (position, timestamp);
+          break;
+        }
+        case SYSTEM_COMMON_SONG_SELECT:
+        {
+          final int song = data1;
+          fireMidiRxSongSelect (song, timestamp);
+          break;
+        }
+        case SYSTEM_COMMON_TUNE_REQUEST:
+        {
+          fireMidiRxTuneRequest (timestamp);
+          break;
+        }
+        case SYSTEM_REAL_TIME_TIMING_CLOCK:
+        case SYSTEM_REAL_TIME_START:
+        case SYSTEM_REAL_TIME_CONTINUE:
+        case SYSTEM_REAL_TIME_STOP:
+        case SYSTEM_REAL_TIME_ACTIVE_SENSING:
+        case SYSTEM_REAL_TIME_SYSTEM_RESET:
+        {
+          // Timing Clock arrives at 24 PPQN; keep this path free of logging and allocation.
+          fireMidiRxSystemRealTime (midiMessageType, timestamp);
+          break;
+        }
         default:
           throw new RuntimeException ();
       }
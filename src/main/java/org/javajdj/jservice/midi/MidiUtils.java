@@ -16,6 +16,8 @@
  */
 package org.javajdj.jservice.midi;
 
+import org.javajdj.jservice.midi.raw.RawMidiEvent;
+
 /** MIDI utilities, mainly for message formatting and dissection.
  *
  * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
@@ -274,6 +276,132 @@ public class MidiUtils
     return MIDI_ID_REQ_BC.clone ();
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MIDI MESSAGE FORMATTING [SYSTEM COMMON]
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /** Creates a MIDI Time Code Quarter Frame message.
+   * 
+   * @param piece The message type (piece of the time code), between zero and 7 inclusive.
+   * @param value The value (nibble) for the piece, between zero and 15 inclusive.
+   * 
+   * @return The newly created raw MIDI message.
+   * 
+   * @throws IllegalArgumentException If any of the arguments is out of range.
+   * 
+   */
+  public final static byte[] createMidiMtcQuarterFrameMessage (final int piece, final int value)
+  {
+    if (piece < 0 || piece > 7 || value < 0 || value > 15)
+      throw new IllegalArgumentException ();
+    final byte[] midiMessage = new byte[2];
+    midiMessage[0] = (byte) 0xF1;
+    midiMessage[1] = (byte) ((piece << 4) | value);
+    return midiMessage;
+  }
+  
+  /** Creates a MIDI Song Position Pointer message.
+   * 
+   * @param position The song position in MIDI beats (sixteenth notes) since the start of the song,
+   *                 between zero and 16383 inclusive.
+   * 
+   * @return The newly created raw MIDI message.
+   * 
+   * @throws IllegalArgumentException If the position is out of range.
+   * 
+   */
+  public final static byte[] createMidiSongPositionPointerMessage (final int position)
+  {
+    if (position < 0 || position > 16383)
+      throw new IllegalArgumentException ();
+    final byte[] midiMessage = new byte[3];
+    midiMessage[0] = (byte) 0xF2;
+    midiMessage[1] = (byte) (position & 0x7F);
+    midiMessage[2] = (byte) (position >>> 7);
+    return midiMessage;
+  }
+  
+  /** Creates a MIDI Song Select message.
+   * 
+   * @param song The song number, between zero and 127 inclusive.
+   * 
+   * @return The newly created raw MIDI message.
+   * 
+   * @throws IllegalArgumentException If the song number is out of range.
+   * 
+   */
+  public final static byte[] createMidiSongSelectMessage (final int song)
+  {
+    if (song < 0 || song > 127)
+      throw new IllegalArgumentException ();
+    final byte[] midiMessage = new byte[2];
+    midiMessage[0] = (byte) 0xF3;
+    midiMessage[1] = (byte) song;
+    return midiMessage;
+  }
+  
+  /** Creates a MIDI Tune Request message.
+   * 
+   * @return The newly created raw MIDI message.
+   * 
+   */
+  public final static byte[] createMidiTuneRequestMessage ()
+  {
+    return new byte[]{(byte) 0xF6};
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MIDI MESSAGE FORMATTING [SYSTEM REAL-TIME]
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /** Returns the status byte of a System Real-Time message type.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type.
+   * 
+   * @return The status byte.
+   * 
+   * @throws IllegalArgumentException If the message type is {@code null} or not a System Real-Time message type.
+   * 
+   * @see MidiMessageType#isSystemRealTime
+   * 
+   */
+  public final static byte getMidiSystemRealTimeStatusByte (final MidiMessageType midiMessageType)
+  {
+    if (midiMessageType == null)
+      throw new IllegalArgumentException ();
+    switch (midiMessageType)
+    {
+      case SYSTEM_REAL_TIME_TIMING_CLOCK:   return (byte) 0xF8;
+      case SYSTEM_REAL_TIME_START:          return (byte) 0xFA;
+      case SYSTEM_REAL_TIME_CONTINUE:       return (byte) 0xFB;
+      case SYSTEM_REAL_TIME_STOP:           return (byte) 0xFC;
+      case SYSTEM_REAL_TIME_ACTIVE_SENSING: return (byte) 0xFE;
+      case SYSTEM_REAL_TIME_SYSTEM_RESET:   return (byte) 0xFF;
+      default:
+        throw new IllegalArgumentException ();
+    }
+  }
+  
+  /** Creates a MIDI System Real-Time message.
+   * 
+   * @param midiMessageType The message type, a System Real-Time type.
+   * 
+   * @return The newly created raw MIDI message.
+   * 
+   * @throws IllegalArgumentException If the message type is {@code null} or not a System Real-Time message type.
+   * 
+   * @see MidiMessageType#isSystemRealTime
+   * 
+   */
+  public final static byte[] createMidiSystemRealTimeMessage (final MidiMessageType midiMessageType)
+  {
+    return new byte[]{getMidiSystemRealTimeStatusByte (midiMessageType)};
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // MIDI MESSAGE [PART] ACQUISITION
@@ -309,7 +437,7 @@ public class MidiUtils
    * 
    * <p>
    * Only a basic dissection into the "main" MIDI messages is performed.
-   * In particular, dissection of system messages, including System Exclusive, is incomplete.
+   * In particular, dissection of System Exclusive messages is incomplete.
    * 
    * @param rawMidiMessage The message.
    * 
@@ -317,6 +445,8 @@ public class MidiUtils
    * 
    * @throws IllegalArgumentException If the message is {@code null} or empty.
    * 
+   * @see #decodeMidiMessage
+   * 
    */
   public static MidiMessageType dissectMidiMessage (final byte[] rawMidiMessage)
   {
@@ -391,6 +521,9 @@ public class MidiUtils
       }
       case 0xF0:
       {
+        // System Common and System Real-Time messages other than System Exclusive.
+        if (statusByte != (byte) 0xF0)
+          return getDecodedMidiMessageType (decodeMidiMessage (rawMidiMessage));
         // System Exclusive: 0xF0 vendorId data_1 ... data_n 0xF7.
         // XXX TODO This is incomplete!!
         if (rawMidiMessage.length >= 3 && (rawMidiMessage[rawMidiMessage.length - 1] & 0xFF) == 0xF7)
@@ -400,7 +533,6 @@ public class MidiUtils
               return MidiMessageType.INVALID;
           return MidiMessageType.SYSTEM_COMMON_SYSEX;
         }
-        // XXX SUPPORT OTHER SYSTEM MESSAGES XXX TODO
         else
           return MidiMessageType.INVALID;
       }
@@ -411,6 +543,283 @@ public class MidiUtils
     }
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MIDI MESSAGE DECODING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /** The message types in order of their ordinal, avoiding the array copy of {@link MidiMessageType#values}.
+   * 
+   */
+  private static final MidiMessageType[] MIDI_MESSAGE_TYPES = MidiMessageType.values ();
+  
+  /** Marks a status byte table entry for a status byte starting a message of variable length (System Exclusive).
+   * 
+   */
+  private static final int VARIABLE_LENGTH = 0xFF;
+  
+  /** The status byte table, indexed by the (unsigned) first byte of a message.
+   * 
+   * <p>
+   * Each entry holds the message type ordinal in bits 24-31, the zero-based MIDI channel in bits 16-19,
+   * and the expected message length in bits 0-7,
+   * with {@link #VARIABLE_LENGTH} for System Exclusive and zero for bytes that do not start a (supported) message.
+   * 
+   */
+  private static final int[] STATUS_BYTE_TABLE = new int[256];
+  
+  private static void putStatusBytes (final int statusMsbNibble, final MidiMessageType midiMessageType, final int length)
+  {
+    for (int channel = 0; channel < 16; channel++)
+      MidiUtils.STATUS_BYTE_TABLE[statusMsbNibble + channel] = (midiMessageType.ordinal () << 24) | (channel << 16) | length;
+  }
+  
+  private static void putStatusByte (final int statusByte, final MidiMessageType midiMessageType, final int length)
+  {
+    MidiUtils.STATUS_BYTE_TABLE[statusByte] = (midiMessageType.ordinal () << 24) | length;
+  }
+  
+  static
+  {
+    putStatusBytes (0x80, MidiMessageType.NOTE_OFF, 3);
+    putStatusBytes (0x90, MidiMessageType.NOTE_ON, 3);
+    putStatusBytes (0xA0, MidiMessageType.POLYPHONIC_KEY_PRESSURE_AFTERTOUCH, 3);
+    putStatusBytes (0xB0, MidiMessageType.CONTROL_CHANGE, 3);
+    putStatusBytes (0xC0, MidiMessageType.PROGRAM_CHANGE, 2);
+    putStatusBytes (0xD0, MidiMessageType.CHANNEL_PRESSURE_AFTERTOUCH, 2);
+    putStatusBytes (0xE0, MidiMessageType.PITCH_BEND_CHANGE, 3);
+    MidiUtils.STATUS_BYTE_TABLE[0xF0] = (MidiMessageType.SYSTEM_COMMON_SYSEX.ordinal () << 24) | MidiUtils.VARIABLE_LENGTH;
+    putStatusByte (0xF1, MidiMessageType.SYSTEM_COMMON_MTC_QUARTER_FRAME, 2);
+    putStatusByte (0xF2, MidiMessageType.SYSTEM_COMMON_SONG_POSITION_POINTER, 3);
+    putStatusByte (0xF3, MidiMessageType.SYSTEM_COMMON_SONG_SELECT, 2);
+    putStatusByte (0xF6, MidiMessageType.SYSTEM_COMMON_TUNE_REQUEST, 1);
+    putStatusByte (0xF8, MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK, 1);
+    putStatusByte (0xFA, MidiMessageType.SYSTEM_REAL_TIME_START, 1);
+    putStatusByte (0xFB, MidiMessageType.SYSTEM_REAL_TIME_CONTINUE, 1);
+    putStatusByte (0xFC, MidiMessageType.SYSTEM_REAL_TIME_STOP, 1);
+    putStatusByte (0xFE, MidiMessageType.SYSTEM_REAL_TIME_ACTIVE_SENSING, 1);
+    putStatusByte (0xFF, MidiMessageType.SYSTEM_REAL_TIME_SYSTEM_RESET, 1);
+  }
+  
+  /** The result of {@link #decodeMidiMessage} for an invalid (or unsupported) message.
+   * 
+   */
+  public static final int DECODED_INVALID = MidiMessageType.INVALID.ordinal () << 24;
+  
+  /** Decodes a given MIDI Message into its type, MIDI channel and data bytes in a single pass.
+   * 
+   * <p>
+   * The result is packed into an {@code int}, from which the parts are extracted through
+   * {@link #getDecodedMidiMessageType}, {@link #getDecodedMidiChannel},
+   * {@link #getDecodedData1} and {@link #getDecodedData2}.
+   * Decoding is driven by a precomputed table indexed by the status byte holding the message type,
+   * the expected length and the MIDI channel,
+   * so that, unlike {@link #dissectMidiMessage} followed by a separate extraction of the channel and data bytes,
+   * the message is inspected only once.
+   * 
+   * <p>
+   * For System Exclusive, the first data byte is the vendor id, and the second data byte is zero.
+   * For the other System Common messages, the data bytes are those of the message (if present),
+   * e.g., the least and most significant 7 bits of the position in a Song Position Pointer.
+   * For messages without MIDI channel, the channel part is zero.
+   * The message type is the same as the one returned by {@link #dissectMidiMessage}.
+   * 
+   * @param rawMidiMessage The message.
+   * 
+   * @return The decoded message; {@link #DECODED_INVALID} if the message was deemed invalid.
+   * 
+   * @throws IllegalArgumentException If the message is {@code null} or empty.
+   * 
+   */
+  public static int decodeMidiMessage (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage == null || rawMidiMessage.length == 0)
+      throw new IllegalArgumentException ();
+    final int entry = MidiUtils.STATUS_BYTE_TABLE[rawMidiMessage[0] & 0xFF];
+    final int length = entry & 0xFF;
+    // Note: the sentinel must be checked first; a System Exclusive message may be exactly VARIABLE_LENGTH bytes long.
+    if (length == MidiUtils.VARIABLE_LENGTH)
+      return decodeSysEx (rawMidiMessage, entry);
+    if (length != rawMidiMessage.length)
+      return MidiUtils.DECODED_INVALID;
+    switch (length)
+    {
+      case 3:
+      {
+        final int data1 = rawMidiMessage[1];
+        final int data2 = rawMidiMessage[2];
+        if (((data1 | data2) & 0x80) != 0)
+          return MidiUtils.DECODED_INVALID;
+        return (entry & 0xFFFF0000) | (data1 << 8) | data2;
+      }
+      case 2:
+      {
+        final int data1 = rawMidiMessage[1];
+        if (data1 < 0)
+          return MidiUtils.DECODED_INVALID;
+        return (entry & 0xFFFF0000) | (data1 << 8);
+      }
+      case 1:
+        return entry & 0xFFFF0000;
+      default:
+        return MidiUtils.DECODED_INVALID;
+    }
+  }
+
+  private static int decodeSysEx (final byte[] rawMidiMessage, final int entry)
+  {
+    if (rawMidiMessage.length < 3 || (rawMidiMessage[rawMidiMessage.length - 1] & 0xFF) != 0xF7)
+      return MidiUtils.DECODED_INVALID;
+    int dataBytesOr = 0;
+    for (int i = 1; i < rawMidiMessage.length - 1; i++)
+      dataBytesOr |= rawMidiMessage[i];
+    if (dataBytesOr < 0)
+      return MidiUtils.DECODED_INVALID;
+    return (entry & 0xFFFF0000) | (rawMidiMessage[1] << 8);
+  }
+  
+  /** Decodes a given raw MIDI event into its type, MIDI channel and data bytes, without creating any objects.
+   * 
+   * <p>
+   * The result is identical to that of {@link #decodeMidiMessage} on the (raw) MIDI message packed into the event.
+   * 
+   * @param rawMidiEvent The raw MIDI event, see {@link RawMidiEvent}.
+   * 
+   * @return The decoded message; {@link #DECODED_INVALID} if the message was deemed invalid.
+   * 
+   * @throws IllegalArgumentException If the event is {@link RawMidiEvent#NO_EVENT}.
+   * 
+   */
+  public static int decodeRawMidiEvent (final int rawMidiEvent)
+  {
+    if (rawMidiEvent == RawMidiEvent.NO_EVENT)
+      throw new IllegalArgumentException ();
+    final int entry = MidiUtils.STATUS_BYTE_TABLE[RawMidiEvent.getStatusByte (rawMidiEvent)];
+    // Bytes beyond the message length are zero in a raw MIDI event, and in the decoded message.
+    final int dataBytes = rawMidiEvent & 0xFFFF;
+    if ((entry & 0xFF) != RawMidiEvent.getLength (rawMidiEvent) || (dataBytes & 0x8080) != 0)
+      return MidiUtils.DECODED_INVALID;
+    return (entry & 0xFFFF0000) | dataBytes;
+  }
+  
+  /** Returns the message type of a decoded MIDI message.
+   * 
+   * @param decodedMidiMessage The decoded message, see {@link #decodeMidiMessage}.
+   * 
+   * @return The message type, non-{@code null}.
+   * 
+   */
+  public static MidiMessageType getDecodedMidiMessageType (final int decodedMidiMessage)
+  {
+    return MidiUtils.MIDI_MESSAGE_TYPES[decodedMidiMessage >>> 24];
+  }
+  
+  /** Returns the MIDI channel of a decoded MIDI message.
+   * 
+   * @param decodedMidiMessage The decoded message, see {@link #decodeMidiMessage}.
+   * 
+   * @return The MIDI channel, between unity and 16 inclusive (unity for messages without MIDI channel).
+   * 
+   */
+  public static int getDecodedMidiChannel (final int decodedMidiMessage)
+  {
+    return ((decodedMidiMessage >>> 16) & 0x0F) + 1;
+  }
+  
+  /** Returns the first data byte of a decoded MIDI message.
+   * 
+   * @param decodedMidiMessage The decoded message, see {@link #decodeMidiMessage}.
+   * 
+   * @return The first data byte, between zero and 127 inclusive (zero if absent).
+   * 
+   */
+  public static int getDecodedData1 (final int decodedMidiMessage)
+  {
+    return (decodedMidiMessage >>> 8) & 0x7F;
+  }
+  
+  /** Returns the second data byte of a decoded MIDI message.
+   * 
+   * @param decodedMidiMessage The decoded message, see {@link #decodeMidiMessage}.
+   * 
+   * @return The second data byte, between zero and 127 inclusive (zero if absent).
+   * 
+   */
+  public static int getDecodedData2 (final int decodedMidiMessage)
+  {
+    return decodedMidiMessage & 0x7F;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MIDI SERVICE LISTENER FILTER MASKS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /** The message-type mask selecting all MIDI message types.
+   * 
+   * @see MidiService#addMidiServiceListener(MidiServiceListener, long, int)
+   * 
+   */
+  public final static long MIDI_MESSAGE_TYPE_MASK_ALL = -1L;
+  
+  /** The channel mask selecting all MIDI channels.
+   * 
+   * @see MidiService#addMidiServiceListener(MidiServiceListener, long, int)
+   * 
+   */
+  public final static int MIDI_CHANNEL_MASK_ALL = 0xFFFF;
+  
+  /** Returns the message-type mask selecting given MIDI message types.
+   * 
+   * @param midiMessageTypes The message types, non-{@code null} and without {@code null} elements.
+   * 
+   * @return The message-type mask.
+   * 
+   * @throws IllegalArgumentException If the argument or any of its elements is {@code null}.
+   * 
+   * @see MidiMessageType#getMask
+   * 
+   */
+  public final static long getMidiMessageTypeMask (final MidiMessageType... midiMessageTypes)
+  {
+    if (midiMessageTypes == null)
+      throw new IllegalArgumentException ();
+    long mask = 0L;
+    for (final MidiMessageType midiMessageType : midiMessageTypes)
+      if (midiMessageType == null)
+        throw new IllegalArgumentException ();
+      else
+        mask |= midiMessageType.getMask ();
+    return mask;
+  }
+  
+  /** Returns the channel mask selecting given MIDI channels.
+   * 
+   * <p>
+   * In the mask, MIDI channel {@code n} is represented by bit {@code n - 1}.
+   * 
+   * @param midiChannels The MIDI channel numbers, non-{@code null}, each between unity and 16 inclusive.
+   * 
+   * @return The channel mask.
+   * 
+   * @throws IllegalArgumentException If the argument is {@code null} or any of the channel numbers is out of range.
+   * 
+   */
+  public final static int getMidiChannelMask (final int... midiChannels)
+  {
+    if (midiChannels == null)
+      throw new IllegalArgumentException ();
+    int mask = 0;
+    for (final int midiChannel : midiChannels)
+      if (midiChannel < 1 || midiChannel > 16)
+        throw new IllegalArgumentException ();
+      else
+        mask |= 1 << (midiChannel - 1);
+    return mask;
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
@@ -29,6 +29,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.javajdj.jservice.Service;
 import org.javajdj.jservice.midi.DefaultMidiServiceListener;
+import org.javajdj.jservice.midi.MidiMessageType;
 import org.javajdj.jservice.midi.MidiService;
 import org.javajdj.jservice.midi.MidiServiceListener;
 import org.javajdj.jservice.midi.MidiUtils;
@@ -74,7 +75,7 @@ public abstract class AbstractMidiDevice<D extends ParameterDescriptor>
       throw new IllegalArgumentException ();
     addRunnable (this.valueJanitor);
     this.midiService = midiService;
-    this.midiService.addMidiServiceListener (this.midiServiceListener);
+    updateMidiServiceListenerSubscription ();
   }
 
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -154,6 +155,7 @@ public abstract class AbstractMidiDevice<D extends ParameterDescriptor>
       {
         final int oldMidiChannel = this.midiChannel;
         this.midiChannel = midiChannel;
+        updateMidiServiceListenerSubscription ();
         fireSettingsChanged (MIDI_CHANNEL_PROPERTY_NAME, oldMidiChannel, this.midiChannel);
       }
     }
@@ -180,6 +182,7 @@ public abstract class AbstractMidiDevice<D extends ParameterDescriptor>
       {
         final boolean oldMidiRxOmni = this.midiRxOmni;
         this.midiRxOmni = midiRxOmni;
+        updateMidiServiceListenerSubscription ();
         fireSettingsChanged (MIDI_RX_OMNI_PROPERTY_NAME, oldMidiRxOmni, this.midiRxOmni);
       }
     }
@@ -833,6 +836,10 @@ public abstract class AbstractMidiDevice<D extends ParameterDescriptor>
   private final MidiServiceListener midiServiceListener = new DefaultMidiServiceListener ()
   {
     
+    // The subscription of this listener at the MidiService already filters on message type and MIDI channel.
+    // The checks below remain in place for the (short) time between a change of the MIDI channel and/or the Rx OMNI setting
+    // and the update of the subscription.
+    //
     // There are admitted race conditions in the code below if multiple Threads set the MIDI channel and/or the Rx OMNI setting.
     // Or, play with our Status for that matter.
     // However, the worst that can happen is that some messages will not be delivered.
@@ -912,6 +919,37 @@ public abstract class AbstractMidiDevice<D extends ParameterDescriptor>
     
   };
   
+  /** The message types subscribed to by the MIDI service listener.
+   * 
+   */
+  private static final long MIDI_SERVICE_LISTENER_MESSAGE_TYPE_MASK = MidiUtils.getMidiMessageTypeMask (
+    MidiMessageType.NOTE_OFF,
+    MidiMessageType.NOTE_ON,
+    MidiMessageType.POLYPHONIC_KEY_PRESSURE_AFTERTOUCH,
+    MidiMessageType.CONTROL_CHANGE,
+    MidiMessageType.PROGRAM_CHANGE,
+    MidiMessageType.CHANNEL_PRESSURE_AFTERTOUCH,
+    MidiMessageType.PITCH_BEND_CHANGE,
+    MidiMessageType.SYSTEM_COMMON_SYSEX);
+  
+  private final Object midiServiceListenerSubscriptionLock = new Object ();
+  
+  /** (Re)subscribes the MIDI service listener at the MIDI service, according to the current MIDI channel and Rx OMNI setting.
+   * 
+   * <p>
+   * With Rx OMNI off, the MIDI service no longer notifies us of Channel messages on other MIDI channels.
+   * 
+   */
+  private void updateMidiServiceListenerSubscription ()
+  {
+    synchronized (this.midiServiceListenerSubscriptionLock)
+    {
+      this.midiService.addMidiServiceListener (this.midiServiceListener,
+        AbstractMidiDevice.MIDI_SERVICE_LISTENER_MESSAGE_TYPE_MASK,
+        this.midiRxOmni ? MidiUtils.MIDI_CHANNEL_MASK_ALL : MidiUtils.getMidiChannelMask (this.midiChannel));
+    }
+  }
+  
   /** Invoked when a MIDI Note Off message has been received from the {@link MidiService}.
    * 
    * <p>
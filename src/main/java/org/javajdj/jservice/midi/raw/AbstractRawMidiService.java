@@ -16,6 +16,7 @@
  */
 package org.javajdj.jservice.midi.raw;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.logging.Logger;
@@ -24,7 +25,8 @@ import org.javajdj.jservice.support.Service_FromMix;
 /** Partial implementation of a {@link RawMidiService}.
  * 
  * <p>
- * This base class takes care of administering and notifying {@link RawMidiServiceListener}s.
+ * This base class takes care of administering and notifying {@link RawMidiServiceListener}s,
+ * including the allocation-free notification of {@link RawMidiEventListener}s.
  * 
  * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
  * 
@@ -80,6 +82,14 @@ public abstract class AbstractRawMidiService
   
   private final Object rawMidiServiceListenersLock = new Object ();
   
+  /** An immutable snapshot of the registered listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile RawMidiServiceListener[] rawMidiServiceListenersCopy = new RawMidiServiceListener[0]; // References are atomic.
+  
   @Override
   public final void addRawMidiServiceListener (final RawMidiServiceListener l)
   {
@@ -88,7 +98,10 @@ public abstract class AbstractRawMidiService
     synchronized (this.rawMidiServiceListenersLock)
     {
       if (! this.rawMidiServiceListeners.contains (l))
+      {
         this.rawMidiServiceListeners.add (l);
+        this.rawMidiServiceListenersCopy = this.rawMidiServiceListeners.toArray (new RawMidiServiceListener[0]);
+      }
     }
   }
 
@@ -99,7 +112,8 @@ public abstract class AbstractRawMidiService
       return;
     synchronized (this.rawMidiServiceListenersLock)
     {
-      this.rawMidiServiceListeners.remove (l);
+      if (this.rawMidiServiceListeners.remove (l))
+        this.rawMidiServiceListenersCopy = this.rawMidiServiceListeners.toArray (new RawMidiServiceListener[0]);
     }
   }
 
@@ -113,32 +127,121 @@ public abstract class AbstractRawMidiService
    */
   protected final void fireRawMidiMessageTx (final byte[] message)
   {
-    final Set<RawMidiServiceListener> listeners;
-    synchronized (this.rawMidiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.rawMidiServiceListeners);
-    }
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
     for (final RawMidiServiceListener l : listeners)
       l.rawMidiMessageTx (message);
   }
   
   /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param message The message received.
    * 
    * @see #addRawMidiServiceListener
    * @see #removeRawMidiServiceListener
+   * @see #fireRawMidiMessageRx(byte[], long)
    * 
    */
   protected final void fireRawMidiMessageRx (final byte[] message)
   {
-    final Set<RawMidiServiceListener> listeners;
-    synchronized (this.rawMidiServiceListenersLock)
+    fireRawMidiMessageRx (message, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message with given reception timestamp.
+   * 
+   * <p>
+   * {@link RawMidiEventListener}s are notified through {@link RawMidiEventListener#rawMidiEventRx}
+   * if the message can be packed into a {@link RawMidiEvent}.
+   * 
+   * @param message   The message received.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see #addRawMidiServiceListener
+   * @see #removeRawMidiServiceListener
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  protected final void fireRawMidiMessageRx (final byte[] message, final long timestamp)
+  {
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
+    final int rawMidiEvent = RawMidiEvent.pack (message);
+    for (final RawMidiServiceListener l : listeners)
+      if (rawMidiEvent != RawMidiEvent.NO_EVENT && l instanceof RawMidiEventListener)
+        ((RawMidiEventListener) l).rawMidiEventRx (rawMidiEvent, timestamp);
+      else
+        l.rawMidiMessageRx (message, timestamp);
+  }
+  
+  /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message packed into a raw MIDI event.
+   * 
+   * <p>
+   * {@link RawMidiEventListener}s are notified through {@link RawMidiEventListener#rawMidiEventRx};
+   * for other listeners (if any), the event is unpacked into a single {@code byte[]} shared among them.
+   * Hence, with only {@link RawMidiEventListener}s registered, reception does not create any objects.
+   * 
+   * @param rawMidiEvent The raw MIDI event received, not {@link RawMidiEvent#NO_EVENT}.
+   * @param timestamp    The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the event is {@link RawMidiEvent#NO_EVENT}.
+   * 
+   * @see RawMidiEvent
+   * 
+   */
+  protected final void fireRawMidiEventRx (final int rawMidiEvent, final long timestamp)
+  {
+    if (rawMidiEvent == RawMidiEvent.NO_EVENT)
+      throw new IllegalArgumentException ();
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
+    byte[] message = null;
+    for (final RawMidiServiceListener l : listeners)
+      if (l instanceof RawMidiEventListener)
+        ((RawMidiEventListener) l).rawMidiEventRx (rawMidiEvent, timestamp);
+      else
+      {
+        if (message == null)
+          message = RawMidiEvent.toRawMidiMessage (rawMidiEvent);
+        l.rawMidiMessageRx (message, timestamp);
+      }
+  }
+  
+  /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message held in a buffer.
+   * 
+   * <p>
+   * The message is taken from the buffer's position up to its limit;
+   * upon return, the buffer's position equals its limit.
+   * If the message can be packed into a {@link RawMidiEvent}, this method behaves as {@link #fireRawMidiEventRx};
+   * otherwise, the message is copied into a new {@code byte[]} and passed to {@link #fireRawMidiMessageRx(byte[], long)}.
+   * 
+   * <p>
+   * This method is meant for transports that receive into a (reused) buffer.
+   * An empty message (no bytes remaining) is silently ignored.
+   * 
+   * @param message   The buffer holding the message received, non-{@code null}.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the buffer is {@code null}.
+   * 
+   */
+  protected final void fireRawMidiMessageRx (final ByteBuffer message, final long timestamp)
+  {
+    if (message == null)
+      throw new IllegalArgumentException ();
+    if (! message.hasRemaining ())
+      return;
+    final int rawMidiEvent = RawMidiEvent.pack (message);
+    if (rawMidiEvent != RawMidiEvent.NO_EVENT)
     {
-      listeners = new LinkedHashSet<> (this.rawMidiServiceListeners);
+      message.position (message.limit ());
+      fireRawMidiEventRx (rawMidiEvent, timestamp);
+    }
+    else
+    {
+      final byte[] rawMidiMessage = new byte[message.remaining ()];
+      message.get (rawMidiMessage);
+      fireRawMidiMessageRx (rawMidiMessage, timestamp);
     }
-    for (final RawMidiServiceListener l : listeners)
-      l.rawMidiMessageRx (message);
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,223 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.nio.ByteBuffer;
+
+/** Utility methods for (raw) MIDI events: (raw) MIDI messages of at most three bytes packed into an {@code int}.
+ * 
+ * <p>
+ * A raw MIDI event holds the message length (1, 2 or 3) in bits 24-25,
+ * the first (status) byte in bits 16-23, the second byte (first data byte) in bits 8-15,
+ * and the third byte (second data byte) in bits 0-7; bytes beyond the message length are zero.
+ * The representation covers all Channel, System Common (except System Exclusive) and System Real-Time messages,
+ * allowing them to be passed from transport to application as primitives,
+ * see {@link RawMidiEventListener}.
+ * 
+ * <p>
+ * Raw MIDI events are not validated beyond their length;
+ * e.g., the status byte may be absent, and data bytes may have their most-significant bit set.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class RawMidiEvent
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Prevents instantiation.
+   * 
+   */
+  private RawMidiEvent ()
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PACKING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The value denoting the absence of a raw MIDI event, e.g., for a message that cannot be packed.
+   * 
+   */
+  public static final int NO_EVENT = 0;
+  
+  /** Packs the bytes of a (raw) MIDI message into a raw MIDI event.
+   * 
+   * @param length The message length, between unity and 3 inclusive.
+   * @param byte0  The first (status) byte; only the least-significant 8 bits are used.
+   * @param byte1  The second byte; only the least-significant 8 bits are used, and ignored if the length is unity.
+   * @param byte2  The third byte; only the least-significant 8 bits are used, and ignored if the length is smaller than 3.
+   * 
+   * @return The raw MIDI event.
+   * 
+   * @throws IllegalArgumentException If the length is out of range.
+   * 
+   */
+  public static int pack (final int length, final int byte0, final int byte1, final int byte2)
+  {
+    switch (length)
+    {
+      case 1:
+        return (1 << 24) | ((byte0 & 0xFF) << 16);
+      case 2:
+        return (2 << 24) | ((byte0 & 0xFF) << 16) | ((byte1 & 0xFF) << 8);
+      case 3:
+        return (3 << 24) | ((byte0 & 0xFF) << 16) | ((byte1 & 0xFF) << 8) | (byte2 & 0xFF);
+      default:
+        throw new IllegalArgumentException ();
+    }
+  }
+  
+  /** Packs a (raw) MIDI message into a raw MIDI event, if possible.
+   * 
+   * @param rawMidiMessage The message, may be {@code null}.
+   * 
+   * @return The raw MIDI event; {@link #NO_EVENT} if the message is {@code null}, empty, longer than 3 bytes,
+   *           or starts with a System Exclusive status byte.
+   * 
+   */
+  public static int pack (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage == null
+      || rawMidiMessage.length == 0
+      || rawMidiMessage.length > 3
+      || rawMidiMessage[0] == (byte) 0xF0)
+      return RawMidiEvent.NO_EVENT;
+    switch (rawMidiMessage.length)
+    {
+      case 1:
+        return pack (1, rawMidiMessage[0], 0, 0);
+      case 2:
+        return pack (2, rawMidiMessage[0], rawMidiMessage[1], 0);
+      default:
+        return pack (3, rawMidiMessage[0], rawMidiMessage[1], rawMidiMessage[2]);
+    }
+  }
+  
+  /** Packs the remaining bytes in a buffer into a raw MIDI event, if possible, without changing the buffer's position.
+   * 
+   * @param buffer The buffer holding the message from its position up to its limit, may be {@code null}.
+   * 
+   * @return The raw MIDI event; {@link #NO_EVENT} if the buffer is {@code null}, has no remaining bytes,
+   *           has more than 3 remaining bytes, or the message starts with a System Exclusive status byte.
+   * 
+   */
+  public static int pack (final ByteBuffer buffer)
+  {
+    if (buffer == null)
+      return RawMidiEvent.NO_EVENT;
+    final int position = buffer.position ();
+    final int length = buffer.limit () - position;
+    if (length == 0 || length > 3 || buffer.get (position) == (byte) 0xF0)
+      return RawMidiEvent.NO_EVENT;
+    switch (length)
+    {
+      case 1:
+        return pack (1, buffer.get (position), 0, 0);
+      case 2:
+        return pack (2, buffer.get (position), buffer.get (position + 1), 0);
+      default:
+        return pack (3, buffer.get (position), buffer.get (position + 1), buffer.get (position + 2));
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UNPACKING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the message length of a raw MIDI event.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * 
+   * @return The message length, between unity and 3 inclusive; zero for {@link #NO_EVENT}.
+   * 
+   */
+  public static int getLength (final int rawMidiEvent)
+  {
+    return (rawMidiEvent >>> 24) & 0x03;
+  }
+  
+  /** Returns the first (status) byte of a raw MIDI event.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * 
+   * @return The first byte, between zero and 255 inclusive.
+   * 
+   */
+  public static int getStatusByte (final int rawMidiEvent)
+  {
+    return (rawMidiEvent >>> 16) & 0xFF;
+  }
+  
+  /** Returns the second byte (first data byte) of a raw MIDI event.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * 
+   * @return The second byte, between zero and 255 inclusive; zero if absent.
+   * 
+   */
+  public static int getData1 (final int rawMidiEvent)
+  {
+    return (rawMidiEvent >>> 8) & 0xFF;
+  }
+  
+  /** Returns the third byte (second data byte) of a raw MIDI event.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * 
+   * @return The third byte, between zero and 255 inclusive; zero if absent.
+   * 
+   */
+  public static int getData2 (final int rawMidiEvent)
+  {
+    return rawMidiEvent & 0xFF;
+  }
+  
+  /** Unpacks a raw MIDI event into a newly created (raw) MIDI message.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * 
+   * @return The newly created (raw) MIDI message.
+   * 
+   * @throws IllegalArgumentException If the argument is {@link #NO_EVENT}.
+   * 
+   */
+  public static byte[] toRawMidiMessage (final int rawMidiEvent)
+  {
+    switch (getLength (rawMidiEvent))
+    {
+      case 1:
+        return new byte[]{(byte) getStatusByte (rawMidiEvent)};
+      case 2:
+        return new byte[]{(byte) getStatusByte (rawMidiEvent), (byte) getData1 (rawMidiEvent)};
+      case 3:
+        return new byte[]{(byte) getStatusByte (rawMidiEvent), (byte) getData1 (rawMidiEvent), (byte) getData2 (rawMidiEvent)};
+      default:
+        throw new IllegalArgumentException ();
+    }
+  }
+  
+}
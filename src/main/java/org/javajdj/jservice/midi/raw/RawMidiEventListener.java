@@ -0,0 +1,50 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+/** A message listener on {@link RawMidiService} that (also) accepts received messages as {@link RawMidiEvent}s.
+ * 
+ * <p>
+ * A {@link RawMidiService} that supports raw MIDI events notifies a (registered) {@code RawMidiEventListener}
+ * of received messages of at most three bytes through {@link #rawMidiEventRx},
+ * avoiding the creation of a {@code byte[]} for each such message;
+ * it uses {@link #rawMidiMessageRx(byte[], long)} for other messages, in particular System Exclusive.
+ * The services derived from {@link AbstractRawMidiService} support raw MIDI events.
+ * 
+ * <p>
+ * Services that do not support raw MIDI events treat the listener as a plain {@link RawMidiServiceListener};
+ * implementations must therefore be prepared to receive any message through {@link #rawMidiMessageRx(byte[], long)}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public interface RawMidiEventListener
+  extends RawMidiServiceListener
+{
+  
+  /** Notification of the reception of a (raw) MIDI message packed into a raw MIDI event, with its reception timestamp.
+   * 
+   * @param rawMidiEvent The raw MIDI event, never {@link RawMidiEvent#NO_EVENT}.
+   * @param timestamp    The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see RawMidiEvent
+   * @see RawMidiServiceListener#rawMidiMessageRx(byte[], long)
+   * 
+   */
+  void rawMidiEventRx (int rawMidiEvent, long timestamp);
+  
+}
@@ -38,4 +38,23 @@ public interface RawMidiServiceListener
    */
   void rawMidiMessageRx (byte[] rawMidiMessage); 
     
+  /** Notification of the reception of a (raw) MIDI message, with its reception timestamp.
+   * 
+   * <p>
+   * The timestamp is the value of {@link System#nanoTime} at the earliest point the message was seen by the service,
+   * typically right after it was read from the underlying transport.
+   * Hence, {@code System.nanoTime () - timestamp} is the latency between reception and delivery to this listener.
+   * 
+   * <p>
+   * The default implementation ignores the timestamp and invokes {@link #rawMidiMessageRx(byte[])}.
+   * 
+   * @param rawMidiMessage The message.
+   * @param timestamp      The reception timestamp, see {@link System#nanoTime}.
+   * 
+   */
+  default void rawMidiMessageRx (final byte[] rawMidiMessage, final long timestamp)
+  {
+    rawMidiMessageRx (rawMidiMessage);
+  }
+  
 }
@@ -35,6 +35,14 @@ public class RawMidiServiceListenerSupport
   
   private final Object rawMidiServiceListenersLock = new Object ();
   
+  /** An immutable snapshot of the registered listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile RawMidiServiceListener[] rawMidiServiceListenersCopy = new RawMidiServiceListener[0]; // References are atomic.
+  
   /** Adds a MIDI (raw) message listener.
    * 
    * @param l The listener, ignored if {@code null} or already registered.
@@ -49,7 +57,10 @@ public class RawMidiServiceListenerSupport
     synchronized (this.rawMidiServiceListenersLock)
     {
       if (! this.rawMidiServiceListeners.contains (l))
+      {
         this.rawMidiServiceListeners.add (l);
+        this.rawMidiServiceListenersCopy = this.rawMidiServiceListeners.toArray (new RawMidiServiceListener[0]);
+      }
     }
   }
 
@@ -66,7 +77,8 @@ public class RawMidiServiceListenerSupport
       return;
     synchronized (this.rawMidiServiceListenersLock)
     {
-      this.rawMidiServiceListeners.remove (l);
+      if (this.rawMidiServiceListeners.remove (l))
+        this.rawMidiServiceListenersCopy = this.rawMidiServiceListeners.toArray (new RawMidiServiceListener[0]);
     }
   }
 
@@ -79,31 +91,70 @@ public class RawMidiServiceListenerSupport
    */
   public final void fireRawMidiMessageTx (final byte[] message)
   {
-    final Set<RawMidiServiceListener> listeners;
-    synchronized (this.rawMidiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.rawMidiServiceListeners);
-    }
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
     for (final RawMidiServiceListener l : listeners)
       l.rawMidiMessageTx (message);
   }
   
   /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param message The message received.
    * 
-   * @see AbstractRawMidiService#fireRawMidiMessageRx
+   * @see AbstractRawMidiService#fireRawMidiMessageRx(byte[])
    * 
    */
   public final void fireRawMidiMessageRx (final byte[] message)
   {
-    final Set<RawMidiServiceListener> listeners;
-    synchronized (this.rawMidiServiceListenersLock)
-    {
-      listeners = new LinkedHashSet<> (this.rawMidiServiceListeners);
-    }
+    fireRawMidiMessageRx (message, System.nanoTime ());
+  }
+  
+  /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message with given reception timestamp.
+   * 
+   * @param message   The message received.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see AbstractRawMidiService#fireRawMidiMessageRx(byte[], long)
+   * 
+   */
+  public final void fireRawMidiMessageRx (final byte[] message, final long timestamp)
+  {
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
+    for (final RawMidiServiceListener l : listeners)
+      l.rawMidiMessageRx (message, timestamp);
+  }
+  
+  /** Notifies registered {@link RawMidiServiceListener}s of the reception of a (raw) MIDI message packed into a raw MIDI event.
+   * 
+   * <p>
+   * Registered {@link RawMidiEventListener}s receive the event as is;
+   * other listeners receive the message as a {@code byte[]}, created (once) only if there is such a listener.
+   * 
+   * @param rawMidiEvent The raw MIDI event.
+   * @param timestamp    The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the event equals {@link RawMidiEvent#NO_EVENT}.
+   * 
+   * @see AbstractRawMidiService#fireRawMidiEventRx
+   * 
+   */
+  public final void fireRawMidiEventRx (final int rawMidiEvent, final long timestamp)
+  {
+    if (rawMidiEvent == RawMidiEvent.NO_EVENT)
+      throw new IllegalArgumentException ();
+    final RawMidiServiceListener[] listeners = this.rawMidiServiceListenersCopy;
+    byte[] message = null;
     for (final RawMidiServiceListener l : listeners)
-      l.rawMidiMessageRx (message);
+      if (l instanceof RawMidiEventListener)
+        ((RawMidiEventListener) l).rawMidiEventRx (rawMidiEvent, timestamp);
+      else
+      {
+        if (message == null)
+          message = RawMidiEvent.toRawMidiMessage (rawMidiEvent);
+        l.rawMidiMessageRx (message, timestamp);
+      }
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
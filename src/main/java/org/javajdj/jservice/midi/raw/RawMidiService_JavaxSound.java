@@ -0,0 +1,596 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.SysexMessage;
+import javax.sound.midi.Transmitter;
+import org.javajdj.jservice.AbstractService;
+import org.javajdj.jservice.Service;
+
+/** A {@link RawMidiService} bridging to locally attached MIDI ports through {@code javax.sound.midi}.
+ * 
+ * <p>
+ * Messages received from the {@link Transmitter} of the input device are delivered to the listeners;
+ * messages sent are passed to the {@link Receiver} of the output device.
+ * Either device is optional.
+ * Devices are selected by name (see {@link #getDeviceNames}), or supplied directly
+ * (e.g., a virtual port or a {@link javax.sound.midi.Sequencer} for testing).
+ * The devices are opened upon {@link #startService} and closed upon {@link #stopService}.
+ * 
+ * <p>
+ * If the input device supplies timestamps ({@link MidiMessage}s arrive with a time-stamp other than -1),
+ * the reception timestamp handed to the listeners is derived from the device timestamp
+ * instead of from the (later, and jittery) moment of delivery.
+ * The offset between the device clock and {@link System#nanoTime} is estimated from the messages received.
+ * {@link MetaMessage}s (as delivered, for instance, by a {@link javax.sound.midi.Sequencer}) are ignored.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiService_JavaxSound
+  extends AbstractRawMidiService
+  implements RawMidiService
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (RawMidiService_JavaxSound.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a {@code javax.sound.midi} {@link RawMidiService} with given name and input and output device names.
+   * 
+   * <p>
+   * A device name of {@code null} means no device;
+   * an empty name selects the system default device (see {@link MidiSystem#getTransmitter} and {@link MidiSystem#getReceiver});
+   * any other name selects the first device of which the name contains the given name (ignoring case).
+   * 
+   * @param name             The service name, non-{@code null}.
+   * @param inputDeviceName  The name of the input device, may be {@code null} or empty.
+   * @param outputDeviceName The name of the output device, may be {@code null} or empty.
+   * 
+   * @throws IllegalArgumentException If the name is {@code null}.
+   * 
+   */
+  public RawMidiService_JavaxSound (final String name, final String inputDeviceName, final String outputDeviceName)
+  {
+    super (name);
+    this.inputDeviceName = inputDeviceName;
+    this.outputDeviceName = outputDeviceName;
+    this.inputDevice = null;
+    this.outputDevice = null;
+    addTargetService (this.portService);
+  }
+  
+  /** Creates a {@code javax.sound.midi} {@link RawMidiService} with given input and output device names.
+   * 
+   * <p>
+   * The service name is set to {@code "RawMidiService_JavaxSound"}.
+   * 
+   * @param inputDeviceName  The name of the input device, may be {@code null} or empty.
+   * @param outputDeviceName The name of the output device, may be {@code null} or empty.
+   * 
+   * @see #RawMidiService_JavaxSound(String, String, String)
+   * 
+   */
+  public RawMidiService_JavaxSound (final String inputDeviceName, final String outputDeviceName)
+  {
+    this ("RawMidiService_JavaxSound", inputDeviceName, outputDeviceName);
+  }
+  
+  /** Creates a {@code javax.sound.midi} {@link RawMidiService} with given name and input and output devices.
+   * 
+   * <p>
+   * The devices are opened upon start, and closed upon stop of the service.
+   * 
+   * @param name         The service name, non-{@code null}.
+   * @param inputDevice  The input device, may be {@code null}.
+   * @param outputDevice The output device, may be {@code null}.
+   * 
+   * @throws IllegalArgumentException If the name is {@code null}.
+   * 
+   */
+  public RawMidiService_JavaxSound (final String name, final MidiDevice inputDevice, final MidiDevice outputDevice)
+  {
+    super (name);
+    this.inputDeviceName = inputDevice != null ? inputDevice.getDeviceInfo ().getName () : null;
+    this.outputDeviceName = outputDevice != null ? outputDevice.getDeviceInfo ().getName () : null;
+    this.inputDevice = inputDevice;
+    this.outputDevice = outputDevice;
+    addTargetService (this.portService);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DEVICES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final String inputDeviceName;
+  
+  private final String outputDeviceName;
+  
+  private final MidiDevice inputDevice;
+  
+  private final MidiDevice outputDevice;
+  
+  /** Returns the name of the input device.
+   * 
+   * @return The name of the input device; {@code null} for none, empty for the system default.
+   * 
+   */
+  public final String getInputDeviceName ()
+  {
+    return this.inputDeviceName;
+  }
+  
+  /** Returns the name of the output device.
+   * 
+   * @return The name of the output device; {@code null} for none, empty for the system default.
+   * 
+   */
+  public final String getOutputDeviceName ()
+  {
+    return this.outputDeviceName;
+  }
+  
+  /** Returns the names of the available MIDI devices.
+   * 
+   * @param input Whether to list input devices (with transmitters) or output devices (with receivers).
+   * 
+   * @return The names of the available devices of the given kind, non-{@code null}.
+   * 
+   */
+  public static List<String> getDeviceNames (final boolean input)
+  {
+    final List<String> deviceNames = new ArrayList<> ();
+    for (final MidiDevice.Info info : MidiSystem.getMidiDeviceInfo ())
+      try
+      {
+        final MidiDevice device = MidiSystem.getMidiDevice (info);
+        if ((input ? device.getMaxTransmitters () : device.getMaxReceivers ()) != 0)
+          deviceNames.add (info.getName ());
+      }
+      catch (MidiUnavailableException mue)
+      {
+        // EMPTY
+      }
+    return Collections.unmodifiableList (deviceNames);
+  }
+  
+  /** Finds the first device of given kind of which the name contains the given name, ignoring case.
+   * 
+   * @param name  The (partial) name, non-{@code null}.
+   * @param input Whether to look for an input device (with transmitters) or output device (with receivers).
+   * 
+   * @return The device, non-{@code null}.
+   * 
+   * @throws MidiUnavailableException If no such device exists.
+   * 
+   */
+  private static MidiDevice findDevice (final String name, final boolean input) throws MidiUnavailableException
+  {
+    final String lowerCaseName = name.toLowerCase ();
+    for (final MidiDevice.Info info : MidiSystem.getMidiDeviceInfo ())
+      if (info.getName ().toLowerCase ().contains (lowerCaseName))
+      {
+        final MidiDevice device = MidiSystem.getMidiDevice (info);
+        if ((input ? device.getMaxTransmitters () : device.getMaxReceivers ()) != 0)
+          return device;
+      }
+    throw new MidiUnavailableException ("No such MIDI " + (input ? "input" : "output") + " device: " + name);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DEVICE TIMESTAMPS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The estimated offset between {@link System#nanoTime} and the device clock (in nanoseconds).
+   * 
+   * <p>
+   * Updated from the (single) thread delivering messages from the input device; reset upon start.
+   * 
+   */
+  private volatile long deviceClockOffset_ns = Long.MAX_VALUE;
+  
+  /** The device timestamp (in nanoseconds) of the previous message used to update the clock offset estimate.
+   * 
+   * <p>
+   * Updated from the (single) thread delivering messages from the input device; reset upon start.
+   * 
+   */
+  private volatile long lastDeviceTimestamp_ns = Long.MIN_VALUE;
+  
+  /** The base-2 logarithm of the inverse of the rate at which the clock offset estimate may increase.
+   * 
+   * <p>
+   * The value of 12 allows an increase of about 244 microseconds per second of device time,
+   * well above the relative drift of practical clocks.
+   * 
+   */
+  private static final int DEVICE_CLOCK_OFFSET_DECAY_SHIFT = 12;
+  
+  /** The excess (in nanoseconds) of an observed offset over the estimate upon which the estimate is reset.
+   * 
+   * <p>
+   * A (much) larger offset indicates that the device clock has been reset or has jumped.
+   * 
+   */
+  private static final long DEVICE_CLOCK_OFFSET_RESYNC_NS = 1_000_000_000L;
+  
+  /** Converts a device timestamp into a {@link System#nanoTime} value.
+   * 
+   * <p>
+   * The offset between the two clocks is estimated as the minimum over the messages of the difference
+   * between the time of delivery and the device timestamp;
+   * this removes the delivery (scheduling) latency and its jitter,
+   * leaving only the minimum latency observed.
+   * 
+   * <p>
+   * In order to follow a device clock running slower than {@link System#nanoTime},
+   * the estimate is allowed to increase (decay) slowly with the device time elapsed,
+   * see {@link #DEVICE_CLOCK_OFFSET_DECAY_SHIFT};
+   * decreases are followed immediately.
+   * If the observed offset exceeds the estimate by more than {@link #DEVICE_CLOCK_OFFSET_RESYNC_NS},
+   * or if the device clock runs backwards, the estimate is reset to the observed offset.
+   * The estimate is also reset upon each start of the service.
+   * 
+   * @param deviceTimestamp_us The device timestamp (in microseconds), -1 if not supported.
+   * @param nanoTime           The {@link System#nanoTime} at delivery.
+   * 
+   * @return The reception timestamp, see {@link System#nanoTime}.
+   * 
+   */
+  private long toNanoTime (final long deviceTimestamp_us, final long nanoTime)
+  {
+    if (deviceTimestamp_us < 0)
+      return nanoTime;
+    final long deviceTimestamp_ns = deviceTimestamp_us * 1000L;
+    final long offset_ns = nanoTime - deviceTimestamp_ns;
+    final long estimate_ns = this.deviceClockOffset_ns;
+    final long elapsed_ns = deviceTimestamp_ns - this.lastDeviceTimestamp_ns;
+    this.lastDeviceTimestamp_ns = deviceTimestamp_ns;
+    final long newEstimate_ns;
+    if (estimate_ns == Long.MAX_VALUE || elapsed_ns < 0 || offset_ns - estimate_ns > RawMidiService_JavaxSound.DEVICE_CLOCK_OFFSET_RESYNC_NS)
+      newEstimate_ns = offset_ns;
+    else
+      newEstimate_ns = Math.min (offset_ns, estimate_ns + (elapsed_ns >> RawMidiService_JavaxSound.DEVICE_CLOCK_OFFSET_DECAY_SHIFT));
+    this.deviceClockOffset_ns = newEstimate_ns;
+    return deviceTimestamp_ns + newEstimate_ns;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // INPUT RECEIVER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Receiver} attached to the {@link Transmitter} of the input device.
+   * 
+   */
+  private final Receiver inputReceiver = new Receiver ()
+  {
+    
+    @Override
+    public void send (final MidiMessage message, final long timeStamp)
+    {
+      final long nanoTime = System.nanoTime ();
+      if (message == null || RawMidiService_JavaxSound.this.portService.getStatus () != Status.ACTIVE)
+        return;
+      // Meta messages are Standard MIDI File events (e.g., from a Sequencer), not MIDI messages; skip them.
+      if (message instanceof MetaMessage)
+        return;
+      final long timestamp = toNanoTime (timeStamp, nanoTime);
+      RawMidiService_JavaxSound.this.lastRxNanoTime.lazySet (nanoTime);
+      if (message instanceof ShortMessage)
+      {
+        // Pass the message on as raw MIDI event, avoiding the copy made by getMessage.
+        final ShortMessage shortMessage = (ShortMessage) message;
+        fireRawMidiEventRx (RawMidiEvent.pack (shortMessage.getLength (),
+                                               shortMessage.getStatus (),
+                                               shortMessage.getData1 (),
+                                               shortMessage.getData2 ()),
+                            timestamp);
+      }
+      else
+        // Note: getMessage returns a fresh copy.
+        fireRawMidiMessageRx (message.getMessage (), timestamp);
+    }
+    
+    @Override
+    public void close ()
+    {
+    }
+    
+  };
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PORT SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Service} opening and closing the devices.
+   * 
+   */
+  private final MidiPortService portService = new MidiPortService ();
+  
+  private final class MidiPortService
+    extends AbstractService
+  {
+    
+    private MidiPortService ()
+    {
+      super ("MidiPortService");
+    }
+    
+    private MidiDevice openedInputDevice = null;
+    
+    private MidiDevice openedOutputDevice = null;
+    
+    private Transmitter transmitter = null;
+    
+    private volatile Receiver receiver = null;
+    
+    @Override
+    public final synchronized void startService ()
+    {
+      if (getStatus () == Status.ACTIVE)
+        return;
+      stopService ();
+      final RawMidiService_JavaxSound bridge = RawMidiService_JavaxSound.this;
+      bridge.deviceClockOffset_ns = Long.MAX_VALUE;
+      bridge.lastDeviceTimestamp_ns = Long.MIN_VALUE;
+      try
+      {
+        if (bridge.inputDevice != null || (bridge.inputDeviceName != null && ! bridge.inputDeviceName.isEmpty ()))
+        {
+          this.openedInputDevice = bridge.inputDevice != null ? bridge.inputDevice : findDevice (bridge.inputDeviceName, true);
+          this.openedInputDevice.open ();
+          this.transmitter = this.openedInputDevice.getTransmitter ();
+        }
+        else if (bridge.inputDeviceName != null)
+          this.transmitter = MidiSystem.getTransmitter ();
+        if (bridge.outputDevice != null || (bridge.outputDeviceName != null && ! bridge.outputDeviceName.isEmpty ()))
+        {
+          this.openedOutputDevice = bridge.outputDevice != null ? bridge.outputDevice : findDevice (bridge.outputDeviceName, false);
+          this.openedOutputDevice.open ();
+          this.receiver = this.openedOutputDevice.getReceiver ();
+        }
+        else if (bridge.outputDeviceName != null)
+          this.receiver = MidiSystem.getReceiver ();
+      }
+      catch (MidiUnavailableException | RuntimeException e)
+      {
+        LOG.log (Level.WARNING, "Service Class {0} on Instance {1} failed to open MIDI device(s): {2}!",
+          new Object[]{bridge.getClass ().getSimpleName (), bridge, e});
+        close ();
+        error ();
+        return;
+      }
+      if (this.transmitter != null)
+        this.transmitter.setReceiver (bridge.inputReceiver);
+      if (getStatus () == Status.STOPPED)
+        setStatus (Status.ACTIVE);
+    }
+    
+    @Override
+    public final synchronized void stopService ()
+    {
+      if (getStatus () == Status.STOPPED)
+        return;
+      close ();
+      setStatus (Status.STOPPED);
+    }
+    
+    private void close ()
+    {
+      if (this.transmitter != null)
+      {
+        this.transmitter.setReceiver (null);
+        this.transmitter.close ();
+        this.transmitter = null;
+      }
+      if (this.receiver != null)
+      {
+        this.receiver.close ();
+        this.receiver = null;
+      }
+      if (this.openedInputDevice != null)
+      {
+        this.openedInputDevice.close ();
+        this.openedInputDevice = null;
+      }
+      if (this.openedOutputDevice != null)
+      {
+        this.openedOutputDevice.close ();
+        this.openedOutputDevice = null;
+      }
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RAW MIDI SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Sends a raw MIDI message to the output device (if any).
+   * 
+   * <p>
+   * The message is passed to the device for immediate delivery (time-stamp -1).
+   * It is ignored if it is {@code null}, or if the service is not active or has no output device.
+   * 
+   * @param rawMidiMessage The (raw) MIDI message.
+   * 
+   * @throws IllegalArgumentException If the message is not a valid MIDI message.
+   * 
+   */
+  @Override
+  public void sendRawMidiMessage (final byte[] rawMidiMessage)
+  {
+    final Receiver receiver = this.portService.receiver;
+    if (rawMidiMessage == null || rawMidiMessage.length == 0 || receiver == null)
+      return;
+    final MidiMessage midiMessage;
+    try
+    {
+      final int status = rawMidiMessage[0] & 0xFF;
+      if (status == SysexMessage.SYSTEM_EXCLUSIVE || status == SysexMessage.SPECIAL_SYSTEM_EXCLUSIVE)
+        midiMessage = new SysexMessage (rawMidiMessage, rawMidiMessage.length);
+      else
+      {
+        final ShortMessage shortMessage = new ShortMessage ();
+        switch (rawMidiMessage.length)
+        {
+          case 1:
+            shortMessage.setMessage (status);
+            break;
+          case 2:
+            shortMessage.setMessage (status, rawMidiMessage[1] & 0xFF, 0);
+            break;
+          case 3:
+            shortMessage.setMessage (status, rawMidiMessage[1] & 0xFF, rawMidiMessage[2] & 0xFF);
+            break;
+          default:
+            throw new IllegalArgumentException ();
+        }
+        midiMessage = shortMessage;
+      }
+    }
+    catch (InvalidMidiDataException imde)
+    {
+      throw new IllegalArgumentException (imde);
+    }
+    receiver.send (midiMessage, -1);
+    this.lastTxNanoTime.lazySet (System.nanoTime ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Instant} at construction, used as anchor for converting {@link System#nanoTime} values into {@link Instant}s.
+   * 
+   */
+  private final Instant activityAnchorInstant = Instant.now ();
+  
+  /** The value of {@link System#nanoTime} at construction (approximately at {@link #activityAnchorInstant}).
+   * 
+   */
+  private final long activityAnchorNanoTime = System.nanoTime ();
+  
+  private final AtomicLong lastTxNanoTime = new AtomicLong (RawMidiService_JavaxSound.NO_ACTIVITY);
+  
+  private final AtomicLong lastRxNanoTime = new AtomicLong (RawMidiService_JavaxSound.NO_ACTIVITY);
+  
+  /** Marker value for the absence of activity.
+   * 
+   */
+  private static final long NO_ACTIVITY = Long.MIN_VALUE;
+  
+  private Instant toActivityInstant (final long nanoTime)
+  {
+    if (nanoTime == RawMidiService_JavaxSound.NO_ACTIVITY)
+      return Instant.MIN;
+    return this.activityAnchorInstant.plusNanos (nanoTime - this.activityAnchorNanoTime);
+  }
+  
+  /** Returns {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   * <p>
+   * By virtue of the contract of {@link RawMidiService}.
+   * 
+   * @return {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return RawMidiService.RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES;
+  }
+  
+  /** Returns the {@link Instant} of construction of this service.
+   * 
+   * @return The {@link Instant} of construction of this service.
+   * 
+   */
+  @Override
+  public final Instant lastActivity ()
+  {
+    return this.activityAnchorInstant;
+  }
+  
+  /** Returns the {@link Instant} of the last activity of given type.
+   * 
+   * @param monitorableActivity The activity, {@link RawMidiService#ACTIVITY_TX_NAME} or {@link RawMidiService#ACTIVITY_RX_NAME}.
+   * 
+   * @return The {@link Instant} of the last activity, {@link Instant#MIN} if none, or if the activity is unknown.
+   * 
+   */
+  @Override
+  public final Instant lastActivity (final String monitorableActivity)
+  {
+    if (monitorableActivity == null)
+      return lastActivity ();
+    switch (monitorableActivity)
+    {
+      case RawMidiService.ACTIVITY_TX_NAME:
+        return toActivityInstant (this.lastTxNanoTime.get ());
+      case RawMidiService.ACTIVITY_RX_NAME:
+        return toActivityInstant (this.lastRxNanoTime.get ());
+      default:
+        return Instant.MIN;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,522 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** An in-process {@link RawMidiService} endpoint on a {@link Bus}, without any I/O.
+ * 
+ * <p>
+ * A message sent through an (active) endpoint is received by all other active endpoints on the same bus.
+ * A pair of connected endpoints is obtained through {@link #createPair};
+ * a bus with any number of endpoints is created through {@link Bus#Bus()} and {@link #RawMidiService_Loopback(String, Bus)}.
+ * 
+ * <p>
+ * The bus either delivers messages synchronously on the sender's thread ({@link Delivery#DIRECT}),
+ * which is fully deterministic and suitable for integration tests,
+ * or through a lock-free queue and a delivery thread for each endpoint ({@link Delivery#QUEUED}),
+ * which decouples senders from receivers like a real transport does.
+ * 
+ * <p>
+ * Each message is copied once upon transmission; the copy is shared among all receiving endpoints.
+ * The reception timestamp passed to the listeners is the transmission timestamp,
+ * so that a receive-latency measurement includes the time spent in the queue.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiService_Loopback
+  extends AbstractRawMidiService
+  implements RawMidiService
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (RawMidiService_Loopback.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a loopback {@link RawMidiService} endpoint with given name on given bus.
+   * 
+   * <p>
+   * The endpoint is attached to the bus for its lifetime;
+   * it only sends and receives messages while active.
+   * 
+   * @param name The service name, non-{@code null}.
+   * @param bus  The bus, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If the name or bus is {@code null}.
+   * 
+   */
+  public RawMidiService_Loopback (final String name, final Bus bus)
+  {
+    super (name);
+    if (bus == null)
+      throw new IllegalArgumentException ();
+    this.bus = bus;
+    if (bus.getDelivery () == Delivery.QUEUED)
+    {
+      this.inbox = new ConcurrentLinkedQueue<> ();
+      addRunnable (this::deliver);
+    }
+    else
+      this.inbox = null;
+    bus.endpoints.add (this);
+  }
+  
+  /** Creates a pair of connected loopback {@link RawMidiService} endpoints on a new bus with given delivery.
+   * 
+   * <p>
+   * The endpoints are named {@code "RawMidiService_Loopback_A"} and {@code "RawMidiService_Loopback_B"}, respectively.
+   * 
+   * @param delivery The delivery of the bus, non-{@code null}.
+   * 
+   * @return The two endpoints, both stopped.
+   * 
+   * @throws IllegalArgumentException If {@code delivery == null}.
+   * 
+   */
+  public static RawMidiService_Loopback[] createPair (final Delivery delivery)
+  {
+    final Bus bus = new Bus (delivery, Bus.DEFAULT_QUEUE_CAPACITY);
+    return new RawMidiService_Loopback[]
+    {
+      new RawMidiService_Loopback ("RawMidiService_Loopback_A", bus),
+      new RawMidiService_Loopback ("RawMidiService_Loopback_B", bus)
+    };
+  }
+  
+  /** Creates a pair of connected loopback {@link RawMidiService} endpoints on a new bus with {@link Delivery#QUEUED} delivery.
+   * 
+   * @return The two endpoints, both stopped.
+   * 
+   * @see #createPair(Delivery)
+   * 
+   */
+  public static RawMidiService_Loopback[] createPair ()
+  {
+    return createPair (Delivery.QUEUED);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DELIVERY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The delivery of messages on a {@link Bus}.
+   * 
+   */
+  public enum Delivery
+  {
+    
+    /** Messages are delivered to the receiving endpoints synchronously, on the sender's thread.
+     * 
+     * <p>
+     * Listener exceptions propagate to the sender.
+     * 
+     */
+    DIRECT,
+    /** Messages are queued (lock-free) at each receiving endpoint, and delivered from a thread of that endpoint.
+     * 
+     */
+    QUEUED;
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // BUS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** An in-process bus connecting {@link RawMidiService_Loopback} endpoints.
+   * 
+   * <p>
+   * This class is thread-safe.
+   * 
+   */
+  public static final class Bus
+  {
+    
+    /** The default capacity of the reception queue of each endpoint (with {@link Delivery#QUEUED} delivery).
+     * 
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    
+    /** Creates a bus with given delivery and queue capacity.
+     * 
+     * @param delivery      The delivery, non-{@code null}.
+     * @param queueCapacity The capacity of the reception queue of each endpoint, strictly positive;
+     *                        ignored with {@link Delivery#DIRECT} delivery.
+     * 
+     * @throws IllegalArgumentException If {@code delivery == null} or the capacity is zero or negative.
+     * 
+     */
+    public Bus (final Delivery delivery, final int queueCapacity)
+    {
+      if (delivery == null || queueCapacity < 1)
+        throw new IllegalArgumentException ();
+      this.delivery = delivery;
+      this.queueCapacity = queueCapacity;
+    }
+    
+    /** Creates a bus with {@link Delivery#QUEUED} delivery and default queue capacity.
+     * 
+     * @see #DEFAULT_QUEUE_CAPACITY
+     * 
+     */
+    public Bus ()
+    {
+      this (Delivery.QUEUED, Bus.DEFAULT_QUEUE_CAPACITY);
+    }
+    
+    private final Delivery delivery;
+    
+    /** Returns the delivery of this bus.
+     * 
+     * @return The delivery, non-{@code null}.
+     * 
+     */
+    public final Delivery getDelivery ()
+    {
+      return this.delivery;
+    }
+    
+    private final int queueCapacity;
+    
+    /** Returns the capacity of the reception queue of each endpoint.
+     * 
+     * @return The queue capacity.
+     * 
+     */
+    public final int getQueueCapacity ()
+    {
+      return this.queueCapacity;
+    }
+    
+    private final List<RawMidiService_Loopback> endpoints = new CopyOnWriteArrayList<> ();
+    
+    /** Returns the endpoints attached to this bus.
+     * 
+     * @return An unmodifiable view on the endpoints, in order of creation.
+     * 
+     */
+    public final List<RawMidiService_Loopback> getEndpoints ()
+    {
+      return Collections.unmodifiableList (this.endpoints);
+    }
+    
+  }
+  
+  private final Bus bus;
+  
+  /** Returns the bus of this endpoint.
+   * 
+   * @return The bus, non-{@code null}.
+   * 
+   */
+  public final Bus getBus ()
+  {
+    return this.bus;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // INBOX
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A message pending in the inbox, with its timestamp.
+   * 
+   */
+  private static final class Pending
+  {
+    
+    private final byte[] message;
+    
+    private final long timestamp;
+    
+    private Pending (final byte[] message, final long timestamp)
+    {
+      this.message = message;
+      this.timestamp = timestamp;
+    }
+    
+  }
+  
+  /** The (lock-free, multiple-producer) reception queue; {@code null} with {@link Delivery#DIRECT} delivery.
+   * 
+   */
+  private final Queue<Pending> inbox;
+  
+  private final AtomicInteger inboxSize = new AtomicInteger ();
+  
+  private final AtomicLong droppedCount = new AtomicLong ();
+  
+  /** The delivery thread; {@code null} if not (yet) running.
+   * 
+   */
+  private volatile Thread deliveryThread = null;
+  
+  /** Whether the delivery thread is about to park (or parked); senders only unpark it if set.
+   * 
+   */
+  private volatile boolean deliveryThreadWaiting = false;
+  
+  /** Returns the number of messages pending in the reception queue of this endpoint.
+   * 
+   * @return The number of messages pending; always zero with {@link Delivery#DIRECT} delivery.
+   * 
+   */
+  public final int getQueueSize ()
+  {
+    return this.inboxSize.get ();
+  }
+  
+  /** Returns the number of messages dropped because the reception queue of this endpoint was full.
+   * 
+   * @return The number of messages dropped since construction.
+   * 
+   * @see Bus#getQueueCapacity
+   * 
+   */
+  public final long getDroppedCount ()
+  {
+    return this.droppedCount.get ();
+  }
+  
+  /** Accepts a message sent from another endpoint on the bus.
+   * 
+   * @param message   The message, not to be modified.
+   * @param timestamp The transmission timestamp, see {@link System#nanoTime}.
+   * 
+   */
+  private void accept (final byte[] message, final long timestamp)
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    if (this.inbox == null)
+    {
+      receive (message, timestamp);
+      return;
+    }
+    if (this.inboxSize.incrementAndGet () > this.bus.getQueueCapacity ())
+    {
+      this.inboxSize.decrementAndGet ();
+      this.droppedCount.incrementAndGet ();
+      return;
+    }
+    this.inbox.offer (new Pending (message, timestamp));
+    if (this.deliveryThreadWaiting)
+      LockSupport.unpark (this.deliveryThread);
+  }
+  
+  private void receive (final byte[] message, final long timestamp)
+  {
+    this.lastRxNanoTime.lazySet (System.nanoTime ());
+    fireRawMidiMessageRx (message, timestamp);
+  }
+  
+  /** Delivers queued messages until interrupted (the body of the delivery thread).
+   * 
+   */
+  private void deliver ()
+  {
+    this.deliveryThread = Thread.currentThread ();
+    try
+    {
+      while (! Thread.currentThread ().isInterrupted ())
+      {
+        final Pending pending = this.inbox.poll ();
+        if (pending == null)
+        {
+          this.deliveryThreadWaiting = true;
+          // Re-check after announcing our intent to park; a sender either sees the flag or we see its message.
+          if (this.inbox.isEmpty ())
+            LockSupport.park (this);
+          this.deliveryThreadWaiting = false;
+          continue;
+        }
+        this.inboxSize.decrementAndGet ();
+        try
+        {
+          receive (pending.message, pending.timestamp);
+        }
+        catch (RuntimeException re)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+            new Object[]{this.getClass ().getSimpleName (), this, re});
+        }
+      }
+    }
+    finally
+    {
+      // Messages still pending upon stop are discarded.
+      this.inbox.clear ();
+      this.inboxSize.set (0);
+      this.deliveryThreadWaiting = false;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RAW MIDI SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Sends a raw MIDI message to all other active endpoints on the bus.
+   * 
+   * <p>
+   * The message is ignored if it is {@code null} or if this endpoint is not active.
+   * It is copied once, unless it is delivered directly as {@link RawMidiEvent};
+   * in any case, the caller may reuse the array after this method returns.
+   * 
+   * @param rawMidiMessage The (raw) MIDI message.
+   * 
+   */
+  @Override
+  public void sendRawMidiMessage (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage == null || getStatus () != Status.ACTIVE)
+      return;
+    final long timestamp = System.nanoTime ();
+    this.lastTxNanoTime.lazySet (timestamp);
+    final int rawMidiEvent = this.inbox == null ? RawMidiEvent.pack (rawMidiMessage) : RawMidiEvent.NO_EVENT;
+    if (rawMidiEvent != RawMidiEvent.NO_EVENT)
+    {
+      // Direct delivery of a short message; pass it on as raw MIDI event without copying.
+      for (final RawMidiService_Loopback endpoint : this.bus.endpoints)
+        if (endpoint != this && endpoint.getStatus () == Status.ACTIVE)
+        {
+          endpoint.lastRxNanoTime.lazySet (System.nanoTime ());
+          endpoint.fireRawMidiEventRx (rawMidiEvent, timestamp);
+        }
+      return;
+    }
+    final byte[] message = rawMidiMessage.clone ();
+    for (final RawMidiService_Loopback endpoint : this.bus.endpoints)
+      if (endpoint != this)
+        endpoint.accept (message, timestamp);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Instant} at construction, used as anchor for converting {@link System#nanoTime} values into {@link Instant}s.
+   * 
+   */
+  private final Instant activityAnchorInstant = Instant.now ();
+  
+  /** The value of {@link System#nanoTime} at construction (approximately at {@link #activityAnchorInstant}).
+   * 
+   */
+  private final long activityAnchorNanoTime = System.nanoTime ();
+  
+  private final AtomicLong lastTxNanoTime = new AtomicLong (RawMidiService_Loopback.NO_ACTIVITY);
+  
+  private final AtomicLong lastRxNanoTime = new AtomicLong (RawMidiService_Loopback.NO_ACTIVITY);
+  
+  /** Marker value for the absence of activity.
+   * 
+   */
+  private static final long NO_ACTIVITY = Long.MIN_VALUE;
+  
+  private Instant toActivityInstant (final long nanoTime)
+  {
+    if (nanoTime == RawMidiService_Loopback.NO_ACTIVITY)
+      return Instant.MIN;
+    return this.activityAnchorInstant.plusNanos (nanoTime - this.activityAnchorNanoTime);
+  }
+  
+  /** Returns {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   * <p>
+   * By virtue of the contract of {@link RawMidiService}.
+   * 
+   * @return {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return RawMidiService.RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES;
+  }
+  
+  /** Returns the {@link Instant} of construction of this service.
+   * 
+   * @return The {@link Instant} of construction of this service.
+   * 
+   */
+  @Override
+  public final Instant lastActivity ()
+  {
+    return this.activityAnchorInstant;
+  }
+  
+  /** Returns the {@link Instant} of the last activity of given type.
+   * 
+   * @param monitorableActivity The activity, {@link RawMidiService#ACTIVITY_TX_NAME} or {@link RawMidiService#ACTIVITY_RX_NAME}.
+   * 
+   * @return The {@link Instant} of the last activity, {@link Instant#MIN} if none, or if the activity is unknown.
+   * 
+   */
+  @Override
+  public final Instant lastActivity (final String monitorableActivity)
+  {
+    if (monitorableActivity == null)
+      return lastActivity ();
+    switch (monitorableActivity)
+    {
+      case RawMidiService.ACTIVITY_TX_NAME:
+        return toActivityInstant (this.lastTxNanoTime.get ());
+      case RawMidiService.ACTIVITY_RX_NAME:
+        return toActivityInstant (this.lastRxNanoTime.get ());
+      default:
+        return Instant.MIN;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
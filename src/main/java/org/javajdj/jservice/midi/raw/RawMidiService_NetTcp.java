@@ -0,0 +1,340 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.javajdj.jservice.net.TcpStreamService;
+import org.javajdj.jservice.Service;
+
+/** A {@link RawMidiService} implementation using MIDI over a TCP stream.
+ * 
+ * <p>
+ * MIDI messages are length-framed on the stream; Nagle's algorithm is disabled.
+ * The service either connects to a remote server (and reconnects as needed),
+ * or accepts connections from remote clients, transmitting each message to all of them.
+ * 
+ * @see TcpStreamService
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiService_NetTcp
+  extends AbstractRawMidiService
+  implements RawMidiService
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (RawMidiService_NetTcp.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a MIDI over TCP {@link Service} with given name, role, host and port.
+   * 
+   * @param name The service name, non-{@code null}.
+   * @param role The role, non-{@code null}.
+   * @param host The remote host for a {@link TcpStreamService.Role#CLIENT}, non-{@code null};
+   *               the local bind address for a {@link TcpStreamService.Role#SERVER},
+   *               {@code null} or empty for all local addresses.
+   * @param port The (remote or local) TCP port.
+   * 
+   * @throws IllegalArgumentException If the name or role is {@code null}, the host is {@code null} or empty for a client,
+   *                                    or the port number is out of range.
+   * 
+   */
+  public RawMidiService_NetTcp (final String name, final TcpStreamService.Role role, final String host, final int port)
+  {
+    super (name);
+    this.tcpStreamService = new TcpStreamService (role, host, port);
+    // Received messages are taken from the (read-only, transient) buffer of the TCP service;
+    // short messages are passed on as raw MIDI events; only longer ones are copied (once) into a new array.
+    this.tcpStreamService.addMessageListener ((message, timestamp) ->
+    {
+      RawMidiService_NetTcp.this.fireRawMidiMessageRx (message, timestamp);
+    });
+    addTargetService (this.tcpStreamService);
+  }
+  
+  /** Creates a MIDI over TCP {@link Service} with given role, host and port.
+   * 
+   * <p>
+   * The service name is set to {@code "RawMidiService_NetTcp"}.
+   * 
+   * @param role The role, non-{@code null}.
+   * @param host The remote host for a {@link TcpStreamService.Role#CLIENT}, non-{@code null};
+   *               the local bind address for a {@link TcpStreamService.Role#SERVER},
+   *               {@code null} or empty for all local addresses.
+   * @param port The (remote or local) TCP port.
+   * 
+   * @throws IllegalArgumentException If the role is {@code null}, the host is {@code null} or empty for a client,
+   *                                    or the port number is out of range.
+   * 
+   */
+  public RawMidiService_NetTcp (final TcpStreamService.Role role, final String host, final int port)
+  {
+    this ("RawMidiService_NetTcp", role, host, port);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ROLE / HOST / PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the role of the underlying {@link TcpStreamService}.
+   * 
+   * @return The role, non-{@code null}.
+   * 
+   */
+  public final TcpStreamService.Role getRole ()
+  {
+    return this.tcpStreamService.getRole ();
+  }
+  
+  /** The name of the "host" property.
+   * 
+   */
+  public static final String HOST_PROPERTY_NAME = TcpStreamService.HOST_PROPERTY_NAME;
+  
+  /** Returns the host.
+   * 
+   * @return The remote host for a client, the local bind address for a server (may be {@code null} or empty).
+   * 
+   * @see TcpStreamService#getHost
+   * 
+   */
+  public final synchronized String getHost ()
+  {
+    return this.tcpStreamService.getHost ();
+  }
+  
+  /** Sets the host.
+   * 
+   * <p>
+   * If the host has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param host The remote host for a client, non-{@code null};
+   *               the local bind address for a server, {@code null} or empty for all local addresses.
+   * 
+   * @throws IllegalArgumentException If the host is {@code null} or empty for a client.
+   * 
+   * @see TcpStreamService#setHost
+   * 
+   */
+  public final synchronized void setHost (final String host)
+  {
+    this.tcpStreamService.setHost (host);
+  }
+  
+  /** The name of the "port" property.
+   * 
+   */
+  public static final String PORT_PROPERTY_NAME = TcpStreamService.PORT_PROPERTY_NAME;
+  
+  /** Returns the TCP port.
+   * 
+   * @return The TCP port.
+   * 
+   * @see TcpStreamService#getPort
+   * 
+   */
+  public final synchronized int getPort ()
+  {
+    return this.tcpStreamService.getPort ();
+  }
+  
+  /** Sets the TCP port.
+   * 
+   * <p>
+   * If the port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param port The TCP port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   * @see TcpStreamService#setPort
+   * 
+   */
+  public final synchronized void setPort (final int port)
+  {
+    this.tcpStreamService.setPort (port);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECONNECT INTERVAL / CONNECTIONS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "reconnect interval" property.
+   * 
+   */
+  public static final String RECONNECT_INTERVAL_MS_PROPERTY_NAME = TcpStreamService.RECONNECT_INTERVAL_MS_PROPERTY_NAME;
+  
+  /** Returns the interval between connection attempts of a client.
+   * 
+   * @return The reconnect interval (in milliseconds).
+   * 
+   * @see TcpStreamService#getReconnectInterval_ms
+   * 
+   */
+  public final synchronized long getReconnectInterval_ms ()
+  {
+    return this.tcpStreamService.getReconnectInterval_ms ();
+  }
+  
+  /** Sets the interval between connection attempts of a client.
+   * 
+   * @param reconnectInterval_ms The reconnect interval (in milliseconds), strictly positive.
+   * 
+   * @throws IllegalArgumentException If the interval is zero or negative.
+   * 
+   * @see TcpStreamService#setReconnectInterval_ms
+   * 
+   */
+  public final synchronized void setReconnectInterval_ms (final long reconnectInterval_ms)
+  {
+    this.tcpStreamService.setReconnectInterval_ms (reconnectInterval_ms);
+  }
+  
+  /** Returns the number of established connections.
+   * 
+   * @return The number of established connections; for a client, zero or one.
+   * 
+   * @see TcpStreamService#getNumberOfConnections
+   * 
+   */
+  public final int getNumberOfConnections ()
+  {
+    return this.tcpStreamService.getNumberOfConnections ();
+  }
+  
+  /** The name of the "max pending tx bytes" property.
+   * 
+   */
+  public static final String MAX_PENDING_TX_BYTES_PROPERTY_NAME = TcpStreamService.MAX_PENDING_TX_BYTES_PROPERTY_NAME;
+  
+  /** Returns the maximum number of bytes pending transmission on a single connection.
+   * 
+   * @return The maximum number of pending transmit bytes per connection.
+   * 
+   * @see TcpStreamService#getMaxPendingTxBytes
+   * 
+   */
+  public final synchronized int getMaxPendingTxBytes ()
+  {
+    return this.tcpStreamService.getMaxPendingTxBytes ();
+  }
+  
+  /** Sets the maximum number of bytes pending transmission on a single connection.
+   * 
+   * @param maxPendingTxBytes The maximum number of pending transmit bytes per connection.
+   * 
+   * @throws IllegalArgumentException If the bound is too small.
+   * 
+   * @see TcpStreamService#setMaxPendingTxBytes
+   * 
+   */
+  public final synchronized void setMaxPendingTxBytes (final int maxPendingTxBytes)
+  {
+    this.tcpStreamService.setMaxPendingTxBytes (maxPendingTxBytes);
+  }
+  
+  /** Returns the number of connections closed because their pending transmit data exceeded the bound.
+   * 
+   * @return The number of connections closed because of transmit overflow, since construction.
+   * 
+   * @see TcpStreamService#getTxOverflowDisconnectCount
+   * 
+   */
+  public final long getTxOverflowDisconnectCount ()
+  {
+    return this.tcpStreamService.getTxOverflowDisconnectCount ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TCP STREAM SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final TcpStreamService tcpStreamService;
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RAW MIDI SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public void sendRawMidiMessage (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage != null)
+      this.tcpStreamService.transmit (rawMidiMessage);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public final Instant lastActivity (final String monitorableActivity)
+  {
+    return this.tcpStreamService.lastActivity (monitorableActivity);
+  }
+  
+  /** Returns {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   * <p>
+   * By virtue of the contract of {@link RawMidiService}.
+   * 
+   * @return {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return RawMidiService.RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES;
+  }
+  
+  @Override
+  public final Instant lastActivity ()
+  {
+    return this.tcpStreamService.lastActivity ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
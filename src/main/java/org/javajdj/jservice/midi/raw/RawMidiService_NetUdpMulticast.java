@@ -16,11 +16,17 @@
  */
 package org.javajdj.jservice.midi.raw;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
+import org.javajdj.jservice.net.UdpMulticastReactor;
 import org.javajdj.jservice.net.UdpMulticastService;
+import org.javajdj.jservice.net.UdpSenderStatistics;
 import org.javajdj.jservice.Service;
+import org.javajdj.util.concurrent.SpscRingBuffer;
+import org.javajdj.util.stats.LatencyHistogram;
 
 /** A {@link RawMidiService} implementation using MIDI over UDP multi-cast.
  *
@@ -61,19 +67,25 @@ public class RawMidiService_NetUdpMulticast
   {
     super (name);
     this.udpMulticastService = new UdpMulticastService (group, port);
-    this.udpMulticastService.addMessageListener (new UdpMulticastService.MessageListener ()
+    // Received datagrams are taken from the (read-only, transient) buffer of the UDP service;
+    // short messages are passed on as raw MIDI events; only longer ones are copied (once) into a new array.
+    this.udpMulticastService.addBufferListener (new UdpMulticastService.BufferListener ()
     {
+      
       @Override
-      public void messageSent (final byte[] message)
+      public void messageReceived (final ByteBuffer message)
       {
-        RawMidiService_NetUdpMulticast.this.fireRawMidiMessageTx (message);
+        messageReceived (message, System.nanoTime ());
       }
+      
       @Override
-      public void messageReceived (final byte[] message)
+      public void messageReceived (final ByteBuffer message, final long timestamp)
       {
-        RawMidiService_NetUdpMulticast.this.fireRawMidiMessageRx (message);
+        RawMidiService_NetUdpMulticast.this.fireRawMidiMessageRx (message, timestamp);
       }
+      
     });
+    this.udpMulticastService.setCoalescingKeyFunction (RawMidiService_NetUdpMulticast::getCoalescingKey);
     addTargetService (this.udpMulticastService);
   }
 
@@ -137,18 +149,77 @@ public class RawMidiService_NetUdpMulticast
    * 
    * <p>
    * If the group has changed, and the service is active,
-   * it is restarted automatically.
+   * the underlying {@link UdpMulticastService} switches to the new group without restarting.
    * 
    * @param group The UDP multi-cast group.
    * 
    * @throws IllegalArgumentException If {@code group == null}.
    * 
+   * @see UdpMulticastService#setGroup
+   * 
    */
   public final synchronized void setGroup (final String group)
   {
     this.udpMulticastService.setGroup (group);
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MEMBERSHIPS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "memberships" property.
+   * 
+   */
+  public static final String MEMBERSHIPS_PROPERTY_NAME = UdpMulticastService.MEMBERSHIPS_PROPERTY_NAME;
+  
+  /** Returns the additional multicast group memberships of the underlying {@link UdpMulticastService}.
+   * 
+   * @return A copy of the additional memberships, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getMemberships
+   * 
+   */
+  public final synchronized Set<UdpMulticastService.Membership> getMemberships ()
+  {
+    return this.udpMulticastService.getMemberships ();
+  }
+  
+  /** Adds an additional multicast group membership on given network interface, without restarting the service.
+   * 
+   * <p>
+   * MIDI messages received on any of the groups are reported as received raw MIDI messages;
+   * transmission is always to the (primary) group.
+   * 
+   * @param group                The multicast group, non-{@code null}.
+   * @param networkInterfaceName The name of the network interface, {@code null} for the default interface.
+   * 
+   * @throws IllegalArgumentException If {@code group == null}.
+   * 
+   * @see UdpMulticastService#addMembership(String, String)
+   * 
+   */
+  public final synchronized void addMembership (final String group, final String networkInterfaceName)
+  {
+    this.udpMulticastService.addMembership (group, networkInterfaceName);
+  }
+  
+  /** Removes an additional multicast group membership on given network interface, without restarting the service.
+   * 
+   * @param group                The multicast group, non-{@code null}.
+   * @param networkInterfaceName The name of the network interface, {@code null} for the default interface.
+   * 
+   * @throws IllegalArgumentException If {@code group == null}.
+   * 
+   * @see UdpMulticastService#removeMembership(String, String)
+   * 
+   */
+  public final synchronized void removeMembership (final String group, final String networkInterfaceName)
+  {
+    this.udpMulticastService.removeMembership (group, networkInterfaceName);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // PORT
@@ -191,6 +262,1008 @@ public class RawMidiService_NetUdpMulticast
     this.udpMulticastService.setPort (port);
   }
 
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SOCKET OPTIONS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "receive buffer size" property.
+   * 
+   */
+  public static final String RECEIVE_BUFFER_SIZE_PROPERTY_NAME = UdpMulticastService.RECEIVE_BUFFER_SIZE_PROPERTY_NAME;
+  
+  /** Returns the requested kernel receive buffer size (zero for the system default) of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The requested receive buffer size in bytes, zero for the system default.
+   * 
+   * @see UdpMulticastService#getReceiveBufferSize
+   * 
+   */
+  public final synchronized int getReceiveBufferSize ()
+  {
+    return this.udpMulticastService.getReceiveBufferSize ();
+  }
+  
+  /** Sets the requested kernel receive buffer size (zero for the system default) of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately.
+   * 
+   * @param receiveBufferSize The receive buffer size in bytes, zero for the system default.
+   * 
+   * @throws IllegalArgumentException If the value is out of range.
+   * 
+   * @see UdpMulticastService#setReceiveBufferSize
+   * 
+   */
+  public final synchronized void setReceiveBufferSize (final int receiveBufferSize)
+  {
+    this.udpMulticastService.setReceiveBufferSize (receiveBufferSize);
+  }
+  
+  /** The name of the "send buffer size" property.
+   * 
+   */
+  public static final String SEND_BUFFER_SIZE_PROPERTY_NAME = UdpMulticastService.SEND_BUFFER_SIZE_PROPERTY_NAME;
+  
+  /** Returns the requested kernel send buffer size (zero for the system default) of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The requested send buffer size in bytes, zero for the system default.
+   * 
+   * @see UdpMulticastService#getSendBufferSize
+   * 
+   */
+  public final synchronized int getSendBufferSize ()
+  {
+    return this.udpMulticastService.getSendBufferSize ();
+  }
+  
+  /** Sets the requested kernel send buffer size (zero for the system default) of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately.
+   * 
+   * @param sendBufferSize The send buffer size in bytes, zero for the system default.
+   * 
+   * @throws IllegalArgumentException If the value is out of range.
+   * 
+   * @see UdpMulticastService#setSendBufferSize
+   * 
+   */
+  public final synchronized void setSendBufferSize (final int sendBufferSize)
+  {
+    this.udpMulticastService.setSendBufferSize (sendBufferSize);
+  }
+  
+  /** The name of the "time to live" property.
+   * 
+   */
+  public static final String TIME_TO_LIVE_PROPERTY_NAME = UdpMulticastService.TIME_TO_LIVE_PROPERTY_NAME;
+  
+  /** Returns the multicast time-to-live of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The multicast time-to-live.
+   * 
+   * @see UdpMulticastService#getTimeToLive
+   * 
+   */
+  public final synchronized int getTimeToLive ()
+  {
+    return this.udpMulticastService.getTimeToLive ();
+  }
+  
+  /** Sets the multicast time-to-live of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately.
+   * 
+   * @param timeToLive The time-to-live, between zero and 255 inclusive.
+   * 
+   * @throws IllegalArgumentException If the value is out of range.
+   * 
+   * @see UdpMulticastService#setTimeToLive
+   * 
+   */
+  public final synchronized void setTimeToLive (final int timeToLive)
+  {
+    this.udpMulticastService.setTimeToLive (timeToLive);
+  }
+  
+  /** The name of the "loopback" property.
+   * 
+   */
+  public static final String LOOPBACK_PROPERTY_NAME = UdpMulticastService.LOOPBACK_PROPERTY_NAME;
+  
+  /** Returns whether multicast loopback is enabled on the underlying {@link UdpMulticastService}.
+   * 
+   * @return Whether loopback is enabled.
+   * 
+   * @see UdpMulticastService#isLoopback
+   * 
+   */
+  public final synchronized boolean isLoopback ()
+  {
+    return this.udpMulticastService.isLoopback ();
+  }
+  
+  /** Sets whether multicast loopback is enabled on the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately.
+   * 
+   * @param loopback Whether loopback is enabled.
+   * 
+   * @see UdpMulticastService#setLoopback
+   * 
+   */
+  public final synchronized void setLoopback (final boolean loopback)
+  {
+    this.udpMulticastService.setLoopback (loopback);
+  }
+  
+  /** The name of the "traffic class" property.
+   * 
+   */
+  public static final String TRAFFIC_CLASS_PROPERTY_NAME = UdpMulticastService.TRAFFIC_CLASS_PROPERTY_NAME;
+  
+  /** Returns the traffic class (IP_TOS/DSCP) of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The traffic class (IP_TOS/DSCP).
+   * 
+   * @see UdpMulticastService#getTrafficClass
+   * 
+   */
+  public final synchronized int getTrafficClass ()
+  {
+    return this.udpMulticastService.getTrafficClass ();
+  }
+  
+  /** Sets the traffic class (IP_TOS/DSCP) of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately.
+   * 
+   * @param trafficClass The traffic class, between zero and 255 inclusive.
+   * 
+   * @throws IllegalArgumentException If the value is out of range.
+   * 
+   * @see UdpMulticastService#setTrafficClass
+   * 
+   */
+  public final synchronized void setTrafficClass (final int trafficClass)
+  {
+    this.udpMulticastService.setTrafficClass (trafficClass);
+  }
+  
+  /** Returns the effective receive buffer size as granted by the operating system to the underlying {@link UdpMulticastService}.
+   * 
+   * @return The effective receive buffer size, -1 if the service is not active.
+   * 
+   * @see UdpMulticastService#getEffectiveReceiveBufferSize
+   * 
+   */
+  public final synchronized int getEffectiveReceiveBufferSize ()
+  {
+    return this.udpMulticastService.getEffectiveReceiveBufferSize ();
+  }
+  
+  /** Returns the effective send buffer size as granted by the operating system to the underlying {@link UdpMulticastService}.
+   * 
+   * @return The effective send buffer size, -1 if the service is not active.
+   * 
+   * @see UdpMulticastService#getEffectiveSendBufferSize
+   * 
+   */
+  public final synchronized int getEffectiveSendBufferSize ()
+  {
+    return this.udpMulticastService.getEffectiveSendBufferSize ();
+  }
+  
+  /** Returns the effective time-to-live as granted by the operating system to the underlying {@link UdpMulticastService}.
+   * 
+   * @return The effective time-to-live, -1 if the service is not active.
+   * 
+   * @see UdpMulticastService#getEffectiveTimeToLive
+   * 
+   */
+  public final synchronized int getEffectiveTimeToLive ()
+  {
+    return this.udpMulticastService.getEffectiveTimeToLive ();
+  }
+  
+  /** Returns the effective loopback setting as granted by the operating system to the underlying {@link UdpMulticastService}.
+   * 
+   * @return The effective loopback setting, {@code null} if the service is not active.
+   * 
+   * @see UdpMulticastService#getEffectiveLoopback
+   * 
+   */
+  public final synchronized Boolean getEffectiveLoopback ()
+  {
+    return this.udpMulticastService.getEffectiveLoopback ();
+  }
+  
+  /** Returns the effective traffic class as granted by the operating system to the underlying {@link UdpMulticastService}.
+   * 
+   * @return The effective traffic class, -1 if the service is not active.
+   * 
+   * @see UdpMulticastService#getEffectiveTrafficClass
+   * 
+   */
+  public final synchronized int getEffectiveTrafficClass ()
+  {
+    return this.udpMulticastService.getEffectiveTrafficClass ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ENGINE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "engine" property.
+   * 
+   */
+  public static final String ENGINE_PROPERTY_NAME = UdpMulticastService.ENGINE_PROPERTY_NAME;
+  
+  /** Returns the transport engine of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The transport engine, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getEngine
+   * 
+   */
+  public final synchronized UdpMulticastService.Engine getEngine ()
+  {
+    return this.udpMulticastService.getEngine ();
+  }
+  
+  /** Sets the transport engine of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * With {@link UdpMulticastService.Engine#CHANNEL},
+   * many instances share the selector thread(s) of the {@link UdpMulticastReactor}
+   * instead of starting three threads each.
+   * 
+   * <p>
+   * If the engine has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param engine The transport engine.
+   * 
+   * @throws IllegalArgumentException If {@code engine == null}.
+   * 
+   * @see UdpMulticastService#setEngine
+   * 
+   */
+  public final synchronized void setEngine (final UdpMulticastService.Engine engine)
+  {
+    this.udpMulticastService.setEngine (engine);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PACKING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "packing" property.
+   * 
+   */
+  public static final String PACKING_PROPERTY_NAME = UdpMulticastService.PACKING_PROPERTY_NAME;
+  
+  /** Returns whether the underlying {@link UdpMulticastService} packs multiple MIDI messages into a single datagram.
+   * 
+   * @return Whether packing is enabled.
+   * 
+   * @see UdpMulticastService#isPacking
+   * 
+   */
+  public final synchronized boolean isPacking ()
+  {
+    return this.udpMulticastService.isPacking ();
+  }
+  
+  /** Enables or disables packing of multiple MIDI messages into a single datagram in the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * Packing reduces the datagram rate when many messages are sent in bursts (e.g., controller dumps),
+   * at the expense of (at most) the packing flush latency for messages within a burst;
+   * isolated messages are sent at once.
+   * Received packed datagrams are unpacked, and reported as individual raw MIDI messages.
+   * 
+   * <p>
+   * All peers on the multicast group should use the same setting;
+   * peers with packing enabled still accept unpacked datagrams.
+   * 
+   * @param packing Whether packing is enabled.
+   * 
+   * @see UdpMulticastService#setPacking
+   * 
+   */
+  public final synchronized void setPacking (final boolean packing)
+  {
+    this.udpMulticastService.setPacking (packing);
+  }
+  
+  /** The name of the "packing MTU" property.
+   * 
+   */
+  public static final String PACKING_MTU_PROPERTY_NAME = UdpMulticastService.PACKING_MTU_PROPERTY_NAME;
+  
+  /** Returns the packing MTU of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The packing MTU (in bytes).
+   * 
+   * @see UdpMulticastService#getPackingMtu
+   * 
+   */
+  public final synchronized int getPackingMtu ()
+  {
+    return this.udpMulticastService.getPackingMtu ();
+  }
+  
+  /** Sets the packing MTU of the underlying {@link UdpMulticastService}.
+   * 
+   * @param packingMtu The packing MTU (in bytes).
+   * 
+   * @throws IllegalArgumentException If the MTU is out of range.
+   * 
+   * @see UdpMulticastService#setPackingMtu
+   * 
+   */
+  public final synchronized void setPackingMtu (final int packingMtu)
+  {
+    this.udpMulticastService.setPackingMtu (packingMtu);
+  }
+  
+  /** The name of the "packing flush latency" property.
+   * 
+   */
+  public static final String PACKING_FLUSH_LATENCY_PROPERTY_NAME = UdpMulticastService.PACKING_FLUSH_LATENCY_PROPERTY_NAME;
+  
+  /** Returns the packing flush latency of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The packing flush latency (in microseconds).
+   * 
+   * @see UdpMulticastService#getPackingFlushLatency
+   * 
+   */
+  public final synchronized int getPackingFlushLatency ()
+  {
+    return this.udpMulticastService.getPackingFlushLatency ();
+  }
+  
+  /** Sets the packing flush latency of the underlying {@link UdpMulticastService}.
+   * 
+   * @param packingFlushLatency The packing flush latency (in microseconds).
+   * 
+   * @throws IllegalArgumentException If {@code packingFlushLatency < 0}.
+   * 
+   * @see UdpMulticastService#setPackingFlushLatency
+   * 
+   */
+  public final synchronized void setPackingFlushLatency (final int packingFlushLatency)
+  {
+    this.udpMulticastService.setPackingFlushLatency (packingFlushLatency);
+  }
+  
+  /** The name of the "packing running status" property.
+   * 
+   */
+  public static final String PACKING_RUNNING_STATUS_PROPERTY_NAME = UdpMulticastService.PACKING_RUNNING_STATUS_PROPERTY_NAME;
+  
+  /** Returns whether the underlying {@link UdpMulticastService} applies running status to packed datagrams.
+   * 
+   * @return Whether running status is applied to packed datagrams.
+   * 
+   * @see UdpMulticastService#isPackingRunningStatus
+   * 
+   */
+  public final synchronized boolean isPackingRunningStatus ()
+  {
+    return this.udpMulticastService.isPackingRunningStatus ();
+  }
+  
+  /** Enables or disables running status on packed datagrams in the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * With running status, a packed MIDI message with the same status byte as the previous message in the datagram
+   * is stored without its status byte; the receiver restores it.
+   * All peers with packing enabled should support running status; older peers deliver such datagrams as is.
+   * 
+   * @param packingRunningStatus Whether running status is applied to packed datagrams.
+   * 
+   * @see UdpMulticastService#setPackingRunningStatus
+   * 
+   */
+  public final synchronized void setPackingRunningStatus (final boolean packingRunningStatus)
+  {
+    this.udpMulticastService.setPackingRunningStatus (packingRunningStatus);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // FRAMING / SEQUENCE NUMBERS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "framing" property.
+   * 
+   */
+  public static final String FRAMING_PROPERTY_NAME = UdpMulticastService.FRAMING_PROPERTY_NAME;
+  
+  /** Returns whether the underlying {@link UdpMulticastService} frames datagrams with a sender id and sequence number.
+   * 
+   * @return Whether framing is enabled.
+   * 
+   * @see UdpMulticastService#isFraming
+   * 
+   */
+  public final synchronized boolean isFraming ()
+  {
+    return this.udpMulticastService.isFraming ();
+  }
+  
+  /** Enables or disables framing of datagrams with a sender id and sequence number in the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * With framing enabled, the per-sender reception statistics reveal lost, duplicate and reordered datagrams
+   * on the multicast group.
+   * All peers on the multicast group should use the same setting;
+   * peers with framing enabled still accept unframed datagrams.
+   * 
+   * @param framing Whether framing is enabled.
+   * 
+   * @see UdpMulticastService#setFraming
+   * @see #getSenderStatistics
+   * 
+   */
+  public final synchronized void setFraming (final boolean framing)
+  {
+    this.udpMulticastService.setFraming (framing);
+  }
+  
+  /** The name of the "sender id" property.
+   * 
+   */
+  public static final String SENDER_ID_PROPERTY_NAME = UdpMulticastService.SENDER_ID_PROPERTY_NAME;
+  
+  /** Returns the sender id in the framing header of transmitted datagrams.
+   * 
+   * @return The sender id.
+   * 
+   * @see UdpMulticastService#getSenderId
+   * 
+   */
+  public final synchronized int getSenderId ()
+  {
+    return this.udpMulticastService.getSenderId ();
+  }
+  
+  /** Sets the sender id in the framing header of transmitted datagrams.
+   * 
+   * @param senderId The sender id.
+   * 
+   * @see UdpMulticastService#setSenderId
+   * 
+   */
+  public final synchronized void setSenderId (final int senderId)
+  {
+    this.udpMulticastService.setSenderId (senderId);
+  }
+  
+  /** The name of the "redundancy" property.
+   * 
+   */
+  public static final String REDUNDANCY_PROPERTY_NAME = UdpMulticastService.REDUNDANCY_PROPERTY_NAME;
+  
+  /** Returns the number of previous datagram payloads repeated in each (framed) datagram.
+   * 
+   * @return The redundancy, zero if disabled.
+   * 
+   * @see UdpMulticastService#getRedundancy
+   * 
+   */
+  public final synchronized int getRedundancy ()
+  {
+    return this.udpMulticastService.getRedundancy ();
+  }
+  
+  /** Sets the number of previous datagram payloads repeated in each (framed) datagram.
+   * 
+   * <p>
+   * With redundancy enabled (and framing enabled), a lost datagram, for instance holding a Note Off message,
+   * is repaired from the next datagram(s) without retransmission;
+   * the receiver delivers recovered MIDI messages in their original order, and drops duplicates.
+   * 
+   * @param redundancy The redundancy, zero to disable.
+   * 
+   * @throws IllegalArgumentException If the redundancy is negative or exceeds {@link UdpMulticastService#MAX_REDUNDANCY}.
+   * 
+   * @see UdpMulticastService#setRedundancy
+   * @see #setFraming
+   * 
+   */
+  public final synchronized void setRedundancy (final int redundancy)
+  {
+    this.udpMulticastService.setRedundancy (redundancy);
+  }
+  
+  /** Returns the reception statistics per sender id.
+   * 
+   * @return An unmodifiable (live) view on the reception statistics, keyed by sender id.
+   * 
+   * @see UdpMulticastService#getSenderStatistics
+   * 
+   */
+  public final Map<Integer, UdpSenderStatistics> getSenderStatistics ()
+  {
+    return this.udpMulticastService.getSenderStatistics ();
+  }
+  
+  /** Clears the reception statistics of all senders, and the unframed-datagram count.
+   * 
+   * @see UdpMulticastService#clearSenderStatistics
+   * 
+   */
+  public final void clearSenderStatistics ()
+  {
+    this.udpMulticastService.clearSenderStatistics ();
+  }
+  
+  /** Returns the number of datagrams received without a valid framing header, while framing was enabled.
+   * 
+   * @return The number of unframed datagrams received.
+   * 
+   * @see UdpMulticastService#getUnframedCount
+   * 
+   */
+  public final long getUnframedCount ()
+  {
+    return this.udpMulticastService.getUnframedCount ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // QUEUES / OVERFLOW POLICIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "reception-queue capacity" property.
+   * 
+   */
+  public static final String RX_QUEUE_CAPACITY_PROPERTY_NAME = UdpMulticastService.RX_QUEUE_CAPACITY_PROPERTY_NAME;
+  
+  /** Returns the capacity of the reception queue of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The capacity of the reception queue (in messages).
+   * 
+   * @see UdpMulticastService#getRxQueueCapacity
+   * 
+   */
+  public final synchronized int getRxQueueCapacity ()
+  {
+    return this.udpMulticastService.getRxQueueCapacity ();
+  }
+  
+  /** Sets the capacity of the reception queue of the underlying {@link UdpMulticastService}.
+   * 
+   * @param rxQueueCapacity The capacity of the reception queue (in messages).
+   * 
+   * @throws IllegalArgumentException If {@code rxQueueCapacity < 1}.
+   * 
+   * @see UdpMulticastService#setRxQueueCapacity
+   * 
+   */
+  public final synchronized void setRxQueueCapacity (final int rxQueueCapacity)
+  {
+    this.udpMulticastService.setRxQueueCapacity (rxQueueCapacity);
+  }
+  
+  /** The name of the "transmission-queue capacity" property.
+   * 
+   */
+  public static final String TX_QUEUE_CAPACITY_PROPERTY_NAME = UdpMulticastService.TX_QUEUE_CAPACITY_PROPERTY_NAME;
+  
+  /** Returns the capacity of the transmission queue of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The capacity of the transmission queue (in messages).
+   * 
+   * @see UdpMulticastService#getTxQueueCapacity
+   * 
+   */
+  public final synchronized int getTxQueueCapacity ()
+  {
+    return this.udpMulticastService.getTxQueueCapacity ();
+  }
+  
+  /** Sets the capacity of the transmission queue of the underlying {@link UdpMulticastService}.
+   * 
+   * @param txQueueCapacity The capacity of the transmission queue (in messages).
+   * 
+   * @throws IllegalArgumentException If {@code txQueueCapacity < 1}.
+   * 
+   * @see UdpMulticastService#setTxQueueCapacity
+   * 
+   */
+  public final synchronized void setTxQueueCapacity (final int txQueueCapacity)
+  {
+    this.udpMulticastService.setTxQueueCapacity (txQueueCapacity);
+  }
+  
+  /** The name of the "reception-queue type" property.
+   * 
+   */
+  public static final String RX_QUEUE_TYPE_PROPERTY_NAME = UdpMulticastService.RX_QUEUE_TYPE_PROPERTY_NAME;
+  
+  /** Returns the reception-queue type of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The reception-queue type, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getRxQueueType
+   * 
+   */
+  public final synchronized UdpMulticastService.QueueType getRxQueueType ()
+  {
+    return this.udpMulticastService.getRxQueueType ();
+  }
+  
+  /** Sets the reception-queue type of the underlying {@link UdpMulticastService}.
+   * 
+   * @param rxQueueType The reception-queue type.
+   * 
+   * @throws IllegalArgumentException If {@code rxQueueType == null}.
+   * 
+   * @see UdpMulticastService#setRxQueueType
+   * 
+   */
+  public final synchronized void setRxQueueType (final UdpMulticastService.QueueType rxQueueType)
+  {
+    this.udpMulticastService.setRxQueueType (rxQueueType);
+  }
+  
+  /** The name of the "transmission-queue type" property.
+   * 
+   */
+  public static final String TX_QUEUE_TYPE_PROPERTY_NAME = UdpMulticastService.TX_QUEUE_TYPE_PROPERTY_NAME;
+  
+  /** Returns the transmission-queue type of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The transmission-queue type, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getTxQueueType
+   * 
+   */
+  public final synchronized UdpMulticastService.QueueType getTxQueueType ()
+  {
+    return this.udpMulticastService.getTxQueueType ();
+  }
+  
+  /** Sets the transmission-queue type of the underlying {@link UdpMulticastService}.
+   * 
+   * @param txQueueType The transmission-queue type.
+   * 
+   * @throws IllegalArgumentException If {@code txQueueType == null}.
+   * 
+   * @see UdpMulticastService#setTxQueueType
+   * 
+   */
+  public final synchronized void setTxQueueType (final UdpMulticastService.QueueType txQueueType)
+  {
+    this.udpMulticastService.setTxQueueType (txQueueType);
+  }
+  
+  /** The name of the "queue wait strategy" property.
+   * 
+   */
+  public static final String QUEUE_WAIT_STRATEGY_PROPERTY_NAME = UdpMulticastService.QUEUE_WAIT_STRATEGY_PROPERTY_NAME;
+  
+  /** Returns the queue wait strategy of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The queue wait strategy, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getQueueWaitStrategy
+   * 
+   */
+  public final synchronized SpscRingBuffer.WaitStrategy getQueueWaitStrategy ()
+  {
+    return this.udpMulticastService.getQueueWaitStrategy ();
+  }
+  
+  /** Sets the queue wait strategy of the underlying {@link UdpMulticastService}.
+   * 
+   * @param queueWaitStrategy The queue wait strategy.
+   * 
+   * @throws IllegalArgumentException If {@code queueWaitStrategy == null}.
+   * 
+   * @see UdpMulticastService#setQueueWaitStrategy
+   * 
+   */
+  public final synchronized void setQueueWaitStrategy (final SpscRingBuffer.WaitStrategy queueWaitStrategy)
+  {
+    this.udpMulticastService.setQueueWaitStrategy (queueWaitStrategy);
+  }
+  
+  /** The name of the "reception-overflow policy" property.
+   * 
+   */
+  public static final String RX_OVERFLOW_POLICY_PROPERTY_NAME = UdpMulticastService.RX_OVERFLOW_POLICY_PROPERTY_NAME;
+  
+  /** Returns the reception-overflow policy of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The reception-overflow policy, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getRxOverflowPolicy
+   * 
+   */
+  public final synchronized UdpMulticastService.OverflowPolicy getRxOverflowPolicy ()
+  {
+    return this.udpMulticastService.getRxOverflowPolicy ();
+  }
+  
+  /** Sets the reception-overflow policy of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * Under {@link UdpMulticastService.OverflowPolicy#COALESCE},
+   * a queued message is replaced by a newer message for the same MIDI channel and, if applicable, key or controller;
+   * this applies to polyphonic key pressure, control change (except data-entry and (N)RPN selection controllers,
+   * and channel-mode messages), program change, channel pressure and pitch bend.
+   * Other messages (including note on and note off) are never coalesced.
+   * The key is taken from the MIDI message, after removal of the framing header (if present);
+   * framed datagrams carrying a redundancy block, and packed datagrams holding more than one message, are never coalesced.
+   * 
+   * @param rxOverflowPolicy The reception-overflow policy.
+   * 
+   * @throws IllegalArgumentException If {@code rxOverflowPolicy == null}.
+   * 
+   * @see UdpMulticastService#setRxOverflowPolicy
+   * 
+   */
+  public final synchronized void setRxOverflowPolicy (final UdpMulticastService.OverflowPolicy rxOverflowPolicy)
+  {
+    this.udpMulticastService.setRxOverflowPolicy (rxOverflowPolicy);
+  }
+  
+  /** The name of the "transmission-overflow policy" property.
+   * 
+   */
+  public static final String TX_OVERFLOW_POLICY_PROPERTY_NAME = UdpMulticastService.TX_OVERFLOW_POLICY_PROPERTY_NAME;
+  
+  /** Returns the transmission-overflow policy of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The transmission-overflow policy, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getTxOverflowPolicy
+   * 
+   */
+  public final synchronized UdpMulticastService.OverflowPolicy getTxOverflowPolicy ()
+  {
+    return this.udpMulticastService.getTxOverflowPolicy ();
+  }
+  
+  /** Sets the transmission-overflow policy of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * Under {@link UdpMulticastService.OverflowPolicy#BLOCK},
+   * {@link #sendRawMidiMessage} may block (at most the overflow timeout),
+   * except when invoked from a {@link UdpMulticastReactor} thread (e.g., from a listener with the CHANNEL engine).
+   * See {@link #setRxOverflowPolicy} for the messages subject to coalescing.
+   * 
+   * @param txOverflowPolicy The transmission-overflow policy.
+   * 
+   * @throws IllegalArgumentException If {@code txOverflowPolicy == null}.
+   * 
+   * @see UdpMulticastService#setTxOverflowPolicy
+   * 
+   */
+  public final synchronized void setTxOverflowPolicy (final UdpMulticastService.OverflowPolicy txOverflowPolicy)
+  {
+    this.udpMulticastService.setTxOverflowPolicy (txOverflowPolicy);
+  }
+  
+  /** The name of the "overflow timeout" property.
+   * 
+   */
+  public static final String OVERFLOW_TIMEOUT_PROPERTY_NAME = UdpMulticastService.OVERFLOW_TIMEOUT_PROPERTY_NAME;
+  
+  /** Returns the overflow timeout of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The overflow timeout (in milliseconds).
+   * 
+   * @see UdpMulticastService#getOverflowTimeout
+   * 
+   */
+  public final synchronized int getOverflowTimeout ()
+  {
+    return this.udpMulticastService.getOverflowTimeout ();
+  }
+  
+  /** Sets the overflow timeout of the underlying {@link UdpMulticastService}.
+   * 
+   * @param overflowTimeout The overflow timeout (in milliseconds).
+   * 
+   * @throws IllegalArgumentException If {@code overflowTimeout < 0}.
+   * 
+   * @see UdpMulticastService#setOverflowTimeout
+   * 
+   */
+  public final synchronized void setOverflowTimeout (final int overflowTimeout)
+  {
+    this.udpMulticastService.setOverflowTimeout (overflowTimeout);
+  }
+  
+  /** Returns the number of reception-queue overflows of the underlying {@link UdpMulticastService} handled through given action.
+   * 
+   * @param action The action, non-{@code null}.
+   * 
+   * @return The number of reception-queue overflows handled through given action.
+   * 
+   * @throws IllegalArgumentException If {@code action == null}.
+   * 
+   * @see UdpMulticastService#getRxOverflowCount
+   * 
+   */
+  public final long getRxOverflowCount (final UdpMulticastService.OverflowPolicy action)
+  {
+    return this.udpMulticastService.getRxOverflowCount (action);
+  }
+  
+  /** Returns the number of transmission-queue overflows of the underlying {@link UdpMulticastService} handled through given action.
+   * 
+   * @param action The action, non-{@code null}.
+   * 
+   * @return The number of transmission-queue overflows handled through given action.
+   * 
+   * @throws IllegalArgumentException If {@code action == null}.
+   * 
+   * @see UdpMulticastService#getTxOverflowCount
+   * 
+   */
+  public final long getTxOverflowCount (final UdpMulticastService.OverflowPolicy action)
+  {
+    return this.udpMulticastService.getTxOverflowCount (action);
+  }
+  
+  /** Returns the coalescing key of a raw MIDI message.
+   * 
+   * @param message The array holding the raw MIDI message.
+   * @param offset  The offset of the message in the array.
+   * @param length  The length of the message.
+   * 
+   * @return The coalescing key, {@link UdpMulticastService.CoalescingKeyFunction#NO_KEY}
+   *           if the message must never be coalesced.
+   * 
+   * @see #setRxOverflowPolicy
+   * 
+   */
+  private static long getCoalescingKey (final byte[] message, final int offset, final int length)
+  {
+    if (length < 2)
+      return UdpMulticastService.CoalescingKeyFunction.NO_KEY;
+    final int status = message[offset] & 0xff;
+    final int data1 = message[offset + 1] & 0xff;
+    switch (status & 0xf0)
+    {
+      case 0xa0:
+        return (status << 8) | data1;
+      case 0xb0:
+        if (data1 == 6 || data1 == 38 || (data1 >= 96 && data1 <= 101) || data1 >= 120)
+          return UdpMulticastService.CoalescingKeyFunction.NO_KEY;
+        return (status << 8) | data1;
+      case 0xc0:
+      case 0xd0:
+      case 0xe0:
+        return status << 8;
+      default:
+        return UdpMulticastService.CoalescingKeyFunction.NO_KEY;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DELIVERY / LISTENER WATCHDOG
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "inline delivery" property.
+   * 
+   */
+  public static final String INLINE_DELIVERY_PROPERTY_NAME = UdpMulticastService.INLINE_DELIVERY_PROPERTY_NAME;
+  
+  /** Returns whether the underlying {@link UdpMulticastService} delivers received messages from its reception thread.
+   * 
+   * @return Whether inline delivery is enabled.
+   * 
+   * @see UdpMulticastService#isInlineDelivery
+   * 
+   */
+  public final synchronized boolean isInlineDelivery ()
+  {
+    return this.udpMulticastService.isInlineDelivery ();
+  }
+  
+  /** Enables or disables inline delivery in the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * With inline delivery, {@link RawMidiServiceListener}s are notified directly from the reception thread;
+   * they must return quickly in order not to stall reception.
+   * 
+   * @param inlineDelivery Whether inline delivery is enabled.
+   * 
+   * @see UdpMulticastService#setInlineDelivery
+   * 
+   */
+  public final synchronized void setInlineDelivery (final boolean inlineDelivery)
+  {
+    this.udpMulticastService.setInlineDelivery (inlineDelivery);
+  }
+  
+  /** The name of the "listener time budget" property.
+   * 
+   */
+  public static final String LISTENER_TIME_BUDGET_PROPERTY_NAME = UdpMulticastService.LISTENER_TIME_BUDGET_PROPERTY_NAME;
+  
+  /** Returns the listener time budget of the underlying {@link UdpMulticastService}.
+   * 
+   * @return The listener time budget (in microseconds).
+   * 
+   * @see UdpMulticastService#getListenerTimeBudget
+   * 
+   */
+  public final synchronized int getListenerTimeBudget ()
+  {
+    return this.udpMulticastService.getListenerTimeBudget ();
+  }
+  
+  /** Sets the listener time budget of the underlying {@link UdpMulticastService}.
+   * 
+   * <p>
+   * The budget applies to the notification of all {@link RawMidiServiceListener}s of a received message together.
+   * 
+   * @param listenerTimeBudget The listener time budget (in microseconds).
+   * 
+   * @throws IllegalArgumentException If {@code listenerTimeBudget < 0}.
+   * 
+   * @see UdpMulticastService#setListenerTimeBudget
+   * 
+   */
+  public final synchronized void setListenerTimeBudget (final int listenerTimeBudget)
+  {
+    this.udpMulticastService.setListenerTimeBudget (listenerTimeBudget);
+  }
+  
+  /** Returns the number of notifications of received messages that exceeded the listener time budget.
+   * 
+   * @return The number of notifications of received messages that exceeded the listener time budget.
+   * 
+   * @see UdpMulticastService#getSlowListenerCallbackCount
+   * 
+   */
+  public final long getSlowListenerCallbackCount ()
+  {
+    return this.udpMulticastService.getSlowListenerCallbackCount ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECEIVE LATENCY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the histogram of latencies between reception of datagrams and their delivery to the listeners.
+   * 
+   * @return The (live) histogram, non-{@code null}.
+   * 
+   * @see UdpMulticastService#getRxLatencyHistogram
+   * 
+   */
+  public final LatencyHistogram getRxLatencyHistogram ()
+  {
+    return this.udpMulticastService.getRxLatencyHistogram ();
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // UDP MULTICAST SERVICE
@@ -0,0 +1,275 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.logging.Logger;
+import org.javajdj.jservice.net.UdpUnicastService;
+import org.javajdj.jservice.Service;
+
+/** A {@link RawMidiService} implementation using MIDI over point-to-point UDP (unicast).
+ * 
+ * <p>
+ * Each MIDI message is transmitted as a single datagram to the remote host.
+ * 
+ * @see UdpUnicastService
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiService_NetUdpUnicast
+  extends AbstractRawMidiService
+  implements RawMidiService
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (RawMidiService_NetUdpUnicast.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a MIDI over UDP unicast {@link Service} with given name, remote host, remote port and local port.
+   * 
+   * @param name       The service name, non-{@code null}.
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * @param remotePort The remote port.
+   * @param localPort  The local port; zero for an ephemeral port.
+   * 
+   * @throws IllegalArgumentException If the name or remote host is {@code null} or a port number is out of range.
+   * 
+   */
+  public RawMidiService_NetUdpUnicast (final String name, final String remoteHost, final int remotePort, final int localPort)
+  {
+    super (name);
+    this.udpUnicastService = new UdpUnicastService (remoteHost, remotePort, localPort);
+    // Received datagrams are taken from the (read-only, transient) buffer of the UDP service;
+    // short messages are passed on as raw MIDI events; only longer ones are copied (once) into a new array.
+    this.udpUnicastService.addMessageListener ((message, timestamp) ->
+    {
+      RawMidiService_NetUdpUnicast.this.fireRawMidiMessageRx (message, timestamp);
+    });
+    addTargetService (this.udpUnicastService);
+  }
+  
+  /** Creates a MIDI over UDP unicast {@link Service} with given remote host, and given port for both ends.
+   * 
+   * <p>
+   * The service name is set to {@code "RawMidiService_NetUdpUnicast"}.
+   * 
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * @param port       The (remote and local) port.
+   * 
+   * @throws IllegalArgumentException If the remote host is {@code null} or the port number is out of range.
+   * 
+   */
+  public RawMidiService_NetUdpUnicast (final String remoteHost, final int port)
+  {
+    this ("RawMidiService_NetUdpUnicast", remoteHost, port, port);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REMOTE HOST / REMOTE PORT / LOCAL PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "remote host" property.
+   * 
+   */
+  public static final String REMOTE_HOST_PROPERTY_NAME = UdpUnicastService.REMOTE_HOST_PROPERTY_NAME;
+  
+  /** Returns the remote host.
+   * 
+   * @return The remote host (name or address), non-{@code null}.
+   * 
+   * @see UdpUnicastService#getRemoteHost
+   * 
+   */
+  public final synchronized String getRemoteHost ()
+  {
+    return this.udpUnicastService.getRemoteHost ();
+  }
+  
+  /** Sets the remote host.
+   * 
+   * <p>
+   * If the remote host has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code remoteHost == null}.
+   * 
+   * @see UdpUnicastService#setRemoteHost
+   * 
+   */
+  public final synchronized void setRemoteHost (final String remoteHost)
+  {
+    this.udpUnicastService.setRemoteHost (remoteHost);
+  }
+  
+  /** The name of the "remote port" property.
+   * 
+   */
+  public static final String REMOTE_PORT_PROPERTY_NAME = UdpUnicastService.REMOTE_PORT_PROPERTY_NAME;
+  
+  /** Returns the remote port.
+   * 
+   * @return The remote port.
+   * 
+   * @see UdpUnicastService#getRemotePort
+   * 
+   */
+  public final synchronized int getRemotePort ()
+  {
+    return this.udpUnicastService.getRemotePort ();
+  }
+  
+  /** Sets the remote port.
+   * 
+   * <p>
+   * If the remote port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param remotePort The remote port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   * @see UdpUnicastService#setRemotePort
+   * 
+   */
+  public final synchronized void setRemotePort (final int remotePort)
+  {
+    this.udpUnicastService.setRemotePort (remotePort);
+  }
+  
+  /** The name of the "local port" property.
+   * 
+   */
+  public static final String LOCAL_PORT_PROPERTY_NAME = UdpUnicastService.LOCAL_PORT_PROPERTY_NAME;
+  
+  /** Returns the local port.
+   * 
+   * @return The local port; zero for an ephemeral port.
+   * 
+   * @see UdpUnicastService#getLocalPort
+   * 
+   */
+  public final synchronized int getLocalPort ()
+  {
+    return this.udpUnicastService.getLocalPort ();
+  }
+  
+  /** Sets the local port.
+   * 
+   * <p>
+   * If the local port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param localPort The local port; zero for an ephemeral port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   * @see UdpUnicastService#setLocalPort
+   * 
+   */
+  public final synchronized void setLocalPort (final int localPort)
+  {
+    this.udpUnicastService.setLocalPort (localPort);
+  }
+  
+  /** Returns the number of datagrams received from hosts other than the remote host (and dropped).
+   * 
+   * @return The number of foreign datagrams received, since construction.
+   * 
+   * @see UdpUnicastService#getForeignDatagramCount
+   * 
+   */
+  public final long getForeignDatagramCount ()
+  {
+    return this.udpUnicastService.getForeignDatagramCount ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UDP UNICAST SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final UdpUnicastService udpUnicastService;
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RAW MIDI SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public void sendRawMidiMessage (final byte[] rawMidiMessage)
+  {
+    if (rawMidiMessage != null)
+      this.udpUnicastService.transmit (rawMidiMessage);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public final Instant lastActivity (final String monitorableActivity)
+  {
+    return this.udpUnicastService.lastActivity (monitorableActivity);
+  }
+  
+  /** Returns {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   * <p>
+   * By virtue of the contract of {@link RawMidiService}.
+   * 
+   * @return {@link RawMidiService#RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES}.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return RawMidiService.RAW_MIDI_SERVICE_MONITORABLE_ACTIVITIES;
+  }
+  
+  @Override
+  public final Instant lastActivity ()
+  {
+    return this.udpUnicastService.lastActivity ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,277 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.nio.ByteBuffer;
+
+/** An encoder writing complete (raw) MIDI messages onto a MIDI byte stream, applying running status.
+ * 
+ * <p>
+ * The encoder is the transmit-side counterpart of {@link RawMidiStreamParser},
+ * meant for byte-oriented transports (e.g., a serial line or a raw MIDI byte stream over TCP).
+ * Packed datagrams use an explicit form of running status instead,
+ * see {@link org.javajdj.jservice.net.UdpMulticastService#setPackingRunningStatus}.
+ * Consecutive Channel messages with equal status byte are written without their status byte,
+ * saving a third of the bytes on dense streams of, e.g., Control Change or Note On messages.
+ * 
+ * <p>
+ * In order to allow a receiver to (re)synchronize, e.g., after joining a stream in the middle or after a lost datagram,
+ * the status byte is repeated once the number of consecutive messages written without it reaches the status refresh interval.
+ * An interval of zero disables running status altogether.
+ * 
+ * <p>
+ * System Exclusive and System Common messages cancel the running status; System Real-Time messages do not affect it.
+ * Messages are otherwise written as is; the encoder does not check their validity beyond the presence of a status byte.
+ * 
+ * <p>
+ * An encoder holds the state of a single stream;
+ * it is not thread-safe and must be used by a single thread (at a time).
+ * Use {@link #reset} whenever the receiver may have lost track of the running status,
+ * e.g., upon (re)connection of the underlying transport, or at the start of each datagram if datagrams may get lost.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class RawMidiStreamEncoder
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The default status refresh interval.
+   * 
+   * @see #getStatusRefreshInterval
+   * 
+   */
+  public static final int DEFAULT_STATUS_REFRESH_INTERVAL = 64;
+  
+  /** Creates the encoder.
+   * 
+   * @param statusRefreshInterval The maximum number of consecutive messages written without status byte, non-negative;
+   *                              zero disables running status.
+   * 
+   * @throws IllegalArgumentException If the status refresh interval is negative.
+   * 
+   */
+  public RawMidiStreamEncoder (final int statusRefreshInterval)
+  {
+    if (statusRefreshInterval < 0)
+      throw new IllegalArgumentException ();
+    this.statusRefreshInterval = statusRefreshInterval;
+  }
+  
+  /** Creates the encoder with default status refresh interval.
+   * 
+   * @see #DEFAULT_STATUS_REFRESH_INTERVAL
+   * 
+   */
+  public RawMidiStreamEncoder ()
+  {
+    this (RawMidiStreamEncoder.DEFAULT_STATUS_REFRESH_INTERVAL);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATUS REFRESH INTERVAL
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final int statusRefreshInterval;
+  
+  /** Returns the status refresh interval.
+   * 
+   * <p>
+   * This is the maximum number of consecutive messages written without status byte;
+   * zero means running status is not applied.
+   * 
+   * @return The status refresh interval, non-negative.
+   * 
+   */
+  public final int getStatusRefreshInterval ()
+  {
+    return this.statusRefreshInterval;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The running status byte (a Channel status byte), or zero if there is no running status.
+   * 
+   */
+  private byte runningStatus = 0;
+  
+  /** The number of consecutive messages written without status byte.
+   * 
+   */
+  private int omittedStatusCount = 0;
+  
+  private long messageCount = 0;
+  
+  private long savedByteCount = 0;
+  
+  /** Returns the number of messages encoded since construction.
+   * 
+   * @return The number of messages encoded since construction.
+   * 
+   */
+  public final long getMessageCount ()
+  {
+    return this.messageCount;
+  }
+  
+  /** Returns the number of (status) bytes saved through running status since construction.
+   * 
+   * @return The number of bytes saved since construction.
+   * 
+   */
+  public final long getSavedByteCount ()
+  {
+    return this.savedByteCount;
+  }
+  
+  /** Resets the encoder, cancelling the running status.
+   * 
+   * <p>
+   * The next Channel message is written with its status byte.
+   * 
+   */
+  public final void reset ()
+  {
+    this.runningStatus = 0;
+    this.omittedStatusCount = 0;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ENCODE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Checks the message and returns whether its status byte can be omitted, without changing the state of the encoder.
+   * 
+   */
+  private boolean canOmitStatus (final byte[] message)
+  {
+    if (message == null || message.length == 0 || message[0] >= 0)
+      throw new IllegalArgumentException ();
+    return message[0] == this.runningStatus
+      && message.length > 1
+      && this.omittedStatusCount < this.statusRefreshInterval;
+  }
+  
+  /** Updates the state of the encoder after writing given message.
+   * 
+   */
+  private void update (final byte[] message, final boolean omitStatus)
+  {
+    this.messageCount++;
+    if (omitStatus)
+    {
+      this.omittedStatusCount++;
+      this.savedByteCount++;
+    }
+    else
+    {
+      final int status = message[0] & 0xff;
+      if (status < 0xf0)
+      {
+        this.runningStatus = message[0];
+        this.omittedStatusCount = 0;
+      }
+      else if (status < 0xf8)
+      {
+        this.runningStatus = 0;
+        this.omittedStatusCount = 0;
+      }
+    }
+  }
+  
+  /** Returns the number of bytes that {@link #encode} would write for given message, without changing the state of the encoder.
+   * 
+   * <p>
+   * This allows packing messages into a fixed-size buffer or datagram.
+   * 
+   * @param message The message, non-{@code null}, starting with a status byte.
+   * 
+   * @return The number of bytes that would be written for the message.
+   * 
+   * @throws IllegalArgumentException If the message is {@code null}, empty or does not start with a status byte.
+   * 
+   */
+  public final int getEncodedLength (final byte[] message)
+  {
+    return canOmitStatus (message) ? message.length - 1 : message.length;
+  }
+  
+  /** Writes given message into a byte array, applying running status.
+   * 
+   * @param message The message, non-{@code null}, starting with a status byte.
+   * @param bytes   The target array, non-{@code null}.
+   * @param offset  The offset in the target array at which to write.
+   * 
+   * @return The number of bytes written.
+   * 
+   * @throws IllegalArgumentException If the message is {@code null}, empty or does not start with a status byte,
+   *                                    if the target array is {@code null},
+   *                                    or if the encoded message does not fit in the array at given offset.
+   *                                    In all these cases, the state of the encoder is unaffected.
+   * 
+   */
+  public final int encode (final byte[] message, final byte[] bytes, final int offset)
+  {
+    final boolean omitStatus = canOmitStatus (message);
+    final int start = omitStatus ? 1 : 0;
+    final int length = message.length - start;
+    if (bytes == null || offset < 0 || offset > bytes.length - length)
+      throw new IllegalArgumentException ();
+    System.arraycopy (message, start, bytes, offset, length);
+    update (message, omitStatus);
+    return length;
+  }
+  
+  /** Writes given message into a buffer, applying running status.
+   * 
+   * @param message The message, non-{@code null}, starting with a status byte.
+   * @param buffer  The target buffer, non-{@code null}.
+   * 
+   * @return The number of bytes written.
+   * 
+   * @throws IllegalArgumentException If the message is {@code null}, empty or does not start with a status byte,
+   *                                    if the buffer is {@code null},
+   *                                    or if the encoded message does not fit in the remaining space of the buffer.
+   *                                    In all these cases, the state of the encoder and the buffer are unaffected.
+   * 
+   */
+  public final int encode (final byte[] message, final ByteBuffer buffer)
+  {
+    final boolean omitStatus = canOmitStatus (message);
+    final int start = omitStatus ? 1 : 0;
+    final int length = message.length - start;
+    if (buffer == null || buffer.remaining () < length)
+      throw new IllegalArgumentException ();
+    buffer.put (message, start, length);
+    update (message, omitStatus);
+    return length;
+  }
+  
+}
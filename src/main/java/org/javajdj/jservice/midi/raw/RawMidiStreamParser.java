@@ -0,0 +1,493 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.nio.ByteBuffer;
+
+/** An incremental parser turning a MIDI byte stream into complete (raw) MIDI messages.
+ * 
+ * <p>
+ * Unlike {@link org.javajdj.jservice.midi.MidiUtils#dissectMidiMessage}, which requires exactly one complete message per array,
+ * the parser accepts arbitrary chunks of a byte-oriented MIDI stream (TCP, serial line, file),
+ * and reports each complete message to its {@link RawMidiServiceListener}
+ * through {@link RawMidiServiceListener#rawMidiMessageRx(byte[], long)}.
+ * 
+ * <p>
+ * The parser implements the MIDI 1.0 stream rules:
+ * <ul>
+ * <li>Messages may be split across chunk boundaries at any byte.
+ * <li>Running status: Channel Voice/Mode messages may omit their status byte if it equals that of the previous
+ *     Channel message; the parser reports such messages with the status byte restored.
+ * <li>System Real-Time bytes ({@code 0xF8} through {@code 0xFF}) may appear anywhere in the stream,
+ *     including in between the data bytes of another message and inside System Exclusive messages;
+ *     they are reported immediately and do not affect the message being assembled or the running status.
+ * <li>System Common messages ({@code 0xF1} through {@code 0xF7}) and System Exclusive cancel the running status.
+ * <li>A System Exclusive message is terminated by {@code 0xF7} or by any non-Real-Time status byte;
+ *     in the latter case, the parser appends the missing {@code 0xF7}.
+ * </ul>
+ * Data bytes without applicable (running) status, undefined System Common status bytes ({@code 0xF4} and {@code 0xF5}),
+ * and System Exclusive messages exceeding the maximum size are discarded and counted, see {@link #getDiscardedByteCount}.
+ * 
+ * <p>
+ * Parsing does not allocate, except for the System Exclusive messages reported.
+ * By default, Channel, System Common and System Real-Time messages are reported in arrays owned by the parser
+ * (one per message length) that are reused for subsequent messages;
+ * listeners must then not retain or modify the array beyond the notification.
+ * Listeners like {@link org.javajdj.jservice.midi.MidiService_FromRaw} that process the message during the notification
+ * are safe; others should use {@link #RawMidiStreamParser(RawMidiServiceListener, int, boolean)} to obtain fresh arrays.
+ * System Exclusive messages are always reported in a fresh array.
+ * If the listener is a {@link RawMidiEventListener}, all other messages are reported as {@link RawMidiEvent}s instead.
+ * 
+ * <p>
+ * A parser holds the state of a single stream;
+ * it is not thread-safe and must be fed by a single thread (at a time).
+ * Use {@link #reset} if the stream is interrupted, e.g., upon reconnection of the underlying transport.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class RawMidiStreamParser
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The default maximum size (in bytes, including {@code 0xF0} and {@code 0xF7}) of a System Exclusive message.
+   * 
+   */
+  public static final int DEFAULT_MAX_SYSEX_SIZE = 65536;
+  
+  /** Creates the parser.
+   * 
+   * @param listener      The listener to report complete messages to, non-{@code null}.
+   * @param maxSysExSize  The maximum size (in bytes, including {@code 0xF0} and {@code 0xF7}) of a System Exclusive message,
+   *                      at least 2; the parser preallocates a buffer of this size.
+   * @param reuseMessages Whether to report non-System Exclusive messages in arrays owned (and reused) by the parser.
+   * 
+   * @throws IllegalArgumentException If the listener is {@code null} or the maximum System Exclusive size is smaller than 2.
+   * 
+   */
+  public RawMidiStreamParser (final RawMidiServiceListener listener, final int maxSysExSize, final boolean reuseMessages)
+  {
+    if (listener == null || maxSysExSize < 2)
+      throw new IllegalArgumentException ();
+    this.listener = listener;
+    this.eventListener = (listener instanceof RawMidiEventListener) ? (RawMidiEventListener) listener : null;
+    this.sysExBuffer = new byte[maxSysExSize];
+    this.reuseMessages = reuseMessages;
+  }
+  
+  /** Creates the parser with default maximum System Exclusive size, reporting non-System Exclusive messages in reused arrays.
+   * 
+   * @param listener The listener to report complete messages to, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If the listener is {@code null}.
+   * 
+   * @see #DEFAULT_MAX_SYSEX_SIZE
+   * 
+   */
+  public RawMidiStreamParser (final RawMidiServiceListener listener)
+  {
+    this (listener, RawMidiStreamParser.DEFAULT_MAX_SYSEX_SIZE, true);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LISTENER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final RawMidiServiceListener listener;
+  
+  /** The listener if it is a {@link RawMidiEventListener}, {@code null} otherwise.
+   * 
+   */
+  private final RawMidiEventListener eventListener;
+  
+  /** Returns the listener to which complete messages are reported.
+   * 
+   * @return The listener, non-{@code null}.
+   * 
+   */
+  public final RawMidiServiceListener getListener ()
+  {
+    return this.listener;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MESSAGE ARRAYS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final boolean reuseMessages;
+  
+  /** Returns whether non-System Exclusive messages are reported in arrays owned (and reused) by the parser.
+   * 
+   * @return Whether non-System Exclusive messages are reported in reused arrays.
+   * 
+   */
+  public final boolean isReuseMessages ()
+  {
+    return this.reuseMessages;
+  }
+  
+  private final byte[] message1 = new byte[1];
+  
+  private final byte[] message2 = new byte[2];
+  
+  private final byte[] message3 = new byte[3];
+  
+  private final byte[] realTimeMessage = new byte[1];
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The number of data bytes following a Channel or System Common status byte, indexed by the status byte's lower 7 bits.
+   * 
+   * <p>
+   * Entries for System Exclusive, the undefined System Common status bytes and System Real-Time are -1.
+   * 
+   */
+  private static final byte[] DATA_LENGTH = new byte[128];
+  
+  static
+  {
+    for (int s = 0x00; s < 0x70; s++)
+      switch (s & 0x70)
+      {
+        case 0x40: // Program Change.
+        case 0x50: // Channel Pressure.
+          RawMidiStreamParser.DATA_LENGTH[s] = 1;
+          break;
+        default:
+          RawMidiStreamParser.DATA_LENGTH[s] = 2;
+          break;
+      }
+    for (int s = 0x70; s < 0x80; s++)
+      RawMidiStreamParser.DATA_LENGTH[s] = -1;
+    RawMidiStreamParser.DATA_LENGTH[0x71] = 1; // MIDI Time Code Quarter Frame.
+    RawMidiStreamParser.DATA_LENGTH[0x72] = 2; // Song Position Pointer.
+    RawMidiStreamParser.DATA_LENGTH[0x73] = 1; // Song Select.
+    RawMidiStreamParser.DATA_LENGTH[0x76] = 0; // Tune Request.
+  }
+  
+  /** The running status byte (a Channel status byte), or zero if there is no running status.
+   * 
+   */
+  private byte runningStatus = 0;
+  
+  /** The status byte of the (non-System Exclusive) message being assembled, or zero if none.
+   * 
+   */
+  private byte status = 0;
+  
+  /** The number of data bytes of the message being assembled.
+   * 
+   */
+  private int expectedDataLength = 0;
+  
+  private byte data1 = 0;
+  
+  private int dataLength = 0;
+  
+  private final byte[] sysExBuffer;
+  
+  /** The number of bytes of the System Exclusive message being assembled, or -1 if not in System Exclusive.
+   * 
+   * <p>
+   * While discarding an oversized System Exclusive message, this equals {@code sysExBuffer.length + 1}.
+   * 
+   */
+  private int sysExLength = -1;
+  
+  private long discardedByteCount = 0;
+  
+  /** Returns the number of bytes discarded since construction.
+   * 
+   * <p>
+   * Discarded are data bytes without applicable (running) status, undefined System Common status bytes,
+   * stray End of Exclusive bytes, and the bytes of System Exclusive messages exceeding the maximum size.
+   * A non-zero value typically indicates a corrupted stream or a stream joined in the middle of a message.
+   * 
+   * @return The number of bytes discarded since construction.
+   * 
+   */
+  public final long getDiscardedByteCount ()
+  {
+    return this.discardedByteCount;
+  }
+  
+  /** Returns the maximum size (in bytes, including {@code 0xF0} and {@code 0xF7}) of a System Exclusive message.
+   * 
+   * @return The maximum System Exclusive size.
+   * 
+   */
+  public final int getMaxSysExSize ()
+  {
+    return this.sysExBuffer.length;
+  }
+  
+  /** Resets the parser, discarding any partial message and the running status.
+   * 
+   * <p>
+   * The discarded bytes of a partial message are not counted in {@link #getDiscardedByteCount}.
+   * 
+   */
+  public final void reset ()
+  {
+    this.runningStatus = 0;
+    this.status = 0;
+    this.expectedDataLength = 0;
+    this.dataLength = 0;
+    this.sysExLength = -1;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PARSE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Parses a chunk of bytes from the stream, reporting all messages completed by the chunk.
+   * 
+   * @param bytes     The bytes, non-{@code null}.
+   * @param offset    The offset of the chunk in the array.
+   * @param length    The length of the chunk.
+   * @param timestamp The timestamp to report with the messages completed by the chunk, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the array is {@code null} or offset and length do not denote a range within it.
+   * 
+   */
+  public final void parse (final byte[] bytes, final int offset, final int length, final long timestamp)
+  {
+    if (bytes == null || offset < 0 || length < 0 || offset > bytes.length - length)
+      throw new IllegalArgumentException ();
+    for (int i = offset; i < offset + length; i++)
+      parse (bytes[i], timestamp);
+  }
+  
+  /** Parses a chunk of bytes from the stream, reporting all messages completed by the chunk.
+   * 
+   * @param bytes     The bytes, non-{@code null}.
+   * @param timestamp The timestamp to report with the messages completed by the chunk, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the array is {@code null}.
+   * 
+   */
+  public final void parse (final byte[] bytes, final long timestamp)
+  {
+    if (bytes == null)
+      throw new IllegalArgumentException ();
+    parse (bytes, 0, bytes.length, timestamp);
+  }
+  
+  /** Parses the remaining bytes in a buffer, reporting all messages completed by them.
+   * 
+   * <p>
+   * Upon return, the buffer's position equals its limit.
+   * 
+   * @param buffer    The buffer, non-{@code null}.
+   * @param timestamp The timestamp to report with the messages completed by the bytes, see {@link System#nanoTime}.
+   * 
+   * @throws IllegalArgumentException If the buffer is {@code null}.
+   * 
+   */
+  public final void parse (final ByteBuffer buffer, final long timestamp)
+  {
+    if (buffer == null)
+      throw new IllegalArgumentException ();
+    while (buffer.hasRemaining ())
+      parse (buffer.get (), timestamp);
+  }
+  
+  /** Parses a single byte from the stream.
+   * 
+   * @param b         The byte.
+   * @param timestamp The timestamp to report with the message completed by the byte (if any), see {@link System#nanoTime}.
+   * 
+   */
+  public final void parse (final byte b, final long timestamp)
+  {
+    if (b >= 0)
+      parseDataByte (b, timestamp);
+    else if ((b & 0xff) >= 0xf8)
+      parseRealTimeByte (b, timestamp);
+    else
+      parseStatusByte (b, timestamp);
+  }
+  
+  private void parseRealTimeByte (final byte b, final long timestamp)
+  {
+    if (this.eventListener != null)
+    {
+      this.eventListener.rawMidiEventRx (RawMidiEvent.pack (1, b, 0, 0), timestamp);
+      return;
+    }
+    final byte[] message = this.reuseMessages ? this.realTimeMessage : new byte[1];
+    message[0] = b;
+    this.listener.rawMidiMessageRx (message, timestamp);
+  }
+  
+  private void parseStatusByte (final byte b, final long timestamp)
+  {
+    if (this.sysExLength >= 0)
+    {
+      // Any non-Real-Time status byte terminates System Exclusive.
+      if (! endSysEx (timestamp) && b == (byte) 0xf7)
+        this.discardedByteCount++;
+      if (b == (byte) 0xf7)
+        return;
+    }
+    this.status = 0;
+    this.dataLength = 0;
+    if (b == (byte) 0xf0)
+    {
+      this.runningStatus = 0;
+      this.sysExBuffer[0] = b;
+      this.sysExLength = 1;
+      return;
+    }
+    final int expected = RawMidiStreamParser.DATA_LENGTH[b & 0x7f];
+    if (expected < 0)
+    {
+      // Undefined System Common or stray End of Exclusive.
+      this.runningStatus = 0;
+      this.discardedByteCount++;
+      return;
+    }
+    this.runningStatus = (b & 0xf0) != 0xf0 ? b : 0;
+    this.status = b;
+    this.expectedDataLength = expected;
+    if (expected == 0)
+      emit (timestamp);
+  }
+  
+  private void parseDataByte (final byte b, final long timestamp)
+  {
+    if (this.sysExLength >= 0)
+    {
+      if (this.sysExLength < this.sysExBuffer.length)
+        this.sysExBuffer[this.sysExLength++] = b;
+      else
+      {
+        if (this.sysExLength == this.sysExBuffer.length)
+        {
+          // Too large; discard the message (including the bytes already buffered) and the remainder of it.
+          this.discardedByteCount += this.sysExLength;
+          this.sysExLength++;
+        }
+        this.discardedByteCount++;
+      }
+      return;
+    }
+    if (this.status == 0)
+    {
+      if (this.runningStatus == 0)
+      {
+        this.discardedByteCount++;
+        return;
+      }
+      this.status = this.runningStatus;
+      this.expectedDataLength = RawMidiStreamParser.DATA_LENGTH[this.runningStatus & 0x7f];
+      this.dataLength = 0;
+    }
+    if (this.dataLength == 0)
+    {
+      this.data1 = b;
+      this.dataLength = 1;
+      if (this.expectedDataLength == 1)
+        emit (timestamp);
+    }
+    else
+    {
+      this.dataLength = 2;
+      emit (timestamp, b);
+    }
+  }
+  
+  private void emit (final long timestamp)
+  {
+    if (this.eventListener != null)
+    {
+      final int rawMidiEvent = RawMidiEvent.pack (this.dataLength + 1, this.status, this.data1, 0);
+      this.status = 0;
+      this.dataLength = 0;
+      this.eventListener.rawMidiEventRx (rawMidiEvent, timestamp);
+      return;
+    }
+    final byte[] message;
+    if (this.dataLength == 0)
+    {
+      message = this.reuseMessages ? this.message1 : new byte[1];
+    }
+    else
+    {
+      message = this.reuseMessages ? this.message2 : new byte[2];
+      message[1] = this.data1;
+    }
+    message[0] = this.status;
+    // The status must be re-established (through running status or explicitly) for the next message.
+    this.status = 0;
+    this.dataLength = 0;
+    this.listener.rawMidiMessageRx (message, timestamp);
+  }
+  
+  private void emit (final long timestamp, final byte data2)
+  {
+    if (this.eventListener != null)
+    {
+      final int rawMidiEvent = RawMidiEvent.pack (3, this.status, this.data1, data2);
+      this.status = 0;
+      this.dataLength = 0;
+      this.eventListener.rawMidiEventRx (rawMidiEvent, timestamp);
+      return;
+    }
+    final byte[] message = this.reuseMessages ? this.message3 : new byte[3];
+    message[0] = this.status;
+    message[1] = this.data1;
+    message[2] = data2;
+    this.status = 0;
+    this.dataLength = 0;
+    this.listener.rawMidiMessageRx (message, timestamp);
+  }
+  
+  private boolean endSysEx (final long timestamp)
+  {
+    final int length = this.sysExLength;
+    this.sysExLength = -1;
+    if (length >= this.sysExBuffer.length)
+    {
+      // Either discarded already, or no room for the End of Exclusive byte.
+      if (length == this.sysExBuffer.length)
+        this.discardedByteCount += length;
+      return false;
+    }
+    final byte[] message = new byte[length + 1];
+    System.arraycopy (this.sysExBuffer, 0, message, 0, length);
+    message[length] = (byte) 0xf7;
+    this.listener.rawMidiMessageRx (message, timestamp);
+    return true;
+  }
+  
+}
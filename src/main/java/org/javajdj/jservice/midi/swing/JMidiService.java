@@ -23,6 +23,7 @@ import java.util.Set;
 import java.util.logging.Logger;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
+import org.javajdj.jservice.midi.MidiMessageType;
 import org.javajdj.jservice.midi.MidiService;
 import org.javajdj.jservice.midi.MidiService_FromRaw;
 import org.javajdj.jservice.midi.MidiServiceListener;
@@ -144,6 +145,12 @@ public class JMidiService
     this.midiService.addMidiServiceListener (l);
   }
 
+  @Override
+  public void addMidiServiceListener (final MidiServiceListener l, final long midiMessageTypeMask, final int midiChannelMask)
+  {
+    this.midiService.addMidiServiceListener (l, midiMessageTypeMask, midiChannelMask);
+  }
+
   @Override
   public void removeMidiServiceListener (final MidiServiceListener l)
   {
@@ -263,6 +270,36 @@ public class JMidiService
     this.midiService.sendMidiSysEx (vendorId, rawMidiMessage);
   }
     
+  @Override
+  public void sendMidiMtcQuarterFrame (final int piece, final int value)
+  {
+    this.midiService.sendMidiMtcQuarterFrame (piece, value);
+  }
+  
+  @Override
+  public void sendMidiSongPositionPointer (final int position)
+  {
+    this.midiService.sendMidiSongPositionPointer (position);
+  }
+  
+  @Override
+  public void sendMidiSongSelect (final int song)
+  {
+    this.midiService.sendMidiSongSelect (song);
+  }
+  
+  @Override
+  public void sendMidiTuneRequest ()
+  {
+    this.midiService.sendMidiTuneRequest ();
+  }
+  
+  @Override
+  public void sendMidiSystemRealTime (final MidiMessageType midiMessageType)
+  {
+    this.midiService.sendMidiSystemRealTime (midiMessageType);
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
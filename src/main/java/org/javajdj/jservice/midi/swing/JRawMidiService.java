@@ -37,7 +37,7 @@ import javax.swing.SwingUtilities;
 import org.javajdj.jservice.ServiceSupport;
 import org.javajdj.jservice.midi.raw.RawMidiService;
 import org.javajdj.jservice.midi.raw.RawMidiServiceListenerSupport;
-import org.javajdj.jservice.midi.raw.RawMidiService_NetUdpMulticast;
+import org.javajdj.jservice.midi.raw.RawMidiService_JavaxSound;
 import org.javajdj.jservice.Service;
 import org.javajdj.jservice.activity.ActivityMonitor;
 import org.javajdj.jservice.activity.DefaultActivityMonitor;
@@ -331,7 +331,7 @@ public class JRawMidiService
       {
         final RawMidiServiceType selectedRawMidiServiceType =
           (RawMidiServiceType) JRawMidiService.this.jRawMidiServiceType.getSelectedItem ();
-        JRawMidiService.this.setRawMidiServiceType (selectedRawMidiServiceType);
+        JRawMidiService.this.setRawMidiServiceTypeWithDefaults (selectedRawMidiServiceType);
       }
     }
   }
@@ -351,6 +351,28 @@ public class JRawMidiService
     }
   }
   
+  /** Sets the raw MIDI service type, and (since these cannot be edited yet) the host/group and port to the type's defaults.
+   * 
+   * @param rawMidiServiceType The new raw MIDI service type, non-{@code null}.
+   * 
+   * @see RawMidiServiceType#getDefaultHostOrGroup
+   * @see RawMidiServiceType#getDefaultPort
+   * 
+   */
+  private synchronized void setRawMidiServiceTypeWithDefaults (final RawMidiServiceType rawMidiServiceType)
+  {
+    if (this.rawMidiServiceType != rawMidiServiceType)
+    {
+      this.hostOrGroup = rawMidiServiceType.getDefaultHostOrGroup ();
+      this.port = rawMidiServiceType.getDefaultPort ();
+      if (this.jHostOrGroup != null)
+        this.jHostOrGroup.setText (this.hostOrGroup);
+      if (this.jPort != null)
+        this.jPort.setText (Integer.toString (this.port));
+      setRawMidiServiceType (rawMidiServiceType);
+    }
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // CUSTOM RAW MIDI SERVICE
@@ -395,7 +417,10 @@ public class JRawMidiService
       final String hostOrGroup = getHostOrGroup ();
       final int port = getPort ();
       // rawMidiServiceType is non-null when customRawMidiService == null.
-      this.rawMidiService = this.rawMidiServiceType.serviceFactory (hostOrGroup, port);
+      this.rawMidiService = this.rawMidiServiceType.serviceFactory (hostOrGroup,
+                                                                    port,
+                                                                    getJavaxSoundInputDeviceName (),
+                                                                    getJavaxSoundOutputDeviceName ());
       this.rawMidiService.addRawMidiServiceListener (this.rawMidiServiceListener);
       this.rawMidiService.startService ();
     }
@@ -479,7 +504,7 @@ public class JRawMidiService
   private volatile RawMidiServiceListener rawMidiServiceListener = new RawMidiServiceListener ();
   
   private class RawMidiServiceListener
-    implements org.javajdj.jservice.midi.raw.RawMidiServiceListener
+    implements org.javajdj.jservice.midi.raw.RawMidiEventListener
   {
 
     @Override
@@ -495,6 +520,20 @@ public class JRawMidiService
       if (JRawMidiService.this.getStatus () == Status.ACTIVE)
         JRawMidiService.this.rawMidiServiceListenerSupport.fireRawMidiMessageRx (rawMessage);
     }
+
+    @Override
+    public void rawMidiMessageRx (final byte[] rawMessage, final long timestamp)
+    {
+      if (JRawMidiService.this.getStatus () == Status.ACTIVE)
+        JRawMidiService.this.rawMidiServiceListenerSupport.fireRawMidiMessageRx (rawMessage, timestamp);
+    }
+    
+    @Override
+    public void rawMidiEventRx (final int rawMidiEvent, final long timestamp)
+    {
+      if (JRawMidiService.this.getStatus () == Status.ACTIVE)
+        JRawMidiService.this.rawMidiServiceListenerSupport.fireRawMidiEventRx (rawMidiEvent, timestamp);
+    }
     
   }
   
@@ -550,7 +589,7 @@ public class JRawMidiService
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   
-  private volatile String hostOrGroup = RawMidiService_NetUdpMulticast.DEFAULT_GROUP;
+  private volatile String hostOrGroup = this.rawMidiServiceType.getDefaultHostOrGroup ();
 
   // XXX javadoc...
   public String getHostOrGroup ()
@@ -568,7 +607,7 @@ public class JRawMidiService
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   
-  private volatile int port = RawMidiService_NetUdpMulticast.DEFAULT_PORT;
+  private volatile int port = this.rawMidiServiceType.getDefaultPort ();
   
   private final JTextField jPort;
   
@@ -580,6 +619,72 @@ public class JRawMidiService
 
   // XXX private final JTextFieldListener jPortListener;
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // JAVAX SOUND INPUT / OUTPUT DEVICE NAMES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private volatile String javaxSoundInputDeviceName = "";
+  
+  /** Returns the name of the MIDI input device used for {@link RawMidiServiceType#MIDI_JAVAX_SOUND}.
+   * 
+   * @return The name of the MIDI input device, empty for the system default device, {@code null} for no device.
+   * 
+   * @see RawMidiService_JavaxSound
+   * 
+   */
+  public final String getJavaxSoundInputDeviceName ()
+  {
+    return this.javaxSoundInputDeviceName;
+  }
+  
+  /** Sets the name of the MIDI input device used for {@link RawMidiServiceType#MIDI_JAVAX_SOUND}.
+   * 
+   * <p>
+   * The new name takes effect upon the next start of this service.
+   * 
+   * @param javaxSoundInputDeviceName The name of the MIDI input device,
+   *                                    empty for the system default device, {@code null} for no device.
+   * 
+   * @see RawMidiService_JavaxSound
+   * 
+   */
+  public final void setJavaxSoundInputDeviceName (final String javaxSoundInputDeviceName)
+  {
+    this.javaxSoundInputDeviceName = javaxSoundInputDeviceName;
+  }
+  
+  private volatile String javaxSoundOutputDeviceName = "";
+  
+  /** Returns the name of the MIDI output device used for {@link RawMidiServiceType#MIDI_JAVAX_SOUND}.
+   * 
+   * @return The name of the MIDI output device, empty for the system default device, {@code null} for no device.
+   * 
+   * @see RawMidiService_JavaxSound
+   * 
+   */
+  public final String getJavaxSoundOutputDeviceName ()
+  {
+    return this.javaxSoundOutputDeviceName;
+  }
+  
+  /** Sets the name of the MIDI output device used for {@link RawMidiServiceType#MIDI_JAVAX_SOUND}.
+   * 
+   * <p>
+   * The new name takes effect upon the next start of this service.
+   * 
+   * @param javaxSoundOutputDeviceName The name of the MIDI output device,
+   *                                     empty for the system default device, {@code null} for no device.
+   * 
+   * @see RawMidiService_JavaxSound
+   * 
+   */
+  public final void setJavaxSoundOutputDeviceName (final String javaxSoundOutputDeviceName)
+  {
+    this.javaxSoundOutputDeviceName = javaxSoundOutputDeviceName;
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // ACTIVITY MONITORABLE
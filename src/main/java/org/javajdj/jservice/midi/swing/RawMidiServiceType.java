@@ -17,8 +17,12 @@
 package org.javajdj.jservice.midi.swing;
 
 import org.javajdj.jservice.midi.raw.RawMidiService;
+import org.javajdj.jservice.midi.raw.RawMidiService_JavaxSound;
+import org.javajdj.jservice.midi.raw.RawMidiService_NetTcp;
 import org.javajdj.jservice.midi.raw.RawMidiService_NetUdpMulticast;
+import org.javajdj.jservice.midi.raw.RawMidiService_NetUdpUnicast;
 import org.javajdj.jservice.midi.raw.RawMidiService_None;
+import org.javajdj.jservice.net.TcpStreamService;
 
 /** A raw MIDI service type supported in this library.
  * 
@@ -51,7 +55,42 @@ public enum RawMidiServiceType
    * @see RawMidiService_NetUdpMulticast
    * 
    */
-  MIDI_NET_UDP;
+  MIDI_NET_UDP,
+  /** Raw MIDI service using point-to-point UDP (unicast) to and from a remote host, on the same port at both ends.
+   * 
+   * @see RawMidiService_NetUdpUnicast
+   * 
+   */
+  MIDI_NET_UDP_UNICAST,
+  /** Raw MIDI service using a TCP stream to a remote host (acting as server).
+   * 
+   * @see RawMidiService_NetTcp
+   * @see TcpStreamService.Role#CLIENT
+   * 
+   */
+  MIDI_NET_TCP_CLIENT,
+  /** Raw MIDI service using TCP streams from remote hosts (acting as clients).
+   * 
+   * <p>
+   * The host, if non-{@code null} and non-empty, is the local address to listen on.
+   * 
+   * @see RawMidiService_NetTcp
+   * @see TcpStreamService.Role#SERVER
+   * 
+   */
+  MIDI_NET_TCP_SERVER,
+  /** Raw MIDI service using locally attached MIDI ports through {@code javax.sound.midi}.
+   * 
+   * <p>
+   * The host, if non-{@code null} and non-empty, selects both the input and output devices by (partial) name;
+   * otherwise, the system default devices are used.
+   * Use {@link #serviceFactory(String, int, String, String)} in order to select the input and output devices separately.
+   * The port is ignored.
+   * 
+   * @see RawMidiService_JavaxSound
+   * 
+   */
+  MIDI_JAVAX_SOUND;
 
   /** Returns a new {@link RawMidiService} of given {@link RawMidiServiceType}.
    * 
@@ -67,6 +106,9 @@ public enum RawMidiServiceType
    * @see RawMidiService
    * @see RawMidiService_None
    * @see RawMidiService_NetUdpMulticast
+   * @see RawMidiService_NetUdpUnicast
+   * @see RawMidiService_NetTcp
+   * @see RawMidiService_JavaxSound
    * 
    */
   public static RawMidiService serviceFactory (final RawMidiServiceType rawMidiServiceType, final String host, final int port)
@@ -89,9 +131,40 @@ public enum RawMidiServiceType
    * @see RawMidiService
    * @see RawMidiService_None
    * @see RawMidiService_NetUdpMulticast
+   * @see RawMidiService_NetUdpUnicast
+   * @see RawMidiService_NetTcp
+   * @see RawMidiService_JavaxSound
    * 
    */
   public final RawMidiService serviceFactory (final String host, final int port)
+  {
+    final String deviceName = (host != null ? host : "");
+    return serviceFactory (host, port, deviceName, deviceName);
+  }
+  
+  /** Returns a new {@link RawMidiService} of this {@link RawMidiServiceType}, with separate MIDI device names.
+   * 
+   * <p>
+   * The device names only apply to {@link #MIDI_JAVAX_SOUND}, for which the host is ignored;
+   * for all other types, the device names are ignored.
+   * 
+   * @param host               The host name (or IP multi-cast group)
+   *                             of the service (if applicable, may be {@code null} or empty).
+   * @param port               The TCP or UDP port of the service (if applicable, set to zero if not).
+   * @param inputDeviceName    The name of the MIDI input device (if applicable),
+   *                             empty for the system default device, {@code null} for no device.
+   * @param outputDeviceName   The name of the MIDI output device (if applicable),
+   *                             empty for the system default device, {@code null} for no device.
+   * 
+   * @return The new {@link RawMidiService}, non-{@code null}.
+   * 
+   * @see RawMidiService_JavaxSound#RawMidiService_JavaxSound(String, String)
+   * 
+   */
+  public final RawMidiService serviceFactory (final String host,
+                                              final int port,
+                                              final String inputDeviceName,
+                                              final String outputDeviceName)
   {
     switch (this)
     {
@@ -99,11 +172,72 @@ public enum RawMidiServiceType
         return new RawMidiService_None ();
       case MIDI_NET_UDP:
         return new RawMidiService_NetUdpMulticast (host, port);
+      case MIDI_NET_UDP_UNICAST:
+        return new RawMidiService_NetUdpUnicast (host, port);
+      case MIDI_NET_TCP_CLIENT:
+        return new RawMidiService_NetTcp (TcpStreamService.Role.CLIENT, host, port);
+      case MIDI_NET_TCP_SERVER:
+        return new RawMidiService_NetTcp (TcpStreamService.Role.SERVER, host, port);
+      case MIDI_JAVAX_SOUND:
+        return new RawMidiService_JavaxSound (inputDeviceName, outputDeviceName);
       default:
         throw new RuntimeException ();
     }
   }
   
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DEFAULT HOST / GROUP AND PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the default host name (or IP multi-cast group) for this {@link RawMidiServiceType}.
+   * 
+   * <p>
+   * The default is the multi-cast group {@link RawMidiService_NetUdpMulticast#DEFAULT_GROUP} for {@link #MIDI_NET_UDP},
+   * the local host for {@link #MIDI_NET_UDP_UNICAST} and {@link #MIDI_NET_TCP_CLIENT},
+   * and empty for all other types (all local addresses for {@link #MIDI_NET_TCP_SERVER}).
+   * 
+   * @return The default host name (or IP multi-cast group), non-{@code null}.
+   * 
+   */
+  public final String getDefaultHostOrGroup ()
+  {
+    switch (this)
+    {
+      case MIDI_NET_UDP:
+        return RawMidiService_NetUdpMulticast.DEFAULT_GROUP;
+      case MIDI_NET_UDP_UNICAST:
+      case MIDI_NET_TCP_CLIENT:
+        return "localhost";
+      default:
+        return "";
+    }
+  }
+  
+  /** Returns the default (TCP or UDP) port for this {@link RawMidiServiceType}.
+   * 
+   * <p>
+   * The default is {@link RawMidiService_NetUdpMulticast#DEFAULT_PORT} for the network types,
+   * and zero for all other types.
+   * 
+   * @return The default port.
+   * 
+   */
+  public final int getDefaultPort ()
+  {
+    switch (this)
+    {
+      case MIDI_NET_UDP:
+      case MIDI_NET_UDP_UNICAST:
+      case MIDI_NET_TCP_CLIENT:
+      case MIDI_NET_TCP_SERVER:
+        return RawMidiService_NetUdpMulticast.DEFAULT_PORT;
+      default:
+        return 0;
+    }
+  }
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // END OF FILE
@@ -0,0 +1,1087 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.javajdj.jservice.AbstractService;
+import org.javajdj.jservice.Service;
+import org.javajdj.jservice.activity.ActivityMonitorable;
+
+/** A {@link Service} for transmission and reception of messages over TCP streams.
+ * 
+ * <p>
+ * The service either connects to a remote server ({@link Role#CLIENT}),
+ * or accepts connections from any number of clients ({@link Role#SERVER}).
+ * A client reconnects automatically (see {@link #setReconnectInterval_ms}) if the connection fails or is closed;
+ * a server transmits each message to all connected clients.
+ * 
+ * <p>
+ * Message boundaries are preserved through length framing:
+ * each message is preceded on the stream by its length as an unsigned 16-bit big-endian integer,
+ * see {@link #FRAME_HEADER_SIZE} and {@link #MAX_MESSAGE_SIZE}.
+ * Nagle's algorithm is disabled ({@code TCP_NODELAY}) on all connections,
+ * as small messages would otherwise be held back.
+ * 
+ * <p>
+ * The service uses non-blocking channels and a single (selector) thread,
+ * from which received messages are delivered.
+ * Transmission is attempted immediately on the caller's thread;
+ * only data that cannot be written at once is left to the selector thread.
+ * The amount of such pending data is bounded per connection (see {@link #setMaxPendingTxBytes});
+ * a (slow) peer exceeding the bound is disconnected.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class TcpStreamService
+  extends AbstractService
+  implements Service, ActivityMonitorable
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (TcpStreamService.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a TCP stream {@link Service} with given role, host and port.
+   * 
+   * @param role The role, non-{@code null}.
+   * @param host The remote host (name or address) for a {@link Role#CLIENT}, non-{@code null};
+   *               the local address to bind to for a {@link Role#SERVER}, {@code null} or empty for all local addresses.
+   * @param port The (remote or local) TCP port.
+   * 
+   * @throws IllegalArgumentException If the role is {@code null}, the host is {@code null} or empty for a client,
+   *                                    or the port number is out of range.
+   * 
+   */
+  public TcpStreamService (final Role role, final String host, final int port)
+  {
+    if (role == null
+      || (role == Role.CLIENT && (host == null || host.trim ().isEmpty ()))
+      || port < 0 || port > 65535)
+      throw new IllegalArgumentException ();
+    this.role = role;
+    this.host = host;
+    this.port = port;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ROLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The role of a {@link TcpStreamService}.
+   * 
+   */
+  public enum Role
+  {
+    
+    /** Connects to a remote server.
+     * 
+     */
+    CLIENT,
+    /** Accepts connections from remote clients.
+     * 
+     */
+    SERVER;
+    
+  }
+  
+  private final Role role;
+  
+  /** Returns the role of this service.
+   * 
+   * @return The role, non-{@code null}.
+   * 
+   */
+  public final Role getRole ()
+  {
+    return this.role;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // HOST
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "host" property.
+   * 
+   */
+  public static final String HOST_PROPERTY_NAME = "host";
+  
+  private volatile String host;
+  
+  /** Returns the host.
+   * 
+   * @return The remote host for a client, the local bind address for a server (may be {@code null} or empty).
+   * 
+   */
+  public final synchronized String getHost ()
+  {
+    return this.host;
+  }
+  
+  /** Sets the host.
+   * 
+   * <p>
+   * If the host has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param host The remote host for a client, non-{@code null};
+   *               the local bind address for a server, {@code null} or empty for all local addresses.
+   * 
+   * @throws IllegalArgumentException If the host is {@code null} or empty for a client.
+   * 
+   */
+  public final synchronized void setHost (final String host)
+  {
+    if (this.role == Role.CLIENT && (host == null || host.trim ().isEmpty ()))
+      throw new IllegalArgumentException ();
+    if (this.host == null ? host != null : ! this.host.equals (host))
+    {
+      final String oldHost = this.host;
+      this.host = host;
+      fireSettingsChanged (HOST_PROPERTY_NAME, oldHost, this.host);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "port" property.
+   * 
+   */
+  public static final String PORT_PROPERTY_NAME = "port";
+  
+  private volatile int port;
+  
+  /** Returns the TCP port.
+   * 
+   * @return The TCP port.
+   * 
+   */
+  public final synchronized int getPort ()
+  {
+    return this.port;
+  }
+  
+  /** Sets the TCP port.
+   * 
+   * <p>
+   * If the port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param port The TCP port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   */
+  public final synchronized void setPort (final int port)
+  {
+    if (port < 0 || port > 65535)
+      throw new IllegalArgumentException ();
+    if (this.port != port)
+    {
+      final int oldPort = this.port;
+      this.port = port;
+      fireSettingsChanged (PORT_PROPERTY_NAME, oldPort, this.port);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECONNECT INTERVAL
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "reconnect interval" property.
+   * 
+   */
+  public static final String RECONNECT_INTERVAL_MS_PROPERTY_NAME = "reconnectInterval_ms";
+  
+  /** The default interval between connection attempts of a client (in milliseconds).
+   * 
+   */
+  public static final long DEFAULT_RECONNECT_INTERVAL_MS = 1000;
+  
+  private volatile long reconnectInterval_ms = TcpStreamService.DEFAULT_RECONNECT_INTERVAL_MS;
+  
+  /** Returns the interval between connection attempts of a client.
+   * 
+   * @return The reconnect interval (in milliseconds).
+   * 
+   */
+  public final synchronized long getReconnectInterval_ms ()
+  {
+    return this.reconnectInterval_ms;
+  }
+  
+  /** Sets the interval between connection attempts of a client.
+   * 
+   * <p>
+   * The setting is ignored for a server.
+   * It takes effect for the next (re)connection attempt.
+   * 
+   * @param reconnectInterval_ms The reconnect interval (in milliseconds), strictly positive.
+   * 
+   * @throws IllegalArgumentException If the interval is zero or negative.
+   * 
+   */
+  public final synchronized void setReconnectInterval_ms (final long reconnectInterval_ms)
+  {
+    if (reconnectInterval_ms <= 0)
+      throw new IllegalArgumentException ();
+    if (this.reconnectInterval_ms != reconnectInterval_ms)
+    {
+      final long oldReconnectInterval_ms = this.reconnectInterval_ms;
+      this.reconnectInterval_ms = reconnectInterval_ms;
+      fireSettingsChanged (RECONNECT_INTERVAL_MS_PROPERTY_NAME, oldReconnectInterval_ms, this.reconnectInterval_ms);
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MAX PENDING TX BYTES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "max pending tx bytes" property.
+   * 
+   */
+  public static final String MAX_PENDING_TX_BYTES_PROPERTY_NAME = "maxPendingTxBytes";
+  
+  /** The default maximum number of bytes pending transmission on a single connection.
+   * 
+   */
+  public static final int DEFAULT_MAX_PENDING_TX_BYTES = 1 << 20;
+  
+  private volatile int maxPendingTxBytes = TcpStreamService.DEFAULT_MAX_PENDING_TX_BYTES;
+  
+  /** Returns the maximum number of bytes pending transmission on a single connection.
+   * 
+   * @return The maximum number of pending transmit bytes per connection.
+   * 
+   */
+  public final synchronized int getMaxPendingTxBytes ()
+  {
+    return this.maxPendingTxBytes;
+  }
+  
+  /** Sets the maximum number of bytes pending transmission on a single connection.
+   * 
+   * <p>
+   * Data that cannot be written to a connection at once is queued until the peer takes it.
+   * If a message would make the queued data exceed this bound, the connection is considered to have a stalled (or too slow) peer:
+   * its pending data is discarded, and the connection is closed from the selector thread,
+   * see {@link #getTxOverflowDisconnectCount}.
+   * This bounds the memory used for a peer that does not read.
+   * The setting takes effect immediately.
+   * 
+   * @param maxPendingTxBytes The maximum number of pending transmit bytes per connection,
+   *                          at least {@link #FRAME_HEADER_SIZE} + {@link #MAX_MESSAGE_SIZE}.
+   * 
+   * @throws IllegalArgumentException If the bound is too small.
+   * 
+   */
+  public final synchronized void setMaxPendingTxBytes (final int maxPendingTxBytes)
+  {
+    if (maxPendingTxBytes < TcpStreamService.FRAME_HEADER_SIZE + TcpStreamService.MAX_MESSAGE_SIZE)
+      throw new IllegalArgumentException ();
+    if (this.maxPendingTxBytes != maxPendingTxBytes)
+    {
+      final int oldMaxPendingTxBytes = this.maxPendingTxBytes;
+      this.maxPendingTxBytes = maxPendingTxBytes;
+      fireSettingsChanged (MAX_PENDING_TX_BYTES_PROPERTY_NAME, oldMaxPendingTxBytes, this.maxPendingTxBytes);
+    }
+  }
+  
+  private final AtomicLong txOverflowDisconnectCount = new AtomicLong ();
+  
+  /** Returns the number of connections closed because their pending transmit data exceeded the bound.
+   * 
+   * @return The number of connections closed because of transmit overflow, since construction.
+   * 
+   * @see #setMaxPendingTxBytes
+   * 
+   */
+  public final long getTxOverflowDisconnectCount ()
+  {
+    return this.txOverflowDisconnectCount.get ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MESSAGE LISTENERS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A listener to messages received at a {@link TcpStreamService}.
+   * 
+   * @see #addMessageListener
+   * @see #removeMessageListener
+   * 
+   */
+  @FunctionalInterface
+  public interface MessageListener
+  {
+    
+    /** Notification (and delivery) of a received message.
+     * 
+     * <p>
+     * The buffer is a read-only view on the reception buffer of the connection;
+     * it is only valid during the invocation, and is reused for subsequent messages.
+     * Listeners must copy the message (e.g., through {@link ByteBuffer#get(byte[])}) if they need it afterwards.
+     * 
+     * @param message   The message (payload, without length prefix) received,
+     *                    between the position and the limit of the buffer.
+     * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    void messageReceived (final ByteBuffer message, final long timestamp);
+    
+  }
+  
+  private final Set<MessageListener> messageListeners = new LinkedHashSet<> ();
+  
+  /** An immutable snapshot of the registered message listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile MessageListener[] messageListenersCopy = new MessageListener[0]; // References are atomic.
+  
+  /** Adds a message listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are already registered.
+   * 
+   * @param l The message listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void addMessageListener (final MessageListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (! this.messageListeners.contains (l))
+    {
+      this.messageListeners.add (l);
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
+    }
+  }
+  
+  /** Removes a message listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are not registered.
+   * 
+   * @param l The message listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void removeMessageListener (final MessageListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (this.messageListeners.remove (l))
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
+  }
+  
+  private void fireMessageReceived (final ByteBuffer message, final long timestamp)
+  {
+    final MessageListener[] listeners = this.messageListenersCopy;
+    final int position = message.position ();
+    for (final MessageListener l : listeners)
+    {
+      message.position (position);
+      l.messageReceived (message, timestamp);
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // FRAMING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The size of the length prefix preceding each message on the stream.
+   * 
+   */
+  public static final int FRAME_HEADER_SIZE = 2;
+  
+  /** The maximum size of a message.
+   * 
+   */
+  public static final int MAX_MESSAGE_SIZE = 0xFFFF;
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONNECTIONS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The established connections.
+   * 
+   * <p>
+   * Modified only from the selector thread; iterated (without locking) upon transmission.
+   * 
+   */
+  private final List<Connection> connections = new CopyOnWriteArrayList<> ();
+  
+  /** Returns the number of established connections.
+   * 
+   * @return The number of established connections;
+   *           for a client, zero or one.
+   * 
+   */
+  public final int getNumberOfConnections ()
+  {
+    return this.connections.size ();
+  }
+  
+  /** An established connection.
+   * 
+   */
+  private final class Connection
+  {
+    
+    private final SocketChannel channel;
+    
+    private final SelectionKey key;
+    
+    /** The reception buffer; it holds at least one complete frame of maximum size.
+     * 
+     */
+    private final ByteBuffer rxBuffer = ByteBuffer.allocateDirect (TcpStreamService.FRAME_HEADER_SIZE
+                                                                   + TcpStreamService.MAX_MESSAGE_SIZE);
+                                                                   
+    private final ByteBuffer rxView = this.rxBuffer.asReadOnlyBuffer ();
+    
+    /** Frames (or their remainders) that could not be written at once; guarded by the connection.
+     * 
+     */
+    private final Queue<ByteBuffer> pendingTx = new ArrayDeque<> ();
+    
+    /** The number of bytes in {@link #pendingTx}; guarded by the connection.
+     * 
+     */
+    private long pendingTxBytes = 0;
+    
+    /** Whether the pending transmit data exceeded its bound; the connection is to be closed from the selector thread.
+     * 
+     */
+    private volatile boolean txOverflow = false;
+    
+    private Connection (final SocketChannel channel, final SelectionKey key)
+    {
+      this.channel = channel;
+      this.key = key;
+    }
+    
+    /** Reads from the channel, and delivers all complete messages.
+     * 
+     * @return Whether the connection is still open.
+     * 
+     * @throws IOException If reading from the channel failed.
+     * 
+     */
+    private boolean read () throws IOException
+    {
+      final int read = this.channel.read (this.rxBuffer);
+      if (read < 0)
+        return false;
+      if (read == 0)
+        return true;
+      final long timestamp = System.nanoTime ();
+      TcpStreamService.this.lastRxNanoTime.lazySet (timestamp);
+      this.rxBuffer.flip ();
+      while (this.rxBuffer.remaining () >= TcpStreamService.FRAME_HEADER_SIZE)
+      {
+        final int start = this.rxBuffer.position ();
+        final int length = this.rxBuffer.getShort (start) & 0xFFFF;
+        if (this.rxBuffer.remaining () < TcpStreamService.FRAME_HEADER_SIZE + length)
+          break;
+        final int end = start + TcpStreamService.FRAME_HEADER_SIZE + length;
+        this.rxView.limit (end).position (start + TcpStreamService.FRAME_HEADER_SIZE);
+        this.rxBuffer.position (end);
+        try
+        {
+          TcpStreamService.this.fireMessageReceived (this.rxView, timestamp);
+        }
+        catch (RuntimeException re)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+            new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this, re});
+        }
+      }
+      this.rxBuffer.compact ();
+      return true;
+    }
+    
+    /** Writes (a duplicate of) a frame, or queues it if earlier frames are still pending.
+     * 
+     * <p>
+     * If queueing the frame would exceed the bound on pending transmit data,
+     * all pending data is discarded and the connection is marked for closure;
+     * subsequent frames are discarded.
+     * 
+     * <p>
+     * May be invoked from any thread.
+     * 
+     * @param frame The frame (length prefix and message); its position and limit are not changed.
+     * 
+     * @return Whether the frame was written completely.
+     * 
+     * @throws IOException If writing to the channel failed.
+     * 
+     * @see #setMaxPendingTxBytes
+     * 
+     */
+    private synchronized boolean write (final ByteBuffer frame) throws IOException
+    {
+      if (this.txOverflow)
+        return false;
+      final ByteBuffer data = frame.duplicate ();
+      if (this.pendingTx.isEmpty ())
+      {
+        this.channel.write (data);
+        if (! data.hasRemaining ())
+          return true;
+      }
+      if (this.pendingTxBytes + data.remaining () > TcpStreamService.this.maxPendingTxBytes)
+      {
+        this.txOverflow = true;
+        this.pendingTx.clear ();
+        this.pendingTxBytes = 0;
+        return false;
+      }
+      this.pendingTx.add (data);
+      this.pendingTxBytes += data.remaining ();
+      return false;
+    }
+    
+    /** Writes pending frames (from the selector thread).
+     * 
+     * @return Whether all pending frames have been written.
+     * 
+     * @throws IOException If writing to the channel failed.
+     * 
+     */
+    private synchronized boolean flush () throws IOException
+    {
+      ByteBuffer data;
+      while ((data = this.pendingTx.peek ()) != null)
+      {
+        this.pendingTxBytes -= this.channel.write (data);
+        if (data.hasRemaining ())
+          return false;
+        this.pendingTx.poll ();
+      }
+      return true;
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TRANSMIT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Transmits a message to all connections.
+   * 
+   * <p>
+   * The message is written on the caller's thread if the connection can take it at once;
+   * otherwise, (the remainder of) it is written from the selector thread.
+   * 
+   * @param message The message (payload), non-{@code null}.
+   * 
+   * @return Whether the service is active and has at least one connection;
+   *           if not, the message is discarded.
+   * 
+   * @throws IllegalArgumentException If {@code message == null} or its length exceeds {@link #MAX_MESSAGE_SIZE}.
+   * 
+   */
+  public final boolean transmit (final byte[] message)
+  {
+    if (message == null || message.length > TcpStreamService.MAX_MESSAGE_SIZE)
+      throw new IllegalArgumentException ();
+    final TcpStreamThread thread = this.thread;
+    if (getStatus () != Status.ACTIVE || thread == null || this.connections.isEmpty ())
+      return false;
+    final ByteBuffer frame = ByteBuffer.allocate (TcpStreamService.FRAME_HEADER_SIZE + message.length);
+    frame.putShort ((short) message.length).put (message).flip ();
+    for (final Connection connection : this.connections)
+      try
+      {
+        if (! connection.write (frame))
+          thread.requestFlush (connection);
+      }
+      catch (IOException ioe)
+      {
+        // The selector thread will find out and close the connection.
+        thread.requestFlush (connection);
+      }
+    this.lastTxNanoTime.lazySet (System.nanoTime ());
+    return true;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private volatile TcpStreamThread thread = null;
+  
+  @Override
+  public final synchronized void startService ()
+  {
+    if (getStatus () == Status.ACTIVE)
+      return;
+    stopService ();
+    LOG.log (Level.INFO, "Starting Service Class {0} with Instance {1}.",
+      new Object[]{this.getClass ().getSimpleName (), this});
+    final Selector selector;
+    try
+    {
+      selector = Selector.open ();
+    }
+    catch (IOException ioe)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} caught IOException during start of Instance {1}: {2}!",
+        new Object[]{this.getClass ().getSimpleName (), this, ioe});
+      error ();
+      return;
+    }
+    ServerSocketChannel serverChannel = null;
+    if (this.role == Role.SERVER)
+      try
+      {
+        serverChannel = ServerSocketChannel.open ();
+        serverChannel.setOption (StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind (this.host == null || this.host.trim ().isEmpty ()
+          ? new InetSocketAddress (this.port)
+          : new InetSocketAddress (this.host, this.port));
+        serverChannel.configureBlocking (false);
+        serverChannel.register (selector, SelectionKey.OP_ACCEPT);
+      }
+      catch (IOException ioe)
+      {
+        LOG.log (Level.WARNING, "Service Class {0} caught IOException during start of Instance {1}: {2}!",
+          new Object[]{this.getClass ().getSimpleName (), this, ioe});
+        close (serverChannel);
+        close (selector);
+        error ();
+        return;
+      }
+    this.thread = new TcpStreamThread (selector, serverChannel);
+    this.thread.start ();
+    if (getStatus () == Status.STOPPED)
+      setStatus (Status.ACTIVE);
+  }
+  
+  @Override
+  public final synchronized void stopService ()
+  {
+    if (getStatus () == Status.STOPPED)
+      return;
+    LOG.log (Level.INFO, "Stopping Service Class {0} with Instance {1}.",
+      new Object[]{this.getClass ().getSimpleName (), this});
+    // The selector thread closes all channels upon termination.
+    // Note that we cannot join the thread, as it may be waiting for our lock (e.g., in error ()).
+    if (this.thread != null)
+    {
+      this.thread.terminate ();
+      this.thread = null;
+    }
+    setStatus (Status.STOPPED);
+  }
+  
+  private static void close (final Closeable closeable)
+  {
+    if (closeable != null)
+      try
+      {
+        closeable.close ();
+      }
+      catch (IOException ioe)
+      {
+        // EMPTY
+      }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SELECTOR THREAD
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The selector thread; accepts or (re)connects, reads, delivers, and writes pending frames.
+   * 
+   */
+  private final class TcpStreamThread
+    extends Thread
+  {
+    
+    private final Selector selector;
+    
+    private final ServerSocketChannel serverChannel;
+    
+    private volatile boolean mustRun = true;
+    
+    /** Connections with pending frames, as requested from other threads.
+     * 
+     */
+    private final Queue<Connection> flushRequests = new ConcurrentLinkedQueue<> ();
+    
+    /** The {@link System#nanoTime} of the next connection attempt of a client, if not connected or connecting.
+     * 
+     */
+    private long nextConnectNanoTime = System.nanoTime ();
+    
+    private SocketChannel connectingChannel = null;
+    
+    private TcpStreamThread (final Selector selector, final ServerSocketChannel serverChannel)
+    {
+      super ("TcpStreamThread-" + TcpStreamService.this.getName ());
+      this.selector = selector;
+      this.serverChannel = serverChannel;
+      setDaemon (true);
+    }
+    
+    private void terminate ()
+    {
+      this.mustRun = false;
+      this.selector.wakeup ();
+    }
+    
+    private void requestFlush (final Connection connection)
+    {
+      this.flushRequests.add (connection);
+      this.selector.wakeup ();
+    }
+    
+    @Override
+    public final void run ()
+    {
+      try
+      {
+        while (this.mustRun)
+        {
+          if (TcpStreamService.this.role == Role.CLIENT
+            && this.connectingChannel == null
+            && TcpStreamService.this.connections.isEmpty ()
+            && System.nanoTime () - this.nextConnectNanoTime >= 0)
+            connect ();
+          if (TcpStreamService.this.role == Role.CLIENT && this.connectingChannel == null
+            && TcpStreamService.this.connections.isEmpty ())
+            this.selector.select (Math.max (1L, (this.nextConnectNanoTime - System.nanoTime ()) / 1000000L));
+          else
+            this.selector.select ();
+          if (! this.mustRun)
+            break;
+          Connection flushRequest;
+          while ((flushRequest = this.flushRequests.poll ()) != null)
+            if (flushRequest.txOverflow)
+            {
+              if (TcpStreamService.this.connections.contains (flushRequest))
+              {
+                LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: transmit overflow, disconnecting slow peer!",
+                  new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this});
+                TcpStreamService.this.txOverflowDisconnectCount.incrementAndGet ();
+                disconnect (flushRequest, null);
+              }
+            }
+            else if (flushRequest.key.isValid ())
+              flushRequest.key.interestOps (flushRequest.key.interestOps () | SelectionKey.OP_WRITE);
+          final Iterator<SelectionKey> iterator = this.selector.selectedKeys ().iterator ();
+          while (iterator.hasNext ())
+          {
+            final SelectionKey key = iterator.next ();
+            iterator.remove ();
+            try
+            {
+              if (key.isAcceptable ())
+                accept ();
+              else if (key.isConnectable ())
+                finishConnect (key);
+              else
+              {
+                final Connection connection = (Connection) key.attachment ();
+                if (key.isReadable () && ! connection.read ())
+                  disconnect (connection, null);
+                else if (key.isValid () && key.isWritable () && connection.flush ())
+                  key.interestOps (SelectionKey.OP_READ);
+              }
+            }
+            catch (IOException ioe)
+            {
+              if (key.attachment () instanceof Connection)
+                disconnect ((Connection) key.attachment (), ioe);
+              else if (key.channel () == this.connectingChannel)
+                connectFailed (ioe);
+              else
+                throw ioe;
+            }
+            catch (CancelledKeyException cke)
+            {
+              // EMPTY
+            }
+          }
+        }
+      }
+      catch (IOException ioe)
+      {
+        LOG.log (Level.WARNING, "Service Class {0} on Instance {1} caught IOException in selector thread: {2}!",
+          new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this, ioe});
+        TcpStreamService.this.error ();
+      }
+      finally
+      {
+        for (final Connection connection : TcpStreamService.this.connections)
+          TcpStreamService.close (connection.channel);
+        TcpStreamService.this.connections.clear ();
+        TcpStreamService.close (this.connectingChannel);
+        TcpStreamService.close (this.serverChannel);
+        TcpStreamService.close (this.selector);
+      }
+    }
+    
+    private void accept () throws IOException
+    {
+      final SocketChannel channel = this.serverChannel.accept ();
+      if (channel == null)
+        return;
+      channel.configureBlocking (false);
+      channel.setOption (StandardSocketOptions.TCP_NODELAY, true);
+      established (channel, channel.register (this.selector, SelectionKey.OP_READ));
+    }
+    
+    private void connect ()
+    {
+      try
+      {
+        this.connectingChannel = SocketChannel.open ();
+        this.connectingChannel.configureBlocking (false);
+        this.connectingChannel.setOption (StandardSocketOptions.TCP_NODELAY, true);
+        if (this.connectingChannel.connect (new InetSocketAddress (TcpStreamService.this.host, TcpStreamService.this.port)))
+        {
+          final SocketChannel channel = this.connectingChannel;
+          this.connectingChannel = null;
+          established (channel, channel.register (this.selector, SelectionKey.OP_READ));
+        }
+        else
+          this.connectingChannel.register (this.selector, SelectionKey.OP_CONNECT);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        connectFailed (e);
+      }
+    }
+    
+    private void finishConnect (final SelectionKey key) throws IOException
+    {
+      if (this.connectingChannel.finishConnect ())
+      {
+        final SocketChannel channel = this.connectingChannel;
+        this.connectingChannel = null;
+        key.interestOps (SelectionKey.OP_READ);
+        established (channel, key);
+      }
+    }
+    
+    private void connectFailed (final Exception e)
+    {
+      LOG.log (Level.FINE, "Service Class {0} on Instance {1} failed to connect: {2}.",
+        new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this, e});
+      TcpStreamService.close (this.connectingChannel);
+      this.connectingChannel = null;
+      this.nextConnectNanoTime = System.nanoTime () + TcpStreamService.this.reconnectInterval_ms * 1000000L;
+    }
+    
+    private void established (final SocketChannel channel, final SelectionKey key) throws IOException
+    {
+      final Connection connection = new Connection (channel, key);
+      key.attach (connection);
+      TcpStreamService.this.connections.add (connection);
+      LOG.log (Level.INFO, "Service Class {0} on Instance {1}: connection established with {2}.",
+        new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this, channel.getRemoteAddress ()});
+    }
+    
+    private void disconnect (final Connection connection, final IOException ioe)
+    {
+      LOG.log (Level.INFO, "Service Class {0} on Instance {1}: connection closed{2}.",
+        new Object[]{TcpStreamService.this.getClass ().getSimpleName (), TcpStreamService.this,
+                     ioe != null ? (": " + ioe) : ""});
+      TcpStreamService.this.connections.remove (connection);
+      connection.key.cancel ();
+      TcpStreamService.close (connection.channel);
+      this.nextConnectNanoTime = System.nanoTime () + TcpStreamService.this.reconnectInterval_ms * 1000000L;
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Instant} at construction, used as anchor for converting {@link System#nanoTime} values into {@link Instant}s.
+   * 
+   */
+  private final Instant activityAnchorInstant = Instant.now ();
+  
+  /** The value of {@link System#nanoTime} at construction (approximately at {@link #activityAnchorInstant}).
+   * 
+   */
+  private final long activityAnchorNanoTime = System.nanoTime ();
+  
+  private final AtomicLong lastTxNanoTime = new AtomicLong (TcpStreamService.NO_ACTIVITY);
+  
+  private final AtomicLong lastRxNanoTime = new AtomicLong (TcpStreamService.NO_ACTIVITY);
+  
+  /** Marker value for the absence of activity.
+   * 
+   */
+  private static final long NO_ACTIVITY = Long.MIN_VALUE;
+  
+  private Instant toActivityInstant (final long nanoTime)
+  {
+    if (nanoTime == TcpStreamService.NO_ACTIVITY)
+      return Instant.MIN;
+    return this.activityAnchorInstant.plusNanos (nanoTime - this.activityAnchorNanoTime);
+  }
+  
+  /** The name of the transmission activity.
+   * 
+   * @see ActivityMonitorable
+   * @see #getMonitorableActivities
+   * 
+   */
+  public final static String ACTIVITY_TX_NAME = UdpMulticastService.ACTIVITY_TX_NAME;
+  
+  /** The name of the reception activity.
+   * 
+   * @see ActivityMonitorable
+   * @see #getMonitorableActivities
+   * 
+   */
+  public final static String ACTIVITY_RX_NAME = UdpMulticastService.ACTIVITY_RX_NAME;
+  
+  private static final Set<String> MONITORABLE_ACTIVITIES = Collections.unmodifiableSet (new LinkedHashSet<> (Arrays.asList (
+    null,
+    TcpStreamService.ACTIVITY_TX_NAME,
+    TcpStreamService.ACTIVITY_RX_NAME)));
+    
+  /** Returns a {@code Set} (not to be modified) holding the {@link #ACTIVITY_TX_NAME} and {@link #ACTIVITY_RX_NAME} strings.
+   * 
+   * @return A {@code Set} (not to be modified) holding the {@link #ACTIVITY_TX_NAME} and {@link #ACTIVITY_RX_NAME} strings.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return TcpStreamService.MONITORABLE_ACTIVITIES;
+  }
+  
+  /** Returns the {@link Instant} of construction of this service.
+   * 
+   * @return The {@link Instant} of construction of this service.
+   * 
+   */
+  @Override
+  public Instant lastActivity ()
+  {
+    return this.activityAnchorInstant;
+  }
+  
+  /** Returns the {@link Instant} of the last activity of given type.
+   * 
+   * @param monitorableActivity The activity, {@link #ACTIVITY_TX_NAME} or {@link #ACTIVITY_RX_NAME}.
+   * 
+   * @return The {@link Instant} of the last activity, {@link Instant#MIN} if none, or if the activity is unknown.
+   * 
+   */
+  @Override
+  public Instant lastActivity (final String monitorableActivity)
+  {
+    if (monitorableActivity == null)
+      return lastActivity ();
+    switch (monitorableActivity)
+    {
+      case TcpStreamService.ACTIVITY_TX_NAME:
+        return toActivityInstant (this.lastTxNanoTime.get ());
+      case TcpStreamService.ACTIVITY_RX_NAME:
+        return toActivityInstant (this.lastRxNanoTime.get ());
+      default:
+        return Instant.MIN;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,252 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.net.DatagramPacket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A bounded pool of reception buffers for UDP datagrams.
+ * 
+ * <p>
+ * Each {@link Buffer} holds a fixed-size array, a {@link DatagramPacket} on that array,
+ * and a (reusable) read-only {@link ByteBuffer} view on it.
+ * A buffer is obtained through {@link #acquire}, and is handed over (as is) from the reception thread
+ * to the thread delivering its datagram, which returns it to the pool through {@link Buffer#release}.
+ * A buffer thus has a single owner at any time; it is not reference counted,
+ * and its in-use flag merely detects a duplicate release.
+ * 
+ * <p>
+ * If the pool is exhausted, {@link #acquire} does not block;
+ * instead, it returns a new buffer that is not returned to the pool upon release,
+ * and increments the exhaustion count, see {@link #getExhaustionCount}.
+ * 
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+final class UdpBufferPool
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a pool with given capacity and buffer size.
+   * 
+   * <p>
+   * All buffers are allocated upfront.
+   * 
+   * @param capacity   The number of pooled buffers, strictly positive.
+   * @param bufferSize The size of each buffer in bytes, strictly positive.
+   * 
+   * @throws IllegalArgumentException If the capacity or the buffer size is zero or negative.
+   * 
+   */
+  UdpBufferPool (final int capacity, final int bufferSize)
+  {
+    if (capacity < 1 || bufferSize < 1)
+      throw new IllegalArgumentException ();
+    this.bufferSize = bufferSize;
+    this.freeBuffers = new ArrayBlockingQueue<> (capacity);
+    for (int i = 0; i < capacity; i++)
+      this.freeBuffers.add (new Buffer (true));
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // AVAILABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final int bufferSize;
+  
+  private final ArrayBlockingQueue<Buffer> freeBuffers;
+  
+  /** Returns the number of pooled buffers currently available (not in use).
+   * 
+   * @return The number of pooled buffers available.
+   * 
+   */
+  int getAvailable ()
+  {
+    return this.freeBuffers.size ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // EXHAUSTION COUNT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final AtomicLong exhaustionCount = new AtomicLong ();
+  
+  /** Returns the number of times {@link #acquire} found the pool exhausted.
+   * 
+   * <p>
+   * Each such occurrence resulted in the allocation of a non-pooled buffer.
+   * 
+   * @return The number of times the pool was found exhausted since its construction.
+   * 
+   */
+  long getExhaustionCount ()
+  {
+    return this.exhaustionCount.get ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACQUIRE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Acquires a buffer from the pool, or creates a non-pooled one if the pool is exhausted.
+   * 
+   * <p>
+   * The buffer returned is marked in use,
+   * and its packet is ready for reception into the full buffer.
+   * 
+   * @return The buffer, non-{@code null}.
+   * 
+   */
+  Buffer acquire ()
+  {
+    Buffer buffer = this.freeBuffers.poll ();
+    if (buffer == null)
+    {
+      this.exhaustionCount.incrementAndGet ();
+      buffer = new Buffer (false);
+    }
+    buffer.packet.setLength (this.bufferSize);
+    buffer.inUse = true;
+    return buffer;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // BUFFER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A buffer for reception of a single datagram.
+   * 
+   */
+  final class Buffer
+  {
+    
+    private final boolean pooled;
+    
+    private final byte[] data;
+    
+    private final DatagramPacket packet;
+    
+    private final ByteBuffer view;
+    
+    // Set upon acquisition, cleared upon release; published along with the buffer itself (e.g., through a queue).
+    private boolean inUse;
+    
+    private long timestamp;
+    
+    private Buffer (final boolean pooled)
+    {
+      this.pooled = pooled;
+      this.data = new byte[UdpBufferPool.this.bufferSize];
+      this.packet = new DatagramPacket (this.data, this.data.length);
+      this.view = ByteBuffer.wrap (this.data).asReadOnlyBuffer ();
+    }
+    
+    /** Returns the packet for reception into this buffer.
+     * 
+     * @return The packet, non-{@code null}.
+     * 
+     */
+    DatagramPacket getPacket ()
+    {
+      return this.packet;
+    }
+    
+    /** Returns a read-only view on the datagram received into this buffer.
+     * 
+     * <p>
+     * The view is reused; its position is set to zero, and its limit to the length of the datagram received.
+     * 
+     * @return The view, non-{@code null}.
+     * 
+     */
+    ByteBuffer getView ()
+    {
+      this.view.limit (this.packet.getLength ()).position (0);
+      return this.view;
+    }
+    
+    /** Returns the reception timestamp of the datagram in this buffer.
+     * 
+     * @return The reception timestamp, see {@link System#nanoTime}.
+     * 
+     * @see #setTimestamp
+     * 
+     */
+    long getTimestamp ()
+    {
+      return this.timestamp;
+    }
+    
+    /** Sets the reception timestamp of the datagram in this buffer.
+     * 
+     * <p>
+     * The timestamp is published to other threads along with the buffer itself
+     * (e.g., through a queue).
+     * 
+     * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    void setTimestamp (final long timestamp)
+    {
+      this.timestamp = timestamp;
+    }
+    
+    /** Releases this buffer, returning it to the pool if it is pooled.
+     * 
+     * <p>
+     * Must be invoked exactly once by the (single) owner of the buffer.
+     * 
+     * @throws IllegalStateException If the buffer has already been released.
+     * 
+     */
+    void release ()
+    {
+      if (! this.inUse)
+        throw new IllegalStateException ();
+      this.inUse = false;
+      if (this.pooled)
+        UdpBufferPool.this.freeBuffers.offer (this);
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,260 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.nio.ByteBuffer;
+
+/** The wire format of framed datagrams of a {@link UdpMulticastService}, carrying a sender id, a sequence number,
+ *  and optionally redundant copies of previous payloads.
+ * 
+ * <p>
+ * A framed datagram starts with a header of {@link #HEADER_SIZE} bytes:
+ * two magic bytes ({@code 0xFD 0x4A}), a flags byte,
+ * the sender id and the datagram sequence number (both four bytes, big-endian).
+ * With the redundancy flag ({@link #FLAG_REDUNDANCY}) set, the header is followed by the redundancy block:
+ * the number of entries (one byte), followed by the entries, oldest first,
+ * each consisting of the distance in sequence numbers to the datagram (one byte)
+ * and the payload with its length prefix (as with packing, without running status).
+ * The (possibly packed) payload makes up the rest of the datagram.
+ * 
+ * <p>
+ * This class holds static methods only.
+ * 
+ * @see UdpMulticastService#setFraming
+ * @see UdpMulticastService#setRedundancy
+ * @see UdpPacking
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+final class UdpFraming
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Prevents instantiation.
+   * 
+   */
+  private UdpFraming ()
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // HEADER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The size of the framing header in bytes.
+   * 
+   */
+  static final int HEADER_SIZE = 11;
+  
+  static final byte MAGIC_0 = (byte) 0xFD;
+  
+  static final byte MAGIC_1 = (byte) 0x4A;
+  
+  /** The flag in the header indicating the presence of a redundancy block.
+   * 
+   */
+  static final byte FLAG_REDUNDANCY = 0x01;
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // FRAME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Frames a payload into a datagram, with redundant entries from a history as configured.
+   * 
+   * <p>
+   * With strictly positive redundancy, the redundancy block holds the most recent payloads in the history
+   * that have consecutive sequence numbers (preceding the given one), up to the redundancy,
+   * and as long as the datagram fits in the MTU (the payload itself is always included);
+   * the payload is then added to the history for subsequent datagrams.
+   * 
+   * @param history    The transmission history, non-{@code null}.
+   * @param senderId   The sender id.
+   * @param sequence   The sequence number of the datagram.
+   * @param redundancy The redundancy, between zero (disabled) and {@link UdpMulticastService#MAX_REDUNDANCY} inclusive.
+   * @param mtu        The maximum size of the datagram (including redundant entries, but not the payload itself).
+   * @param payload    The payload (starting at index zero).
+   * @param length     The length of the payload.
+   * @param out        The buffer for the datagram; cleared first, and flipped upon return.
+   *                     Its capacity must be at least {@link #HEADER_SIZE} plus one plus the length of the payload.
+   * 
+   */
+  static void frame (final UdpTxHistory history,
+                     final int senderId,
+                     final int sequence,
+                     final int redundancy,
+                     final int mtu,
+                     final byte[] payload,
+                     final int length,
+                     final ByteBuffer out)
+  {
+    out.clear ();
+    out.put (UdpFraming.MAGIC_0);
+    out.put (UdpFraming.MAGIC_1);
+    out.put (redundancy > 0 ? UdpFraming.FLAG_REDUNDANCY : 0);
+    out.putInt (senderId);
+    out.putInt (sequence);
+    if (redundancy > 0)
+    {
+      // Select the most recent (consecutive) payloads that fit.
+      int budget = Math.min (mtu, out.capacity ()) - UdpFraming.HEADER_SIZE - 1 - length;
+      int entries = 0;
+      while (entries < redundancy && entries < history.size ())
+      {
+        final int entrySize = 1 + UdpPacking.packedSize (history.getLength (entries));
+        if (history.getSequence (entries) != sequence - 1 - entries || entrySize > budget)
+          break;
+        budget -= entrySize;
+        entries++;
+      }
+      out.put ((byte) entries);
+      for (int age = entries - 1; age >= 0; age--)
+      {
+        out.put ((byte) (age + 1));
+        UdpPacking.pack (out, history.getPayload (age), history.getLength (age));
+      }
+      history.add (sequence, payload, length);
+    }
+    out.put (payload, 0, length);
+    out.flip ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UNFRAME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Receives the results of unframing datagrams.
+   * 
+   * @see #unframe
+   * 
+   */
+  interface Receiver
+  {
+    
+    /** Returns the reception statistics of a sender, creating them if needed.
+     * 
+     * @param senderId The sender id.
+     * 
+     * @return The reception statistics, non-{@code null}.
+     * 
+     */
+    UdpSenderStatistics getSenderStatistics (int senderId);
+    
+    /** Notification of a datagram without a valid framing header (or redundancy block).
+     * 
+     */
+    void unframed ();
+    
+    /** Notification of the payload of a redundant entry for a datagram not received before.
+     * 
+     * @param payload   The payload between position and limit;
+     *                    only valid during the invocation, and its limit must be left untouched.
+     * @param timestamp The timestamp passed to {@link #unframe}.
+     * 
+     */
+    void payloadRecovered (ByteBuffer payload, long timestamp);
+    
+  }
+  
+  /** Strips and processes the framing header (if present) from a received datagram, and hands over recovered payloads.
+   * 
+   * <p>
+   * Upon return, the position of the datagram is at the start of the payload.
+   * Payloads of redundant entries not received before are handed to the receiver (oldest first)
+   * before this method returns.
+   * Datagrams without a valid framing header (and redundancy block) are left untouched,
+   * and reported to the receiver.
+   * 
+   * @param datagram  The datagram between position and limit, non-{@code null}.
+   * @param timestamp The timestamp to pass to the receiver.
+   * @param receiver  The receiver, non-{@code null}.
+   * 
+   * @return Whether the payload of the datagram must be delivered, i.e., whether it is not a duplicate.
+   * 
+   */
+  static boolean unframe (final ByteBuffer datagram, final long timestamp, final Receiver receiver)
+  {
+    final int start = datagram.position ();
+    final int end = datagram.limit ();
+    if (datagram.remaining () < UdpFraming.HEADER_SIZE
+      || datagram.get (start) != UdpFraming.MAGIC_0
+      || datagram.get (start + 1) != UdpFraming.MAGIC_1)
+    {
+      receiver.unframed ();
+      return true;
+    }
+    final boolean redundant = (datagram.get (start + 2) & UdpFraming.FLAG_REDUNDANCY) != 0;
+    final int sender = datagram.getInt (start + 3);
+    final int sequence = datagram.getInt (start + 7);
+    int payloadStart = start + UdpFraming.HEADER_SIZE;
+    int entries = 0;
+    if (redundant)
+    {
+      // Validate the redundancy block before delivering anything from it.
+      if (payloadStart >= end)
+      {
+        receiver.unframed ();
+        return true;
+      }
+      entries = datagram.get (payloadStart++) & 0xff;
+      for (int e = 0; e < entries; e++)
+      {
+        final int length = payloadStart + 1 < end ? UdpPacking.packedLength (datagram, payloadStart + 1, end) : -1;
+        if (length < 0)
+        {
+          receiver.unframed ();
+          return true;
+        }
+        payloadStart += 1 + UdpPacking.packedSize (length);
+      }
+    }
+    final UdpSenderStatistics statistics = receiver.getSenderStatistics (sender);
+    for (int e = 0, position = start + UdpFraming.HEADER_SIZE + 1; e < entries; e++)
+    {
+      final int distance = datagram.get (position) & 0xff;
+      final int length = UdpPacking.packedLength (datagram, position + 1, end);
+      final int entryStart = position + 1 + UdpPacking.packedSize (length) - length;
+      if (statistics.recover (sequence - distance))
+      {
+        datagram.limit (entryStart + length).position (entryStart);
+        receiver.payloadRecovered (datagram, timestamp);
+        datagram.limit (end);
+      }
+      position = entryStart + length;
+    }
+    datagram.position (payloadStart);
+    return statistics.record (sequence);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,485 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** A reactor multiplexing (non-blocking) {@link DatagramChannel}s of many {@link UdpMulticastService}s
+ *  onto a small, fixed pool of selector threads.
+ * 
+ * <p>
+ * Services using the {@link UdpMulticastService.Engine#CHANNEL} engine register their channel
+ * with the process-wide reactor ({@link #getDefault}) upon {@link UdpMulticastService#startService},
+ * and deregister it upon {@link UdpMulticastService#stopService};
+ * they do not create threads of their own.
+ * Each registration is assigned to the selector thread with the fewest registrations at that time.
+ * 
+ * <p>
+ * The selector threads are daemon threads, started lazily upon the first registration assigned to them;
+ * they remain alive (idle) after the last deregistration.
+ * 
+ * <p>
+ * Received datagrams are delivered to listeners <i>from the selector thread</i>,
+ * which is shared with other services.
+ * Listeners should therefore return quickly, and never block.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class UdpMulticastReactor
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (UdpMulticastReactor.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a reactor with given number of selector threads.
+   * 
+   * <p>
+   * The threads are not started until channels are registered.
+   * 
+   * @param name            The name of the reactor (used for naming its threads), non-{@code null}.
+   * @param numberOfThreads The number of selector threads, strictly positive.
+   * 
+   * @throws IllegalArgumentException If {@code name == null} or {@code numberOfThreads < 1}.
+   * 
+   */
+  public UdpMulticastReactor (final String name, final int numberOfThreads)
+  {
+    if (name == null || numberOfThreads < 1)
+      throw new IllegalArgumentException ();
+    this.name = name;
+    this.reactorThreads = new ReactorThread[numberOfThreads];
+    for (int t = 0; t < numberOfThreads; t++)
+      this.reactorThreads[t] = new ReactorThread (t);
+  }
+  
+  /** The name of the system property holding the number of selector threads of the default reactor.
+   * 
+   * @see #getDefault
+   * @see #DEFAULT_NUMBER_OF_THREADS
+   * 
+   */
+  public static final String NUMBER_OF_THREADS_PROPERTY_NAME = "org.javajdj.jservice.net.UdpMulticastReactor.threads";
+  
+  /** The default number of selector threads of the default reactor.
+   * 
+   * @see #getDefault
+   * @see #NUMBER_OF_THREADS_PROPERTY_NAME
+   * 
+   */
+  public static final int DEFAULT_NUMBER_OF_THREADS = 1;
+  
+  private static UdpMulticastReactor DEFAULT = null;
+  
+  /** Returns the process-wide reactor, creating it if needed.
+   * 
+   * <p>
+   * The number of selector threads is taken from the system property {@link #NUMBER_OF_THREADS_PROPERTY_NAME},
+   * defaulting to {@link #DEFAULT_NUMBER_OF_THREADS}.
+   * 
+   * @return The process-wide reactor, non-{@code null}.
+   * 
+   */
+  public static synchronized UdpMulticastReactor getDefault ()
+  {
+    if (UdpMulticastReactor.DEFAULT == null)
+      UdpMulticastReactor.DEFAULT = new UdpMulticastReactor ("UdpMulticastReactor",
+        Math.max (1, Integer.getInteger (NUMBER_OF_THREADS_PROPERTY_NAME, DEFAULT_NUMBER_OF_THREADS)));
+    return UdpMulticastReactor.DEFAULT;
+  }
+  
+  /** Returns whether the current thread is a selector thread of a reactor.
+   * 
+   * <p>
+   * Code that may run on a selector thread (e.g., listeners) uses this in order to avoid blocking it.
+   * 
+   * @return Whether the current thread is a selector thread of a reactor.
+   * 
+   */
+  public static boolean isReactorThread ()
+  {
+    return Thread.currentThread () instanceof ReactorThread;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // NAME / toString
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final String name;
+  
+  /** Returns the name of this reactor.
+   * 
+   * @return The name of this reactor, non-{@code null}.
+   * 
+   */
+  public final String getName ()
+  {
+    return this.name;
+  }
+  
+  /** Returns the name of this reactor.
+   * 
+   * @return The result of {@link #getName}.
+   * 
+   */
+  @Override
+  public String toString ()
+  {
+    return getName ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATISTICS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the number of selector threads of this reactor.
+   * 
+   * @return The number of selector threads of this reactor, strictly positive.
+   * 
+   */
+  public final int getNumberOfThreads ()
+  {
+    return this.reactorThreads.length;
+  }
+  
+  /** Returns the number of channels currently registered at this reactor.
+   * 
+   * @return The number of channels currently registered at this reactor.
+   * 
+   */
+  public final int getNumberOfRegistrations ()
+  {
+    int numberOfRegistrations = 0;
+    for (final ReactorThread reactorThread : this.reactorThreads)
+      numberOfRegistrations += reactorThread.numberOfRegistrations.get ();
+    return numberOfRegistrations;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ENDPOINT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A (non-blocking) channel together with its reception and transmission logic.
+   * 
+   * <p>
+   * All methods are invoked from the selector thread of the {@link Registration}.
+   * 
+   */
+  interface Endpoint
+  {
+    
+    /** Returns the channel, non-{@code null}, non-blocking, and fixed.
+     * 
+     * @return The channel.
+     * 
+     */
+    DatagramChannel getChannel ();
+    
+    /** Reads (and delivers) all datagrams currently available on the channel.
+     * 
+     * @throws IOException If reading from the channel fails.
+     * 
+     */
+    void receive () throws IOException;
+    
+    /** Transmits pending datagrams until there are no more, or until the channel would block.
+     * 
+     * @return Whether the endpoint must wait for the channel to become writable.
+     * 
+     * @throws IOException If writing to the channel fails.
+     * 
+     */
+    boolean transmit () throws IOException;
+    
+    /** Notification of a failure on the channel; the endpoint has already been deregistered.
+     * 
+     * @param e The exception.
+     * 
+     */
+    void failed (Exception e);
+    
+  }
+  
+  /** The registration of an {@link Endpoint} at a {@link UdpMulticastReactor}.
+   * 
+   * @see #register
+   * 
+   */
+  final class Registration
+  {
+    
+    private final ReactorThread reactorThread;
+    
+    private final Endpoint endpoint;
+    
+    private final AtomicBoolean cancelled = new AtomicBoolean (false);
+    
+    private final AtomicBoolean transmitRequested = new AtomicBoolean (false);
+    
+    private SelectionKey selectionKey = null; // Only accessed from the reactor thread.
+    
+    private Registration (final ReactorThread reactorThread, final Endpoint endpoint)
+    {
+      this.reactorThread = reactorThread;
+      this.endpoint = endpoint;
+    }
+    
+    /** Requests the reactor to invoke {@link Endpoint#transmit} on its selector thread.
+     * 
+     * <p>
+     * The selector is woken up only if no request is pending yet.
+     * 
+     */
+    void requestTransmit ()
+    {
+      if (! this.cancelled.get () && this.transmitRequested.compareAndSet (false, true))
+      {
+        this.reactorThread.transmitRequests.offer (this);
+        this.reactorThread.selector.wakeup ();
+      }
+    }
+    
+    /** Cancels this registration.
+     * 
+     * <p>
+     * The endpoint will not be invoked after this method returns, except for invocations already in progress.
+     * The channel is not closed.
+     * 
+     */
+    void cancel ()
+    {
+      // Only the first of cancel and fail (on the reactor thread) updates the number of registrations.
+      if (! this.cancelled.compareAndSet (false, true))
+        return;
+      this.reactorThread.tasks.offer (() ->
+      {
+        if (this.selectionKey != null)
+          this.selectionKey.cancel ();
+        this.reactorThread.numberOfRegistrations.decrementAndGet ();
+      });
+      this.reactorThread.selector.wakeup ();
+    }
+    
+  }
+  
+  /** Registers an {@link Endpoint}.
+   * 
+   * @param endpoint The endpoint, non-{@code null}.
+   * 
+   * @return The registration, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code endpoint == null}.
+   * @throws IOException              If the selector thread could not be started.
+   * 
+   */
+  final Registration register (final Endpoint endpoint) throws IOException
+  {
+    if (endpoint == null)
+      throw new IllegalArgumentException ();
+    final ReactorThread reactorThread = getLeastLoadedReactorThread ();
+    reactorThread.ensureStarted ();
+    final Registration registration = new Registration (reactorThread, endpoint);
+    reactorThread.numberOfRegistrations.incrementAndGet ();
+    reactorThread.tasks.offer (() ->
+    {
+      if (registration.cancelled.get ())
+        return;
+      try
+      {
+        registration.selectionKey = endpoint.getChannel ().register (reactorThread.selector, SelectionKey.OP_READ, registration);
+      }
+      catch (IOException | RuntimeException e)
+      {
+        reactorThread.fail (registration, e);
+        return;
+      }
+      // Transmissions requested before the channel was registered.
+      reactorThread.transmit (registration);
+    });
+    reactorThread.selector.wakeup ();
+    return registration;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REACTOR THREADS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final ReactorThread[] reactorThreads;
+  
+  private ReactorThread getLeastLoadedReactorThread ()
+  {
+    ReactorThread reactorThread = this.reactorThreads[0];
+    for (final ReactorThread candidate : this.reactorThreads)
+      if (candidate.numberOfRegistrations.get () < reactorThread.numberOfRegistrations.get ())
+        reactorThread = candidate;
+    return reactorThread;
+  }
+  
+  private final class ReactorThread
+    extends Thread
+  {
+    
+    private volatile Selector selector = null;
+    
+    private final AtomicInteger numberOfRegistrations = new AtomicInteger (0);
+    
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<> ();
+    
+    private final Queue<Registration> transmitRequests = new ConcurrentLinkedQueue<> ();
+    
+    private ReactorThread (final int index)
+    {
+      super (UdpMulticastReactor.this.name + "-" + index);
+      setDaemon (true);
+    }
+    
+    private synchronized void ensureStarted () throws IOException
+    {
+      if (this.selector == null)
+      {
+        this.selector = Selector.open ();
+        start ();
+      }
+    }
+    
+    private void fail (final Registration registration, final Exception e)
+    {
+      if (registration.selectionKey != null)
+        registration.selectionKey.cancel ();
+      if (registration.cancelled.compareAndSet (false, true))
+      {
+        this.numberOfRegistrations.decrementAndGet ();
+        registration.endpoint.failed (e);
+      }
+    }
+    
+    private void transmit (final Registration registration)
+    {
+      registration.transmitRequested.set (false);
+      if (registration.cancelled.get () || registration.selectionKey == null)
+        return;
+      try
+      {
+        final boolean mustWait = registration.endpoint.transmit ();
+        registration.selectionKey.interestOps (mustWait ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ);
+      }
+      catch (IOException | CancelledKeyException e)
+      {
+        fail (registration, e);
+      }
+    }
+    
+    @Override
+    public void run ()
+    {
+      LOG.log (Level.INFO, "Started Reactor Thread {0}.", getName ());
+      while (true)
+      {
+        try
+        {
+          this.selector.select ();
+          Runnable task;
+          while ((task = this.tasks.poll ()) != null)
+            try
+            {
+              task.run ();
+            }
+            catch (RuntimeException re)
+            {
+              LOG.log (Level.WARNING, "Reactor Thread " + getName () + " caught exception from task!", re);
+            }
+          final Iterator<SelectionKey> keys = this.selector.selectedKeys ().iterator ();
+          while (keys.hasNext ())
+          {
+            final SelectionKey key = keys.next ();
+            keys.remove ();
+            final Registration registration = (Registration) key.attachment ();
+            if (registration.cancelled.get () || ! key.isValid ())
+              continue;
+            try
+            {
+              if (key.isReadable ())
+                registration.endpoint.receive ();
+              if (key.isValid () && key.isWritable ())
+                transmit (registration);
+            }
+            catch (IOException | CancelledKeyException e)
+            {
+              fail (registration, e);
+            }
+            catch (RuntimeException re)
+            {
+              LOG.log (Level.WARNING, "Reactor Thread " + getName () + " caught exception from endpoint!", re);
+            }
+          }
+          Registration registration;
+          while ((registration = this.transmitRequests.poll ()) != null)
+            try
+            {
+              transmit (registration);
+            }
+            catch (RuntimeException re)
+            {
+              LOG.log (Level.WARNING, "Reactor Thread " + getName () + " caught exception from endpoint!", re);
+            }
+        }
+        catch (IOException ioe)
+        {
+          LOG.log (Level.SEVERE, "Reactor Thread " + getName () + " caught IOException on selector!", ioe);
+        }
+      }
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -19,22 +19,55 @@ package org.javajdj.jservice.net;
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.Inet6Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.javajdj.jservice.activity.ActivityMonitorable;
 import org.javajdj.jservice.AbstractService;
 import org.javajdj.jservice.Service;
 import org.javajdj.jservice.Service.Status;
+import org.javajdj.util.concurrent.SpscRingBuffer;
+import org.javajdj.util.stats.LatencyHistogram;
 
 /** A {@link Service} for transmission to and reception from a UDP multi-cast address/port.
+ * 
+ * <p>
+ * The service supports two transport engines, see {@link Engine}.
+ * The default {@link Engine#SOCKET} engine uses a {@link MulticastSocket} and three dedicated threads
+ * for reception, delivery and transmission, respectively.
+ * The {@link Engine#CHANNEL} engine uses a non-blocking {@link DatagramChannel} with a {@link MembershipKey};
+ * it creates no threads, but registers the channel with the process-wide {@link UdpMulticastReactor}
+ * upon {@link #startService} (and deregisters it upon {@link #stopService}).
+ * Received datagrams are read into a reusable direct {@link ByteBuffer}
+ * and delivered from the (shared) reactor thread.
  * 
  * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
  * 
@@ -68,10 +101,27 @@ public class UdpMulticastService
    */
   public UdpMulticastService (final String group, final int port)
   {
-    if (group == null || port < 0)
+    this (group, port, Engine.SOCKET);
+  }
+  
+  /** Creates a UDP multi-cast {@link Service} with given multi-cast group, port and transport engine.
+   * 
+   * @param group  The group, non-{@code null}.
+   * @param port   The port.
+   * @param engine The transport engine, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If the group or engine is {@code null} or the port number is negative.
+   * 
+   * @see Engine
+   * 
+   */
+  public UdpMulticastService (final String group, final int port, final Engine engine)
+  {
+    if (group == null || port < 0 || engine == null)
       throw new IllegalArgumentException ();
     this.group = group;
     this.port = port;
+    this.engine = engine;
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -103,10 +153,32 @@ public class UdpMulticastService
      */
     void messageReceived (final byte[] message);
     
+    /** Notification (and delivery) of a received message, with its reception timestamp.
+     * 
+     * <p>
+     * The default implementation ignores the timestamp and invokes {@link #messageReceived(byte[])}.
+     * 
+     * @param message   The message (payload) received.
+     * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    default void messageReceived (final byte[] message, final long timestamp)
+    {
+      messageReceived (message);
+    }
+    
   }
   
   private final Set<MessageListener> messageListeners = new LinkedHashSet<> ();
   
+  /** An immutable snapshot of the registered message listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile MessageListener[] messageListenersCopy = new MessageListener[0]; // References are atomic.
+  
   /** Adds a message listener.
    * 
    * <p>
@@ -122,7 +194,10 @@ public class UdpMulticastService
     if (l == null)
       throw new IllegalArgumentException ();
     if (! this.messageListeners.contains (l))
+    {
       this.messageListeners.add (l);
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
+    }
   }
 
   /** Removes a message listener.
@@ -139,7 +214,8 @@ public class UdpMulticastService
   {
     if (l == null)
       throw new IllegalArgumentException ();
-    this.messageListeners.remove (l);
+    if (this.messageListeners.remove (l))
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
   }
   
   /** Notifies message listeners that a message has been sent.
@@ -149,29 +225,187 @@ public class UdpMulticastService
    */
   protected final void fireMessageSent (final byte[] message)
   {
-    final Set<MessageListener> messageListenersCopy;
-    synchronized (this)
-    {
-      messageListenersCopy = new LinkedHashSet<> (this.messageListeners);
-    }
-    for (final MessageListener l : messageListenersCopy)
+    final MessageListener[] listeners = this.messageListenersCopy;
+    for (final MessageListener l : listeners)
       l.messageSent (message);
   }
   
   /** Notifies message listeners that a message has been received.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
    * 
    * @param message The message.
    * 
    */
   protected final void fireMessageReceived (final byte[] message)
   {
-    final Set<MessageListener> messageListenersCopy;
-    synchronized (this)
+    fireMessageReceived (message, System.nanoTime ());
+  }
+  
+  /** Notifies message listeners that a message has been received, with given reception timestamp.
+   * 
+   * @param message   The message.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   */
+  protected final void fireMessageReceived (final byte[] message, final long timestamp)
+  {
+    final MessageListener[] listeners = this.messageListenersCopy;
+    for (final MessageListener l : listeners)
+    {
+      final long start = System.nanoTime ();
+      l.messageReceived (message, timestamp);
+      checkListenerTime (l, start);
+    }
+  }
+  
+  /** A listener to messages received at this {@link UdpMulticastService}, delivered as {@link ByteBuffer}s.
+   * 
+   * <p>
+   * Unlike {@link MessageListener}, a {@link BufferListener} receives a read-only view on the
+   * (internal) reception buffer, avoiding a per-message allocation and copy.
+   * 
+   * @see #addBufferListener
+   * @see #removeBufferListener
+   * 
+   */
+  @FunctionalInterface
+  public interface BufferListener
+  {
+    
+    /** Notification (and delivery) of a received message.
+     * 
+     * <p>
+     * The buffer is a read-only view holding the payload between its position and its limit.
+     * It is valid <i>only</i> for the duration of the callback;
+     * implementations must copy the data they want to retain.
+     * Implementations may freely change the position and limit of the buffer.
+     * 
+     * @param message The message (payload) received, non-{@code null}.
+     * 
+     */
+    void messageReceived (final ByteBuffer message);
+    
+    /** Notification (and delivery) of a received message, with its reception timestamp.
+     * 
+     * <p>
+     * The same restrictions on the buffer apply as for {@link #messageReceived(ByteBuffer)}.
+     * The default implementation ignores the timestamp and invokes {@link #messageReceived(ByteBuffer)}.
+     * 
+     * @param message   The message (payload) received, non-{@code null}.
+     * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    default void messageReceived (final ByteBuffer message, final long timestamp)
+    {
+      messageReceived (message);
+    }
+    
+  }
+  
+  private final Set<BufferListener> bufferListeners = new LinkedHashSet<> ();
+  
+  /** An immutable snapshot of the registered buffer listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile BufferListener[] bufferListenersCopy = new BufferListener[0]; // References are atomic.
+  
+  /** Adds a buffer listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are already registered.
+   * 
+   * @param l The buffer listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void addBufferListener (final BufferListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (! this.bufferListeners.contains (l))
+    {
+      this.bufferListeners.add (l);
+      this.bufferListenersCopy = this.bufferListeners.toArray (new BufferListener[0]);
+    }
+  }
+
+  /** Removes a buffer listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are not registered.
+   * 
+   * @param l The buffer listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void removeBufferListener (final BufferListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (this.bufferListeners.remove (l))
+      this.bufferListenersCopy = this.bufferListeners.toArray (new BufferListener[0]);
+  }
+  
+  /** Notifies buffer and message listeners that a message has been received, from a read-only {@link ByteBuffer}.
+   * 
+   * <p>
+   * The {@link BufferListener}s receive the buffer itself;
+   * its position and limit are restored before each invocation.
+   * 
+   * <p>
+   * For the {@link MessageListener}s (compatibility adapter),
+   * the remaining bytes in the buffer are copied into a new array
+   * (only if message listeners are registered at all),
+   * which is then passed to {@link #fireMessageReceived(byte[], long)}.
+   * 
+   * <p>
+   * The reception timestamp passed to the listeners is the current value of {@link System#nanoTime}.
+   * 
+   * @param message The message between position and limit, non-{@code null} and read-only.
+   * 
+   */
+  protected final void fireMessageReceived (final ByteBuffer message)
+  {
+    fireMessageReceived (message, System.nanoTime ());
+  }
+  
+  /** Notifies buffer and message listeners that a message has been received, from a read-only {@link ByteBuffer},
+   *  with given reception timestamp.
+   * 
+   * @param message   The message between position and limit, non-{@code null} and read-only.
+   * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+   * 
+   * @see #fireMessageReceived(ByteBuffer)
+   * 
+   */
+  protected final void fireMessageReceived (final ByteBuffer message, final long timestamp)
+  {
+    final BufferListener[] listeners = this.bufferListenersCopy;
+    final boolean hasMessageListeners = this.messageListenersCopy.length > 0;
+    final int position = message.position ();
+    final int limit = message.limit ();
+    for (final BufferListener l : listeners)
     {
-      messageListenersCopy = new LinkedHashSet<> (this.messageListeners);
+      message.limit (limit).position (position);
+      final long start = System.nanoTime ();
+      l.messageReceived (message, timestamp);
+      checkListenerTime (l, start);
+    }
+    if (hasMessageListeners)
+    {
+      message.limit (limit).position (position);
+      final byte[] copiedData = new byte[message.remaining ()];
+      message.get (copiedData);
+      message.position (position);
+      fireMessageReceived (copiedData, timestamp);
     }
-    for (final MessageListener l : messageListenersCopy)
-      l.messageReceived (message);
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -193,16 +427,21 @@ public class UdpMulticastService
   }
   
   /** Sets the UDP multi-cast group.
+   * 
+   * <p>
+   * The group is joined on the default interface, and is the destination of transmitted datagrams.
    * 
    * <p>
    * If the group has changed, and the service is active,
-   * it is restarted automatically.
+   * the old group is left and the new group is joined on the existing socket or channel,
+   * and transmission switches to the new group, without restarting the service.
+   * If that fails, the service is restarted.
    * 
    * @param group The UDP multi-cast group.
    * 
    * @throws IllegalArgumentException If {@code group == null}.
    * 
-   * @see #restartService
+   * @see #addMembership
    * 
    */
   public final synchronized void setGroup (final String group)
@@ -213,77 +452,2554 @@ public class UdpMulticastService
     {
       this.group = group;
       if (getStatus () == Status.ACTIVE)
-        restartService ();
+      {
+        try
+        {
+          switchGroup (group);
+        }
+        catch (IOException ioe)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} caught IOException while switching group of Instance {1}: {2}!",
+            new Object[]{this.getClass ().getSimpleName (), this, ioe});
+          restartService ();
+        }
+      }
     }
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
-  // PORT
+  // MEMBERSHIPS
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   
-  private volatile int port; // Set by constructor; no real reasonable default value.
+  /** A (additional) multicast group membership on a given (or the default) network interface.
+   * 
+   * <p>
+   * Instances are immutable.
+   * 
+   * @see #addMembership
+   * 
+   */
+  public static final class Membership
+  {
+    
+    private final String group;
+    
+    private final String networkInterfaceName;
+    
+    /** Creates a membership.
+     * 
+     * @param group                The multicast group, non-{@code null}.
+     * @param networkInterfaceName The name of the network interface, {@code null} for the default interface.
+     * 
+     * @throws IllegalArgumentException If {@code group == null}.
+     * 
+     * @see NetworkInterface#getName
+     * 
+     */
+    public Membership (final String group, final String networkInterfaceName)
+    {
+      if (group == null)
+        throw new IllegalArgumentException ();
+      this.group = group;
+      this.networkInterfaceName = networkInterfaceName;
+    }
+    
+    /** Returns the multicast group.
+     * 
+     * @return The multicast group, non-{@code null}.
+     * 
+     */
+    public String getGroup ()
+    {
+      return this.group;
+    }
+    
+    /** Returns the name of the network interface.
+     * 
+     * @return The name of the network interface, {@code null} for the default interface.
+     * 
+     */
+    public String getNetworkInterfaceName ()
+    {
+      return this.networkInterfaceName;
+    }
+    
+    @Override
+    public boolean equals (final Object obj)
+    {
+      if (this == obj)
+        return true;
+      if (! (obj instanceof Membership))
+        return false;
+      final Membership other = (Membership) obj;
+      return this.group.equals (other.group) && Objects.equals (this.networkInterfaceName, other.networkInterfaceName);
+    }
+    
+    @Override
+    public int hashCode ()
+    {
+      return 31 * this.group.hashCode () + Objects.hashCode (this.networkInterfaceName);
+    }
+    
+    @Override
+    public String toString ()
+    {
+      return this.group + "@" + (this.networkInterfaceName != null ? this.networkInterfaceName : "default");
+    }
+    
+  }
   
-  /** Returns the UDP port.
+  /** The name of the "memberships" property.
    * 
-   * @return The UDP port.
+   */
+  public static final String MEMBERSHIPS_PROPERTY_NAME = "memberships";
+  
+  private final Set<Membership> memberships = new LinkedHashSet<> ();
+  
+  /** Returns the additional multicast group memberships.
+   * 
+   * <p>
+   * The (primary) group set through the constructor or {@link #setGroup} is not included.
+   * 
+   * @return A copy of the additional memberships, non-{@code null}.
+   * 
+   * @see #addMembership
+   * @see #removeMembership
+   * 
+   */
+  public final synchronized Set<Membership> getMemberships ()
+  {
+    return new LinkedHashSet<> (this.memberships);
+  }
+  
+  /** Adds an additional multicast group membership.
+   * 
+   * <p>
+   * Datagrams received through additional memberships are delivered to the listeners
+   * just like datagrams sent to the (primary) group; transmission is always to the primary group.
+   * All memberships share the port of the service.
+   * 
+   * <p>
+   * If the service is active, the group is joined immediately on the existing socket or channel,
+   * without restarting the service.
+   * Failure to join a group (e.g., because the network interface does not exist,
+   * or does not support multicast) is logged, but does not affect the service otherwise;
+   * joining is reattempted upon each (re)start.
+   * 
+   * <p>
+   * A membership that duplicates the primary group (or another membership) on the same interface
+   * shares the existing join; removing it does not leave the group as long as it is still in use.
+   * 
+   * <p>
+   * With the {@link Engine#CHANNEL} engine, all groups must be of the same address family (IPv4 or IPv6)
+   * as the primary group.
+   * 
+   * @param membership The membership, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code membership == null}.
+   * 
+   * @see #removeMembership
+   * @see #getMemberships
+   * 
+   */
+  public final synchronized void addMembership (final Membership membership)
+  {
+    if (membership == null)
+      throw new IllegalArgumentException ();
+    if (this.memberships.contains (membership))
+      return;
+    final Set<Membership> oldMemberships = getMemberships ();
+    this.memberships.add (membership);
+    if (getStatus () == Status.ACTIVE)
+      joinMembership (membership);
+    fireSettingsChanged (MEMBERSHIPS_PROPERTY_NAME, oldMemberships, getMemberships ());
+  }
+  
+  /** Adds an additional multicast group membership on given network interface.
+   * 
+   * @param group                The multicast group, non-{@code null}.
+   * @param networkInterfaceName The name of the network interface, {@code null} for the default interface.
+   * 
+   * @throws IllegalArgumentException If {@code group == null}.
+   * 
+   * @see #addMembership(Membership)
+   * 
+   */
+  public final void addMembership (final String group, final String networkInterfaceName)
+  {
+    addMembership (new Membership (group, networkInterfaceName));
+  }
+  
+  /** Removes an additional multicast group membership.
+   * 
+   * <p>
+   * If the service is active, the group is left immediately, without restarting the service.
+   * 
+   * @param membership The membership, non-{@code null}; ignored if not present.
+   * 
+   * @throws IllegalArgumentException If {@code membership == null}.
+   * 
+   * @see #addMembership
+   * 
+   */
+  public final synchronized void removeMembership (final Membership membership)
+  {
+    if (membership == null)
+      throw new IllegalArgumentException ();
+    if (! this.memberships.contains (membership))
+      return;
+    final Set<Membership> oldMemberships = getMemberships ();
+    this.memberships.remove (membership);
+    if (getStatus () == Status.ACTIVE)
+      leaveMembership (membership);
+    fireSettingsChanged (MEMBERSHIPS_PROPERTY_NAME, oldMemberships, getMemberships ());
+  }
+  
+  /** Removes an additional multicast group membership on given network interface.
+   * 
+   * @param group                The multicast group, non-{@code null}.
+   * @param networkInterfaceName The name of the network interface, {@code null} for the default interface.
+   * 
+   * @throws IllegalArgumentException If {@code group == null}.
+   * 
+   * @see #removeMembership(Membership)
+   * 
+   */
+  public final void removeMembership (final String group, final String networkInterfaceName)
+  {
+    removeMembership (new Membership (group, networkInterfaceName));
+  }
+  
+  /** A (group address, network interface) pair joined by the socket or the channel.
+   * 
+   * <p>
+   * The network interface is {@code null} for the default interface with the {@link Engine#SOCKET} engine.
+   * 
+   */
+  private static final class JoinedGroup
+  {
+    
+    private final InetAddress groupAddress;
+    
+    private final NetworkInterface networkInterface;
+    
+    // The channel membership key, if applicable.
+    private MembershipKey membershipKey = null;
+    
+    // The number of (primary or additional) memberships sharing this join.
+    private int references = 0;
+    
+    private JoinedGroup (final InetAddress groupAddress, final NetworkInterface networkInterface)
+    {
+      this.groupAddress = groupAddress;
+      this.networkInterface = networkInterface;
+    }
+    
+    private boolean matches (final InetAddress groupAddress, final NetworkInterface networkInterface)
+    {
+      return this.groupAddress.equals (groupAddress) && Objects.equals (this.networkInterface, networkInterface);
+    }
+    
+  }
+  
+  // The (group address, network interface) pairs currently joined by the socket or the channel.
+  // A pair is joined once, and shared (reference counted) between the primary group and the additional memberships:
+  // DatagramChannel.join returns the existing key for a pair already joined (so dropping it for one would drop it for all),
+  // and MulticastSocket.joinGroup refuses to join a pair twice.
+  private final Set<JoinedGroup> joinedGroups = new LinkedHashSet<> ();
+  
+  // The join of the primary group; null if the service is not active.
+  private JoinedGroup joinedPrimaryGroup = null;
+  
+  // The additional memberships currently joined, with their joins.
+  private final Map<Membership, JoinedGroup> joinedMemberships = new LinkedHashMap<> ();
+  
+  /** Joins a group on a network interface on the current socket or channel, or shares an existing join.
+   * 
+   * @param groupAddress     The group address.
+   * @param networkInterface The network interface, {@code null} for the default interface with the {@link Engine#SOCKET} engine.
+   * 
+   * @return The (new or shared) join.
+   * 
+   * @throws IOException If joining failed, or if neither socket nor channel is present.
+   * 
+   */
+  private JoinedGroup acquireGroup (final InetAddress groupAddress, final NetworkInterface networkInterface)
+    throws IOException
+  {
+    for (final JoinedGroup joinedGroup : this.joinedGroups)
+      if (joinedGroup.matches (groupAddress, networkInterface))
+      {
+        joinedGroup.references++;
+        return joinedGroup;
+      }
+    final JoinedGroup joinedGroup = new JoinedGroup (groupAddress, networkInterface);
+    if (this.udpRxSocket != null)
+    {
+      if (networkInterface == null)
+        this.udpRxSocket.joinGroup (groupAddress);
+      else
+        this.udpRxSocket.joinGroup (new InetSocketAddress (groupAddress, 0), networkInterface);
+    }
+    else if (this.udpChannel != null)
+      joinedGroup.membershipKey = this.udpChannel.join (groupAddress, networkInterface);
+    else
+      throw new IOException ("No socket or channel!");
+    joinedGroup.references = 1;
+    this.joinedGroups.add (joinedGroup);
+    return joinedGroup;
+  }
+  
+  /** Releases a join; leaves the group if it is no longer shared.
+   * 
+   * @param joinedGroup The join.
+   * 
+   * @throws IOException If leaving the group failed.
+   * 
+   */
+  private void releaseGroup (final JoinedGroup joinedGroup) throws IOException
+  {
+    if (! this.joinedGroups.contains (joinedGroup) || --joinedGroup.references > 0)
+      return;
+    this.joinedGroups.remove (joinedGroup);
+    if (joinedGroup.membershipKey != null)
+      joinedGroup.membershipKey.drop ();
+    else if (this.udpRxSocket != null)
+    {
+      if (joinedGroup.networkInterface == null)
+        this.udpRxSocket.leaveGroup (joinedGroup.groupAddress);
+      else
+        this.udpRxSocket.leaveGroup (new InetSocketAddress (joinedGroup.groupAddress, 0), joinedGroup.networkInterface);
+    }
+  }
+  
+  /** Returns the network interface of a membership.
+   * 
+   * @param membership The membership.
+   * 
+   * @return The network interface, {@code null} for the default interface with the {@link Engine#SOCKET} engine.
+   * 
+   * @throws IOException If the interface does not exist, or no default interface could be found.
+   * 
+   */
+  private NetworkInterface getNetworkInterface (final Membership membership) throws IOException
+  {
+    if (membership.getNetworkInterfaceName () != null)
+    {
+      final NetworkInterface networkInterface = NetworkInterface.getByName (membership.getNetworkInterfaceName ());
+      if (networkInterface == null)
+        throw new IOException ("No such network interface: " + membership.getNetworkInterfaceName ());
+      return networkInterface;
+    }
+    if (this.udpChannel == null)
+      return null;
+    final NetworkInterface networkInterface = getDefaultMulticastInterface ();
+    if (networkInterface == null)
+      throw new IOException ("No multicast-capable network interface!");
+    return networkInterface;
+  }
+  
+  /** Joins an additional membership on the current socket or channel; logs failures.
+   * 
+   * <p>
+   * A membership that resolves to a group and interface already joined
+   * (e.g., the primary group on the default interface) shares that join.
+   * 
+   * @param membership The membership.
+   * 
+   */
+  private void joinMembership (final Membership membership)
+  {
+    if (this.joinedMemberships.containsKey (membership))
+      return;
+    try
+    {
+      final InetAddress groupAddress = InetAddress.getByName (membership.getGroup ());
+      final NetworkInterface networkInterface = getNetworkInterface (membership);
+      this.joinedMemberships.put (membership, acquireGroup (groupAddress, networkInterface));
+    }
+    catch (IOException | IllegalArgumentException | UnsupportedOperationException e)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} on Instance {1} failed to join {2}: {3}!",
+        new Object[]{this.getClass ().getSimpleName (), this, membership, e});
+    }
+  }
+  
+  /** Leaves an additional membership on the current socket or channel; logs failures.
+   * 
+   * <p>
+   * The group is only left if its join is not shared with the primary group or another membership.
+   * 
+   * @param membership The membership.
+   * 
+   */
+  private void leaveMembership (final Membership membership)
+  {
+    if (! this.joinedMemberships.containsKey (membership))
+      return;
+    final JoinedGroup joinedGroup = this.joinedMemberships.remove (membership);
+    try
+    {
+      releaseGroup (joinedGroup);
+    }
+    catch (IOException | IllegalArgumentException e)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} on Instance {1} failed to leave {2}: {3}!",
+        new Object[]{this.getClass ().getSimpleName (), this, membership, e});
+    }
+  }
+  
+  /** Leaves the current (primary) group, joins the given one, and redirects transmission to it.
+   * 
+   * <p>
+   * Nothing is changed if the group resolves to the current group address (e.g., an alias).
+   * The new group is joined before the old group is left;
+   * either join is shared with additional memberships on the same group and interface.
+   * 
+   * @param group The new group.
+   * 
+   * @throws IOException If resolving or joining the new group, or leaving the old group failed.
+   * 
+   */
+  private void switchGroup (final String group) throws IOException
+  {
+    final InetSocketAddress oldAddress = this.udpTxAddress;
+    final InetSocketAddress newAddress = new InetSocketAddress (InetAddress.getByName (group), this.port);
+    if (newAddress.equals (oldAddress))
+      return;
+    final JoinedGroup oldJoinedGroup = this.joinedPrimaryGroup;
+    this.joinedPrimaryGroup = acquireGroup (newAddress.getAddress (), oldJoinedGroup.networkInterface);
+    releaseGroup (oldJoinedGroup);
+    this.udpTxAddress = newAddress;
+    if (this.udpTxThread != null)
+      this.udpTxThread.udpTxAddress = newAddress;
+    if (this.udpChannelEndpoint != null)
+      this.udpChannelEndpoint.udpTxAddress = newAddress;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private volatile int port; // Set by constructor; no real reasonable default value.
+  
+  /** Returns the UDP port.
+   * 
+   * @return The UDP port.
+   * 
+   */
+  public final synchronized int getPort ()
+  {
+    return this.port;
+  }
+  
+  /** Sets the UDP port.
+   * 
+   * <p>
+   * If the port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param port The UDP port.
+   * 
+   * @throws IllegalArgumentException If {@code port < 0}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setPort (final int port)
+  {
+    if (port < 0)
+      throw new IllegalArgumentException ();
+    if (this.port != port)
+    {
+      this.port = port;
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SOCKET OPTIONS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "receive buffer size" property.
+   * 
+   */
+  public static final String RECEIVE_BUFFER_SIZE_PROPERTY_NAME = "receiveBufferSize";
+  
+  private volatile int receiveBufferSize = 0;
+  
+  /** Returns the requested size of the kernel receive buffer ({@code SO_RCVBUF}).
+   * 
+   * @return The requested receive buffer size in bytes, zero for the system default.
+   * 
+   * @see #setReceiveBufferSize
+   * @see #getEffectiveReceiveBufferSize
+   * 
+   */
+  public final synchronized int getReceiveBufferSize ()
+  {
+    return this.receiveBufferSize;
+  }
+  
+  /** Sets the requested size of the kernel receive buffer ({@code SO_RCVBUF}).
+   * 
+   * <p>
+   * A larger receive buffer absorbs bursts of datagrams (e.g., SysEx dumps)
+   * that would otherwise be dropped by the kernel before reaching this service.
+   * The operating system may grant a different (typically capped, sometimes doubled) size;
+   * see {@link #getEffectiveReceiveBufferSize}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately, without restarting the service.
+   * 
+   * @param receiveBufferSize The requested receive buffer size in bytes, zero for the system default.
+   * 
+   * @throws IllegalArgumentException If {@code receiveBufferSize < 0}.
+   * 
+   */
+  public final synchronized void setReceiveBufferSize (final int receiveBufferSize)
+  {
+    if (receiveBufferSize < 0)
+      throw new IllegalArgumentException ();
+    if (this.receiveBufferSize != receiveBufferSize)
+    {
+      final int oldReceiveBufferSize = this.receiveBufferSize;
+      this.receiveBufferSize = receiveBufferSize;
+      fireSettingsChanged (RECEIVE_BUFFER_SIZE_PROPERTY_NAME, oldReceiveBufferSize, this.receiveBufferSize);
+      applySocketOptionsIfActive ();
+    }
+  }
+  
+  /** The name of the "send buffer size" property.
+   * 
+   */
+  public static final String SEND_BUFFER_SIZE_PROPERTY_NAME = "sendBufferSize";
+  
+  private volatile int sendBufferSize = 0;
+  
+  /** Returns the requested size of the kernel send buffer ({@code SO_SNDBUF}).
+   * 
+   * @return The requested send buffer size in bytes, zero for the system default.
+   * 
+   * @see #setSendBufferSize
+   * @see #getEffectiveSendBufferSize
+   * 
+   */
+  public final synchronized int getSendBufferSize ()
+  {
+    return this.sendBufferSize;
+  }
+  
+  /** Sets the requested size of the kernel send buffer ({@code SO_SNDBUF}).
+   * 
+   * <p>
+   * The operating system may grant a different size; see {@link #getEffectiveSendBufferSize}.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately, without restarting the service.
+   * 
+   * @param sendBufferSize The requested send buffer size in bytes, zero for the system default.
+   * 
+   * @throws IllegalArgumentException If {@code sendBufferSize < 0}.
+   * 
+   */
+  public final synchronized void setSendBufferSize (final int sendBufferSize)
+  {
+    if (sendBufferSize < 0)
+      throw new IllegalArgumentException ();
+    if (this.sendBufferSize != sendBufferSize)
+    {
+      final int oldSendBufferSize = this.sendBufferSize;
+      this.sendBufferSize = sendBufferSize;
+      fireSettingsChanged (SEND_BUFFER_SIZE_PROPERTY_NAME, oldSendBufferSize, this.sendBufferSize);
+      applySocketOptionsIfActive ();
+    }
+  }
+  
+  /** The name of the "time to live" property.
+   * 
+   */
+  public static final String TIME_TO_LIVE_PROPERTY_NAME = "timeToLive";
+  
+  /** The default time-to-live of transmitted multicast datagrams; restricts them to the local subnet.
+   * 
+   */
+  public static final int DEFAULT_TIME_TO_LIVE = 1;
+  
+  private volatile int timeToLive = UdpMulticastService.DEFAULT_TIME_TO_LIVE;
+  
+  /** Returns the time-to-live of transmitted multicast datagrams ({@code IP_MULTICAST_TTL}).
+   * 
+   * @return The time-to-live, between zero and 255 inclusive.
+   * 
+   * @see #setTimeToLive
+   * 
+   */
+  public final synchronized int getTimeToLive ()
+  {
+    return this.timeToLive;
+  }
+  
+  /** Sets the time-to-live of transmitted multicast datagrams ({@code IP_MULTICAST_TTL}).
+   * 
+   * <p>
+   * A value of zero restricts datagrams to the local host, one to the local subnet;
+   * larger values allow datagrams to cross multicast routers.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately, without restarting the service.
+   * 
+   * @param timeToLive The time-to-live, between zero and 255 inclusive.
+   * 
+   * @throws IllegalArgumentException If the time-to-live is out of range.
+   * 
+   */
+  public final synchronized void setTimeToLive (final int timeToLive)
+  {
+    if (timeToLive < 0 || timeToLive > 255)
+      throw new IllegalArgumentException ();
+    if (this.timeToLive != timeToLive)
+    {
+      final int oldTimeToLive = this.timeToLive;
+      this.timeToLive = timeToLive;
+      fireSettingsChanged (TIME_TO_LIVE_PROPERTY_NAME, oldTimeToLive, this.timeToLive);
+      applySocketOptionsIfActive ();
+    }
+  }
+  
+  /** The name of the "loopback" property.
+   * 
+   */
+  public static final String LOOPBACK_PROPERTY_NAME = "loopback";
+  
+  private volatile boolean loopback = false;
+  
+  /** Returns whether transmitted multicast datagrams are looped back to the local host ({@code IP_MULTICAST_LOOP}).
+   * 
+   * @return Whether loopback is enabled.
+   * 
+   * @see #setLoopback
+   * 
+   */
+  public final synchronized boolean isLoopback ()
+  {
+    return this.loopback;
+  }
+  
+  /** Enables or disables loopback of transmitted multicast datagrams to the local host ({@code IP_MULTICAST_LOOP}).
+   * 
+   * <p>
+   * Loopback is disabled by default.
+   * Enable it to reach other services (e.g., other applications) on the same host;
+   * note that this service then also receives its own datagrams.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately, without restarting the service.
+   * 
+   * @param loopback Whether loopback is enabled.
+   * 
+   */
+  public final synchronized void setLoopback (final boolean loopback)
+  {
+    if (this.loopback != loopback)
+    {
+      this.loopback = loopback;
+      fireSettingsChanged (LOOPBACK_PROPERTY_NAME, ! this.loopback, this.loopback);
+      applySocketOptionsIfActive ();
+    }
+  }
+  
+  /** The name of the "traffic class" property.
+   * 
+   */
+  public static final String TRAFFIC_CLASS_PROPERTY_NAME = "trafficClass";
+  
+  /** The traffic class for DSCP Expedited Forwarding (EF, 46), suitable for low-latency real-time traffic.
+   * 
+   * @see #setTrafficClass
+   * 
+   */
+  public static final int TRAFFIC_CLASS_DSCP_EF = 46 << 2;
+  
+  private volatile int trafficClass = 0;
+  
+  /** Returns the traffic class (type-of-service) of transmitted datagrams ({@code IP_TOS}).
+   * 
+   * @return The traffic class, between zero and 255 inclusive.
+   * 
+   * @see #setTrafficClass
+   * 
+   */
+  public final synchronized int getTrafficClass ()
+  {
+    return this.trafficClass;
+  }
+  
+  /** Sets the traffic class (type-of-service) of transmitted datagrams ({@code IP_TOS}).
+   * 
+   * <p>
+   * The upper six bits hold the Differentiated Services Code Point (DSCP),
+   * e.g., {@link #TRAFFIC_CLASS_DSCP_EF}; the lower two bits are used for ECN.
+   * The network (and the operating system) may ignore the setting.
+   * 
+   * <p>
+   * If the service is active, the setting is applied immediately, without restarting the service.
+   * 
+   * @param trafficClass The traffic class, between zero and 255 inclusive.
+   * 
+   * @throws IllegalArgumentException If the traffic class is out of range.
+   * 
+   */
+  public final synchronized void setTrafficClass (final int trafficClass)
+  {
+    if (trafficClass < 0 || trafficClass > 255)
+      throw new IllegalArgumentException ();
+    if (this.trafficClass != trafficClass)
+    {
+      final int oldTrafficClass = this.trafficClass;
+      this.trafficClass = trafficClass;
+      fireSettingsChanged (TRAFFIC_CLASS_PROPERTY_NAME, oldTrafficClass, this.trafficClass);
+      applySocketOptionsIfActive ();
+    }
+  }
+  
+  /** Applies the socket options to the current socket or channel (if any).
+   * 
+   * <p>
+   * Logs (at level {@link Level#WARNING}) if the receive or send buffer size granted
+   * is smaller than the size requested.
+   * 
+   * @throws IOException If setting an option failed.
+   * 
+   */
+  private void applySocketOptions () throws IOException
+  {
+    if (this.udpRxSocket != null)
+    {
+      if (this.receiveBufferSize > 0)
+        this.udpRxSocket.setReceiveBufferSize (this.receiveBufferSize);
+      if (this.sendBufferSize > 0)
+        this.udpRxSocket.setSendBufferSize (this.sendBufferSize);
+      this.udpRxSocket.setTimeToLive (this.timeToLive);
+      // Note the inverted semantics: true means 'loopback disabled'.
+      this.udpRxSocket.setLoopbackMode (! this.loopback);
+      this.udpRxSocket.setTrafficClass (this.trafficClass);
+    }
+    else if (this.udpChannel != null)
+    {
+      if (this.receiveBufferSize > 0)
+        this.udpChannel.setOption (StandardSocketOptions.SO_RCVBUF, this.receiveBufferSize);
+      if (this.sendBufferSize > 0)
+        this.udpChannel.setOption (StandardSocketOptions.SO_SNDBUF, this.sendBufferSize);
+      this.udpChannel.setOption (StandardSocketOptions.IP_MULTICAST_TTL, this.timeToLive);
+      this.udpChannel.setOption (StandardSocketOptions.IP_MULTICAST_LOOP, this.loopback);
+      this.udpChannel.setOption (StandardSocketOptions.IP_TOS, this.trafficClass);
+    }
+    else
+      return;
+    final int effectiveReceiveBufferSize = getEffectiveReceiveBufferSize ();
+    final int effectiveSendBufferSize = getEffectiveSendBufferSize ();
+    if (effectiveReceiveBufferSize < this.receiveBufferSize || effectiveSendBufferSize < this.sendBufferSize)
+      LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: buffer sizes granted (Rx {2}, Tx {3})"
+        + " are smaller than requested (Rx {4}, Tx {5})!",
+        new Object[]{this.getClass ().getSimpleName (), this,
+                     effectiveReceiveBufferSize, effectiveSendBufferSize, this.receiveBufferSize, this.sendBufferSize});
+  }
+  
+  /** Applies the socket options if the service is active; logs failures.
+   * 
+   */
+  private void applySocketOptionsIfActive ()
+  {
+    if (getStatus () != Status.ACTIVE)
+      return;
+    try
+    {
+      applySocketOptions ();
+    }
+    catch (IOException | IllegalArgumentException e)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} on Instance {1} failed to apply socket options: {2}!",
+        new Object[]{this.getClass ().getSimpleName (), this, e});
+    }
+  }
+  
+  /** Returns the size of the kernel receive buffer actually granted by the operating system.
+   * 
+   * @return The effective receive buffer size in bytes, -1 if the service is not active or the size could not be obtained.
+   * 
+   * @see #setReceiveBufferSize
+   * 
+   */
+  public final synchronized int getEffectiveReceiveBufferSize ()
+  {
+    try
+    {
+      if (this.udpRxSocket != null)
+        return this.udpRxSocket.getReceiveBufferSize ();
+      else if (this.udpChannel != null)
+        return this.udpChannel.getOption (StandardSocketOptions.SO_RCVBUF);
+    }
+    catch (IOException ioe)
+    {
+      // EMPTY
+    }
+    return -1;
+  }
+  
+  /** Returns the size of the kernel send buffer actually granted by the operating system.
+   * 
+   * @return The effective send buffer size in bytes, -1 if the service is not active or the size could not be obtained.
+   * 
+   * @see #setSendBufferSize
+   * 
+   */
+  public final synchronized int getEffectiveSendBufferSize ()
+  {
+    try
+    {
+      if (this.udpRxSocket != null)
+        return this.udpRxSocket.getSendBufferSize ();
+      else if (this.udpChannel != null)
+        return this.udpChannel.getOption (StandardSocketOptions.SO_SNDBUF);
+    }
+    catch (IOException ioe)
+    {
+      // EMPTY
+    }
+    return -1;
+  }
+  
+  /** Returns the multicast time-to-live actually in effect.
+   * 
+   * @return The effective time-to-live, -1 if the service is not active or the value could not be obtained.
+   * 
+   * @see #setTimeToLive
+   * 
+   */
+  public final synchronized int getEffectiveTimeToLive ()
+  {
+    try
+    {
+      if (this.udpRxSocket != null)
+        return this.udpRxSocket.getTimeToLive ();
+      else if (this.udpChannel != null)
+        return this.udpChannel.getOption (StandardSocketOptions.IP_MULTICAST_TTL);
+    }
+    catch (IOException ioe)
+    {
+      // EMPTY
+    }
+    return -1;
+  }
+  
+  /** Returns whether loopback of multicast datagrams is actually in effect.
+   * 
+   * @return Whether loopback is in effect, {@code null} if the service is not active or the value could not be obtained.
+   * 
+   * @see #setLoopback
+   * 
+   */
+  public final synchronized Boolean getEffectiveLoopback ()
+  {
+    try
+    {
+      if (this.udpRxSocket != null)
+        return ! this.udpRxSocket.getLoopbackMode ();
+      else if (this.udpChannel != null)
+        return this.udpChannel.getOption (StandardSocketOptions.IP_MULTICAST_LOOP);
+    }
+    catch (IOException ioe)
+    {
+      // EMPTY
+    }
+    return null;
+  }
+  
+  /** Returns the traffic class actually in effect.
+   * 
+   * @return The effective traffic class, -1 if the service is not active or the value could not be obtained.
+   * 
+   * @see #setTrafficClass
+   * 
+   */
+  public final synchronized int getEffectiveTrafficClass ()
+  {
+    try
+    {
+      if (this.udpRxSocket != null)
+        return this.udpRxSocket.getTrafficClass ();
+      else if (this.udpChannel != null)
+        return this.udpChannel.getOption (StandardSocketOptions.IP_TOS);
+    }
+    catch (IOException ioe)
+    {
+      // EMPTY
+    }
+    return -1;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ENGINE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The transport engine used by a {@link UdpMulticastService}.
+   * 
+   */
+  public enum Engine
+  {
+    /** Blocking {@link MulticastSocket} with dedicated reception, delivery and transmission threads.
+     * 
+     */
+    SOCKET,
+    /** Non-blocking {@link DatagramChannel} with a {@link MembershipKey}, driven by the process-wide {@link UdpMulticastReactor}.
+     * 
+     * <p>
+     * Received datagrams are read into a reusable direct {@link ByteBuffer},
+     * and delivered to listeners from the (shared) reactor thread.
+     * 
+     */
+    CHANNEL;
+  }
+  
+  /** The name of the "engine" property.
+   * 
+   */
+  public static final String ENGINE_PROPERTY_NAME = "engine";
+  
+  private volatile Engine engine; // Set by constructor.
+  
+  /** Returns the transport engine.
+   * 
+   * @return The transport engine, non-{@code null}.
+   * 
+   */
+  public final synchronized Engine getEngine ()
+  {
+    return this.engine;
+  }
+  
+  /** Sets the transport engine.
+   * 
+   * <p>
+   * If the engine has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param engine The transport engine.
+   * 
+   * @throws IllegalArgumentException If {@code engine == null}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setEngine (final Engine engine)
+  {
+    if (engine == null)
+      throw new IllegalArgumentException ();
+    if (this.engine != engine)
+    {
+      final Engine oldEngine = this.engine;
+      this.engine = engine;
+      fireSettingsChanged (ENGINE_PROPERTY_NAME, oldEngine, this.engine);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PACKING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "packing" property.
+   * 
+   */
+  public static final String PACKING_PROPERTY_NAME = "packing";
+  
+  private volatile boolean packing = false;
+  
+  /** Returns whether packing of multiple messages into a single datagram is enabled.
+   * 
+   * @return Whether packing is enabled.
+   * 
+   * @see #setPacking
+   * 
+   */
+  public final synchronized boolean isPacking ()
+  {
+    return this.packing;
+  }
+  
+  /** Enables or disables packing of multiple messages into a single datagram.
+   * 
+   * <p>
+   * With packing enabled, the transmitter drains the transmit buffer and packs the messages it finds
+   * into a single datagram, up to the packing MTU.
+   * A packed datagram starts with a header of {@link #PACKING_HEADER_SIZE} bytes:
+   * two magic bytes ({@code 0xFD 0x50}) and a flags byte (see {@link #setPackingRunningStatus}).
+   * The header is followed by the messages, each prefixed with its length
+   * (unsigned, in groups of seven bits, least-significant group first,
+   * with the most-significant bit set on all but the last byte).
+   * With the {@link Engine#SOCKET} engine, once a burst is detected (i.e., a second message is already waiting),
+   * the transmitter waits at most the packing flush latency
+   * (measured from the first message in the datagram) for more messages to arrive;
+   * an isolated message is sent at once;
+   * the {@link Engine#CHANNEL} engine only packs messages already present in the transmit buffer.
+   * 
+   * <p>
+   * With packing enabled, the receiver unpacks received datagrams that start with a valid packing header
+   * and consist entirely of length-prefixed messages,
+   * and notifies listeners of each message separately.
+   * Other datagrams (e.g., from a peer with packing disabled) are delivered as is.
+   * For MIDI messages, which never start with {@code 0xFD}, this is unambiguous;
+   * for arbitrary payloads, a message starting with the magic bytes could be mistaken for a packed datagram,
+   * and peers exchanging such payloads must have packing disabled.
+   * Conversely, a receiver with packing disabled delivers packed datagrams as is;
+   * hence, all peers should use the same setting.
+   * 
+   * <p>
+   * The setting takes effect immediately; a restart is not required.
+   * 
+   * @param packing Whether packing is enabled.
+   * 
+   * @see #setPackingMtu
+   * @see #setPackingFlushLatency
+   * 
+   */
+  public final synchronized void setPacking (final boolean packing)
+  {
+    if (this.packing != packing)
+    {
+      this.packing = packing;
+      fireSettingsChanged (PACKING_PROPERTY_NAME, ! this.packing, this.packing);
+    }
+  }
+  
+  /** The name of the "packing MTU" property.
+   * 
+   */
+  public static final String PACKING_MTU_PROPERTY_NAME = "packingMtu";
+  
+  /** The default packing MTU; an Ethernet MTU minus the IPv4 and UDP headers.
+   * 
+   */
+  public static final int DEFAULT_PACKING_MTU = 1472;
+  
+  /** The minimum packing MTU.
+   * 
+   */
+  public static final int MIN_PACKING_MTU = 16;
+  
+  /** The maximum packing MTU; the size of the reception buffer.
+   * 
+   */
+  public static final int MAX_PACKING_MTU = UdpRxThread.BUFFER_SIZE;
+  
+  private volatile int packingMtu = UdpMulticastService.DEFAULT_PACKING_MTU;
+  
+  /** Returns the maximum size of a datagram holding packed messages.
+   * 
+   * @return The packing MTU (in bytes).
+   * 
+   * @see #setPacking
+   * 
+   */
+  public final synchronized int getPackingMtu ()
+  {
+    return this.packingMtu;
+  }
+  
+  /** Sets the maximum size of a datagram holding packed messages.
+   * 
+   * <p>
+   * A single message that does not fit in the packing MTU is sent in a datagram of its own.
+   * 
+   * @param packingMtu The packing MTU (in bytes).
+   * 
+   * @throws IllegalArgumentException If the MTU is smaller than {@link #MIN_PACKING_MTU}
+   *                                  or larger than {@link #MAX_PACKING_MTU}.
+   * 
+   */
+  public final synchronized void setPackingMtu (final int packingMtu)
+  {
+    if (packingMtu < UdpMulticastService.MIN_PACKING_MTU || packingMtu > UdpMulticastService.MAX_PACKING_MTU)
+      throw new IllegalArgumentException ();
+    if (this.packingMtu != packingMtu)
+    {
+      final int oldPackingMtu = this.packingMtu;
+      this.packingMtu = packingMtu;
+      fireSettingsChanged (PACKING_MTU_PROPERTY_NAME, oldPackingMtu, this.packingMtu);
+    }
+  }
+  
+  /** The name of the "packing flush latency" property.
+   * 
+   */
+  public static final String PACKING_FLUSH_LATENCY_PROPERTY_NAME = "packingFlushLatency";
+  
+  /** The default packing flush latency (in microseconds).
+   * 
+   */
+  public static final int DEFAULT_PACKING_FLUSH_LATENCY = 1000;
+  
+  private volatile int packingFlushLatency = UdpMulticastService.DEFAULT_PACKING_FLUSH_LATENCY;
+  
+  /** Returns the maximum time the transmitter waits for more messages to pack into a datagram.
+   * 
+   * @return The packing flush latency (in microseconds), non-negative.
+   * 
+   * @see #setPacking
+   * 
+   */
+  public final synchronized int getPackingFlushLatency ()
+  {
+    return this.packingFlushLatency;
+  }
+  
+  /** Sets the maximum time the transmitter waits for more messages to pack into a datagram.
+   * 
+   * <p>
+   * The transmitter only waits within a burst:
+   * if the transmit buffer is empty right after the first message of a datagram has been taken,
+   * that message is sent at once, so isolated (live) messages incur no extra latency.
+   * Otherwise, the transmitter keeps packing messages as they arrive,
+   * until the datagram is full or the packing flush latency has elapsed since the first message.
+   * A larger value yields fewer (larger) datagrams during sustained bursts,
+   * at the expense of delaying the first messages of each datagram by up to that value;
+   * a value of zero means that only messages already present in the transmit buffer are packed.
+   * Applies to the {@link Engine#SOCKET} engine only.
+   * 
+   * @param packingFlushLatency The packing flush latency (in microseconds).
+   * 
+   * @throws IllegalArgumentException If {@code packingFlushLatency < 0}.
+   * 
+   */
+  public final synchronized void setPackingFlushLatency (final int packingFlushLatency)
+  {
+    if (packingFlushLatency < 0)
+      throw new IllegalArgumentException ();
+    if (this.packingFlushLatency != packingFlushLatency)
+    {
+      final int oldPackingFlushLatency = this.packingFlushLatency;
+      this.packingFlushLatency = packingFlushLatency;
+      fireSettingsChanged (PACKING_FLUSH_LATENCY_PROPERTY_NAME, oldPackingFlushLatency, this.packingFlushLatency);
+    }
+  }
+  
+  /** The name of the "packing running status" property.
+   * 
+   */
+  public static final String PACKING_RUNNING_STATUS_PROPERTY_NAME = "packingRunningStatus";
+  
+  private volatile boolean packingRunningStatus = false;
+  
+  /** Returns whether packed messages may omit their first byte if it equals that of the previous message in the datagram.
+   * 
+   * @return Whether running status is applied to packed datagrams.
+   * 
+   * @see #setPackingRunningStatus
+   * 
+   */
+  public final synchronized boolean isPackingRunningStatus ()
+  {
+    return this.packingRunningStatus;
+  }
+  
+  /** Enables or disables omission of the first byte of packed messages that equals that of the previous message.
+   * 
+   * <p>
+   * With running status enabled, the transmitter sets the running-status flag ({@code 0x01}) in the packing header,
+   * and the length prefix of each packed message holds twice the number of bytes stored,
+   * plus one if the first byte of the message is omitted.
+   * A message is stored without its first byte if it is not the first message in the datagram,
+   * has at least two bytes, and starts with the same byte as the previous message;
+   * the receiver restores the byte from the previous message.
+   * For MIDI, this is the running status of the MIDI 1.0 byte stream, saving a byte on most messages
+   * in bursts of, e.g., Control Change or Note On messages on a single channel;
+   * unlike on a byte stream, omission is explicit, and each datagram is self-contained.
+   * 
+   * <p>
+   * The setting only affects transmission, and only if packing is enabled;
+   * a receiver with packing enabled always accepts both forms.
+   * Peers not supporting the flag deliver such datagrams as is; hence, all peers should support it.
+   * The setting takes effect immediately; a restart is not required.
+   * 
+   * @param packingRunningStatus Whether running status is applied to packed datagrams.
+   * 
+   * @see #setPacking
+   * 
+   */
+  public final synchronized void setPackingRunningStatus (final boolean packingRunningStatus)
+  {
+    if (this.packingRunningStatus != packingRunningStatus)
+    {
+      this.packingRunningStatus = packingRunningStatus;
+      fireSettingsChanged (PACKING_RUNNING_STATUS_PROPERTY_NAME, ! this.packingRunningStatus, this.packingRunningStatus);
+    }
+  }
+  
+  /** The size of the header of a packed datagram in bytes.
+   * 
+   * @see #setPacking
+   * 
+   */
+  public static final int PACKING_HEADER_SIZE = UdpPacking.HEADER_SIZE;
+  
+  private final AtomicLong emptyPayloadCount = new AtomicLong ();
+  
+  /** Returns the number of empty datagram payloads received (and ignored).
+   * 
+   * <p>
+   * Empty payloads result from zero-length datagrams, or from framed datagrams consisting of the framing header only.
+   * They are not delivered to the listeners.
+   * 
+   * @return The number of empty datagram payloads received.
+   * 
+   */
+  public final long getEmptyPayloadCount ()
+  {
+    return this.emptyPayloadCount.get ();
+  }
+  
+  // Delivers unpacked messages to the listeners; allocated once.
+  private final UdpPacking.MessageSink messageSink = this::fireMessageReceived;
+  
+  /** Delivers a received datagram to the listeners, unframing and unpacking it if framing and packing are enabled.
+   * 
+   * <p>
+   * Records the latency between reception and delivery in the receive latency histogram.
+   * 
+   * @param datagram  The datagram between position and limit, non-{@code null} and read-only.
+   * @param timestamp The reception timestamp of the datagram, see {@link System#nanoTime}.
+   * 
+   * @see #setFraming
+   * @see #setPacking
+   * @see #getRxLatencyHistogram
+   * 
+   */
+  private void deliverDatagram (final ByteBuffer datagram, final long timestamp)
+  {
+    this.rxLatencyHistogram.recordSince (timestamp);
+    if (this.framing && ! UdpFraming.unframe (datagram, timestamp, this.frameReceiver))
+      return;
+    deliverPayload (datagram, timestamp);
+  }
+  
+  /** Delivers a (unframed) datagram payload to the listeners, unpacking it if packing is enabled.
+   * 
+   * @param datagram  The payload between position and limit, non-{@code null} and read-only.
+   * @param timestamp The reception timestamp of the datagram, see {@link System#nanoTime}.
+   * 
+   * @see #setPacking
+   * @see #fireMessageReceived(ByteBuffer, long)
+   * @see #getEmptyPayloadCount
+   * 
+   */
+  private void deliverPayload (final ByteBuffer datagram, final long timestamp)
+  {
+    if (! datagram.hasRemaining ())
+    {
+      this.emptyPayloadCount.incrementAndGet ();
+      return;
+    }
+    if (this.packing && UdpPacking.isPacked (datagram))
+      UdpPacking.unpack (datagram, timestamp, this.messageSink);
+    else
+      fireMessageReceived (datagram, timestamp);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // FRAMING / SEQUENCE NUMBERS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "framing" property.
+   * 
+   */
+  public static final String FRAMING_PROPERTY_NAME = "framing";
+  
+  private volatile boolean framing = false;
+  
+  /** Returns whether datagrams are framed with a header carrying a sender id and a sequence number.
+   * 
+   * @return Whether framing is enabled.
+   * 
+   * @see #setFraming
+   * 
+   */
+  public final synchronized boolean isFraming ()
+  {
+    return this.framing;
+  }
+  
+  /** Enables or disables framing of datagrams with a header carrying a sender id and a sequence number.
+   * 
+   * <p>
+   * With framing enabled, the transmitter prefixes each datagram with a header of {@link #FRAME_HEADER_SIZE} bytes:
+   * two magic bytes ({@code 0xFD 0x4A}), a flags byte,
+   * the sender id and the datagram sequence number (both four bytes, big-endian).
+   * The header precedes the redundancy block (if any) and the (possibly packed) payload,
+   * and counts towards the packing MTU.
+   * 
+   * <p>
+   * With framing enabled, the receiver strips the header from received datagrams,
+   * and maintains per-sender reception statistics (lost, duplicate and reordered datagrams) from the sequence numbers.
+   * Datagrams without a valid header (e.g., from a peer with framing disabled) are delivered as is,
+   * and counted, see {@link #getUnframedCount}.
+   * Since the first magic byte is not a valid start of a MIDI message, this fallback is unambiguous for MIDI messages;
+   * for arbitrary payloads, a message starting with the magic bytes would be mistaken for a framed datagram.
+   * Duplicate datagrams are dropped.
+   * 
+   * <p>
+   * All peers should use the same setting.
+   * The setting takes effect immediately; a restart is not required.
+   * 
+   * @param framing Whether framing is enabled.
+   * 
+   * @see #getSenderId
+   * @see #getSenderStatistics
+   * 
+   */
+  public final synchronized void setFraming (final boolean framing)
+  {
+    if (this.framing != framing)
+    {
+      this.framing = framing;
+      fireSettingsChanged (FRAMING_PROPERTY_NAME, ! this.framing, this.framing);
+    }
+  }
+  
+  /** The size of the framing header in bytes.
+   * 
+   * @see #setFraming
+   * 
+   */
+  public static final int FRAME_HEADER_SIZE = UdpFraming.HEADER_SIZE;
+  
+  /** The name of the "sender id" property.
+   * 
+   */
+  public static final String SENDER_ID_PROPERTY_NAME = "senderId";
+  
+  private volatile int senderId = ThreadLocalRandom.current ().nextInt ();
+  
+  /** Returns the sender id put into the framing header of transmitted datagrams.
+   * 
+   * <p>
+   * The sender id is chosen at random upon construction.
+   * 
+   * @return The sender id.
+   * 
+   * @see #setFraming
+   * 
+   */
+  public final synchronized int getSenderId ()
+  {
+    return this.senderId;
+  }
+  
+  /** Sets the sender id put into the framing header of transmitted datagrams.
+   * 
+   * <p>
+   * Peers must use distinct sender ids.
+   * 
+   * @param senderId The sender id.
+   * 
+   * @see #setFraming
+   * 
+   */
+  public final synchronized void setSenderId (final int senderId)
+  {
+    if (this.senderId != senderId)
+    {
+      final int oldSenderId = this.senderId;
+      this.senderId = senderId;
+      fireSettingsChanged (SENDER_ID_PROPERTY_NAME, oldSenderId, this.senderId);
+    }
+  }
+  
+  /** The name of the "redundancy" property.
+   * 
+   */
+  public static final String REDUNDANCY_PROPERTY_NAME = "redundancy";
+  
+  /** The maximum redundancy.
+   * 
+   */
+  public static final int MAX_REDUNDANCY = 8;
+  
+  private volatile int redundancy = 0;
+  
+  /** Returns the number of previous datagram payloads repeated in each (framed) datagram.
+   * 
+   * @return The redundancy, zero if disabled.
+   * 
+   * @see #setRedundancy
+   * 
+   */
+  public final synchronized int getRedundancy ()
+  {
+    return this.redundancy;
+  }
+  
+  /** Sets the number of previous datagram payloads repeated in each (framed) datagram.
+   * 
+   * <p>
+   * With a strictly positive redundancy {@code N} (and framing enabled),
+   * each datagram carries, between its framing header and its payload,
+   * the payloads of (at most) the {@code N} previous datagrams,
+   * as long as the datagram fits in the packing MTU (the payload itself is always included).
+   * The redundancy block consists of the number of entries (one byte),
+   * followed by the entries, oldest first,
+   * each consisting of the distance in sequence numbers to the datagram (one byte)
+   * and the payload with its length prefix (as with packing).
+   * 
+   * <p>
+   * The receiver (with framing enabled) delivers the payloads of redundant entries
+   * for datagrams it has not received (yet), before the payload of the datagram itself,
+   * and drops them otherwise.
+   * Hence, up to {@code N} consecutive lost datagrams are repaired without retransmission,
+   * at the expense of up to {@code N + 1} times the bandwidth.
+   * The receiver accepts redundant datagrams irrespective of its own redundancy setting.
+   * 
+   * <p>
+   * The setting takes effect immediately; a restart is not required.
+   * It has no effect with framing disabled.
+   * 
+   * @param redundancy The redundancy, zero to disable.
+   * 
+   * @throws IllegalArgumentException If the redundancy is negative or exceeds {@link #MAX_REDUNDANCY}.
+   * 
+   * @see #setFraming
+   * @see UdpSenderStatistics#getRecoveredCount
+   * 
+   */
+  public final synchronized void setRedundancy (final int redundancy)
+  {
+    if (redundancy < 0 || redundancy > UdpMulticastService.MAX_REDUNDANCY)
+      throw new IllegalArgumentException ();
+    if (this.redundancy != redundancy)
+    {
+      final int oldRedundancy = this.redundancy;
+      this.redundancy = redundancy;
+      fireSettingsChanged (REDUNDANCY_PROPERTY_NAME, oldRedundancy, this.redundancy);
+    }
+  }
+  
+  // Incremented by the (single) transmitting thread for each framed datagram.
+  private final AtomicInteger txSequence = new AtomicInteger ();
+  
+  /** Frames a payload into a datagram, with the next sequence number and redundant entries as configured.
+   * 
+   * <p>
+   * The payload is added to the history for subsequent datagrams (if redundancy is enabled).
+   * Must only be invoked from the (single) transmitting thread.
+   * 
+   * @param history The transmission history, non-{@code null}.
+   * @param payload The payload (starting at index zero).
+   * @param length  The length of the payload.
+   * @param out     The buffer for the datagram; cleared first, and flipped upon return.
+   *                Its capacity must be at least {@link #FRAME_HEADER_SIZE} plus one plus the length of the payload.
+   * 
+   * @see #setFraming
+   * @see #setRedundancy
+   * 
+   */
+  private void frame (final UdpTxHistory history, final byte[] payload, final int length, final ByteBuffer out)
+  {
+    UdpFraming.frame (history,
+                      this.senderId,
+                      this.txSequence.getAndIncrement (),
+                      this.redundancy,
+                      this.packingMtu,
+                      payload,
+                      length,
+                      out);
+  }
+  
+  private final Map<Integer, UdpSenderStatistics> senderStatistics = new ConcurrentHashMap<> ();
+  
+  // Incremented upon each clear; invalidates lastSenderStatistics.
+  private volatile int senderStatisticsGeneration = 0;
+  
+  /** Returns the reception statistics per sender id.
+   * 
+   * <p>
+   * Statistics are only maintained with framing enabled.
+   * 
+   * @return An unmodifiable (live) view on the reception statistics, keyed by sender id.
+   * 
+   * @see #setFraming
+   * @see #clearSenderStatistics
+   * 
+   */
+  public final Map<Integer, UdpSenderStatistics> getSenderStatistics ()
+  {
+    return Collections.unmodifiableMap (this.senderStatistics);
+  }
+  
+  /** Clears the reception statistics of all senders, and the unframed-datagram count.
+   * 
+   * <p>
+   * Datagrams being delivered concurrently may still be recorded in the (discarded) statistics.
+   * 
+   */
+  public final synchronized void clearSenderStatistics ()
+  {
+    this.senderStatisticsGeneration++;
+    this.senderStatistics.clear ();
+    this.unframedCount.set (0L);
+  }
+  
+  private final AtomicLong unframedCount = new AtomicLong ();
+  
+  /** Returns the number of datagrams received without a valid framing header, while framing was enabled.
+   * 
+   * @return The number of unframed datagrams received.
+   * 
+   * @see #setFraming
+   * 
+   */
+  public final long getUnframedCount ()
+  {
+    return this.unframedCount.get ();
+  }
+  
+  /** Receives the results of unframing datagrams; only accessed from the delivering thread.
+   * 
+   * <p>
+   * Recovered payloads are delivered (and unpacked) like the payloads of received datagrams.
+   * 
+   */
+  private final UdpFraming.Receiver frameReceiver = new UdpFraming.Receiver ()
+  {
+    
+    // Avoids a map lookup (and boxing) for consecutive datagrams of the same sender.
+    private UdpSenderStatistics lastSenderStatistics = null;
+    
+    private int lastSenderStatisticsGeneration = 0;
+    
+    @Override
+    public UdpSenderStatistics getSenderStatistics (final int senderId)
+    {
+      UdpSenderStatistics statistics = this.lastSenderStatistics;
+      final int generation = UdpMulticastService.this.senderStatisticsGeneration;
+      if (statistics == null || statistics.getSenderId () != senderId || this.lastSenderStatisticsGeneration != generation)
+      {
+        statistics = UdpMulticastService.this.senderStatistics.computeIfAbsent (senderId, UdpSenderStatistics::new);
+        this.lastSenderStatistics = statistics;
+        this.lastSenderStatisticsGeneration = generation;
+      }
+      return statistics;
+    }
+    
+    @Override
+    public void unframed ()
+    {
+      UdpMulticastService.this.unframedCount.incrementAndGet ();
+    }
+    
+    @Override
+    public void payloadRecovered (final ByteBuffer payload, final long timestamp)
+    {
+      deliverPayload (payload, timestamp);
+    }
+    
+  };
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // QUEUES / OVERFLOW POLICIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The policy applied when a message is offered to a full reception or transmission queue.
+   * 
+   * @see #setRxOverflowPolicy
+   * @see #setTxOverflowPolicy
+   * 
+   */
+  public enum OverflowPolicy
+  {
+    /** The message offered is dropped.
+     * 
+     */
+    DROP_NEWEST,
+    /** The oldest message in the queue is dropped in favor of the message offered.
+     * 
+     */
+    DROP_OLDEST,
+    /** The producer waits (at most the overflow timeout) for space in the queue;
+     *  the message offered is dropped upon timeout.
+     * 
+     * <p>
+     * A {@link UdpMulticastReactor} thread never waits; for it, this policy behaves as {@link #DROP_NEWEST}.
+     * 
+     * @see #setOverflowTimeout
+     * 
+     */
+    BLOCK,
+    /** A message in the queue with the same key as the message offered is removed,
+     *  and the message offered is appended to the queue;
+     *  if no such message exists, the message offered is dropped.
+     * 
+     * @see #setCoalescingKeyFunction
+     * 
+     */
+    COALESCE;
+  }
+  
+  /** A function yielding the key for coalescing queued messages.
+   * 
+   * @see OverflowPolicy#COALESCE
+   * @see #setCoalescingKeyFunction
+   * 
+   */
+  @FunctionalInterface
+  public interface CoalescingKeyFunction
+  {
+    
+    /** The key of messages that must never be coalesced.
+     * 
+     */
+    long NO_KEY = Long.MIN_VALUE;
+    
+    /** Returns the coalescing key of a message.
+     * 
+     * <p>
+     * The message is the payload handed to {@link #transmit} or delivered to the listeners,
+     * i.e., it never includes a framing or packing header.
+     * Implementations must not retain or modify the array.
+     * 
+     * @param message The array holding the message, non-{@code null}.
+     * @param offset  The offset of the message in the array.
+     * @param length  The length of the message, strictly positive.
+     * 
+     * @return The key, {@link #NO_KEY} if the message must never be coalesced.
+     * 
+     */
+    long getKey (final byte[] message, final int offset, final int length);
+    
+  }
+  
+  /** The name of the "reception-queue capacity" property.
+   * 
+   */
+  public static final String RX_QUEUE_CAPACITY_PROPERTY_NAME = "rxQueueCapacity";
+  
+  private volatile int rxQueueCapacity = UdpMulticastService.UDP_RX_QUEUE_SIZE;
+  
+  /** Returns the capacity of the reception queue.
+   * 
+   * @return The capacity of the reception queue (in messages).
+   * 
+   */
+  public final synchronized int getRxQueueCapacity ()
+  {
+    return this.rxQueueCapacity;
+  }
+  
+  /** Sets the capacity of the reception queue.
+   * 
+   * <p>
+   * The reception queue (and the pool of reception buffers)
+   * only exists with the {@link Engine#SOCKET} engine.
+   * 
+   * <p>
+   * If the capacity has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param rxQueueCapacity The capacity of the reception queue (in messages).
+   * 
+   * @throws IllegalArgumentException If {@code rxQueueCapacity < 1}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setRxQueueCapacity (final int rxQueueCapacity)
+  {
+    if (rxQueueCapacity < 1)
+      throw new IllegalArgumentException ();
+    if (this.rxQueueCapacity != rxQueueCapacity)
+    {
+      final int oldRxQueueCapacity = this.rxQueueCapacity;
+      this.rxQueueCapacity = rxQueueCapacity;
+      fireSettingsChanged (RX_QUEUE_CAPACITY_PROPERTY_NAME, oldRxQueueCapacity, this.rxQueueCapacity);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The name of the "transmission-queue capacity" property.
+   * 
+   */
+  public static final String TX_QUEUE_CAPACITY_PROPERTY_NAME = "txQueueCapacity";
+  
+  private volatile int txQueueCapacity = UdpMulticastService.UDP_TX_QUEUE_SIZE;
+  
+  /** Returns the capacity of the transmission queue.
+   * 
+   * @return The capacity of the transmission queue (in messages).
+   * 
+   */
+  public final synchronized int getTxQueueCapacity ()
+  {
+    return this.txQueueCapacity;
+  }
+  
+  /** Sets the capacity of the transmission queue.
+   * 
+   * <p>
+   * If the capacity has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param txQueueCapacity The capacity of the transmission queue (in messages).
+   * 
+   * @throws IllegalArgumentException If {@code txQueueCapacity < 1}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setTxQueueCapacity (final int txQueueCapacity)
+  {
+    if (txQueueCapacity < 1)
+      throw new IllegalArgumentException ();
+    if (this.txQueueCapacity != txQueueCapacity)
+    {
+      final int oldTxQueueCapacity = this.txQueueCapacity;
+      this.txQueueCapacity = txQueueCapacity;
+      fireSettingsChanged (TX_QUEUE_CAPACITY_PROPERTY_NAME, oldTxQueueCapacity, this.txQueueCapacity);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The implementation of the reception and transmission queues.
+   * 
+   * @see #setRxQueueType
+   * @see #setTxQueueType
+   * 
+   */
+  public enum QueueType
+  {
+    /** A {@link LinkedBlockingQueue}: allocates a node per message, and takes a lock on insertion and removal.
+     * 
+     */
+    LINKED_BLOCKING,
+    /** A lock-free, allocation-free single-producer/single-consumer {@link SpscRingBuffer}.
+     * 
+     * <p>
+     * Only the consumer may remove messages from the queue; hence,
+     * the overflow policies {@link OverflowPolicy#DROP_OLDEST} and {@link OverflowPolicy#COALESCE}
+     * behave as {@link OverflowPolicy#DROP_NEWEST} on such a queue.
+     * 
+     * @see #setQueueWaitStrategy
+     * 
+     */
+    SPSC_RING;
+  }
+  
+  /** The name of the "reception-queue type" property.
+   * 
+   */
+  public static final String RX_QUEUE_TYPE_PROPERTY_NAME = "rxQueueType";
+  
+  private volatile QueueType rxQueueType = QueueType.LINKED_BLOCKING;
+  
+  /** Returns the implementation of the reception queue.
+   * 
+   * @return The reception-queue type, non-{@code null}.
+   * 
+   */
+  public final synchronized QueueType getRxQueueType ()
+  {
+    return this.rxQueueType;
+  }
+  
+  /** Sets the implementation of the reception queue.
+   * 
+   * <p>
+   * The default is {@link QueueType#LINKED_BLOCKING}.
+   * Applies to the {@link Engine#SOCKET} engine only.
+   * 
+   * <p>
+   * If the queue type has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param rxQueueType The reception-queue type.
+   * 
+   * @throws IllegalArgumentException If {@code rxQueueType == null}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setRxQueueType (final QueueType rxQueueType)
+  {
+    if (rxQueueType == null)
+      throw new IllegalArgumentException ();
+    if (this.rxQueueType != rxQueueType)
+    {
+      final QueueType oldRxQueueType = this.rxQueueType;
+      this.rxQueueType = rxQueueType;
+      fireSettingsChanged (RX_QUEUE_TYPE_PROPERTY_NAME, oldRxQueueType, this.rxQueueType);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The name of the "transmission-queue type" property.
+   * 
+   */
+  public static final String TX_QUEUE_TYPE_PROPERTY_NAME = "txQueueType";
+  
+  private volatile QueueType txQueueType = QueueType.LINKED_BLOCKING;
+  
+  /** Returns the implementation of the transmission queue.
+   * 
+   * @return The transmission-queue type, non-{@code null}.
+   * 
+   */
+  public final synchronized QueueType getTxQueueType ()
+  {
+    return this.txQueueType;
+  }
+  
+  /** Sets the implementation of the transmission queue.
+   * 
+   * <p>
+   * The default is {@link QueueType#LINKED_BLOCKING}.
+   * With {@link QueueType#SPSC_RING}, concurrent invocations of {@link #transmit} are serialized
+   * (the consumer side remains lock-free).
+   * 
+   * <p>
+   * If the queue type has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param txQueueType The transmission-queue type.
+   * 
+   * @throws IllegalArgumentException If {@code txQueueType == null}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setTxQueueType (final QueueType txQueueType)
+  {
+    if (txQueueType == null)
+      throw new IllegalArgumentException ();
+    if (this.txQueueType != txQueueType)
+    {
+      final QueueType oldTxQueueType = this.txQueueType;
+      this.txQueueType = txQueueType;
+      fireSettingsChanged (TX_QUEUE_TYPE_PROPERTY_NAME, oldTxQueueType, this.txQueueType);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The name of the "queue wait strategy" property.
+   * 
+   */
+  public static final String QUEUE_WAIT_STRATEGY_PROPERTY_NAME = "queueWaitStrategy";
+  
+  private volatile SpscRingBuffer.WaitStrategy queueWaitStrategy = SpscRingBuffer.WaitStrategy.SPIN_THEN_PARK;
+  
+  /** Returns the wait strategy of queues of type {@link QueueType#SPSC_RING}.
+   * 
+   * @return The queue wait strategy, non-{@code null}.
+   * 
+   */
+  public final synchronized SpscRingBuffer.WaitStrategy getQueueWaitStrategy ()
+  {
+    return this.queueWaitStrategy;
+  }
+  
+  /** Sets the wait strategy of queues of type {@link QueueType#SPSC_RING}.
+   * 
+   * <p>
+   * The default is {@link SpscRingBuffer.WaitStrategy#SPIN_THEN_PARK}.
+   * Note that {@link SpscRingBuffer.WaitStrategy#BUSY_SPIN} occupies a CPU core
+   * for each thread waiting on a queue (e.g., the delivery and transmission threads), even when idle.
+   * 
+   * <p>
+   * If the wait strategy has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param queueWaitStrategy The queue wait strategy.
+   * 
+   * @throws IllegalArgumentException If {@code queueWaitStrategy == null}.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setQueueWaitStrategy (final SpscRingBuffer.WaitStrategy queueWaitStrategy)
+  {
+    if (queueWaitStrategy == null)
+      throw new IllegalArgumentException ();
+    if (this.queueWaitStrategy != queueWaitStrategy)
+    {
+      final SpscRingBuffer.WaitStrategy oldQueueWaitStrategy = this.queueWaitStrategy;
+      this.queueWaitStrategy = queueWaitStrategy;
+      fireSettingsChanged (QUEUE_WAIT_STRATEGY_PROPERTY_NAME, oldQueueWaitStrategy, this.queueWaitStrategy);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The name of the "reception-overflow policy" property.
+   * 
+   */
+  public static final String RX_OVERFLOW_POLICY_PROPERTY_NAME = "rxOverflowPolicy";
+  
+  private volatile OverflowPolicy rxOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+  
+  /** Returns the policy applied upon overflow of the reception queue.
+   * 
+   * @return The reception-overflow policy, non-{@code null}.
+   * 
+   */
+  public final synchronized OverflowPolicy getRxOverflowPolicy ()
+  {
+    return this.rxOverflowPolicy;
+  }
+  
+  /** Sets the policy applied upon overflow of the reception queue.
+   * 
+   * <p>
+   * The default is {@link OverflowPolicy#DROP_NEWEST}.
+   * Applies to the {@link Engine#SOCKET} engine only.
+   * With packing enabled, the policy applies to (packed) datagrams rather than to individual messages.
+   * 
+   * @param rxOverflowPolicy The reception-overflow policy.
+   * 
+   * @throws IllegalArgumentException If {@code rxOverflowPolicy == null}.
+   * 
+   */
+  public final synchronized void setRxOverflowPolicy (final OverflowPolicy rxOverflowPolicy)
+  {
+    if (rxOverflowPolicy == null)
+      throw new IllegalArgumentException ();
+    if (this.rxOverflowPolicy != rxOverflowPolicy)
+    {
+      final OverflowPolicy oldRxOverflowPolicy = this.rxOverflowPolicy;
+      this.rxOverflowPolicy = rxOverflowPolicy;
+      fireSettingsChanged (RX_OVERFLOW_POLICY_PROPERTY_NAME, oldRxOverflowPolicy, this.rxOverflowPolicy);
+    }
+  }
+  
+  /** The name of the "transmission-overflow policy" property.
+   * 
+   */
+  public static final String TX_OVERFLOW_POLICY_PROPERTY_NAME = "txOverflowPolicy";
+  
+  private volatile OverflowPolicy txOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+  
+  /** Returns the policy applied upon overflow of the transmission queue.
+   * 
+   * @return The transmission-overflow policy, non-{@code null}.
+   * 
+   */
+  public final synchronized OverflowPolicy getTxOverflowPolicy ()
+  {
+    return this.txOverflowPolicy;
+  }
+  
+  /** Sets the policy applied upon overflow of the transmission queue.
+   * 
+   * <p>
+   * The default is {@link OverflowPolicy#DROP_NEWEST}.
+   * With {@link OverflowPolicy#BLOCK}, {@link #transmit} may block (at most the overflow timeout),
+   * except when invoked from a {@link UdpMulticastReactor} thread.
+   * 
+   * @param txOverflowPolicy The transmission-overflow policy.
+   * 
+   * @throws IllegalArgumentException If {@code txOverflowPolicy == null}.
+   * 
+   */
+  public final synchronized void setTxOverflowPolicy (final OverflowPolicy txOverflowPolicy)
+  {
+    if (txOverflowPolicy == null)
+      throw new IllegalArgumentException ();
+    if (this.txOverflowPolicy != txOverflowPolicy)
+    {
+      final OverflowPolicy oldTxOverflowPolicy = this.txOverflowPolicy;
+      this.txOverflowPolicy = txOverflowPolicy;
+      fireSettingsChanged (TX_OVERFLOW_POLICY_PROPERTY_NAME, oldTxOverflowPolicy, this.txOverflowPolicy);
+    }
+  }
+  
+  /** The name of the "overflow timeout" property.
+   * 
+   */
+  public static final String OVERFLOW_TIMEOUT_PROPERTY_NAME = "overflowTimeout";
+  
+  /** The default overflow timeout (in milliseconds).
+   * 
+   */
+  public static final int DEFAULT_OVERFLOW_TIMEOUT = 100;
+  
+  private volatile int overflowTimeout = UdpMulticastService.DEFAULT_OVERFLOW_TIMEOUT;
+  
+  /** Returns the maximum time a producer waits for space in a full queue under {@link OverflowPolicy#BLOCK}.
+   * 
+   * @return The overflow timeout (in milliseconds), non-negative.
+   * 
+   */
+  public final synchronized int getOverflowTimeout ()
+  {
+    return this.overflowTimeout;
+  }
+  
+  /** Sets the maximum time a producer waits for space in a full queue under {@link OverflowPolicy#BLOCK}.
+   * 
+   * @param overflowTimeout The overflow timeout (in milliseconds).
+   * 
+   * @throws IllegalArgumentException If {@code overflowTimeout < 0}.
+   * 
+   */
+  public final synchronized void setOverflowTimeout (final int overflowTimeout)
+  {
+    if (overflowTimeout < 0)
+      throw new IllegalArgumentException ();
+    if (this.overflowTimeout != overflowTimeout)
+    {
+      final int oldOverflowTimeout = this.overflowTimeout;
+      this.overflowTimeout = overflowTimeout;
+      fireSettingsChanged (OVERFLOW_TIMEOUT_PROPERTY_NAME, oldOverflowTimeout, this.overflowTimeout);
+    }
+  }
+  
+  private volatile CoalescingKeyFunction coalescingKeyFunction = null;
+  
+  /** Returns the function yielding the key for coalescing queued messages.
+   * 
+   * @return The coalescing-key function, {@code null} if not set.
+   * 
+   */
+  public final synchronized CoalescingKeyFunction getCoalescingKeyFunction ()
+  {
+    return this.coalescingKeyFunction;
+  }
+  
+  /** Sets the function yielding the key for coalescing queued messages.
+   * 
+   * <p>
+   * Without a coalescing-key function, {@link OverflowPolicy#COALESCE} behaves as {@link OverflowPolicy#DROP_NEWEST}.
+   * 
+   * <p>
+   * On reception, the key of a queued datagram is that of its payload, after removal of the framing header (if present).
+   * Datagrams carrying a redundancy block, and packed datagrams holding more than one message,
+   * are never coalesced.
+   * 
+   * @param coalescingKeyFunction The coalescing-key function, may be {@code null}.
+   * 
+   */
+  public final synchronized void setCoalescingKeyFunction (final CoalescingKeyFunction coalescingKeyFunction)
+  {
+    this.coalescingKeyFunction = coalescingKeyFunction;
+  }
+  
+  private final Map<OverflowPolicy, AtomicLong> rxOverflowCounts = createOverflowCounts ();
+  
+  private final Map<OverflowPolicy, AtomicLong> txOverflowCounts = createOverflowCounts ();
+  
+  private static Map<OverflowPolicy, AtomicLong> createOverflowCounts ()
+  {
+    final Map<OverflowPolicy, AtomicLong> overflowCounts = new EnumMap<> (OverflowPolicy.class);
+    for (final OverflowPolicy overflowPolicy : OverflowPolicy.values ())
+      overflowCounts.put (overflowPolicy, new AtomicLong ());
+    return overflowCounts;
+  }
+  
+  /** Returns the number of reception-queue overflows handled through given action.
+   * 
+   * <p>
+   * The counts are kept per action actually taken, irrespective of the policy configured:
+   * {@link OverflowPolicy#DROP_NEWEST} counts messages offered that were dropped
+   * (including those under {@link OverflowPolicy#COALESCE} without a match),
+   * {@link OverflowPolicy#DROP_OLDEST} counts queued messages dropped,
+   * {@link OverflowPolicy#BLOCK} counts messages dropped after a timeout,
+   * and {@link OverflowPolicy#COALESCE} counts queued messages replaced.
+   * 
+   * @param action The action, non-{@code null}.
+   * 
+   * @return The number of reception-queue overflows handled through given action since construction.
+   * 
+   * @throws IllegalArgumentException If {@code action == null}.
+   * 
+   */
+  public final long getRxOverflowCount (final OverflowPolicy action)
+  {
+    if (action == null)
+      throw new IllegalArgumentException ();
+    return this.rxOverflowCounts.get (action).get ();
+  }
+  
+  /** Returns the number of transmission-queue overflows handled through given action.
+   * 
+   * @param action The action, non-{@code null}.
+   * 
+   * @return The number of transmission-queue overflows handled through given action since construction.
+   * 
+   * @throws IllegalArgumentException If {@code action == null}.
+   * 
+   * @see #getRxOverflowCount
+   * 
+   */
+  public final long getTxOverflowCount (final OverflowPolicy action)
+  {
+    if (action == null)
+      throw new IllegalArgumentException ();
+    return this.txOverflowCounts.get (action).get ();
+  }
+  
+  /** Offers a message to a queue, applying given overflow policy if the queue is full.
+   * 
+   * @param <E>            The type of queue elements.
+   * @param queue          The queue.
+   * @param element        The element to offer.
+   * @param overflowPolicy The overflow policy.
+   * @param overflowCounts The overflow counts to update.
+   * @param coalescingKey  A function yielding the coalescing key of the message held by an element,
+   *                         {@link CoalescingKeyFunction#NO_KEY} if it must never be coalesced.
+   * @param discard        The action to take on elements dropped (or replaced).
+   * 
+   * @return Whether the element was appended to the queue.
+   * 
+   */
+  private <E> boolean enqueue (final BlockingQueue<E> queue,
+                               final E element,
+                               final OverflowPolicy overflowPolicy,
+                               final Map<OverflowPolicy, AtomicLong> overflowCounts,
+                               final ToLongFunction<E> coalescingKey,
+                               final Consumer<E> discard)
+  {
+    if (queue.offer (element))
+      return true;
+    // Only the consumer may remove elements from a single-consumer queue.
+    final boolean mayRemove = ! (queue instanceof SpscRingBuffer);
+    switch (overflowPolicy)
+    {
+      case DROP_NEWEST:
+        break;
+      case DROP_OLDEST:
+      {
+        if (! mayRemove)
+          break;
+        final E oldest = queue.poll ();
+        if (oldest != null)
+        {
+          discard.accept (oldest);
+          overflowCounts.get (OverflowPolicy.DROP_OLDEST).incrementAndGet ();
+        }
+        if (queue.offer (element))
+          return true;
+        break;
+      }
+      case BLOCK:
+      {
+        try
+        {
+          if (queue.offer (element, this.overflowTimeout, TimeUnit.MILLISECONDS))
+            return true;
+        }
+        catch (InterruptedException ie)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        discard.accept (element);
+        overflowCounts.get (OverflowPolicy.BLOCK).incrementAndGet ();
+        return false;
+      }
+      case COALESCE:
+      {
+        final long key = mayRemove ? coalescingKey.applyAsLong (element) : CoalescingKeyFunction.NO_KEY;
+        if (key != CoalescingKeyFunction.NO_KEY)
+          for (final E queued : queue)
+            if (coalescingKey.applyAsLong (queued) == key)
+            {
+              // Note: the consumer may have taken the queued element in the meantime.
+              if (queue.remove (queued))
+              {
+                discard.accept (queued);
+                overflowCounts.get (OverflowPolicy.COALESCE).incrementAndGet ();
+              }
+              if (queue.offer (element))
+                return true;
+              break;
+            }
+        break;
+      }
+      default:
+        throw new RuntimeException ();
+    }
+    discard.accept (element);
+    overflowCounts.get (OverflowPolicy.DROP_NEWEST).incrementAndGet ();
+    return false;
+  }
+  
+  /** The coalescing key of a received datagram (created once, in order to avoid allocation upon each enqueue).
+   * 
+   */
+  private final ToLongFunction<UdpBufferPool.Buffer> rxCoalescingKey = this::getRxCoalescingKey;
+  
+  /** The coalescing key of a message to transmit (created once, in order to avoid allocation upon each enqueue).
+   * 
+   */
+  private final ToLongFunction<byte[]> txCoalescingKey = this::getTxCoalescingKey;
+  
+  /** Returns the coalescing key of (the payload of) a received datagram.
+   * 
+   * <p>
+   * The framing header (if present) and the packing header (if present) are skipped,
+   * so that the key is that of the message delivered to the listeners.
+   * Datagrams carrying a redundancy block, and packed datagrams holding more than one message,
+   * are never coalesced.
+   * 
+   * @param buffer The buffer holding the datagram, non-{@code null}.
+   * 
+   * @return The coalescing key, {@link CoalescingKeyFunction#NO_KEY} if the datagram must never be coalesced.
+   * 
+   * @see #setCoalescingKeyFunction
+   * 
+   */
+  private long getRxCoalescingKey (final UdpBufferPool.Buffer buffer)
+  {
+    final CoalescingKeyFunction keyFunction = this.coalescingKeyFunction;
+    if (keyFunction == null)
+      return CoalescingKeyFunction.NO_KEY;
+    final DatagramPacket packet = buffer.getPacket ();
+    final byte[] data = packet.getData ();
+    int start = packet.getOffset ();
+    final int end = start + packet.getLength ();
+    if (this.framing
+      && end - start >= UdpMulticastService.FRAME_HEADER_SIZE
+      && data[start] == UdpFraming.MAGIC_0
+      && data[start + 1] == UdpFraming.MAGIC_1)
+    {
+      if ((data[start + 2] & UdpFraming.FLAG_REDUNDANCY) != 0)
+        return CoalescingKeyFunction.NO_KEY;
+      start += UdpMulticastService.FRAME_HEADER_SIZE;
+    }
+    if (this.packing
+      && end - start > UdpMulticastService.PACKING_HEADER_SIZE
+      && data[start] == UdpPacking.MAGIC_0
+      && data[start + 1] == UdpPacking.MAGIC_1)
+    {
+      // Only a packed datagram holding a single message (with a single-byte prefix) can be coalesced.
+      final int flags = data[start + 2];
+      final int messagesStart = start + UdpMulticastService.PACKING_HEADER_SIZE;
+      final int length = end - messagesStart - 1;
+      final int prefix = (flags & UdpPacking.FLAG_RUNNING_STATUS) != 0 ? length << 1 : length;
+      if ((flags & ~UdpPacking.FLAGS_SUPPORTED) != 0
+        || length <= 0 || prefix >= 0x80 || data[messagesStart] != prefix)
+        return CoalescingKeyFunction.NO_KEY;
+      start = messagesStart + 1;
+    }
+    if (start >= end)
+      return CoalescingKeyFunction.NO_KEY;
+    return keyFunction.getKey (data, start, end - start);
+  }
+  
+  /** Returns the coalescing key of a message to transmit.
+   * 
+   * @param payload The message, non-{@code null}.
+   * 
+   * @return The coalescing key, {@link CoalescingKeyFunction#NO_KEY} if the message must never be coalesced.
+   * 
+   * @see #setCoalescingKeyFunction
+   * 
+   */
+  private long getTxCoalescingKey (final byte[] payload)
+  {
+    final CoalescingKeyFunction keyFunction = this.coalescingKeyFunction;
+    if (keyFunction == null || payload.length == 0)
+      return CoalescingKeyFunction.NO_KEY;
+    return keyFunction.getKey (payload, 0, payload.length);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DELIVERY / LISTENER WATCHDOG
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "inline delivery" property.
+   * 
+   */
+  public static final String INLINE_DELIVERY_PROPERTY_NAME = "inlineDelivery";
+  
+  private volatile boolean inlineDelivery = false;
+  
+  /** Returns whether received messages are delivered to listeners directly from the reception thread.
+   * 
+   * @return Whether inline delivery is enabled.
+   * 
+   * @see #setInlineDelivery
+   * 
+   */
+  public final synchronized boolean isInlineDelivery ()
+  {
+    return this.inlineDelivery;
+  }
+  
+  /** Enables or disables delivery of received messages to listeners directly from the reception thread.
+   * 
+   * <p>
+   * By default, with the {@link Engine#SOCKET} engine, the reception thread hands over received datagrams
+   * through the reception queue to a dedicated delivery thread, which notifies the listeners.
+   * With inline delivery, the reception thread notifies the listeners itself,
+   * which saves a thread hand-off (and context switch) per datagram.
+   * The reception queue, its overflow policy and the delivery thread are then not used.
+   * 
+   * <p>
+   * The price is that the socket is not read while listeners are being notified;
+   * slow listeners may lead to datagrams being dropped by the operating system.
+   * See {@link #getSlowListenerCallbackCount} for detecting such listeners.
+   * 
+   * <p>
+   * The {@link Engine#CHANNEL} engine always delivers inline (from the reactor thread);
+   * this setting does not affect it.
+   * 
+   * <p>
+   * If the setting has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param inlineDelivery Whether inline delivery is enabled.
+   * 
+   * @see #restartService
+   * 
+   */
+  public final synchronized void setInlineDelivery (final boolean inlineDelivery)
+  {
+    if (this.inlineDelivery != inlineDelivery)
+    {
+      this.inlineDelivery = inlineDelivery;
+      fireSettingsChanged (INLINE_DELIVERY_PROPERTY_NAME, ! this.inlineDelivery, this.inlineDelivery);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  /** The name of the "listener time budget" property.
+   * 
+   */
+  public static final String LISTENER_TIME_BUDGET_PROPERTY_NAME = "listenerTimeBudget";
+  
+  /** The default listener time budget (in microseconds).
+   * 
+   */
+  public static final int DEFAULT_LISTENER_TIME_BUDGET = 1000;
+  
+  private volatile int listenerTimeBudget = UdpMulticastService.DEFAULT_LISTENER_TIME_BUDGET;
+  
+  /** Returns the maximum time a listener may spend in a single notification of a received message.
+   * 
+   * @return The listener time budget (in microseconds).
+   * 
+   * @see #getSlowListenerCallbackCount
+   * 
+   */
+  public final synchronized int getListenerTimeBudget ()
+  {
+    return this.listenerTimeBudget;
+  }
+  
+  /** Sets the maximum time a listener may spend in a single notification of a received message.
+   * 
+   * <p>
+   * Listener notifications exceeding the budget are counted, and the listeners involved are recorded,
+   * but the notifications are not interrupted.
+   * 
+   * @param listenerTimeBudget The listener time budget (in microseconds).
+   * 
+   * @throws IllegalArgumentException If {@code listenerTimeBudget < 0}.
+   * 
+   * @see #getSlowListenerCallbackCount
+   * @see #getSlowListeners
+   * 
+   */
+  public final synchronized void setListenerTimeBudget (final int listenerTimeBudget)
+  {
+    if (listenerTimeBudget < 0)
+      throw new IllegalArgumentException ();
+    if (this.listenerTimeBudget != listenerTimeBudget)
+    {
+      final int oldListenerTimeBudget = this.listenerTimeBudget;
+      this.listenerTimeBudget = listenerTimeBudget;
+      fireSettingsChanged (LISTENER_TIME_BUDGET_PROPERTY_NAME, oldListenerTimeBudget, this.listenerTimeBudget);
+    }
+  }
+  
+  private final AtomicLong slowListenerCallbackCount = new AtomicLong ();
+  
+  /** Returns the number of listener notifications of received messages that exceeded the listener time budget.
+   * 
+   * <p>
+   * With inline delivery (and with the {@link Engine#CHANNEL} engine),
+   * each of these notifications stalled reception from the socket (beyond the budget).
+   * 
+   * @return The number of listener notifications that exceeded the listener time budget since construction.
+   * 
+   * @see #setListenerTimeBudget
+   * @see #setInlineDelivery
+   * 
+   */
+  public final long getSlowListenerCallbackCount ()
+  {
+    return this.slowListenerCallbackCount.get ();
+  }
+  
+  private final Set<Object> slowListeners = Collections.newSetFromMap (new ConcurrentHashMap<> ());
+  
+  /** Returns the listeners that exceeded the listener time budget at least once.
+   * 
+   * <p>
+   * The set contains {@link BufferListener}s and/or {@link MessageListener}s.
+   * A warning is logged the first time a listener exceeds the budget.
+   * 
+   * @return An unmodifiable copy of the set of listeners that exceeded the listener time budget since construction.
+   * 
+   * @see #setListenerTimeBudget
+   * 
+   */
+  public final Set<Object> getSlowListeners ()
+  {
+    return Collections.unmodifiableSet (new LinkedHashSet<> (this.slowListeners));
+  }
+  
+  /** Checks the duration of a listener notification against the listener time budget.
+   * 
+   * @param listener The listener.
+   * @param start    The start time of the notification (from {@link System#nanoTime}).
    * 
    */
-  public final synchronized int getPort ()
+  private void checkListenerTime (final Object listener, final long start)
   {
-    return this.port;
+    final long duration = System.nanoTime () - start;
+    if (duration > 1000L * this.listenerTimeBudget)
+    {
+      this.slowListenerCallbackCount.incrementAndGet ();
+      if (this.slowListeners.add (listener))
+        LOG.log (Level.WARNING, "Listener {0} of Service Class {1} on Instance {2} exceeded time budget: {3} us!",
+          new Object[]{listener, this.getClass ().getSimpleName (), this, duration / 1000L});
+    }
   }
   
-  /** Sets the UDP port.
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECEIVE LATENCY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final LatencyHistogram rxLatencyHistogram = new LatencyHistogram ();
+  
+  /** Returns the histogram of latencies between reception of datagrams and their delivery to the listeners.
    * 
    * <p>
-   * If the port has changed, and the service is active,
-   * it is restarted automatically.
+   * Each datagram is timestamped (using {@link System#nanoTime}) right after it has been read from the socket or channel;
+   * the latency is recorded right before the listeners are notified.
+   * Hence, the histogram captures the queueing delay inside this service,
+   * which is (near) zero with inline delivery.
+   * The reception timestamp itself is passed on to the listeners,
+   * see {@link MessageListener#messageReceived(byte[], long)} and {@link BufferListener#messageReceived(ByteBuffer, long)}.
    * 
-   * @param port The UDP port.
+   * <p>
+   * The histogram is not reset upon (re)start of the service.
    * 
-   * @throws IllegalArgumentException If {@code port < 0}.
+   * @return The (live) histogram, non-{@code null}.
    * 
-   * @see #restartService
+   * @see #setInlineDelivery
    * 
    */
-  public final synchronized void setPort (final int port)
+  public final LatencyHistogram getRxLatencyHistogram ()
   {
-    if (port < 0)
-      throw new IllegalArgumentException ();
-    if (this.port != port)
-    {
-      this.port = port;
-      if (getStatus () == Status.ACTIVE)
-        restartService ();
-    }
+    return this.rxLatencyHistogram;
   }
-
+  
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
   // SERVICE
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
-  // XXX SOMEWHERE WE HAVE TO JOIN THE MULTICAST GROUP???
-  
   private volatile /* DatagramSocket */ MulticastSocket udpRxSocket = null;
   private volatile UdpRxThread udpRxThread = null;
   private volatile UdpDeliveryThread udpDeliveryThread = null;
-  /** The size of the message buffer for reception.
+  /** The default size of the message buffer for reception.
+   * 
+   * @see #setRxQueueCapacity
    * 
    */
   public static final int UDP_RX_QUEUE_SIZE = 16;
-  private final LinkedBlockingQueue<byte[]> udpRxQueue = new LinkedBlockingQueue<> (UDP_RX_QUEUE_SIZE);
-
+  private volatile BlockingQueue<UdpBufferPool.Buffer> udpRxQueue = new LinkedBlockingQueue<> (UDP_RX_QUEUE_SIZE);
+  
+  // The pool holds sufficient buffers to fill the reception queue,
+  // with one buffer in reception and one buffer in delivery.
+  private volatile UdpBufferPool udpRxPool = new UdpBufferPool (UDP_RX_QUEUE_SIZE + 2, UdpRxThread.BUFFER_SIZE);
+  
+  // The exhaustion count of pools replaced upon changes to the reception-queue capacity.
+  private volatile long udpRxPoolExhaustionCountOffset = 0;
+  
+  /** Returns the number of pooled reception buffers currently available.
+   * 
+   * <p>
+   * The pool holds two buffers more than the capacity of the reception queue.
+   * Applies to the {@link Engine#SOCKET} engine only.
+   * 
+   * @return The number of pooled reception buffers currently available (not in use).
+   * 
+   * @see #getRxQueueCapacity
+   * 
+   */
+  public final int getRxPoolAvailable ()
+  {
+    return this.udpRxPool.getAvailable ();
+  }
+  
+  /** Returns the number of times the pool of reception buffers was found exhausted.
+   * 
+   * <p>
+   * Upon exhaustion, a (non-pooled) reception buffer is allocated.
+   * Applies to the {@link Engine#SOCKET} engine only.
+   * 
+   * @return The number of times the pool of reception buffers was found exhausted since construction.
+   * 
+   */
+  public final long getRxPoolExhaustionCount ()
+  {
+    return this.udpRxPoolExhaustionCountOffset + this.udpRxPool.getExhaustionCount ();
+  }
+  
   // private volatile DatagramSocket udpTxSocket = null;
   private volatile UdpTxThread udpTxThread = null;
-  /** The size of the message buffer for transmission.
+  /** The default size of the message buffer for transmission.
+   * 
+   * @see #setTxQueueCapacity
    * 
    */
   public static final int UDP_TX_QUEUE_SIZE = 16;
-  private final LinkedBlockingQueue<byte[]> udpTxQueue = new LinkedBlockingQueue<> (UDP_TX_QUEUE_SIZE);
+  private volatile BlockingQueue<byte[]> udpTxQueue = new LinkedBlockingQueue<> (UDP_TX_QUEUE_SIZE);
+  
+  // Serializes producers on the transmit queue if the latter is a single-producer queue.
+  private final Object udpTxProducerLock = new Object ();
+  
+  // The destination of transmitted datagrams; resolved once upon (re)start.
+  // Note that setGroup switches it live, and setPort restarts the service if active.
+  private volatile InetSocketAddress udpTxAddress = null;
+  
+  private volatile DatagramChannel udpChannel = null;
+  private volatile UdpChannelEndpoint udpChannelEndpoint = null;
   
   @Override
   public final synchronized void startService ()
@@ -296,24 +3012,23 @@ public class UdpMulticastService
       new Object[]{this.getClass ().getSimpleName (), this});
     try
     {
-      this.udpRxQueue.clear ();
-      // this.udpRxSocket = new DatagramSocket (this.port);
-      this.udpRxSocket = new MulticastSocket (this.port);
-      this.udpRxSocket.joinGroup (InetAddress.getByName (this.group));
-      this.udpRxSocket.setLoopbackMode (true);
-      this.udpDeliveryThread = new UdpDeliveryThread ();
-      this.udpDeliveryThread.mustRun = true;
-      this.udpDeliveryThread.start ();
-      this.udpRxThread = new UdpRxThread (this.udpRxSocket);
-      this.udpRxThread.mustRun = true;
-      this.udpRxThread.start ();
-      this.udpTxQueue.clear ();
-//      this.udpTxSocket = new DatagramSocket ();
-//      this.udpTxSocket.connect (InetAddress.getByName (this.group), this.port);
-//      this.udpRxSocket.connect (InetAddress.getByName (this.group), this.port);
-      this.udpTxThread = new UdpTxThread (/* this.udpTxSocket */ this.udpRxSocket);
-      this.udpTxThread.mustRun = true;
-      this.udpTxThread.start ();
+      this.udpTxAddress = new InetSocketAddress (InetAddress.getByName (this.group), this.port);
+      switch (this.engine)
+      {
+        case SOCKET:
+          startSocketEngine ();
+          break;
+        case CHANNEL:
+          startChannelEngine ();
+          break;
+        default:
+          throw new RuntimeException ();
+      }
+      LOG.log (Level.INFO, "Service Class {0} on Instance {1}: effective socket options:"
+        + " SO_RCVBUF={2}, SO_SNDBUF={3}, IP_MULTICAST_TTL={4}, IP_MULTICAST_LOOP={5}, IP_TOS={6}.",
+        new Object[]{this.getClass ().getSimpleName (), this,
+                     getEffectiveReceiveBufferSize (), getEffectiveSendBufferSize (),
+                     getEffectiveTimeToLive (), getEffectiveLoopback (), getEffectiveTrafficClass ()});
     }
     catch (IOException ioe)
     {
@@ -336,6 +3051,89 @@ public class UdpMulticastService
       setStatus (Status.ACTIVE);
   }
 
+  private void startSocketEngine () throws IOException
+  {
+    // Fresh queues (and pool) upon each start; threads of a previous run may still hold on to the old ones.
+    this.udpRxQueue = createQueue (this.rxQueueType, this.rxQueueCapacity);
+    this.udpRxPoolExhaustionCountOffset += this.udpRxPool.getExhaustionCount ();
+    this.udpRxPool = new UdpBufferPool (this.rxQueueCapacity + 2, UdpRxThread.BUFFER_SIZE);
+    this.udpTxQueue = createQueue (this.txQueueType, this.txQueueCapacity);
+    // this.udpRxSocket = new DatagramSocket (this.port);
+    // Equivalent to new MulticastSocket (this.port), but with the socket options applied before binding.
+    this.udpRxSocket = new MulticastSocket ((SocketAddress) null);
+    this.udpRxSocket.setReuseAddress (true);
+    applySocketOptions ();
+    this.udpRxSocket.bind (new InetSocketAddress (this.port));
+    this.joinedPrimaryGroup = acquireGroup (this.udpTxAddress.getAddress (), null);
+    for (final Membership membership : this.memberships)
+      joinMembership (membership);
+    if (! this.inlineDelivery)
+    {
+      this.udpDeliveryThread = new UdpDeliveryThread (this.udpRxQueue);
+      this.udpDeliveryThread.mustRun = true;
+      this.udpDeliveryThread.start ();
+    }
+    this.udpRxThread = new UdpRxThread (this.udpRxSocket, this.udpRxPool, this.inlineDelivery ? null : this.udpRxQueue);
+    this.udpRxThread.mustRun = true;
+    this.udpRxThread.start ();
+//    this.udpTxSocket = new DatagramSocket ();
+//    this.udpTxSocket.connect (InetAddress.getByName (this.group), this.port);
+//    this.udpRxSocket.connect (InetAddress.getByName (this.group), this.port);
+    this.udpTxThread = new UdpTxThread (/* this.udpTxSocket */ this.udpRxSocket, this.udpTxAddress, this.udpTxQueue);
+    this.udpTxThread.mustRun = true;
+    this.udpTxThread.start ();
+  }
+  
+  private void startChannelEngine () throws IOException
+  {
+    final InetAddress groupAddress = this.udpTxAddress.getAddress ();
+    final NetworkInterface networkInterface = getDefaultMulticastInterface ();
+    if (networkInterface == null)
+      throw new IOException ("No multicast-capable network interface!");
+    this.udpTxQueue = createQueue (this.txQueueType, this.txQueueCapacity);
+    this.udpChannel = DatagramChannel.open (groupAddress instanceof Inet6Address
+                                              ? StandardProtocolFamily.INET6
+                                              : StandardProtocolFamily.INET);
+    this.udpChannel.setOption (StandardSocketOptions.SO_REUSEADDR, true);
+    applySocketOptions ();
+    this.udpChannel.bind (new InetSocketAddress (this.port));
+    this.udpChannel.setOption (StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+    this.udpChannel.configureBlocking (false);
+    this.joinedPrimaryGroup = acquireGroup (groupAddress, networkInterface);
+    for (final Membership membership : this.memberships)
+      joinMembership (membership);
+    this.udpChannelEndpoint = new UdpChannelEndpoint (this.udpChannel, this.udpTxAddress, this.udpTxQueue);
+    this.udpChannelEndpoint.mustRun = true;
+    this.udpChannelEndpoint.registration = UdpMulticastReactor.getDefault ().register (this.udpChannelEndpoint);
+  }
+  
+  /** Returns the network interface used for joining multicast groups in the {@link Engine#CHANNEL} engine.
+   * 
+   * <p>
+   * Unlike {@link MulticastSocket#joinGroup(InetAddress)},
+   * a {@link DatagramChannel} requires an explicit {@link NetworkInterface} for joining a group.
+   * This method returns the first interface that is up, supports multicast and is not a loopback interface,
+   * or, if no such interface exists, the first interface that is up and supports multicast.
+   * 
+   * @return The network interface, {@code null} if no suitable interface was found.
+   * 
+   * @throws IOException If the network interfaces could not be queried.
+   * 
+   */
+  private static NetworkInterface getDefaultMulticastInterface () throws IOException
+  {
+    NetworkInterface fallback = null;
+    for (final NetworkInterface networkInterface : Collections.list (NetworkInterface.getNetworkInterfaces ()))
+      if (networkInterface.isUp () && networkInterface.supportsMulticast ())
+      {
+        if (! networkInterface.isLoopback ())
+          return networkInterface;
+        else if (fallback == null)
+          fallback = networkInterface;
+      }
+    return fallback;
+  }
+  
   @Override
   public final synchronized void stopService ()
   {
@@ -360,7 +3158,6 @@ public class UdpMulticastService
       this.udpTxThread.interrupt ();
       this.udpTxThread = null;
     }
-    this.udpTxQueue.clear ();
 //    if (this.udpTxSocket != null)
 //    {
 //      this.udpTxSocket.close ();
@@ -385,10 +3182,47 @@ public class UdpMulticastService
       this.udpDeliveryThread.interrupt ();
       this.udpDeliveryThread = null;
     }
-    this.udpRxQueue.clear ();
+    if (this.udpChannelEndpoint != null)
+    {
+      this.udpChannelEndpoint.mustRun = false;
+      if (this.udpChannelEndpoint.registration != null)
+        this.udpChannelEndpoint.registration.cancel ();
+      this.udpChannelEndpoint = null;
+    }
+    if (this.udpChannel != null)
+    {
+      try
+      {
+        this.udpChannel.close ();
+      }
+      catch (IOException ioe)
+      {
+        LOG.log (Level.WARNING, "Service Class {0} caught IOException while closing channel of Instance {1}!",
+          new Object[]{this.getClass ().getSimpleName (), this});
+      }
+      this.udpChannel = null;
+    }
+    // Closing the socket or channel drops all memberships.
+    this.joinedMemberships.clear ();
+    this.joinedGroups.clear ();
+    this.joinedPrimaryGroup = null;
+    this.udpTxAddress = null;
     setStatus (Status.STOPPED);
   }
 
+  private <E> BlockingQueue<E> createQueue (final QueueType queueType, final int capacity)
+  {
+    switch (queueType)
+    {
+      case LINKED_BLOCKING:
+        return new LinkedBlockingQueue<> (capacity);
+      case SPSC_RING:
+        return new SpscRingBuffer<> (capacity, this.queueWaitStrategy);
+      default:
+        throw new RuntimeException ();
+    }
+  }
+  
   @Override
   protected final synchronized void error ()
   {
@@ -409,13 +3243,22 @@ public class UdpMulticastService
     
     private final DatagramSocket udpRxSocket;
     
+    private final UdpBufferPool udpRxPool;
+    
+    // Null for inline delivery.
+    private final BlockingQueue<UdpBufferPool.Buffer> udpRxQueue;
+    
     private static final int BUFFER_SIZE = 2048;
     
-    private UdpRxThread (final DatagramSocket udpRxSocket)
+    private UdpRxThread (final DatagramSocket udpRxSocket,
+                         final UdpBufferPool udpRxPool,
+                         final BlockingQueue<UdpBufferPool.Buffer> udpRxQueue)
     {
-      if (udpRxSocket == null)
+      if (udpRxSocket == null || udpRxPool == null)
         throw new IllegalArgumentException ();
       this.udpRxSocket = udpRxSocket;
+      this.udpRxPool = udpRxPool;
+      this.udpRxQueue = udpRxQueue;
     }
 
     @Override
@@ -427,29 +3270,52 @@ public class UdpMulticastService
       {
         while (this.mustRun)
         {
-          final byte[] buffer = new byte[BUFFER_SIZE];
-          final DatagramPacket p = new DatagramPacket (buffer, BUFFER_SIZE);
-          this.udpRxSocket.receive (p);
+          final UdpBufferPool.Buffer buffer = this.udpRxPool.acquire ();
+          final DatagramPacket p = buffer.getPacket ();
+          try
+          {
+            this.udpRxSocket.receive (p);
+            buffer.setTimestamp (System.nanoTime ());
+          }
+          catch (IOException ioe)
+          {
+            buffer.release ();
+            throw ioe;
+          }
 //          LOG.log (Level.INFO, "Received UDP datagram for Service Class {0} on Instance {1}: {2}.",
 //            new Object[]{this.getClass ().getSimpleName (),
 //                         this,
 //                         HexUtils.bytesToHex (p.getData (), p.getOffset (), p.getLength ())});
-          synchronized (UdpMulticastService.this)
+          UdpMulticastService.this.lastRxNanoTime.lazySet (buffer.getTimestamp ());
+          if (this.udpRxQueue == null)
           {
-            UdpMulticastService.this.monitorableActivities.put (UdpMulticastService.ACTIVITY_RX_NAME, Instant.now ());
+            // Inline delivery.
+            try
+            {
+              UdpMulticastService.this.deliverDatagram (buffer.getView (), buffer.getTimestamp ());
+            }
+            catch (RuntimeException re)
+            {
+              LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+                new Object[]{UdpMulticastService.this.getClass ().getSimpleName (), UdpMulticastService.this, re});
+            }
+            finally
+            {
+              buffer.release ();
+            }
+            continue;
           }
-          final byte[] data = p.getData ();
-          final int offset = p.getOffset ();
-          final int length = p.getLength ();
-          byte[] copiedData = data;
-          if (offset != 0 || data.length != length)
+          // The buffer (and our reference to it) is handed over to the delivery thread as is; no copy is made.
+          if (! UdpMulticastService.this.enqueue (this.udpRxQueue,
+                                                  buffer,
+                                                  UdpMulticastService.this.rxOverflowPolicy,
+                                                  UdpMulticastService.this.rxOverflowCounts,
+                                                  UdpMulticastService.this.rxCoalescingKey,
+                                                  UdpBufferPool.Buffer::release))
           {
-            copiedData = new byte[length];
-            System.arraycopy (data, offset, copiedData, 0, length);
-          }
-          if (! UdpMulticastService.this.udpRxQueue.offer (copiedData))
             LOG.log (Level.WARNING, "Receive Buffer Overflow for Service Class {0} on Instance {1}!",
               new Object[]{this.getClass ().getSimpleName (), this});
+          }
         }
       }
       catch (IOException ioe)
@@ -475,6 +3341,15 @@ public class UdpMulticastService
     
     private boolean mustRun = false;
     
+    private final BlockingQueue<UdpBufferPool.Buffer> udpRxQueue;
+    
+    private UdpDeliveryThread (final BlockingQueue<UdpBufferPool.Buffer> udpRxQueue)
+    {
+      if (udpRxQueue == null)
+        throw new IllegalArgumentException ();
+      this.udpRxQueue = udpRxQueue;
+    }
+    
     @Override
     public void run ()
     {
@@ -484,8 +3359,21 @@ public class UdpMulticastService
       {
         while (this.mustRun)
         {
-          final byte[] message = UdpMulticastService.this.udpRxQueue.take ();
-          UdpMulticastService.this.fireMessageReceived (message);
+          final UdpBufferPool.Buffer buffer = this.udpRxQueue.take ();
+          try
+          {
+            UdpMulticastService.this.deliverDatagram (buffer.getView (), buffer.getTimestamp ());
+          }
+          catch (RuntimeException re)
+          {
+            LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+              new Object[]{UdpMulticastService.this.getClass ().getSimpleName (), UdpMulticastService.this, re});
+          }
+          finally
+          {
+            // All listeners have been notified; the buffer returns to the pool.
+            buffer.release ();
+          }
         }
       }
       catch (InterruptedException ie)
@@ -508,31 +3396,75 @@ public class UdpMulticastService
    * 
    * <p>
    * Message transmission is asynchronous.
-   * This method is non-blocking; it merely attempt to put the message into the internal transmit buffer.
+   * This method merely attempts to put the message into the internal transmit buffer;
+   * it is non-blocking unless the transmission-overflow policy is {@link OverflowPolicy#BLOCK}.
+   * Even under {@link OverflowPolicy#BLOCK}, this method never blocks when invoked from a {@link UdpMulticastReactor} thread
+   * (e.g., from a listener with the {@link Engine#CHANNEL} engine);
+   * it then behaves as under {@link OverflowPolicy#DROP_NEWEST}.
+   * 
+   * <p>
+   * The payload must not be modified after this method returns.
    * 
    * @param payload The message, non-{@code null}.
    * 
-   * @return False if the service is not currently active, or in case of a transmit-buffer overflow, true otherwise.
+   * @return False if the service is not currently active, or in case of a transmit-buffer overflow
+   *           that led to dropping the message, true otherwise.
    * 
    * @throws IllegalArgumentException If {@code payload == null}.
    * 
-   * @see #UDP_TX_QUEUE_SIZE
+   * @see #setTxQueueCapacity
+   * @see #setTxOverflowPolicy
    * 
    */
-  public final synchronized boolean transmit (final byte[] payload)
+  public final boolean transmit (final byte[] payload)
   {
     if (payload == null)
       throw new IllegalArgumentException ();
-    if (getStatus () != Status.ACTIVE)
-      return false;
-    else
+    final BlockingQueue<byte[]> txQueue;
+    final UdpChannelEndpoint channelEndpoint;
+    // Note: we must not hold the lock while (potentially) blocking on the queue.
+    synchronized (this)
     {
-      final boolean insertionSuccess = this.udpTxQueue.offer (payload);
-      if (! insertionSuccess)
-        LOG.log (Level.WARNING, "Transmit Buffer Overflow for Service Class {0} on Instance {1}!",
-          new Object[]{this.getClass ().getSimpleName (), this});
-      return insertionSuccess;
+      if (getStatus () != Status.ACTIVE)
+        return false;
+      txQueue = this.udpTxQueue;
+      channelEndpoint = this.udpChannelEndpoint;
     }
+    // Never block a (shared) reactor thread, e.g., from a listener invoked by the CHANNEL engine;
+    // the reactor thread may well be the one to drain the queue.
+    final OverflowPolicy txOverflowPolicy =
+      (this.txOverflowPolicy == OverflowPolicy.BLOCK && UdpMulticastReactor.isReactorThread ())
+        ? OverflowPolicy.DROP_NEWEST
+        : this.txOverflowPolicy;
+    final boolean insertionSuccess;
+    if (txQueue instanceof SpscRingBuffer)
+      synchronized (this.udpTxProducerLock)
+      {
+        insertionSuccess = enqueue (txQueue,
+                                    payload,
+                                    txOverflowPolicy,
+                                    this.txOverflowCounts,
+                                    this.txCoalescingKey,
+                                    UdpMulticastService::discardPayload);
+      }
+    else
+      insertionSuccess = enqueue (txQueue,
+                                  payload,
+                                  txOverflowPolicy,
+                                  this.txOverflowCounts,
+                                  this.txCoalescingKey,
+                                  UdpMulticastService::discardPayload);
+    if (! insertionSuccess)
+      LOG.log (Level.WARNING, "Transmit Buffer Overflow for Service Class {0} on Instance {1}!",
+        new Object[]{this.getClass ().getSimpleName (), this});
+    else if (channelEndpoint != null)
+      channelEndpoint.registration.requestTransmit ();
+    return insertionSuccess;
+  }
+  
+  private static void discardPayload (final byte[] payload)
+  {
+    // EMPTY
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -549,11 +3481,36 @@ public class UdpMulticastService
     
     private final /* DatagramSocket */ MulticastSocket udpTxSocket;
     
-    private UdpTxThread (final /* DatagramSocket */ MulticastSocket udpTxSocket)
+    // Reused for every payload; only its data (and length) changes.
+    private final DatagramPacket udpTxPacket;
+    
+    private final byte[] udpTxBatchArray = new byte[UdpMulticastService.MAX_PACKING_MTU];
+    
+    private final ByteBuffer udpTxBatch = ByteBuffer.wrap (this.udpTxBatchArray);
+    
+    private final byte[] udpTxFrameArray = new byte[UdpMulticastService.MAX_PACKING_MTU];
+    
+    private final ByteBuffer udpTxFrame = ByteBuffer.wrap (this.udpTxFrameArray);
+    
+    private final UdpTxHistory udpTxHistory = new UdpTxHistory ();
+    
+    private final UdpPacking.Packer udpTxPacker = new UdpPacking.Packer ();
+    
+    private final BlockingQueue<byte[]> udpTxQueue;
+    
+    // May be changed (live) through setGroup.
+    private volatile SocketAddress udpTxAddress;
+    
+    private UdpTxThread (final /* DatagramSocket */ MulticastSocket udpTxSocket,
+                         final SocketAddress udpTxAddress,
+                         final BlockingQueue<byte[]> udpTxQueue)
     {
-      if (udpTxSocket == null)
+      if (udpTxSocket == null || udpTxAddress == null || udpTxQueue == null)
         throw new IllegalArgumentException ();
       this.udpTxSocket = udpTxSocket;
+      this.udpTxAddress = udpTxAddress;
+      this.udpTxQueue = udpTxQueue;
+      this.udpTxPacket = new DatagramPacket (new byte[0], 0, udpTxAddress);
     }
 
     @Override
@@ -563,19 +3520,73 @@ public class UdpMulticastService
         new Object[]{this.getClass ().getSimpleName (), this});
       try
       {
+        // The payload taken from the queue that did not fit in the previous (packed) datagram.
+        byte[] carriedPayload = null;
+        SocketAddress packetAddress = this.udpTxAddress;
         while (this.mustRun)
         {
-          final byte[] payload = UdpMulticastService.this.udpTxQueue.take ();
-          final DatagramPacket p = new DatagramPacket (payload, payload.length, InetAddress.getByName (group), port);
+          final byte[] payload = carriedPayload != null ? carriedPayload : this.udpTxQueue.take ();
+          carriedPayload = null;
+          final DatagramPacket p = this.udpTxPacket;
+          final boolean framing = UdpMulticastService.this.framing;
+          // Room for the framing header and the redundancy entry count.
+          final int headerSize = framing ? UdpMulticastService.FRAME_HEADER_SIZE + 1 : 0;
+          final byte[] data;
+          final int length;
+          if (UdpMulticastService.this.packing
+            && headerSize + UdpMulticastService.PACKING_HEADER_SIZE + UdpPacking.maxPackedSize (payload.length) <= this.udpTxBatch.capacity ())
+          {
+            final int mtu = UdpMulticastService.this.packingMtu - headerSize;
+            final long flushDeadline = System.nanoTime () + 1000L * UdpMulticastService.this.packingFlushLatency;
+            this.udpTxBatch.clear ();
+            this.udpTxPacker.start (this.udpTxBatch, UdpMulticastService.this.packingRunningStatus);
+            this.udpTxPacker.pack (this.udpTxBatch, payload);
+            // An isolated message (nothing else waiting) is sent at once;
+            // only within a burst do we wait (up to the flush deadline) for more messages.
+            boolean burst = false;
+            while (true)
+            {
+              final long timeout = flushDeadline - System.nanoTime ();
+              final byte[] nextPayload = burst && timeout > 0
+                ? this.udpTxQueue.poll (timeout, TimeUnit.NANOSECONDS)
+                : this.udpTxQueue.poll ();
+              if (nextPayload == null)
+                break;
+              burst = true;
+              if (this.udpTxBatch.position () + this.udpTxPacker.packedSize (nextPayload) > mtu)
+              {
+                carriedPayload = nextPayload;
+                break;
+              }
+              this.udpTxPacker.pack (this.udpTxBatch, nextPayload);
+            }
+            data = this.udpTxBatchArray;
+            length = this.udpTxBatch.position ();
+          }
+          else
+          {
+            data = payload;
+            length = payload.length;
+          }
+          if (framing && headerSize + length <= this.udpTxFrame.capacity ())
+          {
+            UdpMulticastService.this.frame (this.udpTxHistory, data, length, this.udpTxFrame);
+            p.setData (this.udpTxFrameArray, 0, this.udpTxFrame.limit ());
+          }
+          else
+            p.setData (data, 0, length);
 //          LOG.log (Level.INFO, "Transmitting UDP datagram for Service Class {0} on Instance {1}: {2}.",
 //            new Object[]{this.getClass ().getSimpleName (),
 //                         this,
 //                         HexUtils.bytesToHex (p.getData (), p.getOffset (), p.getLength ())});
-          this.udpTxSocket.send (p);
-          synchronized (UdpMulticastService.this)
+          final SocketAddress address = this.udpTxAddress;
+          if (address != packetAddress)
           {
-            UdpMulticastService.this.monitorableActivities.put (UdpMulticastService.ACTIVITY_TX_NAME, Instant.now ());
+            p.setSocketAddress (address);
+            packetAddress = address;
           }
+          this.udpTxSocket.send (p);
+          UdpMulticastService.this.lastTxNanoTime.lazySet (System.nanoTime ());
         }
       }
       catch (IOException ioe)
@@ -595,18 +3606,231 @@ public class UdpMulticastService
     
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   //
-  // ACTIVITY MONITORABLE
+  // UDP CHANNEL ENDPOINT
   //
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   
-  private final Map<String, Instant> monitorableActivities = new LinkedHashMap<> ();
+  /** The reception and transmission logic of the {@link Engine#CHANNEL} engine.
+   * 
+   * <p>
+   * The endpoint is driven by a selector thread of the {@link UdpMulticastReactor}.
+   * Received datagrams are read into a reusable direct {@link ByteBuffer}
+   * and delivered to the listeners directly from that thread,
+   * through a (reusable) read-only view on that buffer.
+   * 
+   */
+  private class UdpChannelEndpoint
+    implements UdpMulticastReactor.Endpoint
   {
-    // XXX Why is this set to Instant.now?? Breaks contract??
-    this.monitorableActivities.put (null, Instant.now ());
-    this.monitorableActivities.put (ACTIVITY_TX_NAME, Instant.MIN);
-    this.monitorableActivities.put (ACTIVITY_RX_NAME, Instant.MIN);
+    
+    private volatile boolean mustRun = false;
+    
+    private final DatagramChannel udpChannel;
+    
+    // May be changed (live) through setGroup.
+    private volatile SocketAddress udpTxAddress;
+    
+    private final ByteBuffer rxBuffer = ByteBuffer.allocateDirect (UdpRxThread.BUFFER_SIZE);
+    
+    private final ByteBuffer rxView = this.rxBuffer.asReadOnlyBuffer ();
+    
+    private final ByteBuffer txBuffer = ByteBuffer.allocateDirect (UdpRxThread.BUFFER_SIZE);
+    
+    private final byte[] txStagingArray = new byte[UdpMulticastService.MAX_PACKING_MTU];
+    
+    private final ByteBuffer txStaging = ByteBuffer.wrap (this.txStagingArray);
+    
+    private final UdpTxHistory txHistory = new UdpTxHistory ();
+    
+    private final UdpPacking.Packer txPacker = new UdpPacking.Packer ();
+    
+    private ByteBuffer pendingTxData = null;
+    
+    private byte[] carriedPayload = null;
+    
+    private volatile UdpMulticastReactor.Registration registration = null;
+    
+    private final BlockingQueue<byte[]> udpTxQueue;
+    
+    private UdpChannelEndpoint (final DatagramChannel udpChannel,
+                                final SocketAddress udpTxAddress,
+                                final BlockingQueue<byte[]> udpTxQueue)
+    {
+      if (udpChannel == null || udpTxAddress == null || udpTxQueue == null)
+        throw new IllegalArgumentException ();
+      this.udpChannel = udpChannel;
+      this.udpTxAddress = udpTxAddress;
+      this.udpTxQueue = udpTxQueue;
+    }
+
+    @Override
+    public DatagramChannel getChannel ()
+    {
+      return this.udpChannel;
+    }
+    
+    @Override
+    public void receive () throws IOException
+    {
+      while (this.mustRun)
+      {
+        this.rxBuffer.clear ();
+        if (this.udpChannel.receive (this.rxBuffer) == null)
+          return;
+        final long timestamp = System.nanoTime ();
+        UdpMulticastService.this.lastRxNanoTime.lazySet (timestamp);
+        this.rxView.limit (this.rxBuffer.position ()).position (0);
+        try
+        {
+          UdpMulticastService.this.deliverDatagram (this.rxView, timestamp);
+        }
+        catch (RuntimeException re)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+            new Object[]{UdpMulticastService.this.getClass ().getSimpleName (), UdpMulticastService.this, re});
+        }
+      }
+    }
+    
+    @Override
+    public boolean transmit () throws IOException
+    {
+      while (this.mustRun)
+      {
+        ByteBuffer txData = this.pendingTxData;
+        if (txData == null)
+        {
+          final byte[] payload = this.carriedPayload != null
+            ? this.carriedPayload
+            : this.udpTxQueue.poll ();
+          this.carriedPayload = null;
+          if (payload == null)
+            break;
+          final boolean framing = UdpMulticastService.this.framing;
+          // Room for the framing header and the redundancy entry count.
+          final int headerSize = framing ? UdpMulticastService.FRAME_HEADER_SIZE + 1 : 0;
+          if (UdpMulticastService.this.packing
+            && headerSize + UdpMulticastService.PACKING_HEADER_SIZE + UdpPacking.maxPackedSize (payload.length) <= this.txBuffer.capacity ())
+          {
+            // Pack the messages already present in the transmit buffer; we cannot wait for more on the reactor thread.
+            // With framing, we pack into the (heap) staging buffer first.
+            final ByteBuffer packBuffer = framing ? this.txStaging : this.txBuffer;
+            final int mtu = UdpMulticastService.this.packingMtu - headerSize;
+            packBuffer.clear ();
+            this.txPacker.start (packBuffer, UdpMulticastService.this.packingRunningStatus);
+            this.txPacker.pack (packBuffer, payload);
+            byte[] nextPayload;
+            while ((nextPayload = this.udpTxQueue.poll ()) != null)
+            {
+              if (packBuffer.position () + this.txPacker.packedSize (nextPayload) > mtu)
+              {
+                this.carriedPayload = nextPayload;
+                break;
+              }
+              this.txPacker.pack (packBuffer, nextPayload);
+            }
+            if (framing)
+              UdpMulticastService.this.frame (this.txHistory, this.txStagingArray, packBuffer.position (), this.txBuffer);
+            else
+              this.txBuffer.flip ();
+            txData = this.txBuffer;
+          }
+          else if (framing && headerSize + payload.length <= this.txBuffer.capacity ())
+          {
+            UdpMulticastService.this.frame (this.txHistory, payload, payload.length, this.txBuffer);
+            txData = this.txBuffer;
+          }
+          else if (payload.length <= this.txBuffer.capacity ())
+          {
+            // Copy into the (reusable) direct buffer; this avoids the temporary direct buffer
+            // the channel would otherwise use internally for a heap buffer.
+            this.txBuffer.clear ();
+            this.txBuffer.put (payload);
+            this.txBuffer.flip ();
+            txData = this.txBuffer;
+          }
+          else
+            txData = ByteBuffer.wrap (payload);
+        }
+        if (this.udpChannel.send (txData, this.udpTxAddress) == 0)
+        {
+          // Kernel send buffer full; retry when the channel becomes writable.
+          this.pendingTxData = txData;
+          return true;
+        }
+        this.pendingTxData = null;
+        UdpMulticastService.this.lastTxNanoTime.lazySet (System.nanoTime ());
+      }
+      return false;
+    }
+
+    @Override
+    public void failed (final Exception e)
+    {
+      if (! this.mustRun)
+        return;
+      LOG.log (Level.WARNING, "UDP Channel Endpoint for Service Class {0} on Instance {1} caught {2}!",
+        new Object[]{UdpMulticastService.this.getClass ().getSimpleName (), UdpMulticastService.this, e});
+      UdpMulticastService.this.error ();
+    }
+    
   }
     
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Instant} at construction, used as anchor for converting {@link System#nanoTime} values into {@link Instant}s.
+   * 
+   */
+  private final Instant activityAnchorInstant = Instant.now ();
+  
+  /** The value of {@link System#nanoTime} at construction (approximately at {@link #activityAnchorInstant}).
+   * 
+   */
+  private final long activityAnchorNanoTime = System.nanoTime ();
+  
+  /** The {@link System#nanoTime} value of the last transmission, {@link #NO_ACTIVITY} if none.
+   * 
+   * <p>
+   * Written (lazily) by the transmitting thread without taking any lock.
+   * 
+   */
+  private final AtomicLong lastTxNanoTime = new AtomicLong (UdpMulticastService.NO_ACTIVITY);
+  
+  /** The {@link System#nanoTime} value of the last reception, {@link #NO_ACTIVITY} if none.
+   * 
+   * <p>
+   * Written (lazily) by the receiving thread without taking any lock.
+   * 
+   */
+  private final AtomicLong lastRxNanoTime = new AtomicLong (UdpMulticastService.NO_ACTIVITY);
+  
+  /** Marker value for the absence of activity.
+   * 
+   */
+  private static final long NO_ACTIVITY = Long.MIN_VALUE;
+  
+  /** Converts a {@link System#nanoTime} activity value into an {@link Instant}.
+   * 
+   * <p>
+   * The conversion is relative to the {@link Instant} at construction of this service,
+   * and hence does not follow adjustments of the system clock after construction.
+   * 
+   * @param nanoTime The {@link System#nanoTime} value, or {@link #NO_ACTIVITY}.
+   * 
+   * @return The corresponding {@link Instant}, {@link Instant#MIN} for {@link #NO_ACTIVITY}.
+   * 
+   */
+  private Instant toActivityInstant (final long nanoTime)
+  {
+    if (nanoTime == UdpMulticastService.NO_ACTIVITY)
+      return Instant.MIN;
+    return this.activityAnchorInstant.plusNanos (nanoTime - this.activityAnchorNanoTime);
+  }
+  
   /** The name of the transmission activity.
    * 
    * <p>
@@ -635,24 +3859,53 @@ public class UdpMulticastService
    * 
    */
   @Override
-  public final synchronized Set<String> getMonitorableActivities ()
+  public final Set<String> getMonitorableActivities ()
   {
-    return this.monitorableActivities.keySet ();
+    return UdpMulticastService.MONITORABLE_ACTIVITIES;
   }
+  
+  private static final Set<String> MONITORABLE_ACTIVITIES = Collections.unmodifiableSet (new LinkedHashSet<> (Arrays.asList (
+    null,
+    UdpMulticastService.ACTIVITY_TX_NAME,
+    UdpMulticastService.ACTIVITY_RX_NAME)));
 
+  /** Returns the {@link Instant} of construction of this service.
+   * 
+   * @return The {@link Instant} of construction of this service.
+   * 
+   */
   @Override
-  public synchronized Instant lastActivity ()
+  public Instant lastActivity ()
   {
-    return this.monitorableActivities.get (null);
+    // XXX Why is this set to Instant.now?? Breaks contract??
+    return this.activityAnchorInstant;
   }
 
+  /** Returns the {@link Instant} of the last activity of given type.
+   * 
+   * <p>
+   * This method does not take any lock; the {@link Instant} is materialized from an atomically maintained
+   * {@link System#nanoTime} value upon each invocation.
+   * 
+   * @param monitorableActivity The activity, {@link #ACTIVITY_TX_NAME} or {@link #ACTIVITY_RX_NAME}.
+   * 
+   * @return The {@link Instant} of the last activity, {@link Instant#MIN} if none, or if the activity is unknown.
+   * 
+   */
   @Override
-  public synchronized Instant lastActivity (final String monitorableActivity)
+  public Instant lastActivity (final String monitorableActivity)
   {
-    if (! this.monitorableActivities.containsKey (monitorableActivity))
-      return Instant.MIN;
-    else
-      return this.monitorableActivities.get (monitorableActivity);
+    if (monitorableActivity == null)
+      return lastActivity ();
+    switch (monitorableActivity)
+    {
+      case UdpMulticastService.ACTIVITY_TX_NAME:
+        return toActivityInstant (this.lastTxNanoTime.get ());
+      case UdpMulticastService.ACTIVITY_RX_NAME:
+        return toActivityInstant (this.lastRxNanoTime.get ());
+      default:
+        return Instant.MIN;
+    }
   }
   
   //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,422 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.nio.ByteBuffer;
+
+/** The wire format of packed datagrams of a {@link UdpMulticastService}, holding multiple length-prefixed messages.
+ * 
+ * <p>
+ * A packed datagram starts with a header of {@link #HEADER_SIZE} bytes:
+ * two magic bytes ({@code 0xFD 0x50}) and a flags byte.
+ * The header is followed by the messages, each prefixed with its length
+ * (unsigned, in groups of seven bits, least-significant group first,
+ * with the most-significant bit set on all but the last byte, and at most three bytes).
+ * With the running-status flag ({@link #FLAG_RUNNING_STATUS}) set,
+ * the length prefix holds twice the number of bytes stored,
+ * plus one if the first byte of the message is omitted
+ * (and equal to the first byte of the previous message in the datagram).
+ * 
+ * <p>
+ * This class holds static methods only, apart from the (stateful) {@link Packer}.
+ * 
+ * @see UdpMulticastService#setPacking
+ * @see UdpMulticastService#setPackingRunningStatus
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+final class UdpPacking
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Prevents instantiation.
+   * 
+   */
+  private UdpPacking ()
+  {
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // HEADER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The size of the header of a packed datagram in bytes.
+   * 
+   */
+  static final int HEADER_SIZE = 3;
+  
+  static final byte MAGIC_0 = (byte) 0xFD;
+  
+  static final byte MAGIC_1 = (byte) 0x50;
+  
+  /** The flag in the header indicating running status.
+   * 
+   */
+  static final int FLAG_RUNNING_STATUS = 0x01;
+  
+  /** The flags of the header understood by this implementation.
+   * 
+   */
+  static final int FLAGS_SUPPORTED = UdpPacking.FLAG_RUNNING_STATUS;
+  
+  /** Writes the header of a packed datagram into a buffer.
+   * 
+   * @param buffer The buffer, must have at least {@link #HEADER_SIZE} bytes remaining.
+   * @param flags  The flags.
+   * 
+   */
+  static void start (final ByteBuffer buffer, final int flags)
+  {
+    buffer.put (UdpPacking.MAGIC_0);
+    buffer.put (UdpPacking.MAGIC_1);
+    buffer.put ((byte) flags);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LENGTH PREFIXES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the size of a message once packed (i.e., including its length prefix), without running status.
+   * 
+   * @param length The length of the message.
+   * 
+   * @return The size of the packed message.
+   * 
+   */
+  static int packedSize (final int length)
+  {
+    return prefixSize (length) + length;
+  }
+  
+  /** Returns the size of a length prefix.
+   * 
+   * @param prefix The value of the prefix, non-negative and below {@code 2^21}.
+   * 
+   * @return The size of the prefix.
+   * 
+   */
+  static int prefixSize (final int prefix)
+  {
+    return prefix < 0x80 ? 1 : (prefix < 0x4000 ? 2 : 3);
+  }
+  
+  /** Returns an upper bound to the size of a message once packed, irrespective of running status.
+   * 
+   * @param length The length of the message.
+   * 
+   * @return The maximum size of the packed message.
+   * 
+   */
+  static int maxPackedSize (final int length)
+  {
+    return prefixSize (length << 1) + length;
+  }
+  
+  /** Packs (the first bytes of) a message (with its length prefix) into a buffer, without running status.
+   * 
+   * @param buffer  The buffer, must have sufficient space remaining.
+   * @param message The message.
+   * @param length  The length of the message, at most the length of the array.
+   * 
+   */
+  static void pack (final ByteBuffer buffer, final byte[] message, final int length)
+  {
+    putPrefix (buffer, length);
+    buffer.put (message, 0, length);
+  }
+  
+  /** Writes a length prefix into a buffer.
+   * 
+   * @param buffer The buffer, must have sufficient space remaining.
+   * @param prefix The value of the prefix, non-negative and below {@code 2^21}.
+   * 
+   */
+  static void putPrefix (final ByteBuffer buffer, final int prefix)
+  {
+    int remainder = prefix;
+    while (remainder >= 0x80)
+    {
+      buffer.put ((byte) (0x80 | (remainder & 0x7f)));
+      remainder >>>= 7;
+    }
+    buffer.put ((byte) remainder);
+  }
+  
+  /** Returns the length of the packed message (without running status) at given position in a buffer.
+   * 
+   * @param buffer   The buffer.
+   * @param position The position of the length prefix.
+   * @param limit    The limit of the packed messages.
+   * 
+   * @return The length of the message (excluding its prefix),
+   *           or -1 if the prefix is invalid or not minimal, the message is empty or the message exceeds the limit.
+   * 
+   */
+  static int packedLength (final ByteBuffer buffer, final int position, final int limit)
+  {
+    final int length = getPrefix (buffer, position, limit);
+    return (length > 0 && position + prefixSize (length) + length <= limit) ? length : -1;
+  }
+  
+  /** Returns the value of the length prefix at given position in a buffer.
+   * 
+   * @param buffer   The buffer.
+   * @param position The position of the length prefix.
+   * @param limit    The limit of the packed messages.
+   * 
+   * @return The value of the prefix, or -1 if the prefix is invalid, not minimal, or exceeds the limit.
+   * 
+   */
+  static int getPrefix (final ByteBuffer buffer, final int position, final int limit)
+  {
+    int prefix = 0;
+    for (int i = 0; i < 3 && position + i < limit; i++)
+    {
+      final int b = buffer.get (position + i);
+      if (i > 0 && b == 0)
+        // Non-minimal encoding.
+        return -1;
+      prefix |= (b & 0x7f) << (7 * i);
+      if ((b & 0x80) == 0)
+        return prefix;
+    }
+    return -1;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PACKER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Packs messages into a datagram, applying running status if enabled.
+   * 
+   * <p>
+   * Owned by a single transmitting thread (or endpoint); allocated once.
+   * 
+   */
+  static final class Packer
+  {
+    
+    private boolean runningStatus = false;
+    
+    /** The first byte of the previous message in the datagram, or -1 if there is none.
+     * 
+     */
+    private int firstByte = -1;
+    
+    /** Starts a packed datagram, writing the header.
+     * 
+     * @param buffer        The buffer, must have at least {@link #HEADER_SIZE} bytes remaining.
+     * @param runningStatus Whether to apply running status.
+     * 
+     */
+    void start (final ByteBuffer buffer, final boolean runningStatus)
+    {
+      UdpPacking.start (buffer, runningStatus ? UdpPacking.FLAG_RUNNING_STATUS : 0);
+      this.runningStatus = runningStatus;
+      this.firstByte = -1;
+    }
+    
+    private boolean omitsFirstByte (final byte[] message)
+    {
+      return this.runningStatus && message.length > 1 && (message[0] & 0xff) == this.firstByte;
+    }
+    
+    private int prefix (final byte[] message, final boolean omitFirstByte)
+    {
+      if (! this.runningStatus)
+        return message.length;
+      return omitFirstByte ? ((message.length - 1) << 1) | 1 : message.length << 1;
+    }
+    
+    /** Returns the size of a message once packed into the current datagram.
+     * 
+     * @param message The message, non-empty.
+     * 
+     * @return The size of the packed message.
+     * 
+     */
+    int packedSize (final byte[] message)
+    {
+      final boolean omitFirstByte = omitsFirstByte (message);
+      return prefixSize (prefix (message, omitFirstByte)) + message.length - (omitFirstByte ? 1 : 0);
+    }
+    
+    /** Packs a message into the current datagram.
+     * 
+     * @param buffer  The buffer, must have at least {@link #packedSize} bytes remaining.
+     * @param message The message, non-empty.
+     * 
+     */
+    void pack (final ByteBuffer buffer, final byte[] message)
+    {
+      final boolean omitFirstByte = omitsFirstByte (message);
+      putPrefix (buffer, prefix (message, omitFirstByte));
+      buffer.put (message, omitFirstByte ? 1 : 0, message.length - (omitFirstByte ? 1 : 0));
+      this.firstByte = message[0] & 0xff;
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UNPACK
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Receives the messages unpacked from a datagram.
+   * 
+   * @see #unpack
+   * 
+   */
+  interface MessageSink
+  {
+    
+    /** Notification of a message unpacked from a datagram.
+     * 
+     * @param message   The message between position and limit;
+     *                    only valid during the invocation, and must not be modified.
+     * @param timestamp The timestamp passed to {@link #unpack}.
+     * 
+     */
+    void messageUnpacked (ByteBuffer message, long timestamp);
+    
+  }
+  
+  /** Returns whether a datagram is a valid packed datagram.
+   * 
+   * <p>
+   * A datagram is valid if it starts with a header with supported flags,
+   * and consists entirely of (at least one) non-empty messages with valid and minimal length prefixes,
+   * the first of which does not omit its first byte.
+   * 
+   * @param datagram The datagram between position and limit, non-{@code null}; its position and limit are unaffected.
+   * 
+   * @return Whether the datagram is a valid packed datagram.
+   * 
+   */
+  static boolean isPacked (final ByteBuffer datagram)
+  {
+    final int start = datagram.position ();
+    final int end = datagram.limit ();
+    if (end - start <= UdpPacking.HEADER_SIZE
+      || datagram.get (start) != UdpPacking.MAGIC_0
+      || datagram.get (start + 1) != UdpPacking.MAGIC_1
+      || (datagram.get (start + 2) & ~UdpPacking.FLAGS_SUPPORTED) != 0)
+      return false;
+    final boolean runningStatus = (datagram.get (start + 2) & UdpPacking.FLAG_RUNNING_STATUS) != 0;
+    final int messagesStart = start + UdpPacking.HEADER_SIZE;
+    for (int position = messagesStart; position < end;)
+    {
+      final int prefix = getPrefix (datagram, position, end);
+      final int stored = runningStatus ? prefix >> 1 : prefix;
+      final boolean omittedFirstByte = runningStatus && (prefix & 1) != 0;
+      if (prefix < 0
+        || stored == 0
+        || (omittedFirstByte && position == messagesStart)
+        || position + prefixSize (prefix) + stored > end)
+        return false;
+      position += prefixSize (prefix) + stored;
+    }
+    return true;
+  }
+  
+  /** A per-thread scratch buffer for restoring messages packed with running status.
+   * 
+   */
+  private static final class UnpackBuffer
+  {
+    
+    private final byte[] array;
+    
+    private final ByteBuffer view;
+    
+    private UnpackBuffer (final int capacity)
+    {
+      this.array = new byte[capacity];
+      this.view = ByteBuffer.wrap (this.array).asReadOnlyBuffer ();
+    }
+    
+  }
+  
+  private static final ThreadLocal<UnpackBuffer> UNPACK_BUFFER =
+    ThreadLocal.withInitial (() -> new UnpackBuffer (UdpMulticastService.MAX_PACKING_MTU));
+    
+  /** Unpacks a valid packed datagram, and hands its messages to a sink, in order.
+   * 
+   * <p>
+   * Messages stored in full are handed over as a view on the datagram itself;
+   * messages stored without their first byte are restored in a per-thread scratch buffer.
+   * Neither involves the creation of objects (once per thread).
+   * 
+   * @param datagram  The datagram between position and limit, non-{@code null}, valid according to {@link #isPacked};
+   *                    its position and limit are restored upon return.
+   * @param timestamp The timestamp to pass to the sink.
+   * @param sink      The sink, non-{@code null}.
+   * 
+   */
+  static void unpack (final ByteBuffer datagram, final long timestamp, final MessageSink sink)
+  {
+    final int start = datagram.position ();
+    final int end = datagram.limit ();
+    final boolean runningStatus = (datagram.get (start + 2) & UdpPacking.FLAG_RUNNING_STATUS) != 0;
+    byte firstByte = 0;
+    for (int position = start + UdpPacking.HEADER_SIZE; position < end;)
+    {
+      final int prefix = getPrefix (datagram, position, end);
+      final int stored = runningStatus ? prefix >> 1 : prefix;
+      final int messageStart = position + prefixSize (prefix);
+      if (runningStatus && (prefix & 1) != 0)
+      {
+        // Restore the omitted first byte in the (per-thread) scratch buffer.
+        final UnpackBuffer unpackBuffer = UdpPacking.UNPACK_BUFFER.get ();
+        unpackBuffer.array[0] = firstByte;
+        for (int i = 0; i < stored; i++)
+          unpackBuffer.array[1 + i] = datagram.get (messageStart + i);
+        unpackBuffer.view.limit (1 + stored).position (0);
+        sink.messageUnpacked (unpackBuffer.view, timestamp);
+      }
+      else
+      {
+        firstByte = datagram.get (messageStart);
+        datagram.limit (messageStart + stored).position (messageStart);
+        sink.messageUnpacked (datagram, timestamp);
+        datagram.limit (end);
+      }
+      position = messageStart + stored;
+    }
+    datagram.position (start);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,332 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+/** Reception statistics of datagrams from a single sender, based on the sequence numbers in their framing headers.
+ * 
+ * <p>
+ * The statistics distinguish between datagrams received (excluding duplicates),
+ * lost datagrams (gaps in the sequence numbers not (yet) filled),
+ * duplicate datagrams,
+ * reordered datagrams (arriving after a datagram with a higher sequence number, filling a gap),
+ * and recovered datagrams (lost datagrams whose payload was repaired from redundant data in later datagrams).
+ * A reordered datagram arriving within the last {@link #WINDOW_SIZE} sequence numbers
+ * is no longer counted as lost; a recovered datagram remains counted as lost.
+ * 
+ * <p>
+ * Sequence numbers are compared with wrap-around;
+ * a jump of more than {@link #MAX_SEQUENCE_JUMP} (in either direction)
+ * is interpreted as a restart of the sender, and does not affect the loss count.
+ * 
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @see UdpMulticastService#setFraming
+ * @see UdpMulticastService#getSenderStatistics
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class UdpSenderStatistics
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates (empty) statistics for given sender.
+   * 
+   * @param senderId The sender id.
+   * 
+   */
+  UdpSenderStatistics (final int senderId)
+  {
+    this.senderId = senderId;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SENDER ID
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final int senderId;
+  
+  /** Returns the sender id.
+   * 
+   * @return The sender id.
+   * 
+   */
+  public int getSenderId ()
+  {
+    return this.senderId;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECORD
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The number of most recent sequence numbers for which reception is remembered.
+   * 
+   */
+  public static final int WINDOW_SIZE = 64;
+  
+  /** The maximum jump in sequence numbers not interpreted as a restart of the sender.
+   * 
+   */
+  public static final int MAX_SEQUENCE_JUMP = 1 << 15;
+  
+  private boolean started = false;
+  
+  private int highestSequence;
+  
+  // Bit i is set if highestSequence - i has been received.
+  private long window;
+  
+  // The number of sequence numbers below highestSequence issued since the (re)start, at most WINDOW_SIZE;
+  // only these can have been counted as lost.
+  private int span;
+  
+  private long receivedCount = 0;
+  
+  private long lostCount = 0;
+  
+  private long duplicateCount = 0;
+  
+  private long reorderedCount = 0;
+  
+  private long restartCount = 0;
+  
+  private long recoveredCount = 0;
+  
+  /** Records the reception of a datagram with given sequence number.
+   * 
+   * @param sequence The sequence number.
+   * 
+   * @return {@code false} if the datagram is a duplicate (and should be ignored), {@code true} otherwise.
+   * 
+   */
+  synchronized boolean record (final int sequence)
+  {
+    if (! this.started)
+    {
+      this.started = true;
+      restart (sequence);
+      return true;
+    }
+    final int delta = sequence - this.highestSequence;
+    if (delta == 0)
+    {
+      this.duplicateCount++;
+      return false;
+    }
+    if (delta > UdpSenderStatistics.MAX_SEQUENCE_JUMP || delta < - UdpSenderStatistics.MAX_SEQUENCE_JUMP)
+    {
+      this.restartCount++;
+      restart (sequence);
+      return true;
+    }
+    if (delta > 0)
+    {
+      this.lostCount += delta - 1;
+      advance (sequence, delta);
+      this.receivedCount++;
+      return true;
+    }
+    final int age = - delta;
+    if (age < UdpSenderStatistics.WINDOW_SIZE)
+    {
+      final long bit = 1L << age;
+      if ((this.window & bit) != 0)
+      {
+        this.duplicateCount++;
+        return false;
+      }
+      this.window |= bit;
+      // Datagrams sent before the (re)start were never counted as lost.
+      if (age < this.span)
+        this.lostCount--;
+    }
+    // Beyond the window, we cannot tell duplicates from late arrivals; assume the latter.
+    this.reorderedCount++;
+    this.receivedCount++;
+    return true;
+  }
+  
+  /** Records the recovery of a datagram with given sequence number from redundant data in another datagram.
+   * 
+   * <p>
+   * Recovery is only accepted for datagrams not received (or recovered) before,
+   * within the window of the most recent sequence numbers or ahead of it.
+   * Recovery is refused before the first datagram of the sender has been recorded,
+   * and for datagrams sent before the first datagram recorded (or before a restart)
+   * (i.e., past messages are not replayed when joining a stream).
+   * 
+   * @param sequence The sequence number of the datagram recovered.
+   * 
+   * @return {@code true} if the recovered datagram is new (and should be delivered), {@code false} otherwise.
+   * 
+   */
+  synchronized boolean recover (final int sequence)
+  {
+    if (! this.started)
+      return false;
+    final int delta = sequence - this.highestSequence;
+    if (delta > UdpSenderStatistics.MAX_SEQUENCE_JUMP || delta <= - UdpSenderStatistics.WINDOW_SIZE)
+      return false;
+    if (delta > 0)
+    {
+      // The datagram itself (and any datagrams in between) has been lost.
+      this.lostCount += delta;
+      advance (sequence, delta);
+      this.recoveredCount++;
+      return true;
+    }
+    if (- delta >= this.span)
+      return false;
+    final long bit = 1L << (- delta);
+    if ((this.window & bit) != 0)
+      return false;
+    this.window |= bit;
+    this.recoveredCount++;
+    return true;
+  }
+  
+  private void restart (final int sequence)
+  {
+    this.highestSequence = sequence;
+    this.window = 1L;
+    this.span = 0;
+    this.receivedCount++;
+  }
+  
+  private void advance (final int sequence, final int delta)
+  {
+    this.window = delta >= UdpSenderStatistics.WINDOW_SIZE ? 1L : (this.window << delta) | 1L;
+    this.span = Math.min (UdpSenderStatistics.WINDOW_SIZE, this.span + delta);
+    this.highestSequence = sequence;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATISTICS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the highest sequence number received.
+   * 
+   * @return The highest sequence number received, zero if none was received yet.
+   * 
+   */
+  public synchronized int getHighestSequence ()
+  {
+    return this.started ? this.highestSequence : 0;
+  }
+  
+  /** Returns the number of datagrams received, excluding duplicates.
+   * 
+   * @return The number of datagrams received, excluding duplicates.
+   * 
+   */
+  public synchronized long getReceivedCount ()
+  {
+    return this.receivedCount;
+  }
+  
+  /** Returns the number of datagrams lost.
+   * 
+   * <p>
+   * Note that a datagram counted as lost may still arrive later, in which case it is counted as reordered
+   * and no longer counted as lost.
+   * 
+   * @return The number of datagrams lost.
+   * 
+   */
+  public synchronized long getLostCount ()
+  {
+    return this.lostCount;
+  }
+  
+  /** Returns the number of duplicate datagrams received.
+   * 
+   * @return The number of duplicate datagrams received.
+   * 
+   */
+  public synchronized long getDuplicateCount ()
+  {
+    return this.duplicateCount;
+  }
+  
+  /** Returns the number of reordered datagrams received.
+   * 
+   * @return The number of datagrams received after a datagram with a higher sequence number.
+   * 
+   */
+  public synchronized long getReorderedCount ()
+  {
+    return this.reorderedCount;
+  }
+  
+  /** Returns the number of (assumed) restarts of the sender.
+   * 
+   * @return The number of sequence-number jumps larger than {@link #MAX_SEQUENCE_JUMP}.
+   * 
+   */
+  public synchronized long getRestartCount ()
+  {
+    return this.restartCount;
+  }
+  
+  /** Returns the number of lost datagrams recovered from redundant data in other datagrams.
+   * 
+   * @return The number of lost datagrams recovered.
+   * 
+   */
+  public synchronized long getRecoveredCount ()
+  {
+    return this.recoveredCount;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TO STRING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public synchronized String toString ()
+  {
+    return "UdpSenderStatistics{senderId=" + Integer.toHexString (this.senderId)
+      + ", received=" + this.receivedCount
+      + ", lost=" + this.lostCount
+      + ", duplicates=" + this.duplicateCount
+      + ", reordered=" + this.reorderedCount
+      + ", restarts=" + this.restartCount
+      + ", recovered=" + this.recoveredCount + "}";
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,128 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+/** The payloads of the most recently transmitted (framed) datagrams of a {@link UdpMulticastService}, for redundancy.
+ * 
+ * <p>
+ * The history holds (copies of) at most {@link UdpMulticastService#MAX_REDUNDANCY} payloads,
+ * each of at most {@link UdpMulticastService#MAX_PACKING_MTU} bytes, allocated once.
+ * Payloads are addressed by their age: zero for the most recently added payload, one for the one before, etc.
+ * 
+ * <p>
+ * This class is not thread-safe;
+ * a history is owned by a single transmitting thread (or endpoint).
+ * 
+ * @see UdpMulticastService#setRedundancy
+ * @see UdpFraming#frame
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+final class UdpTxHistory
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PAYLOADS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final byte[][] payloads = new byte[UdpMulticastService.MAX_REDUNDANCY][UdpMulticastService.MAX_PACKING_MTU];
+  
+  private final int[] lengths = new int[UdpMulticastService.MAX_REDUNDANCY];
+  
+  private final int[] sequences = new int[UdpMulticastService.MAX_REDUNDANCY];
+  
+  private int newest = -1;
+  
+  private int size = 0;
+  
+  private int index (final int age)
+  {
+    return (this.newest - age + UdpMulticastService.MAX_REDUNDANCY) % UdpMulticastService.MAX_REDUNDANCY;
+  }
+  
+  /** Returns the number of payloads held.
+   * 
+   * @return The number of payloads held, between zero and {@link UdpMulticastService#MAX_REDUNDANCY} inclusive.
+   * 
+   */
+  int size ()
+  {
+    return this.size;
+  }
+  
+  /** Returns the array holding the payload of given age (starting at index zero).
+   * 
+   * @param age The age, non-negative and smaller than {@link #size}.
+   * 
+   * @return The array holding the payload; owned by this history.
+   * 
+   */
+  byte[] getPayload (final int age)
+  {
+    return this.payloads[index (age)];
+  }
+  
+  /** Returns the length of the payload of given age.
+   * 
+   * @param age The age, non-negative and smaller than {@link #size}.
+   * 
+   * @return The length of the payload.
+   * 
+   */
+  int getLength (final int age)
+  {
+    return this.lengths[index (age)];
+  }
+  
+  /** Returns the sequence number of the datagram that carried the payload of given age.
+   * 
+   * @param age The age, non-negative and smaller than {@link #size}.
+   * 
+   * @return The sequence number.
+   * 
+   */
+  int getSequence (final int age)
+  {
+    return this.sequences[index (age)];
+  }
+  
+  /** Adds (a copy of) a payload, replacing the oldest one if the history is full.
+   * 
+   * @param sequence The sequence number of the datagram carrying the payload.
+   * @param payload  The payload (starting at index zero).
+   * @param length   The length of the payload, at most {@link UdpMulticastService#MAX_PACKING_MTU}.
+   * 
+   */
+  void add (final int sequence, final byte[] payload, final int length)
+  {
+    this.newest = (this.newest + 1) % UdpMulticastService.MAX_REDUNDANCY;
+    System.arraycopy (payload, 0, this.payloads[this.newest], 0, length);
+    this.lengths[this.newest] = length;
+    this.sequences[this.newest] = sequence;
+    this.size = Math.min (this.size + 1, UdpMulticastService.MAX_REDUNDANCY);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,656 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.javajdj.jservice.AbstractService;
+import org.javajdj.jservice.Service;
+import org.javajdj.jservice.activity.ActivityMonitorable;
+
+/** A {@link Service} for point-to-point transmission to and reception from a UDP unicast peer.
+ * 
+ * <p>
+ * Intended for networks that do not carry multi-cast traffic.
+ * Each message is transmitted as a single datagram to the remote host and port;
+ * datagrams received at the local port from the remote host are delivered to the registered {@link MessageListener}s.
+ * Datagrams from other hosts are dropped (and counted, see {@link #getForeignDatagramCount}),
+ * so that other hosts cannot inject messages into the link.
+ * Only the source address is checked, not the source port, since a peer may transmit from an ephemeral port.
+ * Peers typically use the same (local and remote) port number, see {@link #UdpUnicastService(String, int)}.
+ * 
+ * <p>
+ * The service uses a single {@link DatagramChannel} in blocking mode, and a single thread for reception
+ * (and delivery).
+ * Transmission takes place on the caller's thread; it never blocks for a noticeable amount of time.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class UdpUnicastService
+  extends AbstractService
+  implements Service, ActivityMonitorable
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOGGING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final Logger LOG = Logger.getLogger (UdpUnicastService.class.getName ());
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a UDP unicast {@link Service} with given remote host, remote port and local port.
+   * 
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * @param remotePort The remote port.
+   * @param localPort  The local port; zero for an ephemeral port.
+   * 
+   * @throws IllegalArgumentException If the remote host is {@code null} or a port number is out of range.
+   * 
+   */
+  public UdpUnicastService (final String remoteHost, final int remotePort, final int localPort)
+  {
+    if (remoteHost == null || remotePort < 0 || remotePort > 65535 || localPort < 0 || localPort > 65535)
+      throw new IllegalArgumentException ();
+    this.remoteHost = remoteHost;
+    this.remotePort = remotePort;
+    this.localPort = localPort;
+  }
+  
+  /** Creates a UDP unicast {@link Service} with given remote host, and given port for both ends.
+   * 
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * @param port       The (remote and local) port.
+   * 
+   * @throws IllegalArgumentException If the remote host is {@code null} or the port number is out of range.
+   * 
+   */
+  public UdpUnicastService (final String remoteHost, final int port)
+  {
+    this (remoteHost, port, port);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MESSAGE LISTENERS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A listener to messages received at a {@link UdpUnicastService}.
+   * 
+   * @see #addMessageListener
+   * @see #removeMessageListener
+   * 
+   */
+  @FunctionalInterface
+  public interface MessageListener
+  {
+    
+    /** Notification (and delivery) of a received message.
+     * 
+     * <p>
+     * The buffer is a read-only view on the reception buffer of the service;
+     * it is only valid during the invocation, and is reused for subsequent datagrams.
+     * Listeners must copy the message (e.g., through {@link ByteBuffer#get(byte[])}) if they need it afterwards.
+     * 
+     * @param message   The message (payload) received, between the position and the limit of the buffer.
+     * @param timestamp The reception timestamp, see {@link System#nanoTime}.
+     * 
+     */
+    void messageReceived (final ByteBuffer message, final long timestamp);
+    
+  }
+  
+  private final Set<MessageListener> messageListeners = new LinkedHashSet<> ();
+  
+  /** An immutable snapshot of the registered message listeners, republished upon each (effective) registration change.
+   * 
+   * <p>
+   * Notifications iterate over the snapshot, without locking and without creating any objects.
+   * 
+   */
+  private volatile MessageListener[] messageListenersCopy = new MessageListener[0]; // References are atomic.
+  
+  /** Adds a message listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are already registered.
+   * 
+   * @param l The message listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void addMessageListener (final MessageListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (! this.messageListeners.contains (l))
+    {
+      this.messageListeners.add (l);
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
+    }
+  }
+  
+  /** Removes a message listener.
+   * 
+   * <p>
+   * The method silently ignores listeners that are not registered.
+   * 
+   * @param l The message listener, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code l == null}.
+   * 
+   */
+  public final synchronized void removeMessageListener (final MessageListener l)
+  {
+    if (l == null)
+      throw new IllegalArgumentException ();
+    if (this.messageListeners.remove (l))
+      this.messageListenersCopy = this.messageListeners.toArray (new MessageListener[0]);
+  }
+  
+  private void fireMessageReceived (final ByteBuffer message, final long timestamp)
+  {
+    final MessageListener[] listeners = this.messageListenersCopy;
+    final int position = message.position ();
+    for (final MessageListener l : listeners)
+    {
+      message.position (position);
+      l.messageReceived (message, timestamp);
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REMOTE HOST
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "remote host" property.
+   * 
+   */
+  public static final String REMOTE_HOST_PROPERTY_NAME = "remoteHost";
+  
+  private volatile String remoteHost;
+  
+  /** Returns the remote host.
+   * 
+   * @return The remote host (name or address), non-{@code null}.
+   * 
+   */
+  public final synchronized String getRemoteHost ()
+  {
+    return this.remoteHost;
+  }
+  
+  /** Sets the remote host.
+   * 
+   * <p>
+   * If the remote host has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param remoteHost The remote host (name or address), non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code remoteHost == null}.
+   * 
+   */
+  public final synchronized void setRemoteHost (final String remoteHost)
+  {
+    if (remoteHost == null)
+      throw new IllegalArgumentException ();
+    if (! this.remoteHost.equals (remoteHost))
+    {
+      final String oldRemoteHost = this.remoteHost;
+      this.remoteHost = remoteHost;
+      fireSettingsChanged (REMOTE_HOST_PROPERTY_NAME, oldRemoteHost, this.remoteHost);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REMOTE PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "remote port" property.
+   * 
+   */
+  public static final String REMOTE_PORT_PROPERTY_NAME = "remotePort";
+  
+  private volatile int remotePort;
+  
+  /** Returns the remote port.
+   * 
+   * @return The remote port.
+   * 
+   */
+  public final synchronized int getRemotePort ()
+  {
+    return this.remotePort;
+  }
+  
+  /** Sets the remote port.
+   * 
+   * <p>
+   * If the remote port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param remotePort The remote port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   */
+  public final synchronized void setRemotePort (final int remotePort)
+  {
+    if (remotePort < 0 || remotePort > 65535)
+      throw new IllegalArgumentException ();
+    if (this.remotePort != remotePort)
+    {
+      final int oldRemotePort = this.remotePort;
+      this.remotePort = remotePort;
+      fireSettingsChanged (REMOTE_PORT_PROPERTY_NAME, oldRemotePort, this.remotePort);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LOCAL PORT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The name of the "local port" property.
+   * 
+   */
+  public static final String LOCAL_PORT_PROPERTY_NAME = "localPort";
+  
+  private volatile int localPort;
+  
+  /** Returns the local port.
+   * 
+   * @return The local port; zero for an ephemeral port.
+   * 
+   */
+  public final synchronized int getLocalPort ()
+  {
+    return this.localPort;
+  }
+  
+  /** Sets the local port.
+   * 
+   * <p>
+   * If the local port has changed, and the service is active,
+   * it is restarted automatically.
+   * 
+   * @param localPort The local port; zero for an ephemeral port.
+   * 
+   * @throws IllegalArgumentException If the port number is out of range.
+   * 
+   */
+  public final synchronized void setLocalPort (final int localPort)
+  {
+    if (localPort < 0 || localPort > 65535)
+      throw new IllegalArgumentException ();
+    if (this.localPort != localPort)
+    {
+      final int oldLocalPort = this.localPort;
+      this.localPort = localPort;
+      fireSettingsChanged (LOCAL_PORT_PROPERTY_NAME, oldLocalPort, this.localPort);
+      if (getStatus () == Status.ACTIVE)
+        restartService ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TRANSMIT
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The maximum size of a message (the maximum UDP payload over IPv4).
+   * 
+   */
+  public static final int MAX_MESSAGE_SIZE = 65507;
+  
+  /** Transmits a message to the remote host and port, as a single datagram.
+   * 
+   * <p>
+   * The message is transmitted on the caller's thread.
+   * 
+   * @param message The message (payload), non-{@code null}.
+   * 
+   * @return Whether the message was transmitted; {@code false} if the service is not active, or if transmission failed.
+   * 
+   * @throws IllegalArgumentException If {@code message == null} or its length exceeds {@link #MAX_MESSAGE_SIZE}.
+   * 
+   */
+  public final boolean transmit (final byte[] message)
+  {
+    if (message == null || message.length > UdpUnicastService.MAX_MESSAGE_SIZE)
+      throw new IllegalArgumentException ();
+    final DatagramChannel channel = this.channel;
+    final InetSocketAddress remoteAddress = this.remoteAddress;
+    if (getStatus () != Status.ACTIVE || channel == null || remoteAddress == null)
+      return false;
+    try
+    {
+      channel.send (ByteBuffer.wrap (message), remoteAddress);
+      this.lastTxNanoTime.lazySet (System.nanoTime ());
+      return true;
+    }
+    catch (IOException ioe)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} on Instance {1} failed to transmit: {2}.",
+        new Object[]{this.getClass ().getSimpleName (), this, ioe});
+      return false;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SERVICE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private volatile DatagramChannel channel = null;
+  
+  private volatile InetSocketAddress remoteAddress = null;
+  
+  private volatile UdpUnicastRxThread rxThread = null;
+  
+  @Override
+  public final synchronized void startService ()
+  {
+    if (getStatus () == Status.ACTIVE)
+      return;
+    stopService ();
+    LOG.log (Level.INFO, "Starting Service Class {0} with Instance {1}.",
+      new Object[]{this.getClass ().getSimpleName (), this});
+    try
+    {
+      this.remoteAddress = new InetSocketAddress (this.remoteHost, this.remotePort);
+      if (this.remoteAddress.isUnresolved ())
+        throw new IOException ("Unresolved remote host: " + this.remoteHost);
+      this.channel = DatagramChannel.open ();
+      this.channel.setOption (StandardSocketOptions.SO_REUSEADDR, true);
+      this.channel.bind (new InetSocketAddress (this.localPort));
+    }
+    catch (IOException ioe)
+    {
+      LOG.log (Level.WARNING, "Service Class {0} caught IOException during start of Instance {1}: {2}!",
+        new Object[]{this.getClass ().getSimpleName (), this, ioe});
+      closeChannel ();
+      error ();
+      return;
+    }
+    this.rxThread = new UdpUnicastRxThread (this.channel, this.remoteAddress.getAddress ());
+    this.rxThread.start ();
+    if (getStatus () == Status.STOPPED)
+      setStatus (Status.ACTIVE);
+  }
+  
+  @Override
+  public final synchronized void stopService ()
+  {
+    if (getStatus () == Status.STOPPED)
+      return;
+    LOG.log (Level.INFO, "Stopping Service Class {0} with Instance {1}.",
+      new Object[]{this.getClass ().getSimpleName (), this});
+    // Closing the channel terminates the reception thread.
+    // Note that we cannot join the thread, as it may be waiting for our lock (e.g., in error ()).
+    closeChannel ();
+    this.rxThread = null;
+    this.remoteAddress = null;
+    setStatus (Status.STOPPED);
+  }
+  
+  private void closeChannel ()
+  {
+    if (this.channel != null)
+    {
+      try
+      {
+        this.channel.close ();
+      }
+      catch (IOException ioe)
+      {
+        // EMPTY
+      }
+      this.channel = null;
+    }
+  }
+  
+  private final AtomicLong foreignDatagramCount = new AtomicLong ();
+  
+  /** Returns the number of datagrams received from hosts other than the remote host (and dropped).
+   * 
+   * @return The number of foreign datagrams received, since construction.
+   * 
+   */
+  public final long getForeignDatagramCount ()
+  {
+    return this.foreignDatagramCount.get ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RX THREAD
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The reception (and delivery) thread.
+   * 
+   * <p>
+   * Datagrams are received into a single reusable direct buffer,
+   * and delivered through a reusable read-only view on it.
+   * 
+   */
+  private final class UdpUnicastRxThread
+    extends Thread
+  {
+    
+    private final DatagramChannel channel;
+    
+    private final ByteBuffer rxBuffer = ByteBuffer.allocateDirect (UdpUnicastService.MAX_MESSAGE_SIZE);
+    
+    private final ByteBuffer rxView = this.rxBuffer.asReadOnlyBuffer ();
+    
+    /** The address of the remote host; datagrams from other addresses are dropped.
+     * 
+     */
+    private final InetAddress remoteInetAddress;
+    
+    private UdpUnicastRxThread (final DatagramChannel channel, final InetAddress remoteInetAddress)
+    {
+      super ("UdpUnicastRxThread-" + UdpUnicastService.this.getName ());
+      this.channel = channel;
+      this.remoteInetAddress = remoteInetAddress;
+      setDaemon (true);
+    }
+    
+    @Override
+    public final void run ()
+    {
+      while (true)
+      {
+        try
+        {
+          this.rxBuffer.clear ();
+          final InetSocketAddress source = (InetSocketAddress) this.channel.receive (this.rxBuffer);
+          if (source == null)
+            continue;
+          final long timestamp = System.nanoTime ();
+          if (! this.remoteInetAddress.equals (source.getAddress ()))
+          {
+            UdpUnicastService.this.foreignDatagramCount.incrementAndGet ();
+            continue;
+          }
+          UdpUnicastService.this.lastRxNanoTime.lazySet (timestamp);
+          this.rxView.limit (this.rxBuffer.position ()).position (0);
+          UdpUnicastService.this.fireMessageReceived (this.rxView, timestamp);
+        }
+        catch (ClosedChannelException cce)
+        {
+          // Service stopped.
+          return;
+        }
+        catch (IOException ioe)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} on Instance {1} caught IOException in reception thread: {2}!",
+            new Object[]{UdpUnicastService.this.getClass ().getSimpleName (), UdpUnicastService.this, ioe});
+          UdpUnicastService.this.error ();
+          return;
+        }
+        catch (RuntimeException re)
+        {
+          LOG.log (Level.WARNING, "Service Class {0} on Instance {1}: listener threw {2}!",
+            new Object[]{UdpUnicastService.this.getClass ().getSimpleName (), UdpUnicastService.this, re});
+        }
+      }
+    }
+    
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ACTIVITY MONITORABLE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The {@link Instant} at construction, used as anchor for converting {@link System#nanoTime} values into {@link Instant}s.
+   * 
+   */
+  private final Instant activityAnchorInstant = Instant.now ();
+  
+  /** The value of {@link System#nanoTime} at construction (approximately at {@link #activityAnchorInstant}).
+   * 
+   */
+  private final long activityAnchorNanoTime = System.nanoTime ();
+  
+  private final AtomicLong lastTxNanoTime = new AtomicLong (UdpUnicastService.NO_ACTIVITY);
+  
+  private final AtomicLong lastRxNanoTime = new AtomicLong (UdpUnicastService.NO_ACTIVITY);
+  
+  /** Marker value for the absence of activity.
+   * 
+   */
+  private static final long NO_ACTIVITY = Long.MIN_VALUE;
+  
+  private Instant toActivityInstant (final long nanoTime)
+  {
+    if (nanoTime == UdpUnicastService.NO_ACTIVITY)
+      return Instant.MIN;
+    return this.activityAnchorInstant.plusNanos (nanoTime - this.activityAnchorNanoTime);
+  }
+  
+  /** The name of the transmission activity.
+   * 
+   * @see ActivityMonitorable
+   * @see #getMonitorableActivities
+   * 
+   */
+  public final static String ACTIVITY_TX_NAME = UdpMulticastService.ACTIVITY_TX_NAME;
+  
+  /** The name of the reception activity.
+   * 
+   * @see ActivityMonitorable
+   * @see #getMonitorableActivities
+   * 
+   */
+  public final static String ACTIVITY_RX_NAME = UdpMulticastService.ACTIVITY_RX_NAME;
+  
+  private static final Set<String> MONITORABLE_ACTIVITIES = Collections.unmodifiableSet (new LinkedHashSet<> (Arrays.asList (
+    null,
+    UdpUnicastService.ACTIVITY_TX_NAME,
+    UdpUnicastService.ACTIVITY_RX_NAME)));
+    
+  /** Returns a {@code Set} (not to be modified) holding the {@link #ACTIVITY_TX_NAME} and {@link #ACTIVITY_RX_NAME} strings.
+   * 
+   * @return A {@code Set} (not to be modified) holding the {@link #ACTIVITY_TX_NAME} and {@link #ACTIVITY_RX_NAME} strings.
+   * 
+   */
+  @Override
+  public final Set<String> getMonitorableActivities ()
+  {
+    return UdpUnicastService.MONITORABLE_ACTIVITIES;
+  }
+  
+  /** Returns the {@link Instant} of construction of this service.
+   * 
+   * @return The {@link Instant} of construction of this service.
+   * 
+   */
+  @Override
+  public Instant lastActivity ()
+  {
+    return this.activityAnchorInstant;
+  }
+  
+  /** Returns the {@link Instant} of the last activity of given type.
+   * 
+   * @param monitorableActivity The activity, {@link #ACTIVITY_TX_NAME} or {@link #ACTIVITY_RX_NAME}.
+   * 
+   * @return The {@link Instant} of the last activity, {@link Instant#MIN} if none, or if the activity is unknown.
+   * 
+   */
+  @Override
+  public Instant lastActivity (final String monitorableActivity)
+  {
+    if (monitorableActivity == null)
+      return lastActivity ();
+    switch (monitorableActivity)
+    {
+      case UdpUnicastService.ACTIVITY_TX_NAME:
+        return toActivityInstant (this.lastTxNanoTime.get ());
+      case UdpUnicastService.ACTIVITY_RX_NAME:
+        return toActivityInstant (this.lastRxNanoTime.get ());
+      default:
+        return Instant.MIN;
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
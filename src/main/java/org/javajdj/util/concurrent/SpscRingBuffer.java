@@ -0,0 +1,457 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** A bounded, lock-free, allocation-free {@link BlockingQueue} for a single producer and a single consumer thread.
+ * 
+ * <p>
+ * The queue is backed by an array (ring) with a power-of-two length;
+ * the producer and the consumer each own a sequence number (index).
+ * Insertion and removal do not take locks, and do not allocate.
+ * 
+ * <p>
+ * At any time, at most one thread may insert elements (the producer),
+ * and at most one (other) thread may remove elements (the consumer);
+ * the identity of these threads may change over time, provided that the hand-over is properly synchronized.
+ * Violating this contract leads to undefined behavior.
+ * In particular, {@link #remove(Object)} and {@link Iterator#remove} are not supported,
+ * and the iterator is weakly consistent, and intended for inspection by the producer only.
+ * 
+ * <p>
+ * The {@link WaitStrategy} determines how the consumer waits on an empty queue,
+ * and how the producer waits on a full queue, in the blocking methods.
+ * 
+ * @param <E> The type of elements.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class SpscRingBuffer<E>
+  extends AbstractQueue<E>
+  implements BlockingQueue<E>
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // WAIT STRATEGY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The strategy of a thread waiting for elements (consumer) or space (producer) in a {@link SpscRingBuffer}.
+   * 
+   */
+  public enum WaitStrategy
+  {
+    /** The waiting thread parks immediately, and is unparked by the other thread.
+     * 
+     * <p>
+     * Lowest CPU usage; wake-up latency depends on the scheduler.
+     * 
+     */
+    PARK,
+    /** The waiting thread spins for a short while before parking.
+     * 
+     * <p>
+     * Low latency for bursty traffic, at limited CPU cost.
+     * 
+     */
+    SPIN_THEN_PARK,
+    /** The waiting thread spins, never parks.
+     * 
+     * <p>
+     * Lowest latency and jitter, but occupies a CPU core while waiting.
+     * 
+     */
+    BUSY_SPIN;
+  }
+  
+  /** The number of iterations spent spinning under {@link WaitStrategy#SPIN_THEN_PARK} before parking.
+   * 
+   */
+  public static final int SPIN_ITERATIONS = 1000;
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates a ring buffer with given capacity and wait strategy.
+   * 
+   * @param capacity     The capacity, strictly positive.
+   * @param waitStrategy The wait strategy, non-{@code null}.
+   * 
+   * @throws IllegalArgumentException If {@code capacity < 1}, {@code capacity > 2^30},
+   *                                  or {@code waitStrategy == null}.
+   * 
+   */
+  @SuppressWarnings ("unchecked")
+  public SpscRingBuffer (final int capacity, final WaitStrategy waitStrategy)
+  {
+    if (capacity < 1 || capacity > (1 << 30) || waitStrategy == null)
+      throw new IllegalArgumentException ();
+    this.capacity = capacity;
+    int length = 1;
+    while (length < capacity)
+      length <<= 1;
+    this.ring = (E[]) new Object[length];
+    this.mask = length - 1;
+    this.waitStrategy = waitStrategy;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CAPACITY / WAIT STRATEGY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final int capacity;
+  
+  /** Returns the capacity of this queue.
+   * 
+   * @return The capacity, strictly positive.
+   * 
+   */
+  public final int getCapacity ()
+  {
+    return this.capacity;
+  }
+  
+  private final WaitStrategy waitStrategy;
+  
+  /** Returns the wait strategy of this queue.
+   * 
+   * @return The wait strategy, non-{@code null}.
+   * 
+   */
+  public final WaitStrategy getWaitStrategy ()
+  {
+    return this.waitStrategy;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RING / SEQUENCES / WAITERS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final E[] ring;
+  
+  private final int mask;
+  
+  // The sequence of the next element to insert; written by the producer only.
+  private final AtomicLong tail = new AtomicLong ();
+  
+  // The sequence of the next element to remove; written by the consumer only.
+  private final AtomicLong head = new AtomicLong ();
+  
+  // Cached value of head, for use by the producer only.
+  private long producerHeadCache = 0;
+  
+  // Cached value of tail, for use by the consumer only.
+  private long consumerTailCache = 0;
+  
+  private volatile Thread waitingConsumer = null;
+  
+  private volatile Thread waitingProducer = null;
+  
+  private void advance (final AtomicLong sequence, final long value)
+  {
+    // With a busy-spinning peer, nobody parks, and an ordered (lazy) store suffices.
+    // Otherwise, we need a full fence between our store and the subsequent check for a parked peer.
+    if (this.waitStrategy == WaitStrategy.BUSY_SPIN)
+      sequence.lazySet (value);
+    else
+      sequence.set (value);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // QUEUE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Inserts an element if space is available (producer only).
+   * 
+   * @param e The element, non-{@code null}.
+   * 
+   * @return Whether the element was inserted.
+   * 
+   * @throws NullPointerException If the element is {@code null}.
+   * 
+   */
+  @Override
+  public final boolean offer (final E e)
+  {
+    if (e == null)
+      throw new NullPointerException ();
+    final long t = this.tail.get ();
+    if (t - this.producerHeadCache >= this.capacity)
+    {
+      this.producerHeadCache = this.head.get ();
+      if (t - this.producerHeadCache >= this.capacity)
+        return false;
+    }
+    this.ring[(int) t & this.mask] = e;
+    advance (this.tail, t + 1);
+    final Thread consumer = this.waitingConsumer;
+    if (consumer != null)
+      LockSupport.unpark (consumer);
+    return true;
+  }
+  
+  /** Removes the head of the queue, if any (consumer only).
+   * 
+   * @return The head of the queue, {@code null} if empty.
+   * 
+   */
+  @Override
+  public final E poll ()
+  {
+    final long h = this.head.get ();
+    if (h >= this.consumerTailCache)
+    {
+      this.consumerTailCache = this.tail.get ();
+      if (h >= this.consumerTailCache)
+        return null;
+    }
+    final int index = (int) h & this.mask;
+    final E e = this.ring[index];
+    this.ring[index] = null;
+    advance (this.head, h + 1);
+    final Thread producer = this.waitingProducer;
+    if (producer != null)
+      LockSupport.unpark (producer);
+    return e;
+  }
+  
+  /** Returns the head of the queue without removing it, if any (consumer only).
+   * 
+   * @return The head of the queue, {@code null} if empty.
+   * 
+   */
+  @Override
+  public final E peek ()
+  {
+    final long h = this.head.get ();
+    if (h >= this.tail.get ())
+      return null;
+    return this.ring[(int) h & this.mask];
+  }
+  
+  @Override
+  public final int size ()
+  {
+    final long size = this.tail.get () - this.head.get ();
+    return (int) Math.max (0, Math.min (size, this.capacity));
+  }
+  
+  /** Returns a weakly consistent iterator over the elements in the queue (producer only).
+   * 
+   * <p>
+   * The iterator does not support removal.
+   * Elements removed by the consumer during iteration are skipped.
+   * 
+   * @return The iterator.
+   * 
+   */
+  @Override
+  public final Iterator<E> iterator ()
+  {
+    return new Iterator<E> ()
+    {
+      
+      private long sequence = SpscRingBuffer.this.head.get ();
+      
+      private final long end = SpscRingBuffer.this.tail.get ();
+      
+      private E next = findNext ();
+      
+      private E findNext ()
+      {
+        while (this.sequence < this.end)
+        {
+          final E e = SpscRingBuffer.this.ring[(int) this.sequence++ & SpscRingBuffer.this.mask];
+          if (e != null && this.sequence > SpscRingBuffer.this.head.get ())
+            return e;
+        }
+        return null;
+      }
+      
+      @Override
+      public boolean hasNext ()
+      {
+        return this.next != null;
+      }
+      
+      @Override
+      public E next ()
+      {
+        if (this.next == null)
+          throw new NoSuchElementException ();
+        final E e = this.next;
+        this.next = findNext ();
+        return e;
+      }
+      
+    };
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // BLOCKING QUEUE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Waits according to the wait strategy, after an unsuccessful attempt.
+   * 
+   * @param spins    The number of unsuccessful attempts so far.
+   * @param deadline The deadline (in terms of {@link System#nanoTime}), or {@link Long#MAX_VALUE} if none.
+   * 
+   * @throws InterruptedException If the current thread was interrupted.
+   * 
+   */
+  private void await (final int spins, final long deadline) throws InterruptedException
+  {
+    if (Thread.interrupted ())
+      throw new InterruptedException ();
+    switch (this.waitStrategy)
+    {
+      case BUSY_SPIN:
+        return;
+      case SPIN_THEN_PARK:
+        if (spins < SpscRingBuffer.SPIN_ITERATIONS)
+          return;
+        break;
+      case PARK:
+        break;
+      default:
+        throw new RuntimeException ();
+    }
+    if (deadline == Long.MAX_VALUE)
+      LockSupport.park (this);
+    else
+      LockSupport.parkNanos (this, deadline - System.nanoTime ());
+  }
+  
+  @Override
+  public final void put (final E e) throws InterruptedException
+  {
+    offer (e, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+  
+  @Override
+  public final boolean offer (final E e, final long timeout, final TimeUnit unit) throws InterruptedException
+  {
+    if (offer (e))
+      return true;
+    final long deadline = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime () + unit.toNanos (timeout);
+    this.waitingProducer = Thread.currentThread ();
+    try
+    {
+      for (int spins = 0; ; spins++)
+      {
+        if (offer (e))
+          return true;
+        if (deadline != Long.MAX_VALUE && deadline - System.nanoTime () <= 0)
+          return false;
+        await (spins, deadline);
+      }
+    }
+    finally
+    {
+      this.waitingProducer = null;
+    }
+  }
+  
+  @Override
+  public final E take () throws InterruptedException
+  {
+    return poll (Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+  
+  @Override
+  public final E poll (final long timeout, final TimeUnit unit) throws InterruptedException
+  {
+    E e = poll ();
+    if (e != null)
+      return e;
+    final long deadline = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime () + unit.toNanos (timeout);
+    this.waitingConsumer = Thread.currentThread ();
+    try
+    {
+      for (int spins = 0; ; spins++)
+      {
+        e = poll ();
+        if (e != null)
+          return e;
+        if (deadline != Long.MAX_VALUE && deadline - System.nanoTime () <= 0)
+          return null;
+        await (spins, deadline);
+      }
+    }
+    finally
+    {
+      this.waitingConsumer = null;
+    }
+  }
+  
+  @Override
+  public final int remainingCapacity ()
+  {
+    return this.capacity - size ();
+  }
+  
+  @Override
+  public final int drainTo (final Collection<? super E> c)
+  {
+    return drainTo (c, Integer.MAX_VALUE);
+  }
+  
+  @Override
+  public final int drainTo (final Collection<? super E> c, final int maxElements)
+  {
+    if (c == null)
+      throw new NullPointerException ();
+    if (c == this)
+      throw new IllegalArgumentException ();
+    int n = 0;
+    E e;
+    while (n < maxElements && (e = poll ()) != null)
+    {
+      c.add (e);
+      n++;
+    }
+    return n;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
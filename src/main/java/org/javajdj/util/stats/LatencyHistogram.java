@@ -0,0 +1,269 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.util.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A lock-free, allocation-free histogram of latencies (durations) in nanoseconds, with logarithmic (power-of-two) buckets.
+ * 
+ * <p>
+ * Bucket zero holds latencies of at most one nanosecond (including negative values);
+ * bucket {@code i > 0} holds latencies in {@code (2^(i-1), 2^i]} nanoseconds.
+ * The last bucket holds all latencies beyond the range of the previous buckets.
+ * 
+ * <p>
+ * Recording a latency takes a few atomic updates, and is suitable for use on the critical path.
+ * Readers may observe a slightly inconsistent view (e.g., count versus bucket contents) while recording is in progress.
+ * 
+ * <p>
+ * This class is thread-safe.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public final class LatencyHistogram
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTORS / FACTORIES / CLONING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Creates an empty histogram.
+   * 
+   */
+  public LatencyHistogram ()
+  {
+    this.buckets = new AtomicLongArray (LatencyHistogram.NUMBER_OF_BUCKETS);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // BUCKETS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** The number of buckets.
+   * 
+   * <p>
+   * The last bucket starts at {@code 2^(NUMBER_OF_BUCKETS - 2)} nanoseconds, well over a minute.
+   * 
+   */
+  public static final int NUMBER_OF_BUCKETS = 40;
+  
+  private final AtomicLongArray buckets;
+  
+  /** Returns the bucket index for given latency.
+   * 
+   * @param latency The latency in nanoseconds.
+   * 
+   * @return The bucket index, between zero and {@link #NUMBER_OF_BUCKETS} (exclusive).
+   * 
+   */
+  public static int getBucketIndex (final long latency)
+  {
+    if (latency <= 1)
+      return 0;
+    return Math.min (64 - Long.numberOfLeadingZeros (latency - 1), LatencyHistogram.NUMBER_OF_BUCKETS - 1);
+  }
+  
+  /** Returns the (inclusive) upper bound of given bucket.
+   * 
+   * @param bucket The bucket index.
+   * 
+   * @return The upper bound in nanoseconds, {@link Long#MAX_VALUE} for the last bucket.
+   * 
+   * @throws IllegalArgumentException If the bucket index is out of range.
+   * 
+   */
+  public static long getBucketUpperBound (final int bucket)
+  {
+    if (bucket < 0 || bucket >= LatencyHistogram.NUMBER_OF_BUCKETS)
+      throw new IllegalArgumentException ();
+    if (bucket == LatencyHistogram.NUMBER_OF_BUCKETS - 1)
+      return Long.MAX_VALUE;
+    return 1L << bucket;
+  }
+  
+  /** Returns the number of latencies recorded in given bucket.
+   * 
+   * @param bucket The bucket index.
+   * 
+   * @return The number of latencies recorded in the bucket.
+   * 
+   * @throws IllegalArgumentException If the bucket index is out of range.
+   * 
+   */
+  public long getBucketCount (final int bucket)
+  {
+    if (bucket < 0 || bucket >= LatencyHistogram.NUMBER_OF_BUCKETS)
+      throw new IllegalArgumentException ();
+    return this.buckets.get (bucket);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECORD / RESET
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private final AtomicLong count = new AtomicLong ();
+  
+  private final AtomicLong sum = new AtomicLong ();
+  
+  private final AtomicLong max = new AtomicLong ();
+  
+  /** Records a latency.
+   * 
+   * @param latency The latency in nanoseconds; negative values are recorded as zero.
+   * 
+   */
+  public void record (final long latency)
+  {
+    final long value = Math.max (latency, 0L);
+    this.buckets.incrementAndGet (getBucketIndex (value));
+    this.count.incrementAndGet ();
+    this.sum.addAndGet (value);
+    long currentMax = this.max.get ();
+    while (value > currentMax && ! this.max.compareAndSet (currentMax, value))
+      currentMax = this.max.get ();
+  }
+  
+  /** Records the latency since given timestamp.
+   * 
+   * @param timestamp The timestamp, see {@link System#nanoTime}.
+   * 
+   */
+  public void recordSince (final long timestamp)
+  {
+    record (System.nanoTime () - timestamp);
+  }
+  
+  /** Resets this histogram.
+   * 
+   * <p>
+   * Latencies recorded concurrently may or may not survive the reset.
+   * 
+   */
+  public void reset ()
+  {
+    for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++)
+      this.buckets.set (i, 0L);
+    this.count.set (0L);
+    this.sum.set (0L);
+    this.max.set (0L);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // STATISTICS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the number of latencies recorded.
+   * 
+   * @return The number of latencies recorded.
+   * 
+   */
+  public long getCount ()
+  {
+    return this.count.get ();
+  }
+  
+  /** Returns the mean of the latencies recorded.
+   * 
+   * @return The mean latency in nanoseconds, zero if no latencies were recorded.
+   * 
+   */
+  public double getMean ()
+  {
+    final long n = this.count.get ();
+    return n == 0 ? 0.0 : ((double) this.sum.get ()) / n;
+  }
+  
+  /** Returns the maximum latency recorded.
+   * 
+   * @return The maximum latency in nanoseconds, zero if no latencies were recorded.
+   * 
+   */
+  public long getMax ()
+  {
+    return this.max.get ();
+  }
+  
+  /** Returns an upper bound on given percentile of the latencies recorded.
+   * 
+   * <p>
+   * The value returned is the upper bound of the bucket holding the percentile,
+   * capped by the maximum latency recorded.
+   * 
+   * @param percentile The percentile, between zero and 100 inclusive.
+   * 
+   * @return The upper bound on the percentile in nanoseconds, zero if no latencies were recorded.
+   * 
+   * @throws IllegalArgumentException If the percentile is out of range.
+   * 
+   */
+  public long getPercentile (final double percentile)
+  {
+    if (! (percentile >= 0.0 && percentile <= 100.0))
+      throw new IllegalArgumentException ();
+    long total = 0;
+    final long[] counts = new long[LatencyHistogram.NUMBER_OF_BUCKETS];
+    for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++)
+    {
+      counts[i] = this.buckets.get (i);
+      total += counts[i];
+    }
+    if (total == 0)
+      return 0L;
+    final long rank = Math.max (1L, (long) Math.ceil (percentile / 100.0 * total));
+    long cumulative = 0;
+    for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++)
+    {
+      cumulative += counts[i];
+      if (cumulative >= rank)
+        return Math.min (getBucketUpperBound (i), getMax ());
+    }
+    return getMax ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TO STRING
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Override
+  public String toString ()
+  {
+    return "LatencyHistogram{count=" + getCount ()
+      + ", mean=" + (long) getMean ()
+      + "ns, p50<=" + getPercentile (50.0)
+      + "ns, p99<=" + getPercentile (99.0)
+      + "ns, max=" + getMax () + "ns}";
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
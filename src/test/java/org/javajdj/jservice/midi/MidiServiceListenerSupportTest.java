@@ -0,0 +1,371 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link MidiServiceListenerSupport}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class MidiServiceListenerSupportTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** A listener recording the notifications received as strings.
+   * 
+   */
+  static final class Recorder
+    extends DefaultMidiServiceListener
+  {
+    
+    final List<String> notifications = new ArrayList<> ();
+    
+    List<String> take ()
+    {
+      final List<String> notifications = new ArrayList<> (this.notifications);
+      this.notifications.clear ();
+      return notifications;
+    }
+    
+    @Override
+    public void midiTxNoteOff (final int midiChannel, final int note, final int velocity)
+    {
+      this.notifications.add ("TxNoteOff " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxNoteOff (final int midiChannel, final int note, final int velocity)
+    {
+      this.notifications.add ("RxNoteOff " + midiChannel);
+    }
+    
+    @Override
+    public void midiTxNoteOn (final int midiChannel, final int note, final int velocity)
+    {
+      this.notifications.add ("TxNoteOn " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxNoteOn (final int midiChannel, final int note, final int velocity)
+    {
+      this.notifications.add ("RxNoteOn " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxPolyphonicKeyPressure (final int midiChannel, final int note, final int pressure)
+    {
+      this.notifications.add ("RxPolyphonicKeyPressure " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxControlChange (final int midiChannel, final int controller, final int value)
+    {
+      this.notifications.add ("RxControlChange " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxProgramChange (final int midiChannel, final int patch)
+    {
+      this.notifications.add ("RxProgramChange " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxChannelPressure (final int midiChannel, final int pressure)
+    {
+      this.notifications.add ("RxChannelPressure " + midiChannel);
+    }
+    
+    @Override
+    public void midiRxPitchBendChange (final int midiChannel, final int pitchBend)
+    {
+      this.notifications.add ("RxPitchBendChange " + midiChannel);
+    }
+    
+    @Override
+    public void midiTxSysEx (final byte vendorId, final byte[] rawMidiMessage)
+    {
+      this.notifications.add ("TxSysEx");
+    }
+    
+    @Override
+    public void midiRxSysEx (final byte vendorId, final byte[] rawMidiMessage)
+    {
+      this.notifications.add ("RxSysEx");
+    }
+    
+    @Override
+    public void midiRxMtcQuarterFrame (final int piece, final int value)
+    {
+      this.notifications.add ("RxMtcQuarterFrame");
+    }
+    
+    @Override
+    public void midiRxSongPositionPointer (final int position)
+    {
+      this.notifications.add ("RxSongPositionPointer");
+    }
+    
+    @Override
+    public void midiRxSongSelect (final int song)
+    {
+      this.notifications.add ("RxSongSelect");
+    }
+    
+    @Override
+    public void midiRxTuneRequest ()
+    {
+      this.notifications.add ("RxTuneRequest");
+    }
+    
+    @Override
+    public void midiTxSystemRealTime (final MidiMessageType midiMessageType)
+    {
+      this.notifications.add ("Tx" + midiMessageType);
+    }
+    
+    @Override
+    public void midiRxSystemRealTime (final MidiMessageType midiMessageType)
+    {
+      this.notifications.add ("Rx" + midiMessageType);
+    }
+    
+  }
+  
+  /** Fires a (received) Channel message of each type on given MIDI channel.
+   * 
+   */
+  private static void fireChannelMessages (final MidiServiceListenerSupport support, final int midiChannel)
+  {
+    support.fireMidiRxNoteOff (midiChannel, 60, 0);
+    support.fireMidiRxNoteOn (midiChannel, 60, 64);
+    support.fireMidiRxPolyphonicKeyPressure (midiChannel, 60, 10);
+    support.fireMidiRxControlChange (midiChannel, 7, 127);
+    support.fireMidiRxProgramChange (midiChannel, 5);
+    support.fireMidiRxChannelPressure (midiChannel, 10);
+    support.fireMidiRxPitchBendChange (midiChannel, 0);
+  }
+  
+  private static List<String> channelMessages (final int midiChannel)
+  {
+    return Arrays.asList ("RxNoteOff " + midiChannel,
+                          "RxNoteOn " + midiChannel,
+                          "RxPolyphonicKeyPressure " + midiChannel,
+                          "RxControlChange " + midiChannel,
+                          "RxProgramChange " + midiChannel,
+                          "RxChannelPressure " + midiChannel,
+                          "RxPitchBendChange " + midiChannel);
+  }
+  
+  /** Fires a (received) message of each type other than Channel messages.
+   * 
+   */
+  private static void fireOtherMessages (final MidiServiceListenerSupport support)
+  {
+    support.fireMidiRxSysEx ((byte) 0x43, new byte[] {(byte) 0xf0, 0x43, (byte) 0xf7});
+    support.fireMidiRxMtcQuarterFrame (1, 2);
+    support.fireMidiRxSongPositionPointer (100);
+    support.fireMidiRxSongSelect (3);
+    support.fireMidiRxTuneRequest ();
+    support.fireMidiRxSystemRealTime (MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK);
+    support.fireMidiRxSystemRealTime (MidiMessageType.SYSTEM_REAL_TIME_ACTIVE_SENSING);
+  }
+  
+  private static final List<String> OTHER_MESSAGES = Arrays.asList ("RxSysEx",
+                                                                    "RxMtcQuarterFrame",
+                                                                    "RxSongPositionPointer",
+                                                                    "RxSongSelect",
+                                                                    "RxTuneRequest",
+                                                                    "Rx" + MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK,
+                                                                    "Rx" + MidiMessageType.SYSTEM_REAL_TIME_ACTIVE_SENSING);
+                                                                    
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REGISTRATION
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testChannelMaskOutOfRange ()
+  {
+    new MidiServiceListenerSupport ().addMidiServiceListener (new Recorder (), MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, 0x10000);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testNegativeChannelMask ()
+  {
+    new MidiServiceListenerSupport ().addMidiServiceListener (new Recorder (), MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, -1);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testIllegalMidiChannel ()
+  {
+    new MidiServiceListenerSupport ().fireMidiRxNoteOn (17, 60, 64);
+  }
+  
+  @Test
+  public void testUnfiltered ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder recorder = new Recorder ();
+    support.addMidiServiceListener (null);
+    support.addMidiServiceListener (recorder);
+    support.addMidiServiceListener (recorder);
+    for (int midiChannel = 1; midiChannel <= 16; midiChannel++)
+    {
+      fireChannelMessages (support, midiChannel);
+      assertEquals (channelMessages (midiChannel), recorder.take ());
+    }
+    fireOtherMessages (support);
+    assertEquals (OTHER_MESSAGES, recorder.take ());
+    support.fireMidiTxNoteOn (2, 60, 64);
+    support.fireMidiTxSysEx ((byte) 0x43, new byte[] {(byte) 0xf0, 0x43, (byte) 0xf7});
+    support.fireMidiTxSystemRealTime (MidiMessageType.SYSTEM_REAL_TIME_START);
+    assertEquals (Arrays.asList ("TxNoteOn 2", "TxSysEx", "Tx" + MidiMessageType.SYSTEM_REAL_TIME_START), recorder.take ());
+    support.removeMidiServiceListener (recorder);
+    fireChannelMessages (support, 1);
+    fireOtherMessages (support);
+    assertEquals (Collections.emptyList (), recorder.take ());
+  }
+  
+  @Test
+  public void testMessageTypeMask ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder recorder = new Recorder ();
+    support.addMidiServiceListener (recorder,
+      MidiUtils.getMidiMessageTypeMask (MidiMessageType.NOTE_ON,
+                                        MidiMessageType.PITCH_BEND_CHANGE,
+                                        MidiMessageType.SYSTEM_COMMON_SONG_SELECT,
+                                        MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK),
+      MidiUtils.MIDI_CHANNEL_MASK_ALL);
+    for (int midiChannel = 1; midiChannel <= 16; midiChannel++)
+    {
+      fireChannelMessages (support, midiChannel);
+      assertEquals (Arrays.asList ("RxNoteOn " + midiChannel, "RxPitchBendChange " + midiChannel), recorder.take ());
+    }
+    fireOtherMessages (support);
+    assertEquals (Arrays.asList ("RxSongSelect", "Rx" + MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK), recorder.take ());
+    // The mask applies to transmission as well.
+    support.fireMidiTxNoteOff (1, 60, 0);
+    support.fireMidiTxNoteOn (1, 60, 64);
+    support.fireMidiTxSystemRealTime (MidiMessageType.SYSTEM_REAL_TIME_START);
+    assertEquals (Arrays.asList ("TxNoteOn 1"), recorder.take ());
+  }
+  
+  @Test
+  public void testChannelMask ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder recorder = new Recorder ();
+    support.addMidiServiceListener (recorder, MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, MidiUtils.getMidiChannelMask (2, 16));
+    for (int midiChannel = 1; midiChannel <= 16; midiChannel++)
+    {
+      fireChannelMessages (support, midiChannel);
+      support.fireMidiTxNoteOn (midiChannel, 60, 64);
+      final List<String> expected = new ArrayList<> ();
+      if (midiChannel == 2 || midiChannel == 16)
+      {
+        expected.addAll (channelMessages (midiChannel));
+        expected.add ("TxNoteOn " + midiChannel);
+      }
+      assertEquals ("channel " + midiChannel, expected, recorder.take ());
+    }
+  }
+  
+  @Test
+  public void testChannelMaskDoesNotApplyToOtherMessages ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder recorder = new Recorder ();
+    support.addMidiServiceListener (recorder, MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, 0);
+    for (int midiChannel = 1; midiChannel <= 16; midiChannel++)
+      fireChannelMessages (support, midiChannel);
+    assertEquals (Collections.emptyList (), recorder.take ());
+    fireOtherMessages (support);
+    assertEquals (OTHER_MESSAGES, recorder.take ());
+  }
+  
+  @Test
+  public void testReplaceFilter ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder recorder = new Recorder ();
+    support.addMidiServiceListener (recorder,
+      MidiUtils.getMidiMessageTypeMask (MidiMessageType.NOTE_ON),
+      MidiUtils.getMidiChannelMask (1));
+    support.addMidiServiceListener (recorder,
+      MidiUtils.getMidiMessageTypeMask (MidiMessageType.NOTE_OFF, MidiMessageType.SYSTEM_COMMON_SYSEX),
+      MidiUtils.getMidiChannelMask (3));
+    fireChannelMessages (support, 1);
+    fireChannelMessages (support, 3);
+    fireOtherMessages (support);
+    assertEquals (Arrays.asList ("RxNoteOff 3", "RxSysEx"), recorder.take ());
+    // Registering without filter does not change the filter of an already-registered listener.
+    support.addMidiServiceListener (recorder);
+    fireChannelMessages (support, 3);
+    assertEquals (Arrays.asList ("RxNoteOff 3"), recorder.take ());
+    // ... but re-registering after removal does.
+    support.removeMidiServiceListener (recorder);
+    support.addMidiServiceListener (recorder);
+    fireChannelMessages (support, 1);
+    assertEquals (channelMessages (1), recorder.take ());
+  }
+  
+  @Test
+  public void testMultipleListeners ()
+  {
+    final MidiServiceListenerSupport support = new MidiServiceListenerSupport ();
+    final Recorder all = new Recorder ();
+    final Recorder channel1 = new Recorder ();
+    final Recorder noteOn = new Recorder ();
+    support.addMidiServiceListener (all);
+    support.addMidiServiceListener (channel1, MidiUtils.MIDI_MESSAGE_TYPE_MASK_ALL, MidiUtils.getMidiChannelMask (1));
+    support.addMidiServiceListener (noteOn, MidiMessageType.NOTE_ON.getMask (), MidiUtils.MIDI_CHANNEL_MASK_ALL);
+    fireChannelMessages (support, 1);
+    fireChannelMessages (support, 2);
+    final List<String> both = new ArrayList<> (channelMessages (1));
+    both.addAll (channelMessages (2));
+    assertEquals (both, all.take ());
+    assertEquals (channelMessages (1), channel1.take ());
+    assertEquals (Arrays.asList ("RxNoteOn 1", "RxNoteOn 2"), noteOn.take ());
+    support.removeMidiServiceListener (channel1);
+    fireChannelMessages (support, 1);
+    assertEquals (channelMessages (1), all.take ());
+    assertEquals (Collections.emptyList (), channel1.take ());
+    assertEquals (Arrays.asList ("RxNoteOn 1"), noteOn.take ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
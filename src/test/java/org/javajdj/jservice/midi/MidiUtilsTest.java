@@ -0,0 +1,207 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.javajdj.jservice.midi.raw.RawMidiEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for the dissection and decoding of MIDI messages in {@link MidiUtils}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class MidiUtilsTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REFERENCE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the message type and length of given status byte, straight from the MIDI specification.
+   * 
+   * <p>
+   * The length is -1 for System Exclusive, and zero for bytes that do not start a (supported) message.
+   * 
+   */
+  private static Object[] referenceStatus (final int statusByte)
+  {
+    switch (statusByte & 0xF0)
+    {
+      case 0x80: return new Object[] {MidiMessageType.NOTE_OFF, 3};
+      case 0x90: return new Object[] {MidiMessageType.NOTE_ON, 3};
+      case 0xA0: return new Object[] {MidiMessageType.POLYPHONIC_KEY_PRESSURE_AFTERTOUCH, 3};
+      case 0xB0: return new Object[] {MidiMessageType.CONTROL_CHANGE, 3};
+      case 0xC0: return new Object[] {MidiMessageType.PROGRAM_CHANGE, 2};
+      case 0xD0: return new Object[] {MidiMessageType.CHANNEL_PRESSURE_AFTERTOUCH, 2};
+      case 0xE0: return new Object[] {MidiMessageType.PITCH_BEND_CHANGE, 3};
+      case 0xF0: break;
+      default:   return new Object[] {MidiMessageType.INVALID, 0};
+    }
+    switch (statusByte)
+    {
+      case 0xF0: return new Object[] {MidiMessageType.SYSTEM_COMMON_SYSEX, -1};
+      case 0xF1: return new Object[] {MidiMessageType.SYSTEM_COMMON_MTC_QUARTER_FRAME, 2};
+      case 0xF2: return new Object[] {MidiMessageType.SYSTEM_COMMON_SONG_POSITION_POINTER, 3};
+      case 0xF3: return new Object[] {MidiMessageType.SYSTEM_COMMON_SONG_SELECT, 2};
+      case 0xF6: return new Object[] {MidiMessageType.SYSTEM_COMMON_TUNE_REQUEST, 1};
+      case 0xF8: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_TIMING_CLOCK, 1};
+      case 0xFA: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_START, 1};
+      case 0xFB: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_CONTINUE, 1};
+      case 0xFC: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_STOP, 1};
+      case 0xFE: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_ACTIVE_SENSING, 1};
+      case 0xFF: return new Object[] {MidiMessageType.SYSTEM_REAL_TIME_SYSTEM_RESET, 1};
+      default:   return new Object[] {MidiMessageType.INVALID, 0};
+    }
+  }
+  
+  /** Returns the type of given message, straight from the MIDI specification.
+   * 
+   */
+  private static MidiMessageType referenceType (final byte[] rawMidiMessage)
+  {
+    final Object[] status = referenceStatus (rawMidiMessage[0] & 0xFF);
+    final MidiMessageType midiMessageType = (MidiMessageType) status[0];
+    final int length = (Integer) status[1];
+    if (length == -1)
+    {
+      if (rawMidiMessage.length < 3 || (rawMidiMessage[rawMidiMessage.length - 1] & 0xFF) != 0xF7)
+        return MidiMessageType.INVALID;
+      for (int i = 1; i < rawMidiMessage.length - 1; i++)
+        if (rawMidiMessage[i] < 0)
+          return MidiMessageType.INVALID;
+      return midiMessageType;
+    }
+    if (length != rawMidiMessage.length)
+      return MidiMessageType.INVALID;
+    for (int i = 1; i < rawMidiMessage.length; i++)
+      if (rawMidiMessage[i] < 0)
+        return MidiMessageType.INVALID;
+    return midiMessageType;
+  }
+  
+  /** Returns a random message, mostly (but not always) valid, of random type.
+   * 
+   */
+  private static byte[] randomMessage (final Random random)
+  {
+    final int statusByte = random.nextInt (16) == 0 ? random.nextInt (128) : 0x80 + random.nextInt (128);
+    final int length;
+    if (statusByte == 0xF0)
+      length = 1 + random.nextInt (8);
+    else if (random.nextInt (8) == 0)
+      length = 1 + random.nextInt (4);
+    else
+    {
+      final int referenceLength = (Integer) referenceStatus (statusByte)[1];
+      length = referenceLength > 0 ? referenceLength : 1 + random.nextInt (3);
+    }
+    final byte[] rawMidiMessage = new byte[length];
+    rawMidiMessage[0] = (byte) statusByte;
+    for (int i = 1; i < length; i++)
+      rawMidiMessage[i] = (byte) (random.nextInt (32) == 0 ? 0x80 + random.nextInt (128) : random.nextInt (128));
+    if (statusByte == 0xF0 && length > 1 && random.nextInt (4) != 0)
+      rawMidiMessage[length - 1] = (byte) 0xF7;
+    return rawMidiMessage;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // DISSECT / DECODE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testDecodeNull ()
+  {
+    MidiUtils.decodeMidiMessage (null);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testDecodeEmpty ()
+  {
+    MidiUtils.decodeMidiMessage (new byte[0]);
+  }
+  
+  @Test
+  public void testDecode ()
+  {
+    final int noteOn = MidiUtils.decodeMidiMessage (new byte[] {(byte) 0x9A, 0x3C, 0x40});
+    assertEquals (MidiMessageType.NOTE_ON, MidiUtils.getDecodedMidiMessageType (noteOn));
+    assertEquals (11, MidiUtils.getDecodedMidiChannel (noteOn));
+    assertEquals (0x3C, MidiUtils.getDecodedData1 (noteOn));
+    assertEquals (0x40, MidiUtils.getDecodedData2 (noteOn));
+    final int sysEx = MidiUtils.decodeMidiMessage (new byte[] {(byte) 0xF0, 0x43, 0x10, (byte) 0xF7});
+    assertEquals (MidiMessageType.SYSTEM_COMMON_SYSEX, MidiUtils.getDecodedMidiMessageType (sysEx));
+    assertEquals (0x43, MidiUtils.getDecodedData1 (sysEx));
+    assertEquals (0, MidiUtils.getDecodedData2 (sysEx));
+    final int songPositionPointer = MidiUtils.decodeMidiMessage (new byte[] {(byte) 0xF2, 0x01, 0x02});
+    assertEquals (MidiMessageType.SYSTEM_COMMON_SONG_POSITION_POINTER, MidiUtils.getDecodedMidiMessageType (songPositionPointer));
+    assertEquals (0x01, MidiUtils.getDecodedData1 (songPositionPointer));
+    assertEquals (0x02, MidiUtils.getDecodedData2 (songPositionPointer));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {(byte) 0x90, 0x3C}));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {(byte) 0x90, 0x3C, (byte) 0x80}));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {0x3C, 0x40}));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {(byte) 0xF4}));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {(byte) 0xF7}));
+    assertEquals (MidiUtils.DECODED_INVALID, MidiUtils.decodeMidiMessage (new byte[] {(byte) 0xF0, (byte) 0xF7}));
+  }
+  
+  /** Checks that single-pass decoding agrees with dissection, and with the MIDI specification, on two million random messages.
+   * 
+   */
+  @Test
+  public void testDecodeAgreesWithDissect ()
+  {
+    final Random random = new Random (0L);
+    for (int n = 0; n < 2000000; n++)
+    {
+      final byte[] rawMidiMessage = randomMessage (random);
+      final String message = Arrays.toString (rawMidiMessage);
+      final MidiMessageType midiMessageType = referenceType (rawMidiMessage);
+      final int decoded = MidiUtils.decodeMidiMessage (rawMidiMessage);
+      assertEquals (message, midiMessageType, MidiUtils.dissectMidiMessage (rawMidiMessage));
+      assertEquals (message, midiMessageType, MidiUtils.getDecodedMidiMessageType (decoded));
+      if (midiMessageType == MidiMessageType.INVALID)
+        assertEquals (message, MidiUtils.DECODED_INVALID, decoded);
+      else if (midiMessageType == MidiMessageType.SYSTEM_COMMON_SYSEX)
+        assertEquals (message, rawMidiMessage[1], MidiUtils.getDecodedData1 (decoded));
+      else
+      {
+        if (midiMessageType.isChannelMessage ())
+          assertEquals (message, (rawMidiMessage[0] & 0x0F) + 1, MidiUtils.getDecodedMidiChannel (decoded));
+        assertEquals (message, rawMidiMessage.length > 1 ? rawMidiMessage[1] : 0, MidiUtils.getDecodedData1 (decoded));
+        assertEquals (message, rawMidiMessage.length > 2 ? rawMidiMessage[2] : 0, MidiUtils.getDecodedData2 (decoded));
+      }
+      final int rawMidiEvent = RawMidiEvent.pack (rawMidiMessage);
+      if (rawMidiEvent != RawMidiEvent.NO_EVENT)
+        assertEquals (message, decoded, MidiUtils.decodeRawMidiEvent (rawMidiEvent));
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
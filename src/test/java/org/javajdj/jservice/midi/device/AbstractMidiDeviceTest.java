@@ -0,0 +1,245 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.device;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.javajdj.jservice.midi.MidiService;
+import org.javajdj.jservice.midi.MidiServiceListener;
+import org.javajdj.jservice.midi.MidiServiceListenerSupport;
+import org.javajdj.jservice.midi.MidiUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests the subscription of {@link AbstractMidiDevice} at its {@link MidiService}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class AbstractMidiDeviceTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns a {@link MidiService} that only supports (filtered) listener registration, through given listener support.
+   * 
+   * <p>
+   * The channel mask of each filtered registration is recorded in {@link #channelMasks}.
+   * 
+   */
+  private MidiService createMidiService (final MidiServiceListenerSupport support)
+  {
+    return (MidiService) Proxy.newProxyInstance (MidiService.class.getClassLoader (),
+      new Class<?>[] {MidiService.class},
+      (proxy, method, args) ->
+      {
+        switch (method.getName ())
+        {
+          case "addMidiServiceListener":
+            if (args.length == 1)
+              support.addMidiServiceListener ((MidiServiceListener) args[0]);
+            else
+            {
+              support.addMidiServiceListener ((MidiServiceListener) args[0], (Long) args[1], (Integer) args[2]);
+              this.channelMasks.add ((Integer) args[2]);
+            }
+            return null;
+          case "removeMidiServiceListener":
+            support.removeMidiServiceListener ((MidiServiceListener) args[0]);
+            return null;
+          case "hashCode":
+            return System.identityHashCode (proxy);
+          case "equals":
+            return proxy == args[0];
+          case "toString":
+            return "MidiService";
+          default:
+            throw new UnsupportedOperationException (method.getName ());
+        }
+      });
+  }
+  
+  /** A device recording the Channel and System Exclusive messages it receives.
+   * 
+   */
+  private static final class TestMidiDevice
+    extends AbstractMidiDevice<ParameterDescriptor>
+  {
+    
+    final List<String> received = Collections.synchronizedList (new ArrayList<> ());
+    
+    TestMidiDevice (final MidiService midiService)
+    {
+      super (midiService);
+    }
+    
+    List<String> take ()
+    {
+      synchronized (this.received)
+      {
+        final List<String> received = new ArrayList<> (this.received);
+        this.received.clear ();
+        return received;
+      }
+    }
+    
+    @Override
+    protected Object putImpl (final String key, final Object value)
+    {
+      throw new UnsupportedOperationException ();
+    }
+    
+    @Override
+    protected void onMidiRxNoteOn (final int midiChannel, final int note, final int velocity)
+    {
+      this.received.add ("NoteOn " + midiChannel);
+    }
+    
+    @Override
+    protected void onMidiRxControlChange (final int midiChannel, final int controller, final int value)
+    {
+      this.received.add ("ControlChange " + midiChannel);
+    }
+    
+    @Override
+    protected void onMidiRxSysEx (final byte vendorId, final byte[] rawMidiMessage)
+    {
+      this.received.add ("SysEx");
+    }
+    
+  }
+  
+  private final List<Integer> channelMasks = new ArrayList<> ();
+  
+  private MidiServiceListenerSupport support;
+  
+  private TestMidiDevice device;
+  
+  @Before
+  public void setUp ()
+  {
+    this.support = new MidiServiceListenerSupport ();
+    this.device = new TestMidiDevice (createMidiService (this.support));
+    this.device.startService ();
+  }
+  
+  @After
+  public void tearDown ()
+  {
+    this.device.stopService ();
+  }
+  
+  /** Fires a Note On on each MIDI channel, a Control Change on channel 3, and a System Exclusive message.
+   * 
+   */
+  private void fireMessages ()
+  {
+    for (int midiChannel = 1; midiChannel <= 16; midiChannel++)
+      this.support.fireMidiRxNoteOn (midiChannel, 60, 64);
+    this.support.fireMidiRxControlChange (3, 7, 127);
+    this.support.fireMidiRxSysEx ((byte) 0x43, new byte[] {(byte) 0xf0, 0x43, (byte) 0xf7});
+  }
+  
+  private static List<String> noteOns (final int... midiChannels)
+  {
+    final List<String> noteOns = new ArrayList<> ();
+    for (final int midiChannel : midiChannels)
+      noteOns.add ("NoteOn " + midiChannel);
+    return noteOns;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SUBSCRIPTION
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testOmni ()
+  {
+    fireMessages ();
+    final List<String> expected = noteOns (1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16);
+    expected.addAll (Arrays.asList ("ControlChange 3", "SysEx"));
+    assertEquals (expected, this.device.take ());
+  }
+  
+  @Test
+  public void testOmniOff ()
+  {
+    this.device.setMidiRxOmni (false);
+    fireMessages ();
+    assertEquals (Arrays.asList ("NoteOn 1", "SysEx"), this.device.take ());
+    // Changing the MIDI channel resubscribes.
+    this.device.setMidiChannel (3);
+    fireMessages ();
+    assertEquals (Arrays.asList ("NoteOn 3", "ControlChange 3", "SysEx"), this.device.take ());
+    // Back to OMNI.
+    this.device.setMidiRxOmni (true);
+    fireMessages ();
+    assertEquals (18, this.device.take ().size ());
+    // Changing the MIDI channel with OMNI on has no effect on reception.
+    this.device.setMidiChannel (5);
+    fireMessages ();
+    assertEquals (18, this.device.take ().size ());
+    this.device.setMidiRxOmni (false);
+    fireMessages ();
+    assertEquals (Arrays.asList ("NoteOn 5", "SysEx"), this.device.take ());
+  }
+  
+  @Test
+  public void testSubscription ()
+  {
+    // The device subscribes once at construction, and again upon each effective change of the MIDI channel or OMNI setting.
+    this.device.setMidiChannel (4);
+    this.device.setMidiRxOmni (false);
+    this.device.setMidiRxOmni (false);
+    this.device.setMidiChannel (9);
+    this.device.setMidiChannel (9);
+    this.device.setMidiRxOmni (true);
+    assertEquals (Arrays.asList (MidiUtils.MIDI_CHANNEL_MASK_ALL,
+                                 MidiUtils.MIDI_CHANNEL_MASK_ALL,
+                                 MidiUtils.getMidiChannelMask (4),
+                                 MidiUtils.getMidiChannelMask (9),
+                                 MidiUtils.MIDI_CHANNEL_MASK_ALL),
+                  this.channelMasks);
+  }
+  
+  @Test
+  public void testStopped ()
+  {
+    this.device.stopService ();
+    fireMessages ();
+    assertEquals (Collections.emptyList (), this.device.take ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
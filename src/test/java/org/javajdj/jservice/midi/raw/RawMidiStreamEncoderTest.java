@@ -0,0 +1,340 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.javajdj.jservice.midi.raw.RawMidiStreamParserTest.bytes;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/** Tests for {@link RawMidiStreamEncoder}, and round trips through {@link RawMidiStreamParser}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiStreamEncoderTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Encodes the '|'-separated messages (in the format of {@link RawMidiStreamParserTest#bytes}) into a single stream.
+   * 
+   */
+  private static byte[] encode (final RawMidiStreamEncoder encoder, final String hex)
+  {
+    final byte[] bytes = new byte[1024];
+    int length = 0;
+    for (final String message : hex.split ("\\|"))
+    {
+      final byte[] m = bytes (message);
+      final int encodedLength = encoder.getEncodedLength (m);
+      assertEquals (encodedLength, encoder.encode (m, bytes, length));
+      length += encodedLength;
+    }
+    return Arrays.copyOf (bytes, length);
+  }
+  
+  private static void assertEncodes (final int statusRefreshInterval, final String messages, final String stream)
+  {
+    assertArrayEquals (bytes (stream), encode (new RawMidiStreamEncoder (statusRefreshInterval), messages));
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RUNNING STATUS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testNegativeStatusRefreshInterval ()
+  {
+    new RawMidiStreamEncoder (-1);
+  }
+  
+  @Test
+  public void testRunningStatus ()
+  {
+    final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder ();
+    assertEquals (RawMidiStreamEncoder.DEFAULT_STATUS_REFRESH_INTERVAL, encoder.getStatusRefreshInterval ());
+    assertArrayEquals (bytes ("90 3C 40 3E 40 40 00 B0 07 7F 0A 40 C0 01 02"),
+                       encode (encoder, "90 3C 40 | 90 3E 40 | 90 40 00 | B0 07 7F | B0 0A 40 | C0 01 | C0 02"));
+    assertEquals (7, encoder.getMessageCount ());
+    assertEquals (4, encoder.getSavedByteCount ());
+  }
+  
+  @Test
+  public void testRunningStatusDisabled ()
+  {
+    assertEncodes (0, "90 3C 40 | 90 3E 40 | 90 40 00", "90 3C 40 90 3E 40 90 40 00");
+  }
+  
+  @Test
+  public void testStatusRefreshInterval ()
+  {
+    assertEncodes (1, "90 3C 40 | 90 3E 40 | 90 40 00 | 90 41 00 | 90 42 00",
+                      "90 3C 40 3E 40 90 40 00 41 00 90 42 00");
+    assertEncodes (2, "90 3C 40 | 90 3E 40 | 90 40 00 | 90 41 00 | 90 42 00",
+                      "90 3C 40 3E 40 40 00 90 41 00 42 00");
+    final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder (64);
+    final ByteBuffer buffer = ByteBuffer.allocate (1024);
+    for (int i = 0; i < 130; i++)
+      encoder.encode (new byte[] {(byte) 0xc0, (byte) (i & 0x7f)}, buffer);
+    // The status byte is written with messages 0 and 65 only.
+    assertEquals (130 + 2, buffer.position ());
+    assertEquals (128, encoder.getSavedByteCount ());
+    assertEquals ((byte) 0xc0, buffer.get (65 + 1));
+  }
+  
+  @Test
+  public void testRunningStatusCancelled ()
+  {
+    // System Common and System Exclusive cancel the running status.
+    assertEncodes (64, "90 3C 40 | F6 | 90 3E 40 | F0 01 F7 | 90 40 00 | F3 05 | 90 41 00",
+                       "90 3C 40 F6 90 3E 40 F0 01 F7 90 40 00 F3 05 90 41 00");
+    // ... but System Real-Time does not.
+    assertEncodes (64, "90 3C 40 | F8 | 90 3E 40 | FE | 90 40 00",
+                       "90 3C 40 F8 3E 40 FE 40 00");
+    // A status byte alone is always written; a different channel needs a new status byte.
+    assertEncodes (64, "90 3C 40 | 91 3E 40 | 91 40 00",
+                       "90 3C 40 91 3E 40 40 00");
+  }
+  
+  @Test
+  public void testReset ()
+  {
+    final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder ();
+    encode (encoder, "90 3C 40 | 90 3E 40");
+    encoder.reset ();
+    assertArrayEquals (bytes ("90 40 00 41 00"), encode (encoder, "90 40 00 | 90 41 00"));
+    assertEquals (4, encoder.getMessageCount ());
+    assertEquals (2, encoder.getSavedByteCount ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ILLEGAL ARGUMENTS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static void assertRefused (final RawMidiStreamEncoder encoder, final byte[] message, final byte[] bytes, final int offset)
+  {
+    try
+    {
+      encoder.encode (message, bytes, offset);
+      fail ();
+    }
+    catch (IllegalArgumentException iae)
+    {
+    }
+  }
+  
+  private static void assertRefused (final RawMidiStreamEncoder encoder, final byte[] message, final ByteBuffer buffer)
+  {
+    final int position = buffer == null ? 0 : buffer.position ();
+    try
+    {
+      encoder.encode (message, buffer);
+      fail ();
+    }
+    catch (IllegalArgumentException iae)
+    {
+    }
+    if (buffer != null)
+      assertEquals (position, buffer.position ());
+  }
+  
+  @Test
+  public void testIllegalArgumentsLeaveStateUnaffected ()
+  {
+    final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder ();
+    encode (encoder, "90 3C 40");
+    final byte[] next = bytes ("90 3E 40");
+    assertRefused (encoder, null, new byte[4], 0);
+    assertRefused (encoder, new byte[0], new byte[4], 0);
+    assertRefused (encoder, bytes ("3E 40"), new byte[4], 0);
+    assertRefused (encoder, next, null, 0);
+    assertRefused (encoder, next, new byte[4], -1);
+    assertRefused (encoder, next, new byte[4], 3);
+    assertRefused (encoder, bytes ("F0 01 02 03 F7"), new byte[4], 0);
+    assertRefused (encoder, null, ByteBuffer.allocate (4));
+    assertRefused (encoder, bytes ("3E 40"), ByteBuffer.allocate (4));
+    assertRefused (encoder, next, null);
+    assertRefused (encoder, next, (ByteBuffer) ByteBuffer.allocate (4).position (3));
+    try
+    {
+      encoder.getEncodedLength (new byte[] {0x3e, 0x40});
+      fail ();
+    }
+    catch (IllegalArgumentException iae)
+    {
+    }
+    // Exactly fitting; the running status still applies.
+    assertEquals (1, encoder.getMessageCount ());
+    assertEquals (2, encoder.getEncodedLength (next));
+    final byte[] bytes = new byte[4];
+    assertEquals (2, encoder.encode (next, bytes, 2));
+    assertArrayEquals (bytes ("00 00 3E 40"), bytes);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ROUND TRIP
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final int[] DATA_LENGTH_SYSTEM_COMMON = {-1, 1, 2, 1, -1, -1, 0, -1};
+  
+  private static final int[] REAL_TIME = {0xf8, 0xf9, 0xfa, 0xfb, 0xfc, 0xfd, 0xfe, 0xff};
+  
+  private static byte[] randomMessage (final Random random, final boolean realTime, final int maxSysExSize)
+  {
+    final int kind = random.nextInt (realTime ? 10 : 9);
+    if (kind < 6)
+    {
+      // Channel; mostly a few status bytes in order to exercise running status.
+      final int status = 0x80 | (random.nextInt (7) << 4) | random.nextInt (2);
+      final int length = (status & 0xe0) == 0xc0 ? 2 : 3;
+      final byte[] message = new byte[length];
+      message[0] = (byte) status;
+      for (int i = 1; i < length; i++)
+        message[i] = (byte) random.nextInt (128);
+      return message;
+    }
+    else if (kind < 8)
+    {
+      int status;
+      do
+        status = 0xf1 + random.nextInt (6);
+      while (DATA_LENGTH_SYSTEM_COMMON[status & 0x07] < 0);
+      final byte[] message = new byte[1 + DATA_LENGTH_SYSTEM_COMMON[status & 0x07]];
+      message[0] = (byte) status;
+      for (int i = 1; i < message.length; i++)
+        message[i] = (byte) random.nextInt (128);
+      return message;
+    }
+    else if (kind < 9)
+    {
+      final byte[] message = new byte[2 + random.nextInt (maxSysExSize - 1)];
+      message[0] = (byte) 0xf0;
+      for (int i = 1; i < message.length - 1; i++)
+        message[i] = (byte) random.nextInt (128);
+      message[message.length - 1] = (byte) 0xf7;
+      return message;
+    }
+    else
+      return new byte[] {(byte) REAL_TIME[random.nextInt (REAL_TIME.length)]};
+  }
+  
+  private static void parseInRandomChunks (final Random random, final RawMidiStreamParser parser, final byte[] stream)
+  {
+    int offset = 0;
+    while (offset < stream.length)
+    {
+      final int length = Math.min (stream.length - offset, random.nextInt (8));
+      parser.parse (stream, offset, length, 0L);
+      offset += length;
+    }
+  }
+  
+  @Test
+  public void testRoundTrip ()
+  {
+    final Random random = new Random (0L);
+    for (final int statusRefreshInterval : new int[] {0, 1, 2, 64})
+    {
+      final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder (statusRefreshInterval);
+      final List<String> messages = new ArrayList<> ();
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream ();
+      final byte[] bytes = new byte[64];
+      long messageBytes = 0;
+      for (int i = 0; i < 10000; i++)
+      {
+        final byte[] message = randomMessage (random, true, 32);
+        messages.add (Arrays.toString (message));
+        messageBytes += message.length;
+        stream.write (bytes, 0, encoder.encode (message, bytes, 0));
+      }
+      final RawMidiStreamParserTest.Collector collector = new RawMidiStreamParserTest.Collector ();
+      final RawMidiStreamParser parser = new RawMidiStreamParser (collector, 32, true);
+      parseInRandomChunks (random, parser, stream.toByteArray ());
+      assertEquals ("interval " + statusRefreshInterval, messages, collector.messages);
+      assertEquals (0, parser.getDiscardedByteCount ());
+      assertEquals (stream.size () + encoder.getSavedByteCount (), messageBytes);
+      if (statusRefreshInterval == 0)
+        assertEquals (0, encoder.getSavedByteCount ());
+    }
+  }
+  
+  @Test
+  public void testRoundTripWithInterleavedRealTime ()
+  {
+    // Real-Time bytes may appear anywhere, also between data bytes and inside System Exclusive.
+    final Random random = new Random (1L);
+    final RawMidiStreamEncoder encoder = new RawMidiStreamEncoder ();
+    final List<String> messages = new ArrayList<> ();
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream ();
+    final byte[] bytes = new byte[64];
+    int realTimeCount = 0;
+    for (int i = 0; i < 10000; i++)
+    {
+      final byte[] message = randomMessage (random, false, 32);
+      messages.add (Arrays.toString (message));
+      final int length = encoder.encode (message, bytes, 0);
+      for (int j = 0; j < length; j++)
+      {
+        if (random.nextInt (4) == 0)
+        {
+          stream.write (REAL_TIME[random.nextInt (REAL_TIME.length)]);
+          realTimeCount++;
+        }
+        stream.write (bytes[j]);
+      }
+    }
+    final RawMidiStreamParserTest.Collector collector = new RawMidiStreamParserTest.Collector ();
+    final RawMidiStreamParser parser = new RawMidiStreamParser (collector, 32, false);
+    parseInRandomChunks (random, parser, stream.toByteArray ());
+    final List<String> parsed = new ArrayList<> ();
+    int parsedRealTimeCount = 0;
+    for (final byte[] message : collector.arrays)
+      if (message.length == 1 && (message[0] & 0xff) >= 0xf8)
+        parsedRealTimeCount++;
+      else
+        parsed.add (Arrays.toString (message));
+    assertEquals (messages, parsed);
+    assertEquals (realTimeCount, parsedRealTimeCount);
+    assertEquals (0, parser.getDiscardedByteCount ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
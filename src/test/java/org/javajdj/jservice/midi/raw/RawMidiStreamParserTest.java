@@ -0,0 +1,393 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.midi.raw;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/** Tests for {@link RawMidiStreamParser}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class RawMidiStreamParserTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Returns the bytes denoted by a string of space-separated hexadecimal values.
+   * 
+   */
+  static byte[] bytes (final String hex)
+  {
+    if (hex.trim ().isEmpty ())
+      return new byte[0];
+    final String[] parts = hex.trim ().split ("\\s+");
+    final byte[] bytes = new byte[parts.length];
+    for (int i = 0; i < parts.length; i++)
+      bytes[i] = (byte) Integer.parseInt (parts[i], 16);
+    return bytes;
+  }
+  
+  /** Returns the messages denoted by a string of '|'-separated messages in the format of {@link #bytes}.
+   * 
+   */
+  static List<String> messages (final String hex)
+  {
+    final List<String> messages = new ArrayList<> ();
+    for (final String message : hex.split ("\\|"))
+      if (! message.trim ().isEmpty ())
+        messages.add (Arrays.toString (bytes (message)));
+    return messages;
+  }
+  
+  /** A listener collecting (copies of) the messages received, and the arrays and timestamps they were reported with.
+   * 
+   */
+  static class Collector
+    implements RawMidiServiceListener
+  {
+    
+    final List<String> messages = new ArrayList<> ();
+    
+    final List<byte[]> arrays = new ArrayList<> ();
+    
+    final List<Long> timestamps = new ArrayList<> ();
+    
+    @Override
+    public void rawMidiMessageTx (final byte[] rawMidiMessage)
+    {
+      throw new AssertionError ();
+    }
+    
+    @Override
+    public void rawMidiMessageRx (final byte[] rawMidiMessage)
+    {
+      throw new AssertionError ();
+    }
+    
+    @Override
+    public void rawMidiMessageRx (final byte[] rawMidiMessage, final long timestamp)
+    {
+      this.messages.add (Arrays.toString (rawMidiMessage));
+      this.arrays.add (rawMidiMessage);
+      this.timestamps.add (timestamp);
+    }
+    
+  }
+  
+  /** A collector that also receives short messages as {@link RawMidiEvent}s.
+   * 
+   */
+  static final class EventCollector
+    extends Collector
+    implements RawMidiEventListener
+  {
+    
+    int eventCount = 0;
+    
+    @Override
+    public void rawMidiEventRx (final int rawMidiEvent, final long timestamp)
+    {
+      this.eventCount++;
+      this.messages.add (Arrays.toString (RawMidiEvent.toRawMidiMessage (rawMidiEvent)));
+      this.timestamps.add (timestamp);
+    }
+    
+  }
+  
+  private static Collector parse (final String hex)
+  {
+    final Collector collector = new Collector ();
+    new RawMidiStreamParser (collector).parse (bytes (hex), 0L);
+    return collector;
+  }
+  
+  private static void assertParses (final String stream, final String expected, final long discarded)
+  {
+    final Collector collector = new Collector ();
+    final RawMidiStreamParser parser = new RawMidiStreamParser (collector);
+    parser.parse (bytes (stream), 0L);
+    assertEquals (messages (expected), collector.messages);
+    assertEquals (discarded, parser.getDiscardedByteCount ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // MESSAGES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullListener ()
+  {
+    new RawMidiStreamParser (null);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testMaxSysExSizeTooSmall ()
+  {
+    new RawMidiStreamParser (new Collector (), 1, true);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testChunkOutOfRange ()
+  {
+    new RawMidiStreamParser (new Collector ()).parse (new byte[4], 2, 3, 0L);
+  }
+  
+  @Test
+  public void testCompleteMessages ()
+  {
+    assertParses ("80 3C 00  90 3C 40  A0 3C 10  B0 07 7F  C0 05  D0 20  E0 00 40",
+                  "80 3C 00 | 90 3C 40 | A0 3C 10 | B0 07 7F | C0 05 | D0 20 | E0 00 40", 0);
+    assertParses ("F1 23  F2 01 02  F3 05  F6",
+                  "F1 23 | F2 01 02 | F3 05 | F6", 0);
+    assertParses ("F8 FA FB FC FE FF",
+                  "F8 | FA | FB | FC | FE | FF", 0);
+    assertParses ("F0 43 10 4C F7",
+                  "F0 43 10 4C F7", 0);
+  }
+  
+  @Test
+  public void testTimestamp ()
+  {
+    final Collector collector = new Collector ();
+    final RawMidiStreamParser parser = new RawMidiStreamParser (collector);
+    parser.parse (bytes ("90 3C"), 1L);
+    parser.parse (bytes ("40 F8"), 2L);
+    assertEquals (Arrays.asList (2L, 2L), collector.timestamps);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RUNNING STATUS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testRunningStatus ()
+  {
+    assertParses ("90 3C 40 3E 40 40 00",
+                  "90 3C 40 | 90 3E 40 | 90 40 00", 0);
+    assertParses ("C0 01 02 03",
+                  "C0 01 | C0 02 | C0 03", 0);
+    // A new Channel status byte replaces the running status.
+    assertParses ("90 3C 40 B1 07 7F 0A 40",
+                  "90 3C 40 | B1 07 7F | B1 0A 40", 0);
+  }
+  
+  @Test
+  public void testRunningStatusCancelledBySystemCommonAndSysEx ()
+  {
+    assertParses ("90 3C 40 F6 3E 40",
+                  "90 3C 40 | F6", 2);
+    assertParses ("90 3C 40 F3 01 3E 40",
+                  "90 3C 40 | F3 01", 2);
+    assertParses ("90 3C 40 F0 01 F7 3E 40",
+                  "90 3C 40 | F0 01 F7", 2);
+  }
+  
+  @Test
+  public void testDataBytesWithoutStatus ()
+  {
+    // E.g., joining a stream in the middle of a message.
+    assertParses ("3C 40 90 3C 40",
+                  "90 3C 40", 2);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM REAL-TIME
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testRealTimeBetweenDataBytes ()
+  {
+    assertParses ("90 F8 3C FE 40",
+                  "F8 | FE | 90 3C 40", 0);
+    // ... and inside running-status messages; Real-Time does not affect the running status.
+    assertParses ("90 3C 40 F8 3E FA 40 FF",
+                  "90 3C 40 | F8 | FA | 90 3E 40 | FF", 0);
+  }
+  
+  @Test
+  public void testRealTimeInsideSysEx ()
+  {
+    assertParses ("F0 43 F8 10 FE 4C F7",
+                  "F8 | FE | F0 43 10 4C F7", 0);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // SYSTEM EXCLUSIVE / STRAY BYTES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testSysExTerminatedByStatus ()
+  {
+    assertParses ("F0 43 10 90 3C 40",
+                  "F0 43 10 F7 | 90 3C 40", 0);
+    assertParses ("F0 43 10 F0 01 F7",
+                  "F0 43 10 F7 | F0 01 F7", 0);
+    assertParses ("F0 F7",
+                  "F0 F7", 0);
+  }
+  
+  @Test
+  public void testStrayEndOfExclusive ()
+  {
+    assertParses ("F7", "", 1);
+    // A stray End of Exclusive cancels the running status, like any System Common status byte.
+    assertParses ("90 3C 40 F7 3E 40 C0 01",
+                  "90 3C 40 | C0 01", 3);
+  }
+  
+  @Test
+  public void testUndefinedSystemCommon ()
+  {
+    assertParses ("F4 F5 90 3C 40",
+                  "90 3C 40", 2);
+    assertParses ("90 3C 40 F5 3E 40",
+                  "90 3C 40", 3);
+  }
+  
+  @Test
+  public void testOversizeSysEx ()
+  {
+    final Collector collector = new Collector ();
+    final RawMidiStreamParser parser = new RawMidiStreamParser (collector, 8, true);
+    // Exactly the maximum size.
+    parser.parse (bytes ("F0 01 02 03 04 05 06 F7"), 0L);
+    assertEquals (messages ("F0 01 02 03 04 05 06 F7"), collector.messages);
+    assertEquals (0, parser.getDiscardedByteCount ());
+    // One byte too large: no room for End of Exclusive.
+    parser.parse (bytes ("F0 01 02 03 04 05 06 07 F7"), 0L);
+    assertEquals (9, parser.getDiscardedByteCount ());
+    // Much too large, terminated by a status byte; the next message is intact, and Real-Time bytes still pass.
+    parser.parse (bytes ("F0 01 02 03 04 05 06 07 08 F8 09 0A 90 3C 40"), 0L);
+    assertEquals (9 + 11, parser.getDiscardedByteCount ());
+    assertEquals (messages ("F0 01 02 03 04 05 06 F7 | F8 | 90 3C 40"), collector.messages);
+  }
+  
+  @Test
+  public void testReset ()
+  {
+    final Collector collector = new Collector ();
+    final RawMidiStreamParser parser = new RawMidiStreamParser (collector);
+    parser.parse (bytes ("90 3C 40 3E"), 0L);
+    parser.reset ();
+    // Neither the partial message nor the running status survive.
+    parser.parse (bytes ("40 3E 40 F0 01"), 0L);
+    parser.reset ();
+    parser.parse (bytes ("02 F7 C0 01"), 0L);
+    assertEquals (messages ("90 3C 40 | C0 01"), collector.messages);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CHUNKS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final String STREAM
+    = "90 3C 40 3E 40 F8 40 00 B0 07 F8 7F 0A 40 F0 43 10 FE 4C 00 F7 C0 01 02 F2 01 02 F6 F3 05 E1 00 40 F1 23"
+    + " F0 01 02 90 3C 40 F7 FA F4 3C D0 20";
+    
+  private static final String STREAM_MESSAGES
+    = "90 3C 40 | 90 3E 40 | F8 | 90 40 00 | F8 | B0 07 7F | B0 0A 40 | FE | F0 43 10 4C 00 F7 | C0 01 | C0 02"
+    + " | F2 01 02 | F6 | F3 05 | E1 00 40 | F1 23 | F0 01 02 F7 | 90 3C 40 | FA | D0 20";
+    
+  @Test
+  public void testChunkSplitAtEveryByte ()
+  {
+    final byte[] stream = bytes (STREAM);
+    final List<String> expected = messages (STREAM_MESSAGES);
+    final Collector whole = parse (STREAM);
+    assertEquals (expected, whole.messages);
+    for (int split = 0; split <= stream.length; split++)
+    {
+      final Collector collector = new Collector ();
+      final RawMidiStreamParser parser = new RawMidiStreamParser (collector);
+      parser.parse (stream, 0, split, 0L);
+      parser.parse (stream, split, stream.length - split, 0L);
+      assertEquals ("split at " + split, expected, collector.messages);
+      // The stray End of Exclusive, the undefined F4, and the data byte following it.
+      assertEquals (3, parser.getDiscardedByteCount ());
+    }
+    // Three-way splits through the ByteBuffer and single-byte entries.
+    for (int split1 = 0; split1 <= stream.length; split1++)
+      for (int split2 = split1; split2 <= stream.length; split2++)
+      {
+        final Collector collector = new Collector ();
+        final RawMidiStreamParser parser = new RawMidiStreamParser (collector);
+        parser.parse (ByteBuffer.wrap (stream, 0, split1), 0L);
+        for (int i = split1; i < split2; i++)
+          parser.parse (stream[i], 0L);
+        parser.parse (stream, split2, stream.length - split2, 0L);
+        assertEquals ("splits at " + split1 + ", " + split2, expected, collector.messages);
+      }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // ARRAYS / EVENTS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testReusedAndFreshArrays ()
+  {
+    final Collector reused = new Collector ();
+    new RawMidiStreamParser (reused).parse (bytes ("90 3C 40 3E 40 F0 01 F7 F0 01 F7"), 0L);
+    assertSame (reused.arrays.get (0), reused.arrays.get (1));
+    assertNotSame (reused.arrays.get (2), reused.arrays.get (3));
+    final Collector fresh = new Collector ();
+    new RawMidiStreamParser (fresh, RawMidiStreamParser.DEFAULT_MAX_SYSEX_SIZE, false).parse (bytes ("90 3C 40 3E 40"), 0L);
+    assertNotSame (fresh.arrays.get (0), fresh.arrays.get (1));
+  }
+  
+  @Test
+  public void testEventListener ()
+  {
+    final EventCollector collector = new EventCollector ();
+    new RawMidiStreamParser (collector).parse (bytes (STREAM), 0L);
+    assertEquals (messages (STREAM_MESSAGES), collector.messages);
+    // All but the two System Exclusive messages are reported as events.
+    assertEquals (messages (STREAM_MESSAGES).size () - 2, collector.eventCount);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
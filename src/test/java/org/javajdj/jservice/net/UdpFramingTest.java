@@ -0,0 +1,368 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link UdpFraming} and {@link UdpTxHistory}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class UdpFramingTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final int SENDER_ID = 0x12345678;
+  
+  private static final class Receiver
+    implements UdpFraming.Receiver
+  {
+    
+    private final Map<Integer, UdpSenderStatistics> statistics = new HashMap<> ();
+    
+    private int unframedCount = 0;
+    
+    private final List<byte[]> recovered = new ArrayList<> ();
+    
+    @Override
+    public UdpSenderStatistics getSenderStatistics (final int senderId)
+    {
+      return this.statistics.computeIfAbsent (senderId, UdpSenderStatistics::new);
+    }
+    
+    @Override
+    public void unframed ()
+    {
+      this.unframedCount++;
+    }
+    
+    @Override
+    public void payloadRecovered (final ByteBuffer payload, final long timestamp)
+    {
+      final byte[] copy = new byte[payload.remaining ()];
+      payload.duplicate ().get (copy);
+      this.recovered.add (copy);
+    }
+    
+  }
+  
+  private static byte[] payload (final int sequence, final int length)
+  {
+    final byte[] payload = new byte[length];
+    for (int i = 0; i < length; i++)
+      payload[i] = (byte) (sequence + i);
+    return payload;
+  }
+  
+  private static ByteBuffer frame (final UdpTxHistory history,
+                                   final int sequence,
+                                   final int redundancy,
+                                   final int mtu,
+                                   final byte[] payload)
+  {
+    final ByteBuffer out = ByteBuffer.allocate (UdpMulticastService.MAX_PACKING_MTU);
+    UdpFraming.frame (history, UdpFramingTest.SENDER_ID, sequence, redundancy, mtu, payload, payload.length, out);
+    return out;
+  }
+  
+  private static byte[] remaining (final ByteBuffer buffer)
+  {
+    final byte[] bytes = new byte[buffer.remaining ()];
+    buffer.duplicate ().get (bytes);
+    return bytes;
+  }
+  
+  /** Returns the number of redundant entries in a framed datagram.
+   * 
+   */
+  private static int entries (final ByteBuffer datagram)
+  {
+    assertEquals (UdpFraming.FLAG_REDUNDANCY, datagram.get (2));
+    return datagram.get (UdpFraming.HEADER_SIZE) & 0xff;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // HEADER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testHeader ()
+  {
+    assertEquals (UdpFraming.HEADER_SIZE, UdpMulticastService.FRAME_HEADER_SIZE);
+    final ByteBuffer datagram = frame (new UdpTxHistory (), 0x0A0B0C0D, 0, 1472, new byte[] { (byte) 0xF8 });
+    assertArrayEquals (new byte[] { (byte) 0xFD, 0x4A, 0x00, 0x12, 0x34, 0x56, 0x78, 0x0A, 0x0B, 0x0C, 0x0D, (byte) 0xF8 },
+                       remaining (datagram));
+    final Receiver receiver = new Receiver ();
+    assertTrue (UdpFraming.unframe (datagram, 0L, receiver));
+    assertEquals (UdpFraming.HEADER_SIZE, datagram.position ());
+    assertEquals (UdpFraming.HEADER_SIZE + 1, datagram.limit ());
+    assertEquals (0, receiver.unframedCount);
+    assertEquals (0x0A0B0C0D, receiver.getSenderStatistics (UdpFramingTest.SENDER_ID).getHighestSequence ());
+  }
+  
+  @Test
+  public void testHeaderOnly ()
+  {
+    final ByteBuffer datagram = frame (new UdpTxHistory (), 1, 0, 1472, new byte[0]);
+    assertEquals (UdpFraming.HEADER_SIZE, datagram.remaining ());
+    assertTrue (UdpFraming.unframe (datagram, 0L, new Receiver ()));
+    assertFalse (datagram.hasRemaining ());
+  }
+  
+  @Test
+  public void testDuplicate ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    final Receiver receiver = new Receiver ();
+    for (int sequence = 0; sequence < 4; sequence++)
+    {
+      final ByteBuffer datagram = frame (history, sequence, 2, 1472, payload (sequence, 3));
+      assertTrue (UdpFraming.unframe (datagram.duplicate (), 0L, receiver));
+      assertFalse (UdpFraming.unframe (datagram.duplicate (), 0L, receiver));
+    }
+    // Redundant entries for received datagrams are never handed over.
+    assertTrue (receiver.recovered.isEmpty ());
+    assertEquals (4, receiver.getSenderStatistics (UdpFramingTest.SENDER_ID).getDuplicateCount ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // REDUNDANCY
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testRedundancyBlock ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    frame (history, 10, 2, 1472, payload (10, 2));
+    frame (history, 11, 2, 1472, payload (11, 3));
+    final ByteBuffer datagram = frame (history, 12, 2, 1472, payload (12, 1));
+    assertArrayEquals (new byte[] { (byte) 0xFD, 0x4A, 0x01, 0x12, 0x34, 0x56, 0x78, 0x00, 0x00, 0x00, 0x0C,
+                                    0x02,
+                                    0x02, 0x02, 10, 11,
+                                    0x01, 0x03, 11, 12, 13,
+                                    12 },
+                       remaining (datagram));
+    assertEquals (3, history.size ());
+    assertEquals (12, history.getSequence (0));
+    assertEquals (10, history.getSequence (2));
+  }
+  
+  @Test
+  public void testRecovery ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    final List<ByteBuffer> datagrams = new ArrayList<> ();
+    for (int sequence = 0; sequence < 8; sequence++)
+      datagrams.add (frame (history, sequence, 2, 1472, payload (sequence, 1 + sequence)));
+    final Receiver receiver = new Receiver ();
+    // Datagrams 1 and 2 are lost; 5 arrives after 6.
+    assertTrue (UdpFraming.unframe (datagrams.get (0), 0L, receiver));
+    assertTrue (UdpFraming.unframe (datagrams.get (3), 0L, receiver));
+    assertEquals (2, receiver.recovered.size ());
+    assertArrayEquals (payload (1, 2), receiver.recovered.get (0));
+    assertArrayEquals (payload (2, 3), receiver.recovered.get (1));
+    assertArrayEquals (payload (3, 4), remaining (datagrams.get (3)));
+    assertTrue (UdpFraming.unframe (datagrams.get (4), 0L, receiver));
+    assertTrue (UdpFraming.unframe (datagrams.get (6), 0L, receiver));
+    assertEquals (3, receiver.recovered.size ());
+    assertArrayEquals (payload (5, 6), receiver.recovered.get (2));
+    assertFalse (UdpFraming.unframe (datagrams.get (5), 0L, receiver));
+    final UdpSenderStatistics statistics = receiver.getSenderStatistics (UdpFramingTest.SENDER_ID);
+    assertEquals (4, statistics.getReceivedCount ());
+    assertEquals (3, statistics.getRecoveredCount ());
+    assertEquals (1, statistics.getDuplicateCount ());
+  }
+  
+  @Test
+  public void testNonConsecutiveHistory ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    frame (history, 0, 2, 1472, payload (0, 1));
+    frame (history, 1, 2, 1472, payload (1, 1));
+    // E.g., after a restart of the sequence numbers.
+    assertEquals (0, entries (frame (history, 5, 2, 1472, payload (5, 1))));
+    assertEquals (1, entries (frame (history, 6, 2, 1472, payload (6, 1))));
+    // The redundancy may change between datagrams.
+    assertEquals (2, entries (frame (history, 7, 3, 1472, payload (7, 1))));
+    assertEquals (1, entries (frame (history, 8, 1, 1472, payload (8, 1))));
+  }
+  
+  @Test
+  public void testHistoryWrap ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    for (int sequence = 0; sequence < 3 * UdpMulticastService.MAX_REDUNDANCY; sequence++)
+    {
+      final ByteBuffer datagram = frame (history, sequence, UdpMulticastService.MAX_REDUNDANCY, 1472, payload (sequence, 2));
+      assertEquals (Math.min (sequence, UdpMulticastService.MAX_REDUNDANCY), entries (datagram));
+    }
+    assertEquals (UdpMulticastService.MAX_REDUNDANCY, history.size ());
+    for (int age = 0; age < UdpMulticastService.MAX_REDUNDANCY; age++)
+    {
+      final int sequence = 3 * UdpMulticastService.MAX_REDUNDANCY - 1 - age;
+      assertEquals (sequence, history.getSequence (age));
+      assertEquals (2, history.getLength (age));
+      assertEquals ((byte) sequence, history.getPayload (age)[0]);
+    }
+  }
+  
+  @Test
+  public void testMtuBoundary ()
+  {
+    // Header, entry count, payload: 22 bytes; each entry of ten bytes takes twelve bytes.
+    final int mtu = UdpFraming.HEADER_SIZE + 1 + 10;
+    for (int entries = 0; entries <= 3; entries++)
+      for (final int slack : new int[] { -1, 0, 11 })
+      {
+        final UdpTxHistory history = new UdpTxHistory ();
+        for (int sequence = 0; sequence < 3; sequence++)
+          frame (history, sequence, 3, UdpMulticastService.MAX_PACKING_MTU, payload (sequence, 10));
+        final int datagramMtu = mtu + 12 * entries + slack;
+        final ByteBuffer datagram = frame (history, 3, 3, datagramMtu, payload (3, 10));
+        final int expected = slack < 0 ? Math.max (entries - 1, 0) : Math.min (entries, 3);
+        assertEquals ("entries " + entries + ", slack " + slack, expected, entries (datagram));
+        assertTrue (datagram.remaining () <= Math.max (datagramMtu, mtu));
+      }
+    // The payload itself is always included, even if it exceeds the MTU.
+    final ByteBuffer datagram = frame (new UdpTxHistory (), 0, 1, 8, payload (0, 10));
+    assertEquals (mtu, datagram.remaining ());
+    // The capacity of the buffer limits the redundancy block as well.
+    final UdpTxHistory history = new UdpTxHistory ();
+    frame (history, 0, 1, 1472, payload (0, 10));
+    final ByteBuffer out = ByteBuffer.allocate (mtu + 11);
+    UdpFraming.frame (history, UdpFramingTest.SENDER_ID, 1, 1, 1472, payload (1, 10), 10, out);
+    assertEquals (0, entries (out));
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // INVALID DATAGRAMS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testUnframed ()
+  {
+    final Receiver receiver = new Receiver ();
+    final ByteBuffer message = ByteBuffer.wrap (new byte[] { (byte) 0x90, 0x3C, 0x40 });
+    assertTrue (UdpFraming.unframe (message, 0L, receiver));
+    assertEquals (0, message.position ());
+    // A packed datagram (without framing).
+    final ByteBuffer packed = ByteBuffer.wrap (new byte[] { (byte) 0xFD, 0x50, 0x00, 0x01, (byte) 0xF8,
+                                                            0, 0, 0, 0, 0, 0, 0 });
+    assertTrue (UdpFraming.unframe (packed, 0L, receiver));
+    assertEquals (0, packed.position ());
+    assertEquals (2, receiver.unframedCount);
+    assertTrue (receiver.statistics.isEmpty ());
+  }
+  
+  @Test
+  public void testTruncated ()
+  {
+    final UdpTxHistory history = new UdpTxHistory ();
+    frame (history, 0, 2, 1472, payload (0, 0x100));
+    frame (history, 1, 2, 1472, payload (1, 3));
+    final ByteBuffer datagram = frame (history, 2, 2, 1472, payload (2, 3));
+    final int end = datagram.limit ();
+    // Redundancy block: count, two entries (distance, two-byte prefix, 0x100 bytes; distance, prefix, 3 bytes).
+    final int payloadStart = UdpFraming.HEADER_SIZE + 1 + (1 + 2 + 0x100) + (1 + 1 + 3);
+    assertEquals (payloadStart + 3, end);
+    for (int limit = 0; limit < end; limit++)
+    {
+      final Receiver receiver = new Receiver ();
+      // Datagrams 0 and 1 are lost.
+      final UdpSenderStatistics statistics = receiver.getSenderStatistics (UdpFramingTest.SENDER_ID);
+      assertTrue (statistics.record (-1));
+      datagram.limit (limit).position (0);
+      assertTrue (UdpFraming.unframe (datagram, 0L, receiver));
+      assertEquals (limit, datagram.limit ());
+      if (limit < payloadStart)
+      {
+        assertEquals ("limit " + limit, 1, receiver.unframedCount);
+        assertEquals (0, datagram.position ());
+        assertTrue (receiver.recovered.isEmpty ());
+        assertEquals (1, statistics.getReceivedCount ());
+      }
+      else
+      {
+        // Truncation of the payload itself goes unnoticed.
+        assertEquals (0, receiver.unframedCount);
+        assertEquals (payloadStart, datagram.position ());
+        assertEquals (2, receiver.recovered.size ());
+        assertEquals (2, statistics.getReceivedCount ());
+      }
+    }
+  }
+  
+  @Test
+  public void testGarbage ()
+  {
+    final Random random = new Random (20191018L);
+    final byte[] data = new byte[48];
+    for (int i = 0; i < 100000; i++)
+    {
+      random.nextBytes (data);
+      data[0] = UdpFraming.MAGIC_0;
+      data[1] = UdpFraming.MAGIC_1;
+      data[2] = (byte) random.nextInt (2);
+      // Favor small entry counts and short prefixes, to obtain valid redundancy blocks now and then.
+      for (int j = UdpFraming.HEADER_SIZE; j < data.length; j++)
+        if (random.nextBoolean ())
+          data[j] &= 0x03;
+      final int start = random.nextInt (4);
+      final int end = start + random.nextInt (data.length - start + 1);
+      final ByteBuffer datagram = ByteBuffer.wrap (data, start, end - start).asReadOnlyBuffer ();
+      final Receiver receiver = new Receiver ();
+      UdpFraming.unframe (datagram, 0L, receiver);
+      assertEquals (end, datagram.limit ());
+      if (receiver.unframedCount > 0)
+        assertEquals (start, datagram.position ());
+      else
+        assertTrue (datagram.position () >= start + UdpFraming.HEADER_SIZE);
+      for (final byte[] payload : receiver.recovered)
+        assertTrue (payload.length > 0);
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
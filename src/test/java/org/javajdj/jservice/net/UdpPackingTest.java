@@ -0,0 +1,339 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link UdpPacking}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class UdpPackingTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static ByteBuffer bytes (final int... values)
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate (values.length);
+    for (final int value : values)
+      buffer.put ((byte) value);
+    buffer.flip ();
+    return buffer;
+  }
+  
+  private static ByteBuffer pack (final boolean runningStatus, final byte[]... messages)
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate (UdpMulticastService.MAX_PACKING_MTU);
+    final UdpPacking.Packer packer = new UdpPacking.Packer ();
+    packer.start (buffer, runningStatus);
+    for (final byte[] message : messages)
+      packer.pack (buffer, message);
+    buffer.flip ();
+    return buffer;
+  }
+  
+  private static List<byte[]> unpack (final ByteBuffer datagram)
+  {
+    final List<byte[]> messages = new ArrayList<> ();
+    final int start = datagram.position ();
+    final int end = datagram.limit ();
+    UdpPacking.unpack (datagram, 0L, (message, timestamp) ->
+    {
+      final byte[] copy = new byte[message.remaining ()];
+      message.duplicate ().get (copy);
+      messages.add (copy);
+    });
+    assertEquals (start, datagram.position ());
+    assertEquals (end, datagram.limit ());
+    return messages;
+  }
+  
+  private static void assertRoundTrip (final boolean runningStatus, final byte[]... messages)
+  {
+    final ByteBuffer datagram = pack (runningStatus, messages);
+    assertTrue (UdpPacking.isPacked (datagram));
+    final List<byte[]> unpacked = unpack (datagram);
+    assertEquals (messages.length, unpacked.size ());
+    for (int i = 0; i < messages.length; i++)
+      assertArrayEquals (messages[i], unpacked.get (i));
+  }
+  
+  private static byte[] message (final int... values)
+  {
+    final byte[] message = new byte[values.length];
+    for (int i = 0; i < values.length; i++)
+      message[i] = (byte) values[i];
+    return message;
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // LENGTH PREFIXES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testPrefixBoundaries ()
+  {
+    final int[] prefixes = { 0, 1, 0x7f, 0x80, 0x3fff, 0x4000, 0x1fffff };
+    final int[] sizes = { 1, 1, 1, 2, 2, 3, 3 };
+    for (int i = 0; i < prefixes.length; i++)
+    {
+      final ByteBuffer buffer = ByteBuffer.allocate (8);
+      UdpPacking.putPrefix (buffer, prefixes[i]);
+      assertEquals (sizes[i], buffer.position ());
+      assertEquals (sizes[i], UdpPacking.prefixSize (prefixes[i]));
+      assertEquals (prefixes[i], UdpPacking.getPrefix (buffer, 0, buffer.position ()));
+      // A prefix must not extend beyond the limit.
+      assertEquals (-1, UdpPacking.getPrefix (buffer, 0, buffer.position () - 1));
+    }
+    // Least-significant group first.
+    assertEquals (0x80 + 0x05, UdpPacking.getPrefix (bytes (0x85, 0x01), 0, 2));
+  }
+  
+  @Test
+  public void testInvalidPrefix ()
+  {
+    // Non-minimal encodings.
+    assertEquals (-1, UdpPacking.getPrefix (bytes (0x81, 0x00), 0, 2));
+    assertEquals (-1, UdpPacking.getPrefix (bytes (0x81, 0x81, 0x00), 0, 3));
+    // Longer than three bytes.
+    assertEquals (-1, UdpPacking.getPrefix (bytes (0x81, 0x81, 0x81, 0x01), 0, 4));
+    // Unterminated.
+    assertEquals (-1, UdpPacking.getPrefix (bytes (0x81), 0, 1));
+    assertEquals (-1, UdpPacking.getPrefix (bytes (), 0, 0));
+  }
+  
+  @Test
+  public void testPackedLength ()
+  {
+    final ByteBuffer buffer = bytes (0x02, 0x90, 0x3C);
+    assertEquals (2, UdpPacking.packedLength (buffer, 0, 3));
+    // Exceeding the limit.
+    assertEquals (-1, UdpPacking.packedLength (buffer, 0, 2));
+    // Empty.
+    assertEquals (-1, UdpPacking.packedLength (bytes (0x00, 0x90), 0, 2));
+    assertEquals (3, UdpPacking.packedSize (2));
+    assertEquals (2 + 0x80, UdpPacking.packedSize (0x80));
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PACK / UNPACK
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testHeader ()
+  {
+    assertEquals (UdpPacking.HEADER_SIZE, UdpMulticastService.PACKING_HEADER_SIZE);
+    final ByteBuffer plain = pack (false, message (0xF8));
+    assertEquals (bytes (0xFD, 0x50, 0x00, 0x01, 0xF8), plain);
+    final ByteBuffer runningStatus = pack (true, message (0xF8));
+    assertEquals (bytes (0xFD, 0x50, 0x01, 0x02, 0xF8), runningStatus);
+  }
+  
+  @Test
+  public void testRoundTrip ()
+  {
+    assertRoundTrip (false, message (0x90, 0x3C, 0x40));
+    assertRoundTrip (false, message (0x90, 0x3C, 0x40), message (0x90, 0x3E, 0x40), message (0xF8), message (0xF8));
+    assertRoundTrip (true, message (0x90, 0x3C, 0x40), message (0x90, 0x3E, 0x40), message (0xF8), message (0xF8));
+    final byte[] large = new byte[0x100];
+    Arrays.fill (large, (byte) 0x11);
+    assertRoundTrip (false, message (0xF8), large, message (0xF8));
+    assertRoundTrip (true, large, large, message (0xF8));
+  }
+  
+  @Test
+  public void testRunningStatus ()
+  {
+    final ByteBuffer datagram = pack (true, message (0x90, 0x3C, 0x40), message (0x90, 0x3E, 0x40), message (0x80, 0x3C, 0x00));
+    assertEquals (bytes (0xFD, 0x50, 0x01,
+                         0x06, 0x90, 0x3C, 0x40,
+                         // Two bytes stored, first byte omitted.
+                         0x05, 0x3E, 0x40,
+                         0x06, 0x80, 0x3C, 0x00),
+                  datagram);
+    // Single-byte messages are never elided.
+    assertEquals (bytes (0xFD, 0x50, 0x01, 0x02, 0xF8, 0x02, 0xF8), pack (true, message (0xF8), message (0xF8)));
+    // The omitted first byte is restored from the last message stored in full.
+    final List<byte[]> unpacked = unpack (pack (true,
+                                                message (0x90, 0x3C, 0x40),
+                                                message (0x90, 0x3E, 0x40),
+                                                message (0x90, 0x40, 0x40)));
+    assertArrayEquals (message (0x90, 0x40, 0x40), unpacked.get (2));
+  }
+  
+  @Test
+  public void testPackerSize ()
+  {
+    final UdpPacking.Packer packer = new UdpPacking.Packer ();
+    final ByteBuffer buffer = ByteBuffer.allocate (UdpMulticastService.MAX_PACKING_MTU);
+    for (final boolean runningStatus : new boolean[] { false, true })
+      for (int length = 1; length < 0x200; length++)
+      {
+        final byte[] message = new byte[length];
+        message[0] = (byte) 0x90;
+        for (int n = 0; n < 2; n++)
+        {
+          buffer.clear ();
+          packer.start (buffer, runningStatus);
+          if (n == 1)
+            packer.pack (buffer, message);
+          final int position = buffer.position ();
+          final int packedSize = packer.packedSize (message);
+          assertTrue (packedSize <= UdpPacking.maxPackedSize (length));
+          packer.pack (buffer, message);
+          assertEquals (packedSize, buffer.position () - position);
+        }
+      }
+  }
+  
+  @Test
+  public void testMtuBoundary ()
+  {
+    for (final boolean runningStatus : new boolean[] { false, true })
+    {
+      // The largest single message that fits in a datagram of the maximum MTU.
+      int length = UdpMulticastService.MAX_PACKING_MTU - UdpPacking.HEADER_SIZE - 1;
+      while (UdpPacking.HEADER_SIZE + UdpPacking.maxPackedSize (length) > UdpMulticastService.MAX_PACKING_MTU)
+        length--;
+      final byte[] message = new byte[length];
+      message[0] = (byte) 0xF0;
+      final ByteBuffer datagram = pack (runningStatus, message);
+      assertEquals (UdpMulticastService.MAX_PACKING_MTU, datagram.limit ());
+      assertTrue (UdpPacking.isPacked (datagram));
+      assertArrayEquals (message, unpack (datagram).get (0));
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // INVALID DATAGRAMS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testInvalidHeader ()
+  {
+    assertTrue (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x01, 0xF8)));
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x51, 0x00, 0x01, 0xF8)));
+    assertFalse (UdpPacking.isPacked (bytes (0xFC, 0x50, 0x00, 0x01, 0xF8)));
+    // Unsupported flags.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x02, 0x01, 0xF8)));
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x80, 0x01, 0xF8)));
+    // Header only.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00)));
+    assertFalse (UdpPacking.isPacked (bytes ()));
+  }
+  
+  @Test
+  public void testInvalidMessages ()
+  {
+    // Empty message.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x01, 0xF8, 0x00)));
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x01, 0x01, 0xF8)));
+    // First message with omitted first byte.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x01, 0x05, 0x3C, 0x40)));
+    // Without running status, the same prefix is just a length.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x05, 0x3C, 0x40)));
+    assertTrue (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x02, 0x3C, 0x40)));
+    // Non-minimal prefix.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x81, 0x00, 0xF8)));
+    // Trailing garbage.
+    assertFalse (UdpPacking.isPacked (bytes (0xFD, 0x50, 0x00, 0x01, 0xF8, 0x02, 0xF8)));
+  }
+  
+  @Test
+  public void testTruncated ()
+  {
+    final byte[] large = new byte[0x100];
+    large[0] = (byte) 0xF0;
+    for (final boolean runningStatus : new boolean[] { false, true })
+    {
+      final ByteBuffer datagram = pack (runningStatus,
+                                        message (0x90, 0x3C, 0x40),
+                                        message (0x90, 0x3E, 0x40),
+                                        large,
+                                        message (0xF8));
+      // The message boundaries, at which a truncated datagram is still valid (holding fewer messages).
+      final int[] boundaries = runningStatus ? new int[] { 7, 10, 12 + 0x100 } : new int[] { 7, 11, 13 + 0x100 };
+      final int end = datagram.limit ();
+      for (int limit = 0; limit < end; limit++)
+      {
+        datagram.limit (limit);
+        assertEquals ("limit " + limit, Arrays.binarySearch (boundaries, limit) >= 0, UdpPacking.isPacked (datagram));
+      }
+    }
+  }
+  
+  @Test
+  public void testGarbage ()
+  {
+    final Random random = new Random (20191018L);
+    final byte[] data = new byte[64];
+    for (int i = 0; i < 100000; i++)
+    {
+      random.nextBytes (data);
+      data[0] = UdpPacking.MAGIC_0;
+      data[1] = UdpPacking.MAGIC_1;
+      data[2] = (byte) random.nextInt (2);
+      // Favor short prefixes, to obtain valid datagrams now and then.
+      for (int j = 3; j < data.length; j++)
+        if (random.nextBoolean ())
+          data[j] &= 0x07;
+      final int start = random.nextInt (4);
+      final ByteBuffer datagram = ByteBuffer.wrap (data, start, random.nextInt (data.length - start + 1)).asReadOnlyBuffer ();
+      if (UdpPacking.isPacked (datagram))
+      {
+        int size = datagram.remaining () - UdpPacking.HEADER_SIZE;
+        for (final byte[] message : unpack (datagram))
+        {
+          assertTrue (message.length > 0);
+          size -= message.length;
+        }
+        // Each prefix takes at least one byte, and each message omits at most one byte.
+        assertTrue (size >= 0);
+      }
+      assertEquals (start, datagram.position ());
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
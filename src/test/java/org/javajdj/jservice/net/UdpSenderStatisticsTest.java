@@ -0,0 +1,269 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.jservice.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link UdpSenderStatistics}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class UdpSenderStatisticsTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static void assertCounts (final UdpSenderStatistics statistics,
+                                    final long received,
+                                    final long lost,
+                                    final long duplicates,
+                                    final long reordered,
+                                    final long restarts,
+                                    final long recovered)
+  {
+    assertEquals ("received", received, statistics.getReceivedCount ());
+    assertEquals ("lost", lost, statistics.getLostCount ());
+    assertEquals ("duplicates", duplicates, statistics.getDuplicateCount ());
+    assertEquals ("reordered", reordered, statistics.getReorderedCount ());
+    assertEquals ("restarts", restarts, statistics.getRestartCount ());
+    assertEquals ("recovered", recovered, statistics.getRecoveredCount ());
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECORD
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testInOrder ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (7);
+    assertEquals (7, statistics.getSenderId ());
+    assertEquals (0, statistics.getHighestSequence ());
+    for (int sequence = 100; sequence < 1100; sequence++)
+      assertTrue (statistics.record (sequence));
+    assertEquals (1099, statistics.getHighestSequence ());
+    assertCounts (statistics, 1000, 0, 0, 0, 0, 0);
+  }
+  
+  @Test
+  public void testGap ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (11));
+    assertTrue (statistics.record (15));
+    assertEquals (15, statistics.getHighestSequence ());
+    assertCounts (statistics, 3, 3, 0, 0, 0, 0);
+    // A gap larger than the window.
+    assertTrue (statistics.record (15 + 1000));
+    assertCounts (statistics, 4, 3 + 999, 0, 0, 0, 0);
+  }
+  
+  @Test
+  public void testReorderInsideWindow ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (13));
+    assertCounts (statistics, 2, 2, 0, 0, 0, 0);
+    assertTrue (statistics.record (12));
+    assertTrue (statistics.record (11));
+    assertCounts (statistics, 4, 0, 0, 2, 0, 0);
+    // At the far edge of the window.
+    assertTrue (statistics.record (13 + UdpSenderStatistics.WINDOW_SIZE));
+    assertCounts (statistics, 5, UdpSenderStatistics.WINDOW_SIZE - 1, 0, 2, 0, 0);
+    assertTrue (statistics.record (14));
+    assertCounts (statistics, 6, UdpSenderStatistics.WINDOW_SIZE - 2, 0, 3, 0, 0);
+    assertEquals (13 + UdpSenderStatistics.WINDOW_SIZE, statistics.getHighestSequence ());
+  }
+  
+  @Test
+  public void testReorderOutsideWindow ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (12 + UdpSenderStatistics.WINDOW_SIZE));
+    final long lost = 1 + UdpSenderStatistics.WINDOW_SIZE;
+    assertCounts (statistics, 2, lost, 0, 0, 0, 0);
+    // Beyond the window, a late arrival is accepted, but remains counted as lost.
+    assertTrue (statistics.record (11));
+    assertCounts (statistics, 3, lost, 0, 1, 0, 0);
+    // ... and its duplicate cannot be detected.
+    assertTrue (statistics.record (11));
+    assertCounts (statistics, 4, lost, 0, 2, 0, 0);
+  }
+  
+  @Test
+  public void testDuplicate ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertFalse (statistics.record (10));
+    assertTrue (statistics.record (12));
+    assertFalse (statistics.record (12));
+    assertTrue (statistics.record (11));
+    assertFalse (statistics.record (11));
+    assertFalse (statistics.record (10));
+    assertCounts (statistics, 3, 0, 4, 1, 0, 0);
+  }
+  
+  @Test
+  public void testOlderThanFirst ()
+  {
+    // Datagrams sent before the first one recorded were never counted as lost.
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (9));
+    assertFalse (statistics.record (9));
+    assertCounts (statistics, 2, 0, 1, 1, 0, 0);
+  }
+  
+  @Test
+  public void testWrapAround ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (Integer.MAX_VALUE - 1));
+    assertTrue (statistics.record (Integer.MAX_VALUE));
+    assertTrue (statistics.record (Integer.MIN_VALUE));
+    assertTrue (statistics.record (Integer.MIN_VALUE + 2));
+    assertTrue (statistics.record (Integer.MIN_VALUE + 1));
+    assertCounts (statistics, 5, 0, 0, 1, 0, 0);
+    assertEquals (Integer.MIN_VALUE + 2, statistics.getHighestSequence ());
+    // Unsigned wrap from 2^32 - 1 to zero.
+    final UdpSenderStatistics unsigned = new UdpSenderStatistics (0);
+    assertTrue (unsigned.record (-2));
+    assertTrue (unsigned.record (-1));
+    assertTrue (unsigned.record (1));
+    assertFalse (unsigned.record (-1));
+    assertTrue (unsigned.record (0));
+    assertCounts (unsigned, 4, 0, 1, 1, 0, 0);
+  }
+  
+  @Test
+  public void testRestartJump ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (1000));
+    assertTrue (statistics.record (1001));
+    // A jump just within the limit is a gap.
+    assertTrue (statistics.record (1001 + UdpSenderStatistics.MAX_SEQUENCE_JUMP));
+    assertCounts (statistics, 3, UdpSenderStatistics.MAX_SEQUENCE_JUMP - 1, 0, 0, 0, 0);
+    // A larger jump (forward or backward) is a restart, and does not affect the loss count.
+    final long lost = statistics.getLostCount ();
+    assertTrue (statistics.record (1001 + 3 * UdpSenderStatistics.MAX_SEQUENCE_JUMP));
+    assertCounts (statistics, 4, lost, 0, 0, 1, 0);
+    assertTrue (statistics.record (5));
+    assertCounts (statistics, 5, lost, 0, 0, 2, 0);
+    assertEquals (5, statistics.getHighestSequence ());
+    // The restarted stream is tracked from its new sequence number.
+    assertTrue (statistics.record (6));
+    assertTrue (statistics.record (8));
+    assertTrue (statistics.record (7));
+    assertFalse (statistics.record (7));
+    assertCounts (statistics, 8, lost, 1, 1, 2, 0);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // RECOVER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testRecoverBeforeStart ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertFalse (statistics.recover (10));
+    assertCounts (statistics, 0, 0, 0, 0, 0, 0);
+  }
+  
+  @Test
+  public void testRecoverOlderThanFirst ()
+  {
+    // Redundant data in the first datagram(s) must not replay messages sent before we joined.
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertFalse (statistics.recover (9));
+    assertFalse (statistics.recover (8));
+    assertCounts (statistics, 1, 0, 0, 0, 0, 0);
+  }
+  
+  @Test
+  public void testRecoverGap ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (13));
+    assertTrue (statistics.recover (11));
+    assertTrue (statistics.recover (12));
+    // Recovered datagrams remain counted as lost.
+    assertCounts (statistics, 2, 2, 0, 0, 0, 2);
+    // Recovering twice, or recovering a received datagram, is refused.
+    assertFalse (statistics.recover (11));
+    assertFalse (statistics.recover (13));
+    assertFalse (statistics.recover (10));
+    // The original arriving late after recovery is a duplicate.
+    assertFalse (statistics.record (12));
+    assertCounts (statistics, 2, 2, 1, 0, 0, 2);
+  }
+  
+  @Test
+  public void testRecoverAhead ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    // The datagram carrying the redundant data (say, 14) is itself processed after the recovery of 12.
+    assertTrue (statistics.recover (12));
+    assertEquals (12, statistics.getHighestSequence ());
+    assertCounts (statistics, 1, 2, 0, 0, 0, 1);
+    assertTrue (statistics.recover (11));
+    assertTrue (statistics.record (14));
+    assertCounts (statistics, 2, 3, 0, 0, 0, 2);
+    // Ahead beyond the maximum jump is refused.
+    assertFalse (statistics.recover (14 + UdpSenderStatistics.MAX_SEQUENCE_JUMP + 1));
+    assertEquals (14, statistics.getHighestSequence ());
+  }
+  
+  @Test
+  public void testRecoverOutsideWindow ()
+  {
+    final UdpSenderStatistics statistics = new UdpSenderStatistics (0);
+    assertTrue (statistics.record (10));
+    assertTrue (statistics.record (12 + UdpSenderStatistics.WINDOW_SIZE));
+    assertFalse (statistics.recover (11));
+    assertTrue (statistics.recover (13));
+    assertCounts (statistics, 2, 1 + UdpSenderStatistics.WINDOW_SIZE, 0, 0, 0, 1);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}
@@ -0,0 +1,359 @@
+/* 
+ * Copyright 2019 Jan de Jongh <jfcmdejongh@gmail.com>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * 
+ */
+package org.javajdj.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.javajdj.util.concurrent.SpscRingBuffer.WaitStrategy;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Tests for {@link SpscRingBuffer}.
+ * 
+ * @author Jan de Jongh {@literal <jfcmdejongh@gmail.com>}
+ * 
+ */
+public class SpscRingBufferTest
+{
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // CONSTRUCTION
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testZeroCapacity ()
+  {
+    new SpscRingBuffer<> (0, WaitStrategy.PARK);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testExcessiveCapacity ()
+  {
+    new SpscRingBuffer<> ((1 << 30) + 1, WaitStrategy.PARK);
+  }
+  
+  @Test (expected = IllegalArgumentException.class)
+  public void testNullWaitStrategy ()
+  {
+    new SpscRingBuffer<> (16, null);
+  }
+  
+  @Test (expected = NullPointerException.class)
+  public void testOfferNull ()
+  {
+    new SpscRingBuffer<> (16, WaitStrategy.PARK).offer (null);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // FULL / EMPTY / WRAP-AROUND
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  @Test
+  public void testEmpty ()
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, WaitStrategy.PARK);
+    assertTrue (queue.isEmpty ());
+    assertEquals (0, queue.size ());
+    assertEquals (4, queue.remainingCapacity ());
+    assertNull (queue.peek ());
+    assertNull (queue.poll ());
+    assertFalse (queue.iterator ().hasNext ());
+  }
+  
+  @Test
+  public void testFullWithNonPowerOfTwoCapacity ()
+  {
+    // The ring has length 4, but the capacity (3) must be honored.
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (3, WaitStrategy.PARK);
+    assertEquals (3, queue.getCapacity ());
+    assertTrue (queue.offer (1));
+    assertTrue (queue.offer (2));
+    assertTrue (queue.offer (3));
+    assertFalse (queue.offer (4));
+    assertEquals (3, queue.size ());
+    assertEquals (0, queue.remainingCapacity ());
+    assertEquals (Integer.valueOf (1), queue.peek ());
+    assertEquals (Integer.valueOf (1), queue.poll ());
+    assertTrue (queue.offer (4));
+    assertFalse (queue.offer (5));
+    assertEquals (Integer.valueOf (2), queue.poll ());
+    assertEquals (Integer.valueOf (3), queue.poll ());
+    assertEquals (Integer.valueOf (4), queue.poll ());
+    assertNull (queue.poll ());
+    assertTrue (queue.isEmpty ());
+  }
+  
+  @Test
+  public void testWrapAround ()
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (5, WaitStrategy.PARK);
+    int nextIn = 0;
+    int nextOut = 0;
+    // Vary the fill level, so the sequences wrap around the ring at every possible offset.
+    for (int round = 0; round < 10000; round++)
+    {
+      final int fill = round % (queue.getCapacity () + 1);
+      while (queue.size () < fill)
+        assertTrue (queue.offer (nextIn++));
+      final int drain = (round * 7) % (fill + 1);
+      for (int i = 0; i < drain; i++)
+        assertEquals (Integer.valueOf (nextOut++), queue.poll ());
+      assertEquals (nextIn - nextOut, queue.size ());
+    }
+    while (! queue.isEmpty ())
+      assertEquals (Integer.valueOf (nextOut++), queue.poll ());
+    assertEquals (nextIn, nextOut);
+  }
+  
+  @Test
+  public void testIteratorAndDrainTo ()
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, WaitStrategy.PARK);
+    for (int i = 0; i < 6; i++)
+    {
+      queue.offer (i);
+      queue.poll ();
+    }
+    queue.offer (10);
+    queue.offer (11);
+    queue.offer (12);
+    final List<Integer> iterated = new ArrayList<> ();
+    for (final Iterator<Integer> i = queue.iterator (); i.hasNext ();)
+      iterated.add (i.next ());
+    assertEquals (Arrays.asList (10, 11, 12), iterated);
+    final List<Integer> drained = new ArrayList<> ();
+    assertEquals (2, queue.drainTo (drained, 2));
+    assertEquals (1, queue.drainTo (drained));
+    assertEquals (Arrays.asList (10, 11, 12), drained);
+    assertTrue (queue.isEmpty ());
+  }
+  
+  @Test (expected = UnsupportedOperationException.class)
+  public void testIteratorRemove ()
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, WaitStrategy.PARK);
+    queue.offer (1);
+    final Iterator<Integer> iterator = queue.iterator ();
+    iterator.next ();
+    iterator.remove ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // TIMED POLL / OFFER
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static final long TIMEOUT_MS = 50;
+  
+  private static void testTimedPollTimesOut (final WaitStrategy waitStrategy) throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, waitStrategy);
+    final long start = System.nanoTime ();
+    assertNull (queue.poll (TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertTrue (System.nanoTime () - start >= TimeUnit.MILLISECONDS.toNanos (TIMEOUT_MS));
+  }
+  
+  private static void testTimedOfferTimesOut (final WaitStrategy waitStrategy) throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (2, waitStrategy);
+    assertTrue (queue.offer (1, TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertTrue (queue.offer (2, TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    final long start = System.nanoTime ();
+    assertFalse (queue.offer (3, TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertTrue (System.nanoTime () - start >= TimeUnit.MILLISECONDS.toNanos (TIMEOUT_MS));
+    assertEquals (2, queue.size ());
+  }
+  
+  private static void testTimedPollIsWokenUp (final WaitStrategy waitStrategy) throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, waitStrategy);
+    final Thread producer = new Thread (() ->
+    {
+      sleep (TIMEOUT_MS);
+      queue.offer (42);
+    });
+    producer.start ();
+    final long start = System.nanoTime ();
+    assertEquals (Integer.valueOf (42), queue.poll (10, TimeUnit.SECONDS));
+    assertTrue (System.nanoTime () - start < TimeUnit.SECONDS.toNanos (5));
+    producer.join ();
+  }
+  
+  private static void testTimedOfferIsWokenUp (final WaitStrategy waitStrategy) throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (1, waitStrategy);
+    assertTrue (queue.offer (1));
+    final Thread consumer = new Thread (() ->
+    {
+      sleep (TIMEOUT_MS);
+      queue.poll ();
+    });
+    consumer.start ();
+    final long start = System.nanoTime ();
+    assertTrue (queue.offer (2, 10, TimeUnit.SECONDS));
+    assertTrue (System.nanoTime () - start < TimeUnit.SECONDS.toNanos (5));
+    consumer.join ();
+    assertEquals (Integer.valueOf (2), queue.poll ());
+  }
+  
+  private static void testTimed (final WaitStrategy waitStrategy) throws InterruptedException
+  {
+    testTimedPollTimesOut (waitStrategy);
+    testTimedOfferTimesOut (waitStrategy);
+    testTimedPollIsWokenUp (waitStrategy);
+    testTimedOfferIsWokenUp (waitStrategy);
+  }
+  
+  @Test
+  public void testTimedPark () throws InterruptedException
+  {
+    testTimed (WaitStrategy.PARK);
+  }
+  
+  @Test
+  public void testTimedSpinThenPark () throws InterruptedException
+  {
+    testTimed (WaitStrategy.SPIN_THEN_PARK);
+  }
+  
+  @Test
+  public void testTimedBusySpin () throws InterruptedException
+  {
+    testTimed (WaitStrategy.BUSY_SPIN);
+  }
+  
+  @Test (expected = InterruptedException.class)
+  public void testTakeInterrupted () throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (4, WaitStrategy.PARK);
+    Thread.currentThread ().interrupt ();
+    queue.take ();
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // PRODUCER / CONSUMER STRESS
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  /** Runs a producer (put) and a consumer (take) thread through a small queue, and checks order and completeness.
+   * 
+   * <p>
+   * The small capacity forces both sides to wait frequently, exercising the park/unpark hand-shakes;
+   * a lost wake-up shows up as a hang, caught by the test timeout.
+   * 
+   */
+  private static void stress (final WaitStrategy waitStrategy, final int capacity, final int count)
+    throws InterruptedException
+  {
+    final SpscRingBuffer<Integer> queue = new SpscRingBuffer<> (capacity, waitStrategy);
+    final AtomicReference<Throwable> failure = new AtomicReference<> ();
+    final Thread producer = new Thread (() ->
+    {
+      try
+      {
+        for (int i = 0; i < count; i++)
+          queue.put (i);
+      }
+      catch (Throwable t)
+      {
+        failure.compareAndSet (null, t);
+      }
+    });
+    final Thread consumer = new Thread (() ->
+    {
+      try
+      {
+        for (int i = 0; i < count; i++)
+        {
+          final Integer e = queue.take ();
+          if (e != i)
+            throw new AssertionError ("Expected " + i + ", got " + e + ".");
+        }
+      }
+      catch (Throwable t)
+      {
+        failure.compareAndSet (null, t);
+      }
+    });
+    producer.start ();
+    consumer.start ();
+    producer.join ();
+    consumer.join ();
+    if (failure.get () != null)
+      throw new AssertionError (failure.get ());
+    assertTrue (queue.isEmpty ());
+  }
+  
+  @Test (timeout = 60000)
+  public void testStressPark () throws InterruptedException
+  {
+    stress (WaitStrategy.PARK, 2, 200000);
+  }
+  
+  @Test (timeout = 60000)
+  public void testStressSpinThenPark () throws InterruptedException
+  {
+    stress (WaitStrategy.SPIN_THEN_PARK, 2, 200000);
+  }
+  
+  @Test (timeout = 60000)
+  public void testStressBusySpin () throws InterruptedException
+  {
+    // Fewer elements: on a single CPU, busy-spinning threads only make progress upon preemption.
+    stress (WaitStrategy.BUSY_SPIN, 64, 20000);
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // UTILITIES
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+  private static void sleep (final long millis)
+  {
+    try
+    {
+      Thread.sleep (millis);
+    }
+    catch (InterruptedException ie)
+    {
+      fail ();
+    }
+  }
+  
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  //
+  // END OF FILE
+  //
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  
+}